@@ -0,0 +1,18 @@
+package cn.mybop.redisclient;
+
+public class DeadlineExceededException extends RedisException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -4208623436196511853L;
+
+	public DeadlineExceededException(String message) {
+		super(message);
+	}
+
+	public DeadlineExceededException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
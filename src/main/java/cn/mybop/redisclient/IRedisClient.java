@@ -2,6 +2,7 @@ package cn.mybop.redisclient;
 
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import cn.mybop.redisclient.lifecycle.Lifecycle;
@@ -190,6 +191,26 @@ public interface IRedisClient extends Lifecycle {
 	
 	public Boolean exists(String key);
 	
+	/**
+	 * @param key
+	 * @return key的类型 string/list/set/zset/hash 不存在时为none
+	 */
+	public String type(String key);
+	
+	/**
+	 * @param key
+	 * @return 存储的字符串长度(压缩后) 不存在时为0 不是字符串时抛出异常
+	 */
+	public Long strlen(String key);
+	
+	/**
+	 * 原子地写入新值并返回旧值
+	 * @param key
+	 * @param value
+	 * @return 旧值 不存在时为null
+	 */
+	public byte[] getSetBytes(String key, byte[] value);
+	
 	public Long hset(String key,String hashKey,String hashVal);
 	
 	public Long hsetBytes(String key,String hashKey,Object hashVal);
@@ -202,6 +223,8 @@ public interface IRedisClient extends Lifecycle {
 	
 	public Set<String> hkeys(String key);
 	
+	public ScanResult<Entry<String, String>> hscan(String key, String cursor, ScanParams params);
+	
 	public String rename(String oldkey,String newkey);
 	
 	public long zadd(String key,String value,double score);
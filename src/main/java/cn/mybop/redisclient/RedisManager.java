@@ -21,6 +21,18 @@ public interface RedisManager extends Lifecycle {
 	public Jedis getJedis();
 	
 	public Jedis getMasterJedis();
+	
+	/**
+	 * 在maxWait毫秒内从连接池获取jedis 用于调用截止时间
+	 * @param server ip:port
+	 * @param maxWait 毫秒
+	 * @return
+	 */
+	public Jedis getJedis(String server, long maxWait);
+	
+	public Jedis getJedis(long maxWait);
+	
+	public Jedis getMasterJedis(long maxWait);
 		
 	public boolean removeJedisPool(String server);
 	
@@ -29,5 +41,32 @@ public interface RedisManager extends Lifecycle {
 	public boolean isAvailableServer(String server);
 	
 	public Timestamp getStartTime();
+	
+	/**
+	 * 记录一次成功调用
+	 * @param server ip:port
+	 * @param elapsed 耗时(毫秒)
+	 */
+	public void recordSuccess(String server, long elapsed);
+	
+	/**
+	 * 记录一次失败调用
+	 * @param server ip:port
+	 * @param elapsed 耗时(毫秒)
+	 */
+	public void recordFailure(String server, long elapsed);
+	
+	/**
+	 * 是否需要记录调用结果 未开启熔断和健康分时为false 调用方不必统计调用耗时
+	 * @return
+	 */
+	public boolean isRecording();
+	
+	/**
+	 * 定时检查时是否需要主动探测该服务器
+	 * @param server ip:port
+	 * @return
+	 */
+	public boolean needProbe(String server);
 
 }
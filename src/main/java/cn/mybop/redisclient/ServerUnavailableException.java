@@ -0,0 +1,21 @@
+package cn.mybop.redisclient;
+
+/**
+ * 没有可用的redis服务器或重试次数用尽
+ */
+public class ServerUnavailableException extends RedisException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 6310251480766397127L;
+
+	public ServerUnavailableException(String message) {
+		super(message);
+	}
+
+	public ServerUnavailableException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,81 @@
+package cn.mybop.redisclient.bloom;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import cn.mybop.redisclient.shard.MurmurHash64;
+
+/**
+ * 线程安全的Bloom过滤器 mightContain返回false时一定没有put过
+ * 按期望个数和误判率计算位数和哈希次数 k个位置由一次64位哈希的高低32位双重哈希得到
+ * 不支持删除
+ */
+public class BloomFilter {
+	
+	private final AtomicLongArray bits;
+	
+	private final long bitCount;
+	
+	private final int hashCount;
+	
+	/**
+	 * @param expectedInsertions 期望个数
+	 * @param fpp 达到期望个数时的误判率
+	 */
+	public BloomFilter(long expectedInsertions, double fpp) {
+		if (expectedInsertions <= 0) {
+			throw new IllegalArgumentException("expectedInsertions must be positive");
+		}
+		if (fpp <= 0.0 || fpp >= 1.0) {
+			throw new IllegalArgumentException("fpp must be between 0 and 1");
+		}
+		long m = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min((m + 63) >>> 6, Integer.MAX_VALUE - 8);
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = (long) words << 6;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+	}
+	
+	public void put(String key) {
+		long hash = MurmurHash64.hash(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long index = index(h1 + i * h2);
+			int word = (int) (index >>> 6);
+			long mask = 1l << index;
+			long old;
+			do {
+				old = bits.get(word);
+				if ((old & mask) != 0) {
+					break;
+				}
+			} while (!bits.compareAndSet(word, old, old | mask));
+		}
+	}
+	
+	public boolean mightContain(String key) {
+		long hash = MurmurHash64.hash(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long index = index(h1 + i * h2);
+			if ((bits.get((int) (index >>> 6)) & (1l << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private long index(int combined) {
+		return (combined & 0xFFFFFFFFl) % bitCount;
+	}
+	
+	public long getBitCount() {
+		return bitCount;
+	}
+	
+	public int getHashCount() {
+		return hashCount;
+	}
+
+}
@@ -0,0 +1,237 @@
+package cn.mybop.redisclient.bloom;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.common.RateLimiter;
+import cn.mybop.redisclient.shard.ShardScan;
+
+/**
+ * 在本地判断一定不存在的key 避免访问分片
+ * Bloom过滤器由SCAN各分片构建 之后由本客户端的写入维护 构建完成前不做判断
+ * 读取不到的key在负缓存中保留negativeTtl毫秒 本客户端写入该key时删除
+ * 读取前记录key所在分段的写入代数 读取期间本客户端写入过时不加入负缓存
+ * 其他客户端写入的key在下次重建或负缓存过期前可能被判断为不存在
+ */
+public class MissingKeyGuard implements Runnable {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(MissingKeyGuard.class);
+	
+	private static final int GENERATION_STRIPES = 1024;
+	
+	private final String name;
+	
+	private final IRedisClient[] shards;
+	
+	private final long expectedInsertions;
+	
+	private final double fpp;
+	
+	private final int scanCount;
+	
+	private final RateLimiter rateLimiter;
+	
+	private final long negativeTtl;
+	
+	private final int negativeMaxSize;
+	
+	//未构建完成时为null
+	private volatile BloomFilter filter;
+	
+	//构建中的过滤器 构建期间的写入同时加入
+	private volatile BloomFilter building;
+	
+	//key -> 过期时间
+	private final ConcurrentHashMap<String, Long> negatives = new ConcurrentHashMap<String, Long>();
+	
+	private final AtomicLong missingCount = new AtomicLong();
+	
+	//按key分段的写入代数 每次put递增
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+	
+	/**
+	 * @param name 客户端名称
+	 * @param shards 扫描的分片 为null时不使用Bloom过滤器
+	 * @param expectedInsertions 期望的key数
+	 * @param fpp 误判率
+	 * @param scanCount 每次SCAN的COUNT
+	 * @param rate 每秒最多扫描的key数
+	 * @param negativeTtl 负缓存毫秒数 为0时不使用负缓存
+	 * @param negativeMaxSize 负缓存最大个数
+	 */
+	public MissingKeyGuard(String name, IRedisClient[] shards, long expectedInsertions, double fpp, int scanCount, int rate, long negativeTtl, int negativeMaxSize) {
+		this.name = name;
+		this.shards = shards;
+		this.expectedInsertions = expectedInsertions;
+		this.fpp = fpp;
+		this.scanCount = scanCount;
+		this.rateLimiter = new RateLimiter(rate);
+		this.negativeTtl = negativeTtl;
+		this.negativeMaxSize = negativeMaxSize;
+	}
+	
+	/**
+	 * @param key
+	 * @return 是否一定不存在
+	 */
+	public boolean isMissing(String key) {
+		if (negativeTtl > 0) {
+			Long expireTime = negatives.get(key);
+			if (expireTime != null) {
+				if (System.currentTimeMillis() < expireTime.longValue()) {
+					missingCount.incrementAndGet();
+					return true;
+				}
+				negatives.remove(key, expireTime);
+			}
+		}
+		BloomFilter tmpFilter = filter;
+		if (tmpFilter != null && !tmpFilter.mightContain(key)) {
+			missingCount.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * 读取前调用
+	 * @param key
+	 * @return key所在分段当前的写入代数
+	 */
+	public long generation(String key) {
+		return generations.get(stripe(key));
+	}
+	
+	private int stripe(String key) {
+		return (key.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+	}
+	
+	/**
+	 * 读取不到时加入负缓存 达到最大个数时删除已过期的 仍达到时不再加入
+	 * 读取期间有写入时不加入 加入后发现有写入时撤销
+	 * @param key
+	 * @param generation 读取前generation(key)的结果
+	 */
+	public void recordMiss(String key, long generation) {
+		if (negativeTtl <= 0) {
+			return;
+		}
+		int stripe = stripe(key);
+		if (generations.get(stripe) != generation) {
+			return;
+		}
+		if (negatives.size() >= negativeMaxSize && !negatives.containsKey(key)) {
+			purge();
+			if (negatives.size() >= negativeMaxSize) {
+				return;
+			}
+		}
+		Long expireTime = Long.valueOf(System.currentTimeMillis() + negativeTtl);
+		negatives.put(key, expireTime);
+		//put先递增代数再删除 此处看到代数未变时put的删除一定在加入之后
+		if (generations.get(stripe) != generation) {
+			negatives.remove(key, expireTime);
+		}
+	}
+	
+	/**
+	 * 写入前后调用 写入前加入避免并发读取判断为不存在 写入后加入保证构建中的过滤器包含该key
+	 * @param key
+	 */
+	public void put(String key) {
+		generations.incrementAndGet(stripe(key));
+		negatives.remove(key);
+		//先读building 构建完成时先替换filter再清空building
+		BloomFilter tmpBuilding = building;
+		if (tmpBuilding != null) {
+			tmpBuilding.put(key);
+		}
+		BloomFilter tmpFilter = filter;
+		if (tmpFilter != null) {
+			tmpFilter.put(key);
+		}
+	}
+	
+	/**
+	 * flushDB后所有key都不存在
+	 */
+	public void clear() {
+		negatives.clear();
+		if (filter != null) {
+			filter = new BloomFilter(expectedInsertions, fpp);
+		}
+	}
+	
+	private void purge() {
+		long now = System.currentTimeMillis();
+		for (Iterator<Long> iter = negatives.values().iterator(); iter.hasNext(); ) {
+			if (now >= iter.next().longValue()) {
+				iter.remove();
+			}
+		}
+	}
+	
+	public boolean isReady() {
+		return filter != null;
+	}
+	
+	/**
+	 * @return 判断为不存在的次数
+	 */
+	public long getMissingCount() {
+		return missingCount.get();
+	}
+	
+	/**
+	 * 重建Bloom过滤器 清除已删除的key 加入其他客户端写入的key
+	 */
+	@Override
+	public void run() {
+		if (shards == null) {
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		BloomFilter tmpBuilding = new BloomFilter(expectedInsertions, fpp);
+		building = tmpBuilding;
+		long count = 0l;
+		try {
+			for (int i = 0; i < shards.length; i++) {
+				ShardScan scan = new ShardScan(shards[i], scanCount);
+				while (scan.hasNext()) {
+					List<String> keys = scan.next();
+					for (int j = 0; j < keys.size(); j++) {
+						tmpBuilding.put(keys.get(j));
+					}
+					count += keys.size();
+					rateLimiter.acquire(keys.size());
+				}
+			}
+		} catch (InterruptedException e) {
+			building = null;
+			Thread.currentThread().interrupt();
+			return;
+		} catch (Exception e) {
+			building = null;
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis客户端[" + name + "]构建Bloom过滤器失败", e);
+			}
+			return;
+		}
+		filter = tmpBuilding;
+		building = null;
+		if (count > expectedInsertions && LOGGER.isWarnEnabled()) {
+			LOGGER.warn("redis客户端[" + name + "]key数" + count + "超过Bloom过滤器期望个数" + expectedInsertions + " 误判率将升高");
+		}
+		if (LOGGER.isInfoEnabled()) {
+			LOGGER.info("redis客户端[" + name + "]构建Bloom过滤器" + count + "个key 耗时" + (System.currentTimeMillis() - startTime) + "毫秒");
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+package cn.mybop.redisclient.breaker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 单个redis服务器的熔断器
+ * 基于调用次数的滑动窗口统计失败率和慢调用率 超过阈值后打开
+ * 打开持续openDuration后进入半开状态 放行halfOpenCalls次探测调用 根据探测结果关闭或重新打开
+ */
+public class CircuitBreaker {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	private final String server;
+
+	private final CircuitBreakerConfig config;
+
+	private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+
+	//滑动窗口 每个位置记录一次调用 1失败 2慢调用
+	private byte[] window;
+
+	private int windowIndex;
+
+	private int windowCount;
+
+	private int failureCount;
+
+	private int slowCount;
+
+	//进入打开或半开状态的时间
+	private long stateTime;
+
+	//半开状态已放行的调用数
+	private int halfOpenPermitted;
+
+	private static final byte FAILURE = 1;
+
+	private static final byte SLOW = 2;
+
+	public CircuitBreaker(String server, CircuitBreakerConfig config) {
+		this.server = server;
+		this.config = config;
+		this.window = new byte[Math.max(config.getWindowSize(), 1)];
+	}
+
+	public String getServer() {
+		return server;
+	}
+
+	public synchronized CircuitBreakerState getState() {
+		return state;
+	}
+
+	/**
+	 * 是否允许调用 不占用半开状态的探测名额
+	 * @return
+	 */
+	public synchronized boolean isCallPermitted() {
+		if (CircuitBreakerState.CLOSED.equals(state)) {
+			return true;
+		}
+		if (CircuitBreakerState.OPEN.equals(state)) {
+			if (System.currentTimeMillis() - stateTime < config.getOpenDuration()) {
+				return false;
+			}
+			transitionTo(CircuitBreakerState.HALF_OPEN);
+		}
+		if (halfOpenPermitted >= config.getHalfOpenCalls() && System.currentTimeMillis() - stateTime >= config.getOpenDuration()) {
+			//探测调用迟迟没有结果 重新放行
+			halfOpenPermitted = 0;
+			stateTime = System.currentTimeMillis();
+		}
+		return halfOpenPermitted < config.getHalfOpenCalls();
+	}
+
+	/**
+	 * 申请调用 半开状态下占用一个探测名额
+	 * @return
+	 */
+	public synchronized boolean tryAcquirePermission() {
+		if (!isCallPermitted()) {
+			return false;
+		}
+		if (CircuitBreakerState.HALF_OPEN.equals(state)) {
+			halfOpenPermitted++;
+		}
+		return true;
+	}
+
+	/**
+	 * 申请到的调用没有实际发生(如连接池耗尽)时归还 半开状态下归还探测名额
+	 */
+	public synchronized void releasePermission() {
+		if (CircuitBreakerState.HALF_OPEN.equals(state) && halfOpenPermitted > 0) {
+			halfOpenPermitted--;
+		}
+	}
+
+	public synchronized void onSuccess(long elapsed) {
+		record(elapsed >= config.getSlowCallDuration() ? SLOW : 0);
+	}
+
+	public synchronized void onError(long elapsed) {
+		record(elapsed >= config.getSlowCallDuration() ? (byte) (FAILURE | SLOW) : FAILURE);
+	}
+
+	/**
+	 * 失败率 窗口内调用数不足时返回-1
+	 * @return
+	 */
+	public synchronized int getFailureRate() {
+		if (windowCount < minimumCalls()) {
+			return -1;
+		}
+		return failureCount * 100 / windowCount;
+	}
+
+	/**
+	 * 慢调用率 窗口内调用数不足时返回-1
+	 * @return
+	 */
+	public synchronized int getSlowCallRate() {
+		if (windowCount < minimumCalls()) {
+			return -1;
+		}
+		return slowCount * 100 / windowCount;
+	}
+
+	private void record(byte outcome) {
+		if (CircuitBreakerState.OPEN.equals(state)) {
+			//打开状态下的调用结果不计入统计
+			return;
+		}
+		if (windowCount == window.length) {
+			byte old = window[windowIndex];
+			if ((old & FAILURE) != 0) {
+				failureCount--;
+			}
+			if ((old & SLOW) != 0) {
+				slowCount--;
+			}
+		} else {
+			windowCount++;
+		}
+		window[windowIndex] = outcome;
+		windowIndex = (windowIndex + 1) % window.length;
+		if ((outcome & FAILURE) != 0) {
+			failureCount++;
+		}
+		if ((outcome & SLOW) != 0) {
+			slowCount++;
+		}
+
+		if (windowCount < minimumCalls()) {
+			return;
+		}
+		boolean exceeded = failureCount * 100 >= config.getFailureRateThreshold() * windowCount
+				|| slowCount * 100 >= config.getSlowCallRateThreshold() * windowCount;
+		if (exceeded) {
+			transitionTo(CircuitBreakerState.OPEN);
+		} else if (CircuitBreakerState.HALF_OPEN.equals(state)) {
+			transitionTo(CircuitBreakerState.CLOSED);
+		}
+	}
+
+	private int minimumCalls() {
+		if (CircuitBreakerState.HALF_OPEN.equals(state)) {
+			return Math.min(Math.max(config.getHalfOpenCalls(), 1), window.length);
+		}
+		return Math.min(Math.max(config.getMinimumCalls(), 1), window.length);
+	}
+
+	private void transitionTo(CircuitBreakerState newState) {
+		if (newState.equals(state)) {
+			return;
+		}
+		if (CircuitBreakerState.OPEN.equals(newState)) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis服务器[" + server + "]熔断器打开 失败数" + failureCount + " 慢调用数" + slowCount + " 统计调用数" + windowCount);
+			}
+		} else if (LOGGER.isInfoEnabled()) {
+			LOGGER.info("redis服务器[" + server + "]熔断器状态由" + state + "变为" + newState);
+		}
+		state = newState;
+		stateTime = System.currentTimeMillis();
+		halfOpenPermitted = 0;
+		windowIndex = 0;
+		windowCount = 0;
+		failureCount = 0;
+		slowCount = 0;
+	}
+
+}
@@ -0,0 +1,84 @@
+package cn.mybop.redisclient.breaker;
+
+import cn.mybop.redisclient.common.Constants;
+
+public class CircuitBreakerConfig {
+	
+	//滑动窗口大小(调用次数)
+	private int windowSize = Constants.DEFAULT_BREAKER_WINDOW_SIZE;
+	
+	//窗口内最少调用次数 达到后才计算失败率
+	private int minimumCalls = Constants.DEFAULT_BREAKER_MINIMUM_CALLS;
+	
+	//失败率阈值(百分比)
+	private int failureRateThreshold = Constants.DEFAULT_BREAKER_FAILURE_RATE_THRESHOLD;
+	
+	//慢调用耗时(毫秒)
+	private long slowCallDuration = Constants.DEFAULT_BREAKER_SLOW_CALL_DURATION;
+	
+	//慢调用率阈值(百分比)
+	private int slowCallRateThreshold = Constants.DEFAULT_BREAKER_SLOW_CALL_RATE_THRESHOLD;
+	
+	//打开状态持续时间(毫秒) 之后进入半开状态
+	private long openDuration = Constants.DEFAULT_BREAKER_OPEN_DURATION;
+	
+	//半开状态允许的探测调用次数
+	private int halfOpenCalls = Constants.DEFAULT_BREAKER_HALF_OPEN_CALLS;
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public void setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	public int getMinimumCalls() {
+		return minimumCalls;
+	}
+
+	public void setMinimumCalls(int minimumCalls) {
+		this.minimumCalls = minimumCalls;
+	}
+
+	public int getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	public void setFailureRateThreshold(int failureRateThreshold) {
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	public long getSlowCallDuration() {
+		return slowCallDuration;
+	}
+
+	public void setSlowCallDuration(long slowCallDuration) {
+		this.slowCallDuration = slowCallDuration;
+	}
+
+	public int getSlowCallRateThreshold() {
+		return slowCallRateThreshold;
+	}
+
+	public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+		this.slowCallRateThreshold = slowCallRateThreshold;
+	}
+
+	public long getOpenDuration() {
+		return openDuration;
+	}
+
+	public void setOpenDuration(long openDuration) {
+		this.openDuration = openDuration;
+	}
+
+	public int getHalfOpenCalls() {
+		return halfOpenCalls;
+	}
+
+	public void setHalfOpenCalls(int halfOpenCalls) {
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+}
@@ -0,0 +1,7 @@
+package cn.mybop.redisclient.breaker;
+
+public enum CircuitBreakerState {
+	CLOSED,
+	OPEN,
+	HALF_OPEN
+}
@@ -0,0 +1,86 @@
+package cn.mybop.redisclient.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 缓存值的封装 格式 MAGIC(1) 标志(1) 逻辑过期时间(8) 加载耗时毫秒(4) 值
+ * 过期以逻辑过期时间为准 redis上的过期时间只用于回收
+ */
+public class CacheEnvelope {
+	
+	private static final byte MAGIC = (byte) 0xCE;
+	
+	//不存在的key
+	private static final byte FLAG_NEGATIVE = 1;
+	
+	private static final int HEADER_SIZE = 14;
+	
+	private final byte[] value;
+	
+	private final long expireTime;
+	
+	private final int delta;
+	
+	private final boolean negative;
+	
+	public CacheEnvelope(byte[] value, long expireTime, int delta, boolean negative) {
+		this.value = value;
+		this.expireTime = expireTime;
+		this.delta = delta;
+		this.negative = negative;
+	}
+	
+	/**
+	 * @param bytes
+	 * @return 不是CacheEnvelope时返回null
+	 */
+	public static CacheEnvelope decode(byte[] bytes) {
+		if (bytes == null || bytes.length < HEADER_SIZE || bytes[0] != MAGIC) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		buffer.get();
+		boolean negative = (buffer.get() & FLAG_NEGATIVE) != 0;
+		long expireTime = buffer.getLong();
+		int delta = buffer.getInt();
+		byte[] value = new byte[bytes.length - HEADER_SIZE];
+		buffer.get(value);
+		return new CacheEnvelope(negative ? null : value, expireTime, delta, negative);
+	}
+	
+	public byte[] encode() {
+		int length = negative || value == null ? 0 : value.length;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+		buffer.put(MAGIC);
+		buffer.put(negative ? FLAG_NEGATIVE : 0);
+		buffer.putLong(expireTime);
+		buffer.putInt(delta);
+		if (length > 0) {
+			buffer.put(value);
+		}
+		return buffer.array();
+	}
+	
+	/**
+	 * @return 不存在的key时为null
+	 */
+	public byte[] getValue() {
+		return value;
+	}
+	
+	public long getExpireTime() {
+		return expireTime;
+	}
+	
+	/**
+	 * @return 加载耗时毫秒数
+	 */
+	public int getDelta() {
+		return delta;
+	}
+	
+	public boolean isNegative() {
+		return negative;
+	}
+
+}
@@ -0,0 +1,13 @@
+package cn.mybop.redisclient.cache;
+
+public abstract class CacheLoader<V> {
+	
+	/**
+	 * 缓存未命中或需要提前刷新时加载
+	 * @param key
+	 * @return 为null时按不存在缓存(negativeTtl大于0时)
+	 * @throws Exception
+	 */
+	public abstract V load(String key) throws Exception;
+
+}
@@ -0,0 +1,14 @@
+package cn.mybop.redisclient.cache;
+
+import java.util.Map;
+
+public abstract class CacheWriter<V> {
+	
+	/**
+	 * write-behind时批量持久化 同一个key只保留最后一次写入
+	 * @param values key -> value
+	 * @throws Exception 失败时未被更新值覆盖的key会在下次重试
+	 */
+	public abstract void writeAll(Map<String, V> values) throws Exception;
+
+}
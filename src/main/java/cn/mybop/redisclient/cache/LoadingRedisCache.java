@@ -0,0 +1,503 @@
+package cn.mybop.redisclient.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.RedisException;
+import cn.mybop.redisclient.common.SingleFlight;
+import cn.mybop.redisclient.lifecycle.LifecycleBase;
+import cn.mybop.redisclient.serialization.ISerializable;
+
+/**
+ * 基于IRedisClient的read-through缓存
+ * 值封装为CacheEnvelope 记录逻辑过期时间和加载耗时 读取时按XFetch概率提前刷新
+ * 同一个key上并发的加载只执行一次 加载结果为null时按negativeTtl缓存不存在
+ * 加载期间有put/set/invalidate时不写入加载结果 避免旧值覆盖新值
+ * 设置CacheWriter时put为write-behind 缓存立即更新 持久化按批在后台执行
+ * 调用方自行计算时使用get/set 需要提前刷新时get只对一个调用方返回null 由其重新计算后set
+ * 加载耗时为get返回null到set的时间
+ */
+public class LoadingRedisCache<V> extends LifecycleBase {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoadingRedisCache.class);
+	
+	private final IRedisClient client;
+	
+	private final ISerializable serializable;
+	
+	private final int ttl;
+	
+	private final int negativeTtl;
+	
+	private final double beta;
+	
+	//默认的刷新超时毫秒数
+	private static final long DEFAULT_REFRESH_TIMEOUT = 10000l;
+	
+	//超过该个数时清理超时的刷新
+	private static final int MAX_REFRESHING = 10000;
+	
+	private static final int STRIPE_COUNT = 64;
+	
+	private final SingleFlight<V> flight = new SingleFlight<V>();
+	
+	//正在刷新的key及开始刷新的时间
+	private final ConcurrentMap<String, Long> refreshing = new ConcurrentHashMap<String, Long>();
+	
+	private final AtomicLong hitCount = new AtomicLong();
+	
+	private final AtomicLong loadCount = new AtomicLong();
+	
+	private final AtomicLong refreshCount = new AtomicLong();
+	
+	private CacheWriter<V> writer;
+	
+	private int batchSize;
+	
+	private long flushInterval;
+	
+	private int maxPending;
+	
+	//待持久化的值 同一个key只保留最后一次
+	private final LinkedHashMap<String, V> pending = new LinkedHashMap<String, V>();
+	
+	private final ReentrantLock pendingLock = new ReentrantLock();
+	
+	//后台和调用方的flush互斥 保证同一个key的持久化顺序
+	private final ReentrantLock flushLock = new ReentrantLock();
+	
+	//按key分段的写入锁和写入版本 加载开始时记录版本 写入加载结果时版本不变才写入
+	private final ReentrantLock[] storeLocks = new ReentrantLock[STRIPE_COUNT];
+	
+	private final AtomicLongArray versions = new AtomicLongArray(STRIPE_COUNT);
+	
+	private ScheduledExecutorService writeBehindExecutor;
+	
+	//刷新的超时毫秒数 超时后允许其他调用方刷新 set时不再按其计算加载耗时
+	private long refreshTimeout = DEFAULT_REFRESH_TIMEOUT;
+	
+	/**
+	 * @param client
+	 * @param serializable 值的序列化方式
+	 * @param ttl 缓存秒数
+	 * @param negativeTtl 不存在的key缓存秒数 为0时不缓存
+	 * @param beta XFetch的beta 为0时不提前刷新
+	 */
+	public LoadingRedisCache(IRedisClient client, ISerializable serializable, int ttl, int negativeTtl, double beta) {
+		this.client = client;
+		this.serializable = serializable;
+		this.ttl = ttl;
+		this.negativeTtl = negativeTtl;
+		this.beta = beta;
+		for (int i = 0; i < storeLocks.length; i++) {
+			storeLocks[i] = new ReentrantLock();
+		}
+	}
+	
+	/**
+	 * 开启write-behind 必须在start前调用
+	 * @param writer
+	 * @param batchSize 每次writeAll的最大个数
+	 * @param flushInterval 后台持久化的间隔毫秒数
+	 * @param maxPending 待持久化的值达到该个数时put在当前线程持久化
+	 */
+	public void setWriteBehind(CacheWriter<V> writer, int batchSize, long flushInterval, int maxPending) {
+		if (isStarted()) {
+			throw new RedisException("write-behind必须在start前设置");
+		}
+		this.writer = writer;
+		this.batchSize = Math.max(batchSize, 1);
+		this.flushInterval = flushInterval;
+		this.maxPending = maxPending;
+	}
+
+	/**
+	 * @param refreshTimeout get返回null后超过该毫秒数未set时 允许其他调用方刷新
+	 */
+	public void setRefreshTimeout(long refreshTimeout) {
+		this.refreshTimeout = refreshTimeout;
+	}
+
+	@Override
+	protected void startInternal() {
+		if (writer == null) {
+			return;
+		}
+		writeBehindExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setDaemon(true);
+				t.setName("redis-write-behind-thread[" + client.getName() + "]");
+				return t;
+			}
+			
+		});
+		writeBehindExecutor.scheduleWithFixedDelay(new Runnable() {
+			
+			@Override
+			public void run() {
+				flush();
+			}
+			
+		}, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	protected void stopInternal() {
+		if (writeBehindExecutor != null) {
+			writeBehindExecutor.shutdown();
+			try {
+				writeBehindExecutor.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			writeBehindExecutor = null;
+			//持久化剩余的值
+			flush();
+		}
+	}
+	
+	/**
+	 * 读取缓存 未命中、已过期或需要提前刷新时通过loader加载并写入缓存
+	 * 提前刷新失败时返回旧值
+	 * @param key
+	 * @param loader
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public V getOrLoad(String key, CacheLoader<V> loader) {
+		CacheEnvelope envelope = CacheEnvelope.decode(client.getBytes(key));
+		if (envelope == null) {
+			return load(key, loader);
+		}
+		long now = System.currentTimeMillis();
+		if (!XFetch.shouldRefresh(now, envelope.getDelta(), envelope.getExpireTime(), beta)) {
+			hitCount.incrementAndGet();
+			return envelope.isNegative() ? null : (V) serializable.bytes2object(envelope.getValue());
+		}
+		if (now >= envelope.getExpireTime()) {
+			return load(key, loader);
+		}
+		refreshCount.incrementAndGet();
+		try {
+			return load(key, loader);
+		} catch (RuntimeException e) {
+			if (LOGGER.isWarnEnabled()) {
+				LOGGER.warn("缓存[" + key + "]提前刷新失败 使用旧值", e);
+			}
+			return envelope.isNegative() ? null : (V) serializable.bytes2object(envelope.getValue());
+		}
+	}
+	
+	private V load(final String key, final CacheLoader<V> loader) {
+		return flight.execute(key, new Callable<V>() {
+			
+			@Override
+			public V call() throws Exception {
+				loadCount.incrementAndGet();
+				int stripe = stripe(key);
+				long version = versions.get(stripe);
+				long start = System.currentTimeMillis();
+				V value = loader.load(key);
+				storeLoaded(key, value, (int) (System.currentTimeMillis() - start), stripe, version);
+				return value;
+			}
+			
+		});
+	}
+	
+	private int stripe(String key) {
+		return (key.hashCode() & 0x7fffffff) % STRIPE_COUNT;
+	}
+	
+	/**
+	 * 写入加载结果 加载期间同一分段有写入时不写入
+	 * @param key
+	 * @param value
+	 * @param delta
+	 * @param stripe
+	 * @param version 加载开始时的版本
+	 */
+	private void storeLoaded(String key, V value, int delta, int stripe, long version) {
+		ReentrantLock lock = storeLocks[stripe];
+		lock.lock();
+		try {
+			if (versions.get(stripe) != version) {
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("缓存[" + key + "]加载期间已被更新 不写入加载结果");
+				}
+				return;
+			}
+			store(key, value, delta, value == null ? negativeTtl : ttl);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 写入新值 递增版本使进行中的加载不再写入
+	 * @param key
+	 * @param value
+	 * @param delta
+	 * @param seconds
+	 */
+	private void storeNewer(String key, V value, int delta, int seconds) {
+		int stripe = stripe(key);
+		ReentrantLock lock = storeLocks[stripe];
+		lock.lock();
+		try {
+			versions.incrementAndGet(stripe);
+			store(key, value, delta, seconds);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void store(String key, V value, int delta, int seconds) {
+		if (value == null && negativeTtl <= 0) {
+			return;
+		}
+		byte[] bytes = value == null ? null : serializable.object2bytes(value);
+		CacheEnvelope envelope = new CacheEnvelope(bytes, System.currentTimeMillis() + seconds * 1000l, delta, value == null);
+		client.setBytes(key, envelope.encode());
+		client.expire(key, seconds);
+	}
+	
+	/**
+	 * 更新缓存 开启write-behind时加入待持久化
+	 * @param key
+	 * @param value 为null时按不存在缓存
+	 */
+	public void put(String key, V value) {
+		storeNewer(key, value, 0, value == null ? negativeTtl : ttl);
+		flight.forget(key);
+		refreshing.remove(key);
+		if (writer == null) {
+			return;
+		}
+		int size;
+		pendingLock.lock();
+		try {
+			//重新加入到末尾
+			pending.remove(key);
+			pending.put(key, value);
+			size = pending.size();
+		} finally {
+			pendingLock.unlock();
+		}
+		if (size >= maxPending) {
+			flush();
+		} else if (size >= batchSize && writeBehindExecutor != null) {
+			try {
+				writeBehindExecutor.execute(new Runnable() {
+					
+					@Override
+					public void run() {
+						flush();
+					}
+					
+				});
+			} catch (RejectedExecutionException e) {
+				//已停止 stop时会持久化
+			}
+		}
+	}
+	
+	public void invalidate(String key) {
+		int stripe = stripe(key);
+		ReentrantLock lock = storeLocks[stripe];
+		lock.lock();
+		try {
+			versions.incrementAndGet(stripe);
+			client.del(key);
+		} finally {
+			lock.unlock();
+		}
+		flight.forget(key);
+		refreshing.remove(key);
+	}
+	
+	/**
+	 * 读取缓存 未命中或已过期时返回null
+	 * 未过期但按XFetch需要提前刷新时 只有取得刷新的调用方得到null 其他调用方继续得到旧值
+	 * 得到null的调用方计算后应调用set
+	 * @param key
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(String key) {
+		CacheEnvelope envelope = CacheEnvelope.decode(client.getBytes(key));
+		long now = System.currentTimeMillis();
+		if (envelope == null || now >= envelope.getExpireTime()) {
+			if (refreshing.size() >= MAX_REFRESHING) {
+				purgeRefreshing(now);
+			}
+			//超时的刷新视为不存在 重新记录开始时间
+			claimRefresh(key, now);
+			return null;
+		}
+		if (XFetch.shouldRefresh(now, envelope.getDelta(), envelope.getExpireTime(), beta) && claimRefresh(key, now)) {
+			refreshCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return envelope.isNegative() ? null : (V) serializable.bytes2object(envelope.getValue());
+	}
+	
+	private boolean claimRefresh(String key, long now) {
+		Long start = refreshing.putIfAbsent(key, now);
+		if (start == null) {
+			return true;
+		}
+		//上一个刷新的调用方超时未set
+		return now - start > refreshTimeout && refreshing.replace(key, start, now);
+	}
+	
+	private void purgeRefreshing(long now) {
+		for (Iterator<Long> iter = refreshing.values().iterator(); iter.hasNext(); ) {
+			if (now - iter.next() > refreshTimeout) {
+				iter.remove();
+			}
+		}
+	}
+	
+	/**
+	 * 写入缓存 记录自get返回null以来的计算耗时
+	 * @param key
+	 * @param value 为null时按不存在缓存
+	 * @param seconds 缓存秒数
+	 */
+	public void set(String key, V value, int seconds) {
+		Long start = refreshing.remove(key);
+		long delta = start == null ? 0l : System.currentTimeMillis() - start;
+		if (delta > refreshTimeout) {
+			//超时的刷新视为不存在 不是本次计算的耗时
+			delta = 0l;
+		}
+		storeNewer(key, value, (int) Math.min(delta, Integer.MAX_VALUE), seconds);
+		flight.forget(key);
+	}
+	
+	/**
+	 * 修改逻辑过期时间及redis上的过期时间 保留加载耗时
+	 * 读取和写入不是原子的 并发set时可能覆盖新值
+	 * @param key
+	 * @param seconds
+	 * @return key不存在时返回false
+	 */
+	public boolean expire(String key, int seconds) {
+		CacheEnvelope envelope = CacheEnvelope.decode(client.getBytes(key));
+		if (envelope == null) {
+			return false;
+		}
+		CacheEnvelope expired = new CacheEnvelope(envelope.getValue(), System.currentTimeMillis() + seconds * 1000l, envelope.getDelta(), envelope.isNegative());
+		client.setBytes(key, expired.encode());
+		client.expire(key, seconds);
+		return true;
+	}
+	
+	/**
+	 * 按批持久化待持久化的值 失败的批次中未被更新值覆盖的key留待下次重试
+	 * 后台线程和调用方的flush串行执行
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			while (true) {
+				Map<String, V> batch = new LinkedHashMap<String, V>();
+				pendingLock.lock();
+				try {
+					for (Iterator<Entry<String, V>> iter = pending.entrySet().iterator(); iter.hasNext() && batch.size() < batchSize; ) {
+						Entry<String, V> entry = iter.next();
+						batch.put(entry.getKey(), entry.getValue());
+						iter.remove();
+					}
+				} finally {
+					pendingLock.unlock();
+				}
+				if (batch.isEmpty()) {
+					return;
+				}
+				try {
+					writer.writeAll(batch);
+				} catch (Exception e) {
+					if (LOGGER.isErrorEnabled()) {
+						LOGGER.error("缓存write-behind持久化" + batch.size() + "个key失败", e);
+					}
+					requeue(batch);
+					return;
+				}
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+	
+	private void requeue(Map<String, V> batch) {
+		pendingLock.lock();
+		try {
+			List<Entry<String, V>> newer = new ArrayList<Entry<String, V>>(pending.entrySet());
+			pending.clear();
+			for (Entry<String, V> entry : batch.entrySet()) {
+				pending.put(entry.getKey(), entry.getValue());
+			}
+			//失败期间的新值覆盖重试的值
+			for (int i = 0; i < newer.size(); i++) {
+				pending.remove(newer.get(i).getKey());
+				pending.put(newer.get(i).getKey(), newer.get(i).getValue());
+			}
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+	
+	public int getPendingCount() {
+		pendingLock.lock();
+		try {
+			return pending.size();
+		} finally {
+			pendingLock.unlock();
+		}
+	}
+	
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	
+	public long getLoadCount() {
+		return loadCount.get();
+	}
+	
+	public int getRefreshingCount() {
+		return refreshing.size();
+	}
+	
+	/**
+	 * @return XFetch提前刷新的次数
+	 */
+	public long getRefreshCount() {
+		return refreshCount.get();
+	}
+
+}
@@ -0,0 +1,33 @@
+package cn.mybop.redisclient.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * XFetch概率提前刷新 Vattani等 Optimal Probabilistic Cache Stampede Prevention
+ * now - delta * beta * ln(rand()) >= expiry 时刷新 越接近过期、加载越慢刷新概率越高
+ * 过期前通常只有一个调用方提前刷新 其他调用方继续使用旧值
+ */
+public class XFetch {
+	
+	public static final double DEFAULT_BETA = 1.0;
+	
+	/**
+	 * @param now 当前时间毫秒
+	 * @param delta 加载耗时毫秒
+	 * @param expireTime 逻辑过期时间毫秒
+	 * @param beta 大于1时更早刷新 为0时只在过期后刷新
+	 * @return 是否需要刷新
+	 */
+	public static boolean shouldRefresh(long now, long delta, long expireTime, double beta) {
+		if (now >= expireTime) {
+			return true;
+		}
+		if (delta <= 0 || beta <= 0) {
+			return false;
+		}
+		//(0,1]
+		double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+		return now - delta * beta * Math.log(random) >= expireTime;
+	}
+
+}
@@ -1,6 +1,18 @@
 package cn.mybop.redisclient.check;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,9 +21,14 @@ import cn.mybop.redisclient.RedisManager;
 import cn.mybop.redisclient.common.Constants;
 import cn.mybop.redisclient.common.Utils;
 import cn.mybop.redisclient.serialization.ISerializable;
+import cn.mybop.redisclient.validate.IPipelinedValidate;
 import cn.mybop.redisclient.validate.IValidate;
 import cn.mybop.redisclient.validate.NoNeedValidateImpl;
+import redis.clients.jedis.Client;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Response;
 
 public abstract class AbstractCheckTask implements ICheckTask {
 	
@@ -25,6 +42,13 @@ public abstract class AbstractCheckTask implements ICheckTask {
 	
 	private IValidate iValidate;
 	
+	//validate需要读取的key 和ping在同一次往返中读取
+	private byte[] validateKey;
+	
+	private int probeTimeout = Protocol.DEFAULT_TIMEOUT;
+	
+	private ExecutorService probeExecutor;
+	
 	public AbstractCheckTask(RedisManager manager, ISerializable serializable, Properties props) {
 		this.manager = manager;
 		this.props = props;
@@ -41,6 +65,21 @@ public abstract class AbstractCheckTask implements ICheckTask {
 			this.iValidate = new NoNeedValidateImpl();
 		}
 		this.serializable = serializable;
+		if (iValidate instanceof IPipelinedValidate) {
+			validateKey = ((IPipelinedValidate) iValidate).getKey(props);
+		}
+		
+		if (Utils.isNotBlank(props.getProperty(Constants.CHECK_PROBE_TIMEOUT))) {
+			probeTimeout = Integer.parseInt(props.getProperty(Constants.CHECK_PROBE_TIMEOUT));
+		} else if (Utils.isNotBlank(props.getProperty(Constants.SERVER_TIMEOUT))) {
+			probeTimeout = Integer.parseInt(props.getProperty(Constants.SERVER_TIMEOUT));
+		}
+		String strThreadPool = props.getProperty(Constants.CHECK_THREAD_POOL);
+		if (Utils.isBlank(strThreadPool)) {
+			int serverCount = Utils.isNotBlank(manager.getServers()) ? manager.getServers().split(",").length : 1;
+			strThreadPool = "0;" + serverCount + ";0;60";
+		}
+		probeExecutor = Utils.initExecutor(strThreadPool, "redis-check-probe", props);
 	}
 	
 	public void run() {
@@ -66,6 +105,136 @@ public abstract class AbstractCheckTask implements ICheckTask {
 		}
 		return rtn;
 	}
+	
+	/**
+	 * 探测时需要一并读取的key 不需要时返回null
+	 * @return
+	 */
+	protected byte[] getProbeKey() {
+		return null;
+	}
+	
+	/**
+	 * 并发探测服务器 超过探测超时时间未返回的视为不通过
+	 * @param servers
+	 * @return
+	 */
+	protected Map<String, ProbeResult> probe(List<String> servers) {
+		Map<String, Future<ProbeResult>> futures = new LinkedHashMap<String, Future<ProbeResult>>(servers.size());
+		for (int i = 0; i < servers.size(); i++) {
+			final String server = servers.get(i);
+			FutureTask<ProbeResult> task = new FutureTask<ProbeResult>(new Callable<ProbeResult>() {
+				@Override
+				public ProbeResult call() throws Exception {
+					return probe(server);
+				}
+			});
+			try {
+				probeExecutor.execute(task);
+			} catch (RejectedExecutionException e) {
+				//线程池已满 在当前线程探测
+				task.run();
+			}
+			futures.put(server, task);
+		}
+		
+		long deadline = System.currentTimeMillis() + probeTimeout;
+		Map<String, ProbeResult> results = new LinkedHashMap<String, ProbeResult>(servers.size());
+		for (Entry<String, Future<ProbeResult>> entry : futures.entrySet()) {
+			String server = entry.getKey();
+			Future<ProbeResult> future = entry.getValue();
+			ProbeResult result = null;
+			try {
+				result = future.get(Math.max(deadline - System.currentTimeMillis(), 0l), TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				future.cancel(true);
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis[" + server + "]探测超过" + probeTimeout + "毫秒");
+				}
+			} catch (ExecutionException e) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis[" + server + "]探测失败", e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.cancel(true);
+			}
+			results.put(server, result == null ? new ProbeResult(server, false, null) : result);
+		}
+		return results;
+	}
+	
+	/**
+	 * 关闭探测线程池 之后的探测在当前线程执行
+	 */
+	public void shutdown() {
+		probeExecutor.shutdown();
+	}
+	
+	/**
+	 * 探测单台服务器 ping、validate和getProbeKey的读取在一次往返中完成
+	 * @param server
+	 * @return
+	 */
+	protected ProbeResult probe(String server) {
+		Jedis jedis = null;
+		int soTimeout = -1;
+		try {
+			jedis = manager.getJedis(server, probeTimeout);
+			Client client = jedis.getClient();
+			if (client.getSoTimeout() <= 0 || client.getSoTimeout() > probeTimeout) {
+				soTimeout = client.getSoTimeout();
+				client.setSoTimeout(probeTimeout);
+				client.rollbackTimeout();
+			}
+			
+			byte[] probeKey = getProbeKey();
+			Pipeline pipeline = jedis.pipelined();
+			Response<String> ping = pipeline.ping();
+			Response<byte[]> validateValue = validateKey == null ? null : pipeline.get(validateKey);
+			Response<byte[]> probeValue = probeKey == null ? null : pipeline.get(probeKey);
+			pipeline.sync();
+			
+			if (!"PONG".equals(ping.get())) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis[" + server + "]ping失败");
+				}
+				return new ProbeResult(server, false, null);
+			}
+			boolean valid = false;
+			if (iValidate instanceof IPipelinedValidate) {
+				valid = ((IPipelinedValidate) iValidate).validate(server, validateValue == null ? null : validateValue.get(), serializable, props);
+			} else {
+				valid = iValidate.validate(jedis, serializable, props);
+			}
+			if (!valid) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis[" + server + "]validate失败");
+				}
+				return new ProbeResult(server, false, null);
+			}
+			return new ProbeResult(server, true, probeValue == null ? null : probeValue.get());
+		} catch (Exception e) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis[" + server + "]探测失败", e);
+			}
+			return new ProbeResult(server, false, null);
+		} finally {
+			if (jedis != null) {
+				try {
+					if (soTimeout >= 0) {
+						jedis.getClient().setSoTimeout(soTimeout);
+						jedis.getClient().rollbackTimeout();
+					}
+					jedis.close();
+				} catch (Exception e) {
+					//do nothing
+				} finally {
+					jedis = null;
+				}
+			}
+		}
+	}
 
 	public RedisManager getManager() {
 		return manager;
@@ -1,6 +1,8 @@
 package cn.mybop.redisclient.check;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.slf4j.Logger;
@@ -8,7 +10,6 @@ import org.slf4j.LoggerFactory;
 
 import cn.mybop.redisclient.RedisManager;
 import cn.mybop.redisclient.serialization.ISerializable;
-import redis.clients.jedis.Jedis;
 
 public class CheckTask extends AbstractCheckTask {
 	
@@ -23,83 +24,46 @@ public class CheckTask extends AbstractCheckTask {
 		RedisManager manager = getManager();
 		
 		List<String> availableServers = manager.getAvailableServers();
-		if (availableServers != null && availableServers.size() > 0) {
-			for (int i = 0; i < availableServers.size(); i++) {
-				String server = availableServers.get(i);
-				Jedis jedis = null;
-				try {
-					jedis = manager.getJedis(server);
-					if (checkPing(jedis) && checkValidate(jedis)) {
-						if (LOGGER.isDebugEnabled()) {
-							LOGGER.debug("redis[" + server + "]检查通过");
-						}
-						continue;
+		String[] allServers = manager.getServers().split(",");
+		List<String> probeServers = new ArrayList<String>(allServers.length);
+		for (int i = 0; i < allServers.length; i++) {
+			//实际调用证明健康的可用服务器减少主动探测
+			if (availableServers.contains(allServers[i]) && !manager.needProbe(allServers[i])) {
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("redis[" + allServers[i] + "]健康 本次跳过检查");
+				}
+				continue;
+			}
+			probeServers.add(allServers[i]);
+		}
+		//所有服务器并发探测
+		Map<String, ProbeResult> results = probe(probeServers);
+		for (ProbeResult result : results.values()) {
+			String server = result.getServer();
+			if (availableServers.contains(server)) {
+				if (result.isPassed()) {
+					if (LOGGER.isDebugEnabled()) {
+						LOGGER.debug("redis[" + server + "]检查通过");
 					}
+				} else {
 					if (LOGGER.isErrorEnabled()) {
 						LOGGER.error("redis[" + server + "]检查不通过 从可用列表中移除");
 					}
 					manager.removeJedisPool(server);
-				} catch (Exception e) {
-					if (LOGGER.isErrorEnabled()) {
-						LOGGER.error("redis[" + server + "]检查失败 从可用列表中移除", e);
-					}
-					manager.removeJedisPool(server);
-				} finally {
-					if (jedis != null) {
-						try {
-							jedis.close();
-						} catch (Exception e) {
-							//do nothing
-						} finally {
-							jedis = null;
-						}
-					}
 				}
-			}
-		}
-		
-		availableServers = manager.getAvailableServers();
-		String[] allServers = manager.getServers().split(",");
-		if (allServers.length == availableServers.size()) {
-			return;
-		}
-		
-		for (int i = 0; i < allServers.length; i++) {
-			String server = allServers[i];
-			if (manager.isAvailableServer(server)) {
-				continue;
-			}
-			Jedis jedis = null;
-			try {
-				jedis = manager.getJedis(server);
-				if (checkPing(jedis) && checkValidate(jedis)) {
+			} else {
+				if (result.isPassed()) {
 					if (LOGGER.isInfoEnabled()) {
 						LOGGER.info("redis[" + server + "]检查通过 加入可用列表");
 					}
 					manager.addJedisPool(server);
-					continue;
-				}
-				if (LOGGER.isErrorEnabled()) {
-					LOGGER.error("redis[" + server + "]检查不通过");
-				}
-			} catch (Exception e) {
-				if (LOGGER.isErrorEnabled()) {
-					LOGGER.error("redis[" + server + "]检查失败", e);
-				}
-			} finally {
-				if (jedis != null) {
-					try {
-						jedis.close();
-					} catch (Exception e) {
-						//do nothing
-					} finally {
-						jedis = null;
+				} else {
+					if (LOGGER.isErrorEnabled()) {
+						LOGGER.error("redis[" + server + "]检查不通过");
 					}
 				}
 			}
 		}
 	}
-	
-	
 
 }
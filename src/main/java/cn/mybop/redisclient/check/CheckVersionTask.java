@@ -1,6 +1,7 @@
 package cn.mybop.redisclient.check;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,11 +11,11 @@ import java.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import cn.mybop.redisclient.RedisException;
 import cn.mybop.redisclient.RedisManager;
 import cn.mybop.redisclient.common.Constants;
 import cn.mybop.redisclient.common.Utils;
 import cn.mybop.redisclient.serialization.ISerializable;
-import redis.clients.jedis.Jedis;
 
 public class CheckVersionTask extends AbstractCheckTask {
 	
@@ -22,6 +23,8 @@ public class CheckVersionTask extends AbstractCheckTask {
 	
 	private String versionKey;
 	
+	private byte[] probeKey;
+	
 	public CheckVersionTask(RedisManager manager, ISerializable serializable, Properties props) {
 		super(manager, serializable, props);
 		if (Utils.isNotBlank(props.getProperty(Constants.VERSION_KEY))) {
@@ -29,6 +32,16 @@ public class CheckVersionTask extends AbstractCheckTask {
 		} else {
 			versionKey = Constants.DEFAULT_VERSION_KEY;
 		}
+		try {
+			probeKey = Utils.mergeKey(props.getProperty(Constants.SERVER_NAMESPACE), versionKey).getBytes(Constants.DEFAULT_CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new RedisException("字符串转换字节失败", e);
+		}
+	}
+	
+	@Override
+	protected byte[] getProbeKey() {
+		return probeKey;
 	}
 	
 	@Override
@@ -36,101 +49,57 @@ public class CheckVersionTask extends AbstractCheckTask {
 		RedisManager manager = getManager();
 		
 		List<String> availableServers = manager.getAvailableServers();
+		String[] allServers = manager.getServers().split(",");
+		//所有服务器并发探测 版本信息和ping在同一次往返中读取
+		Map<String, ProbeResult> results = probe(Arrays.asList(allServers));
+		
 		Long maxAvailableVersion = 0l;
-		if (availableServers != null && availableServers.size() > 0) {
-			Map<String, Long> versionMap = new HashMap<String, Long>(availableServers.size());
-			for (int i = 0; i < availableServers.size(); i++) {
-				String server = availableServers.get(i);
-				Jedis jedis = null;
-				try {
-					jedis = manager.getJedis(server);
-					if (checkPing(jedis) && checkValidate(jedis)) {
-						if (LOGGER.isDebugEnabled()) {
-							LOGGER.debug("redis[" + server + "]检查通过");
-						}
-						Long version = getVersion(jedis);
-						if (maxAvailableVersion.longValue() < version.longValue()) {
-							maxAvailableVersion = version;
-						}
-						versionMap.put(server, version);
-						continue;
-					}
+		Map<String, Long> availableVersionMap = new HashMap<String, Long>(availableServers.size());
+		Long maxNewVersion = 0l;
+		Map<String, Long> versionMap = new HashMap<String, Long>();
+		for (ProbeResult result : results.values()) {
+			String server = result.getServer();
+			boolean available = availableServers.contains(server);
+			if (!result.isPassed()) {
+				if (available) {
 					if (LOGGER.isErrorEnabled()) {
 						LOGGER.error("redis[" + server + "]检查不通过 从可用列表中移除");
 					}
 					manager.removeJedisPool(server);
-				} catch (Exception e) {
+				} else {
 					if (LOGGER.isErrorEnabled()) {
-						LOGGER.error("redis[" + server + "]检查失败 从可用列表中移除", e);
-					}
-					manager.removeJedisPool(server);
-				} finally {
-					if (jedis != null) {
-						try {
-							jedis.close();
-						} catch (Exception e) {
-							//do nothing
-						} finally {
-							jedis = null;
-						}
+						LOGGER.error("redis[" + server + "]检查不通过");
 					}
 				}
+				continue;
 			}
-			
-			for (Entry<String, Long> entry : versionMap.entrySet()) {
-				String server = entry.getKey();
-				if (entry.getValue().longValue() != maxAvailableVersion.longValue()) {
-					if (LOGGER.isErrorEnabled()) {
-						LOGGER.error("redis[" + server + "]版本信息检查不通过 从可用列表中移除");
-					}
-					manager.removeJedisPool(server);
+			Long version = getVersion(server, result.getValue());
+			if (available) {
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("redis[" + server + "]检查通过");
+				}
+				if (maxAvailableVersion.longValue() < version.longValue()) {
+					maxAvailableVersion = version;
 				}
+				availableVersionMap.put(server, version);
+			} else {
+				if (maxNewVersion.longValue() < version.longValue()) {
+					maxNewVersion = version;
+				}
+				versionMap.put(server, version);
 			}
 		}
 		
-		availableServers = manager.getAvailableServers();
-		String[] allServers = manager.getServers().split(",");
-		if (allServers.length == availableServers.size()) {
-			return;
-		}
-		
-		Long maxNewVersion = 0l;
-		Map<String, Long> versionMap = new HashMap<String, Long>();
-		for (int i = 0; i < allServers.length; i++) {
-			String server = allServers[i];
-			if (manager.isAvailableServer(server)) {
-				continue;
-			}			
-			Jedis jedis = null;
-			try {
-				jedis = manager.getJedis(server);
-				if (checkPing(jedis) && checkValidate(jedis)) {
-					Long version = getVersion(jedis);
-					if (maxNewVersion.longValue() < version.longValue()) {
-						maxNewVersion = version;
-					}
-					versionMap.put(server, version);					
-					continue;
-				}
+		for (Entry<String, Long> entry : availableVersionMap.entrySet()) {
+			String server = entry.getKey();
+			if (entry.getValue().longValue() != maxAvailableVersion.longValue()) {
 				if (LOGGER.isErrorEnabled()) {
-					LOGGER.error("redis[" + server + "]检查不通过");
+					LOGGER.error("redis[" + server + "]版本信息检查不通过 从可用列表中移除");
 				}
-			} catch (Exception e) {
-				if (LOGGER.isErrorEnabled()) {
-					LOGGER.error("redis[" + server + "]检查失败", e);
-				}
-			} finally {
-				if (jedis != null) {
-					try {
-						jedis.close();
-					} catch (Exception e) {
-						//do nothing
-					} finally {
-						jedis = null;
-					}
-				}
-			}	
+				manager.removeJedisPool(server);
+			}
 		}
+		
 		if (maxAvailableVersion.longValue() == 0l) {
 			for (Entry<String, Long> entry : versionMap.entrySet()) {
 				String server = entry.getKey();
@@ -162,30 +131,19 @@ public class CheckVersionTask extends AbstractCheckTask {
 		}
 	}
 	
-	private Long getVersion(Jedis jedis) {
+	private Long getVersion(String server, byte[] rtnBytes) {
 		Properties props = getProps();
 		ISerializable serializable = getSerializable();
 		
-		String namespace = props.getProperty(Constants.SERVER_NAMESPACE);
 		int compressThreshold = 0;
 		String strCompressThreshold = props.getProperty(Constants.COMPRESS_THRESHOLD);
 		if (Utils.isNotBlank(strCompressThreshold)) {
 			compressThreshold = Integer.parseInt(strCompressThreshold);
 		}
 		try {
-			byte[] bytes = null;
-			try {
-				bytes = Utils.mergeKey(namespace, versionKey).getBytes(Constants.DEFAULT_CHARSET);
-			} catch (UnsupportedEncodingException e) {
-				if (LOGGER.isErrorEnabled()) {
-					LOGGER.error("字符串转换字节失败", e);
-				}
-				return -1l;
-			}
-			byte[] rtnBytes = jedis.get(bytes);
 			if (rtnBytes == null) {
 				if (LOGGER.isErrorEnabled()) {
-					LOGGER.error("redis[" + Utils.getHostAndPort(jedis) + "]中没有设置对应版本信息");
+					LOGGER.error("redis[" + server + "]中没有设置对应版本信息");
 				}
 				return -1l;
 			}			
@@ -194,7 +152,7 @@ public class CheckVersionTask extends AbstractCheckTask {
 			return Long.valueOf(rtn);
 		} catch (Exception e) {
 			if (LOGGER.isErrorEnabled()) {
-				LOGGER.error("redis[" + Utils.getHostAndPort(jedis) + "]获取版本信息发生错误",  e);
+				LOGGER.error("redis[" + server + "]获取版本信息发生错误",  e);
 			}
 			return -1l;
 		}
@@ -0,0 +1,33 @@
+package cn.mybop.redisclient.check;
+
+/**
+ * 单台服务器的一次探测结果
+ */
+public class ProbeResult {
+	
+	private final String server;
+	
+	private final boolean passed;
+	
+	//探测时一并读取的key的值
+	private final byte[] value;
+	
+	public ProbeResult(String server, boolean passed, byte[] value) {
+		this.server = server;
+		this.passed = passed;
+		this.value = value;
+	}
+
+	public String getServer() {
+		return server;
+	}
+
+	public boolean isPassed() {
+		return passed;
+	}
+
+	public byte[] getValue() {
+		return value;
+	}
+
+}
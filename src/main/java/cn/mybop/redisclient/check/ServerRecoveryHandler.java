@@ -0,0 +1,21 @@
+package cn.mybop.redisclient.check;
+
+/**
+ * 不可用服务器重新加入可用列表前后的处理
+ */
+public interface ServerRecoveryHandler {
+	
+	/**
+	 * 加入可用列表前调用
+	 * @param server ip:port
+	 * @return false时本次不加入可用列表
+	 */
+	public boolean beforeAdd(String server);
+	
+	/**
+	 * 加入可用列表后调用
+	 * @param server ip:port
+	 */
+	public void afterAdd(String server);
+
+}
@@ -0,0 +1,152 @@
+package cn.mybop.redisclient.chunk;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 大value分块存储的清单 存在原key上 各分块存在key:chunk:版本:序号上
+ * 清单格式 MAGIC(8) 版本(8) 总长度(4) 分块大小(4) 分块数(4) 原value的CRC32(4)
+ * 每次写入使用新版本 读取时各分块必须齐全且CRC32一致 避免读到写了一半或已被替换的value
+ */
+public class ChunkManifest {
+	
+	private static final byte[] MAGIC = new byte[] {0, 'R', 'C', 'H', 'U', 'N', 'K', 1};
+	
+	public static final int SIZE = MAGIC.length + 24;
+	
+	/**
+	 * 清单加上压缩标志或gzip后存储的最大长度 超过时一定不是清单
+	 */
+	public static final int MAX_ENCODED_SIZE = 128;
+	
+	private final long version;
+	
+	private final int totalLength;
+	
+	private final int chunkSize;
+	
+	private final int chunkCount;
+	
+	private final int crc;
+	
+	public ChunkManifest(long version, int totalLength, int chunkSize, int crc) {
+		this.version = version;
+		this.totalLength = totalLength;
+		this.chunkSize = chunkSize;
+		this.chunkCount = (int) (((long) totalLength + chunkSize - 1) / chunkSize);
+		this.crc = crc;
+	}
+	
+	/**
+	 * @param value
+	 * @param version
+	 * @param chunkSize
+	 * @return value的清单
+	 */
+	public static ChunkManifest create(byte[] value, long version, int chunkSize) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(value, 0, value.length);
+		return new ChunkManifest(version, value.length, chunkSize, (int) crc32.getValue());
+	}
+	
+	/**
+	 * @param bytes
+	 * @return 不是清单时返回null
+	 */
+	public static ChunkManifest decode(byte[] bytes) {
+		if (bytes == null || bytes.length != SIZE) {
+			return null;
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (bytes[i] != MAGIC[i]) {
+				return null;
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, MAGIC.length, SIZE - MAGIC.length);
+		long version = buffer.getLong();
+		int totalLength = buffer.getInt();
+		int chunkSize = buffer.getInt();
+		int chunkCount = buffer.getInt();
+		int crc = buffer.getInt();
+		if (totalLength < 0 || chunkSize <= 0) {
+			return null;
+		}
+		ChunkManifest manifest = new ChunkManifest(version, totalLength, chunkSize, crc);
+		return manifest.chunkCount == chunkCount ? manifest : null;
+	}
+	
+	public byte[] encode() {
+		ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+		buffer.put(MAGIC);
+		buffer.putLong(version);
+		buffer.putInt(totalLength);
+		buffer.putInt(chunkSize);
+		buffer.putInt(chunkCount);
+		buffer.putInt(crc);
+		return buffer.array();
+	}
+	
+	/**
+	 * @param key 清单所在的key
+	 * @return 各分块的key
+	 */
+	public String[] getChunkKeys(String key) {
+		String[] keys = new String[chunkCount];
+		String prefix = key + ":chunk:" + Long.toHexString(version) + ":";
+		for (int i = 0; i < chunkCount; i++) {
+			keys[i] = prefix + i;
+		}
+		return keys;
+	}
+	
+	/**
+	 * @param value
+	 * @param index
+	 * @return 第index个分块
+	 */
+	public byte[] getChunk(byte[] value, int index) {
+		int offset = index * chunkSize;
+		byte[] chunk = new byte[Math.min(chunkSize, totalLength - offset)];
+		System.arraycopy(value, offset, chunk, 0, chunk.length);
+		return chunk;
+	}
+	
+	/**
+	 * 拼接分块
+	 * @param chunkKeys getChunkKeys的结果
+	 * @param chunks 分块key -> 分块
+	 * @return 分块不齐全或CRC32不一致时返回null
+	 */
+	public byte[] assemble(String[] chunkKeys, Map<String, byte[]> chunks) {
+		byte[] value = new byte[totalLength];
+		int offset = 0;
+		for (int i = 0; i < chunkKeys.length; i++) {
+			byte[] chunk = chunks.get(chunkKeys[i]);
+			if (chunk == null || offset + chunk.length > totalLength) {
+				return null;
+			}
+			System.arraycopy(chunk, 0, value, offset, chunk.length);
+			offset += chunk.length;
+		}
+		if (offset != totalLength) {
+			return null;
+		}
+		CRC32 crc32 = new CRC32();
+		crc32.update(value, 0, value.length);
+		return (int) crc32.getValue() == crc ? value : null;
+	}
+	
+	public long getVersion() {
+		return version;
+	}
+	
+	public int getTotalLength() {
+		return totalLength;
+	}
+	
+	public int getChunkCount() {
+		return chunkCount;
+	}
+
+}
@@ -26,6 +26,32 @@ public interface Constants {
 		
 	}
 	
+	public static interface SharedFailover {
+		
+		//分片不可用时直接失败
+		public final static String NONE = "none";
+		
+		//读取接替分片 写入失败
+		public final static String READ = "read";
+		
+		//读写接替分片 原分片恢复后交还写入的key
+		public final static String READWRITE = "readwrite";
+		
+	}
+	
+	public static interface SharedAlgorithm {
+		
+		//MurmurHash一致性hash环
+		public final static String HASH = "hash";
+		
+		public final static String JUMP = "jump";
+		
+		public final static String RENDEZVOUS = "rendezvous";
+		
+		public final static String MAGLEV = "maglev";
+		
+	}
+	
 	public final static String DEFAULT_LOADBALANCER = Loadbalancer.RANDOM;
 	
 	public final static String VERSION_KEY = "version.key";
@@ -66,12 +92,137 @@ public interface Constants {
 	
 	public final static String SHARED_ALGORITHM = "shared.algorithm";
 	
-	public final static String DEFAULT_SHARED_ALGORITHM = "hash";
+	public final static String DEFAULT_SHARED_ALGORITHM = SharedAlgorithm.HASH;
 	
 	public final static String SHARED_NODE = "shared.node";
 	
 	public final static int DEFAULT_SHARED_NODE = 160;
 	
+	//maglev查找表长度 必须为质数
+	public final static String SHARED_MAGLEV_TABLE_SIZE = "shared.maglev.table.size";
+	
+	public final static int DEFAULT_SHARED_MAGLEV_TABLE_SIZE = 65537;
+	
+	//是否按{...}中的hash tag计算分片 开启后tag相同的key在同一分片
+	public final static String SHARED_HASH_TAG = "shared.hash.tag";
+	
+	public final static boolean DEFAULT_SHARED_HASH_TAG = false;
+	
+	//在线扩容 旧环的分片数 即shared.client.list中前N个客户端 小于客户端数时开启迁移
+	public final static String SHARED_RESHARD_FROM = "shared.reshard.from";
+	
+	//迁移时每秒最多扫描的key数
+	public final static String SHARED_RESHARD_RATE = "shared.reshard.rate";
+	
+	public final static int DEFAULT_SHARED_RESHARD_RATE = 1000;
+	
+	public final static String SHARED_RESHARD_SCAN_COUNT = "shared.reshard.scan.count";
+	
+	public final static int DEFAULT_SHARED_RESHARD_SCAN_COUNT = 100;
+	
+	//后台迁移的间隔秒数
+	public final static String SHARED_RESHARD_SCHEDULE_DELAY = "shared.reshard.schedule.delay";
+	
+	public final static long DEFAULT_SHARED_RESHARD_SCHEDULE_DELAY = 60l;
+	
+	//各分片的权重 逗号分隔 按shared.client.list的顺序 只用于hash和rendezvous算法
+	public final static String SHARED_WEIGHTS = "shared.weights";
+	
+	//分片不可用时的处理方式 见SharedFailover
+	public final static String SHARED_FAILOVER = "shared.failover";
+	
+	public final static String DEFAULT_SHARED_FAILOVER = SharedFailover.NONE;
+	
+	//分片标记为不可用后再次尝试的间隔毫秒数
+	public final static String SHARED_FAILOVER_RETRY_INTERVAL = "shared.failover.retry.interval";
+	
+	public final static long DEFAULT_SHARED_FAILOVER_RETRY_INTERVAL = 5000l;
+	
+	//写入接替分片、待交还的key的最大个数 超过后写入失败
+	public final static String SHARED_FAILOVER_MAX_HANDOFF_KEYS = "shared.failover.max.handoff.keys";
+	
+	public final static int DEFAULT_SHARED_FAILOVER_MAX_HANDOFF_KEYS = 100000;
+	
+	//是否统计热点key
+	public final static String SHARED_HOTKEY_ENABLED = "shared.hotkey.enabled";
+	
+	public final static boolean DEFAULT_SHARED_HOTKEY_ENABLED = false;
+	
+	//热点key统计窗口毫秒数
+	public final static String SHARED_HOTKEY_WINDOW = "shared.hotkey.window";
+	
+	public final static long DEFAULT_SHARED_HOTKEY_WINDOW = 1000l;
+	
+	//窗口内读取次数达到该值为热点key
+	public final static String SHARED_HOTKEY_THRESHOLD = "shared.hotkey.threshold";
+	
+	public final static long DEFAULT_SHARED_HOTKEY_THRESHOLD = 1000l;
+	
+	//热点key的最大个数
+	public final static String SHARED_HOTKEY_TOP = "shared.hotkey.top";
+	
+	public final static int DEFAULT_SHARED_HOTKEY_TOP = 100;
+	
+	//热点key本地缓存的毫秒数 为0时只统计不缓存
+	public final static String SHARED_HOTKEY_CACHE_TTL = "shared.hotkey.cache.ttl";
+	
+	public final static long DEFAULT_SHARED_HOTKEY_CACHE_TTL = 1000l;
+	
+	//setBytes的value超过该字节数时分块存储 为0时不分块
+	public final static String SHARED_CHUNK_THRESHOLD = "shared.chunk.threshold";
+	
+	public final static int DEFAULT_SHARED_CHUNK_THRESHOLD = 0;
+	
+	//每个分块的字节数
+	public final static String SHARED_CHUNK_SIZE = "shared.chunk.size";
+	
+	public final static int DEFAULT_SHARED_CHUNK_SIZE = 524288;
+	
+	//并行读写分块的线程池 格式同writeall.thread.pool
+	public final static String SHARED_CHUNK_THREAD_POOL = "shared.chunk.thread.pool";
+	
+	public final static String DEFAULT_SHARED_CHUNK_THREAD_POOL = "4;16;0;60";
+	
+	//是否使用Bloom过滤器在本地判断一定不存在的key
+	public final static String SHARED_BLOOM_ENABLED = "shared.bloom.enabled";
+	
+	public final static boolean DEFAULT_SHARED_BLOOM_ENABLED = false;
+	
+	//Bloom过滤器期望的key数
+	public final static String SHARED_BLOOM_EXPECTED_KEYS = "shared.bloom.expected.keys";
+	
+	public final static long DEFAULT_SHARED_BLOOM_EXPECTED_KEYS = 1000000l;
+	
+	//Bloom过滤器的误判率
+	public final static String SHARED_BLOOM_FPP = "shared.bloom.fpp";
+	
+	public final static double DEFAULT_SHARED_BLOOM_FPP = 0.01;
+	
+	//构建Bloom过滤器时每秒最多扫描的key数
+	public final static String SHARED_BLOOM_SCAN_RATE = "shared.bloom.scan.rate";
+	
+	public final static int DEFAULT_SHARED_BLOOM_SCAN_RATE = 10000;
+	
+	//构建Bloom过滤器时每次SCAN的COUNT
+	public final static String SHARED_BLOOM_SCAN_COUNT = "shared.bloom.scan.count";
+	
+	public final static int DEFAULT_SHARED_BLOOM_SCAN_COUNT = 100;
+	
+	//重建Bloom过滤器的间隔秒数 为0时只在启动时构建
+	public final static String SHARED_BLOOM_REBUILD_INTERVAL = "shared.bloom.rebuild.interval";
+	
+	public final static long DEFAULT_SHARED_BLOOM_REBUILD_INTERVAL = 3600l;
+	
+	//读取不到的key在本地缓存的毫秒数 为0时不缓存
+	public final static String SHARED_NEGATIVE_CACHE_TTL = "shared.negative.cache.ttl";
+	
+	public final static long DEFAULT_SHARED_NEGATIVE_CACHE_TTL = 0l;
+	
+	//读取不到的key在本地缓存的最大个数
+	public final static String SHARED_NEGATIVE_CACHE_SIZE = "shared.negative.cache.size";
+	
+	public final static int DEFAULT_SHARED_NEGATIVE_CACHE_SIZE = 10000;
+	
 	public final static String SHARED_CLIENT_LIST = "shared.client.list";
 	
 	public final static String SERVER_LIST = "server.list";
@@ -82,6 +233,8 @@ public interface Constants {
 	
 	public final static String SERVER_TIMEOUT = "server.timeout";
 	
+	public final static String SERVER_DEADLINE = "server.deadline";
+	
 	public final static String SERVER_DATABASE = "server.database";
 	
 	public final static String SERVER_PASSWORD = "server.password";
@@ -97,6 +250,12 @@ public interface Constants {
 	public final static long DEFAULT_CHECK_SCHEDULE_INITIAL_DELAY = 2l;
 	
 	public final static long DEFAULT_CHECK_SCHEDULE_DELAY = 3l;
+	
+	//单台服务器探测超时时间(毫秒) 默认使用server.timeout
+	public final static String CHECK_PROBE_TIMEOUT = "check.probe.timeout";
+	
+	//探测线程池 默认最大线程数为服务器数
+	public final static String CHECK_THREAD_POOL = "check.thread.pool";
 
 	public final static String POOL_MAX_ACTIVE = "pool.maxActive";
 	
@@ -122,6 +281,16 @@ public interface Constants {
 	
 	public final static String MAX_BYTE_SIZE = "max.byte.size";
 	
+	//同一个key上并发的get/getBytes/getObject只读取一次
+	public final static String SINGLE_FLIGHT = "single.flight";
+	
+	public final static boolean DEFAULT_SINGLE_FLIGHT = false;
+	
+	//并行写入、对冲读、分块读写和探测使用虚拟线程 需要Java 21 不支持时使用线程池
+	public final static String VIRTUAL_THREAD = "virtual.thread";
+	
+	public final static boolean DEFAULT_VIRTUAL_THREAD = false;
+	
 	public final static byte COMPRESS_FLAG = 1;
 	
 	public final static String WRITEALL_THROW_EXCEPTION_WHEN_WRITE_ERROR = "writeall.throwExceptionWhenWriteError";
@@ -134,6 +303,169 @@ public interface Constants {
 	
 	public final static boolean DEFAULT_WRITEALL_ASYNC_WRITE = false;
 	
+	//写入需要的确认数 all、majority或具体数量
+	public final static String WRITEALL_WRITE_ACKS = "writeall.write.acks";
+	
+	public final static String DEFAULT_WRITEALL_WRITE_ACKS = "all";
+	
+	public final static String WRITEALL_WRITE_ACKS_MAJORITY = "majority";
+	
+	//写入失败监听类 需实现WriteListener
+	public final static String WRITEALL_WRITE_LISTENER = "writeall.write.listener";
+	
+	//每台服务器的写入队列长度 大于0时由每台服务器的写入线程在专用连接上批量写入 代替线程池
+	public final static String WRITEALL_QUEUE_SIZE = "writeall.queue.size";
+	
+	public final static int DEFAULT_WRITEALL_QUEUE_SIZE = 0;
+	
+	//队列已满时的处理方式 block、dropOldest或callerRuns
+	public final static String WRITEALL_QUEUE_POLICY = "writeall.queue.policy";
+	
+	public final static String DEFAULT_WRITEALL_QUEUE_POLICY = "block";
+	
+	//block时的最长等待毫秒数
+	public final static String WRITEALL_QUEUE_TIMEOUT = "writeall.queue.timeout";
+	
+	public final static long DEFAULT_WRITEALL_QUEUE_TIMEOUT = 100l;
+	
+	//是否合并同一个key上待写入的SET/DEL
+	public final static String WRITEALL_QUEUE_COALESCE = "writeall.queue.coalesce";
+	
+	public final static boolean DEFAULT_WRITEALL_QUEUE_COALESCE = true;
+	
+	//写入线程每次pipeline最多合并的写入次数
+	public final static String WRITEALL_QUEUE_BATCH = "writeall.queue.batch";
+	
+	public final static int DEFAULT_WRITEALL_QUEUE_BATCH = 64;
+	
 	public final static String REPLY_CODE_OK = "OK";
 	
+	public final static String BREAKER_ENABLED = "breaker.enabled";
+	
+	public final static boolean DEFAULT_BREAKER_ENABLED = false;
+	
+	public final static String BREAKER_WINDOW_SIZE = "breaker.window.size";
+	
+	public final static int DEFAULT_BREAKER_WINDOW_SIZE = 100;
+	
+	public final static String BREAKER_MINIMUM_CALLS = "breaker.minimum.calls";
+	
+	public final static int DEFAULT_BREAKER_MINIMUM_CALLS = 20;
+	
+	public final static String BREAKER_FAILURE_RATE_THRESHOLD = "breaker.failure.rate.threshold";
+	
+	public final static int DEFAULT_BREAKER_FAILURE_RATE_THRESHOLD = 50;
+	
+	public final static String BREAKER_SLOW_CALL_DURATION = "breaker.slow.call.duration";
+	
+	public final static long DEFAULT_BREAKER_SLOW_CALL_DURATION = 500l;
+	
+	public final static String BREAKER_SLOW_CALL_RATE_THRESHOLD = "breaker.slow.call.rate.threshold";
+	
+	public final static int DEFAULT_BREAKER_SLOW_CALL_RATE_THRESHOLD = 80;
+	
+	public final static String BREAKER_OPEN_DURATION = "breaker.open.duration";
+	
+	public final static long DEFAULT_BREAKER_OPEN_DURATION = 10000l;
+	
+	public final static String BREAKER_HALF_OPEN_CALLS = "breaker.half.open.calls";
+	
+	public final static int DEFAULT_BREAKER_HALF_OPEN_CALLS = 5;
+	
+	public final static String HEDGE_ENABLED = "hedge.enabled";
+	
+	public final static boolean DEFAULT_HEDGE_ENABLED = false;
+	
+	public final static String HEDGE_DELAY = "hedge.delay";
+	
+	public final static String HEDGE_DELAY_PERCENTILE = "hedge.delay.percentile";
+	
+	public final static int DEFAULT_HEDGE_DELAY_PERCENTILE = 95;
+	
+	public final static String HEDGE_MAX_PERCENT = "hedge.max.percent";
+	
+	public final static int DEFAULT_HEDGE_MAX_PERCENT = 10;
+	
+	public final static String HEDGE_THREAD_POOL = "hedge.thread.pool";
+	
+	public final static String DEFAULT_HEDGE_THREAD_POOL = "4;64;0;60";
+	
+	public final static String HEALTH_ENABLED = "health.enabled";
+	
+	public final static boolean DEFAULT_HEALTH_ENABLED = false;
+	
+	public final static String HEALTH_DECAY = "health.decay";
+	
+	public final static int DEFAULT_HEALTH_DECAY = 10;
+	
+	public final static String HEALTH_SLOW_CALL_DURATION = "health.slow.call.duration";
+	
+	public final static long DEFAULT_HEALTH_SLOW_CALL_DURATION = 200l;
+	
+	public final static String HEALTH_MINIMUM_CALLS = "health.minimum.calls";
+	
+	public final static int DEFAULT_HEALTH_MINIMUM_CALLS = 20;
+	
+	public final static String HEALTH_EJECT_SCORE = "health.eject.score";
+	
+	public final static int DEFAULT_HEALTH_EJECT_SCORE = 30;
+	
+	public final static String HEALTH_HEALTHY_SCORE = "health.healthy.score";
+	
+	public final static int DEFAULT_HEALTH_HEALTHY_SCORE = 90;
+	
+	public final static String HEALTH_PROBE_MAX_INTERVAL = "health.probe.max.interval";
+	
+	public final static long DEFAULT_HEALTH_PROBE_MAX_INTERVAL = 30000l;
+	
+	public final static String HINT_ENABLED = "hint.enabled";
+	
+	public final static boolean DEFAULT_HINT_ENABLED = false;
+	
+	//每台服务器最多保存的命令数(内存)
+	public final static String HINT_MAX_COMMANDS = "hint.max.commands";
+	
+	public final static int DEFAULT_HINT_MAX_COMMANDS = 10000;
+	
+	//设置后使用内存映射文件保存
+	public final static String HINT_DIR = "hint.dir";
+	
+	//每台服务器的hint文件大小(字节)
+	public final static String HINT_FILE_SIZE = "hint.file.size";
+	
+	public final static int DEFAULT_HINT_FILE_SIZE = 64 * 1024 * 1024;
+	
+	//每批重放的命令数
+	public final static String HINT_REPLAY_BATCH = "hint.replay.batch";
+	
+	public final static int DEFAULT_HINT_REPLAY_BATCH = 100;
+	
+	//写全部读任一的副本间后台修复
+	public final static String REPAIR_ENABLED = "repair.enabled";
+	
+	public final static boolean DEFAULT_REPAIR_ENABLED = false;
+	
+	//两轮修复的间隔(秒)
+	public final static String REPAIR_SCHEDULE_DELAY = "repair.schedule.delay";
+	
+	public final static long DEFAULT_REPAIR_SCHEDULE_DELAY = 600l;
+	
+	public final static String REPAIR_SCAN_COUNT = "repair.scan.count";
+	
+	public final static int DEFAULT_REPAIR_SCAN_COUNT = 100;
+	
+	public final static String REPAIR_BUCKETS = "repair.buckets";
+	
+	public final static int DEFAULT_REPAIR_BUCKETS = 1024;
+	
+	//每轮最多比较的key数
+	public final static String REPAIR_MAX_KEYS = "repair.max.keys";
+	
+	public final static int DEFAULT_REPAIR_MAX_KEYS = 10000;
+	
+	//每秒最多扫描和修复的key数 小于等于0时不限速
+	public final static String REPAIR_RATE = "repair.rate";
+	
+	public final static int DEFAULT_REPAIR_RATE = 1000;
+	
 }
@@ -0,0 +1,88 @@
+package cn.mybop.redisclient.common;
+
+import java.io.Closeable;
+
+/**
+ * 调用截止时间 绑定在当前线程上 覆盖client的默认截止时间(server.deadline)
+ * <pre>
+ * Deadline deadline = Deadline.start(50);
+ * try {
+ *     client.get(key);
+ * } finally {
+ *     deadline.close();
+ * }
+ * </pre>
+ * 嵌套使用时取较早的截止时间
+ */
+public class Deadline implements Closeable {
+	
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+	
+	//System.nanoTime()
+	private final long deadline;
+	
+	private final Deadline previous;
+	
+	private Deadline(long deadline, Deadline previous) {
+		this.deadline = deadline;
+		this.previous = previous;
+	}
+	
+	/**
+	 * 不绑定线程的截止时间
+	 * @param timeout 毫秒
+	 * @return
+	 */
+	public static Deadline after(long timeout) {
+		return new Deadline(System.nanoTime() + timeout * 1000000l, null);
+	}
+	
+	/**
+	 * 在当前线程上开始一个截止时间 使用完后必须调用close
+	 * @param timeout 毫秒
+	 * @return
+	 */
+	public static Deadline start(long timeout) {
+		Deadline previous = CURRENT.get();
+		long tmpDeadline = System.nanoTime() + timeout * 1000000l;
+		if (previous != null && previous.deadline - tmpDeadline < 0) {
+			tmpDeadline = previous.deadline;
+		}
+		Deadline current = new Deadline(tmpDeadline, previous);
+		CURRENT.set(current);
+		return current;
+	}
+	
+	/**
+	 * 当前线程上的截止时间 没有时返回null
+	 * @return
+	 */
+	public static Deadline current() {
+		return CURRENT.get();
+	}
+	
+	public long remainingNanos() {
+		return deadline - System.nanoTime();
+	}
+	
+	public long remainingMillis() {
+		return remainingNanos() / 1000000l;
+	}
+	
+	public boolean isExpired() {
+		return remainingNanos() <= 0;
+	}
+
+	@Override
+	public void close() {
+		if (CURRENT.get() != this) {
+			return;
+		}
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+}
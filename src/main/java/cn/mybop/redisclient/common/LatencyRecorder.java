@@ -0,0 +1,75 @@
+package cn.mybop.redisclient.common;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 记录最近的调用耗时 按需计算分位数
+ * 分位数结果按refreshInterval缓存 避免每次调用都排序
+ */
+public class LatencyRecorder {
+	
+	private final AtomicLongArray samples;
+	
+	private final AtomicInteger index = new AtomicInteger(0);
+	
+	private final int minSamples;
+	
+	private final long refreshInterval;
+	
+	private final AtomicBoolean refreshing = new AtomicBoolean(false);
+	
+	private volatile long[] sorted;
+	
+	private volatile long refreshTime;
+	
+	/**
+	 * @param size 保留的样本数
+	 * @param minSamples 样本数不足时不计算分位数
+	 * @param refreshInterval 分位数缓存时间(毫秒)
+	 */
+	public LatencyRecorder(int size, int minSamples, long refreshInterval) {
+		this.samples = new AtomicLongArray(size);
+		this.minSamples = minSamples;
+		this.refreshInterval = refreshInterval;
+	}
+	
+	public void record(long latency) {
+		int i = index.getAndIncrement() & Integer.MAX_VALUE;
+		samples.set(i % samples.length(), latency);
+	}
+	
+	/**
+	 * 分位数 样本数不足时返回-1
+	 * @param percentile 0-100
+	 * @return
+	 */
+	public long percentile(int percentile) {
+		long now = System.currentTimeMillis();
+		if ((sorted == null || now - refreshTime >= refreshInterval) && refreshing.compareAndSet(false, true)) {
+			try {
+				int count = Math.min(index.get() & Integer.MAX_VALUE, samples.length());
+				if (count >= minSamples) {
+					long[] tmp = new long[count];
+					for (int i = 0; i < count; i++) {
+						tmp[i] = samples.get(i);
+					}
+					Arrays.sort(tmp);
+					sorted = tmp;
+				}
+				refreshTime = now;
+			} finally {
+				refreshing.set(false);
+			}
+		}
+		long[] tmp = sorted;
+		if (tmp == null) {
+			return -1l;
+		}
+		int i = (int) Math.ceil(tmp.length * percentile / 100.0d) - 1;
+		return tmp[Math.min(Math.max(i, 0), tmp.length - 1)];
+	}
+
+}
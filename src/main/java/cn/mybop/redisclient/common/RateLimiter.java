@@ -0,0 +1,45 @@
+package cn.mybop.redisclient.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按每秒许可数限速 不累积突发许可
+ */
+public class RateLimiter {
+	
+	private final long intervalNanos;
+	
+	private long nextFreeNanos;
+	
+	/**
+	 * @param permitsPerSecond 小于等于0时不限速
+	 */
+	public RateLimiter(int permitsPerSecond) {
+		this.intervalNanos = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0l;
+		this.nextFreeNanos = System.nanoTime();
+	}
+	
+	/**
+	 * 获取许可 需要等待时休眠
+	 * @param permits
+	 * @throws InterruptedException
+	 */
+	public void acquire(int permits) throws InterruptedException {
+		if (intervalNanos <= 0 || permits <= 0) {
+			return;
+		}
+		long waitNanos;
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (nextFreeNanos - now < 0) {
+				nextFreeNanos = now;
+			}
+			waitNanos = nextFreeNanos - now;
+			nextFreeNanos += permits * intervalNanos;
+		}
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package cn.mybop.redisclient.common;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cn.mybop.redisclient.DeadlineExceededException;
+import cn.mybop.redisclient.RedisException;
+
+/**
+ * 同一个key上并发的读取只执行一次 其他调用等待并共享同一个结果或异常
+ * 读取完成后即移除 不缓存结果 共享的结果对象调用方不要修改
+ * 等待时遵守当前线程上的截止时间
+ */
+public class SingleFlight<V> {
+	
+	private final ConcurrentHashMap<String, Call<V>> calls = new ConcurrentHashMap<String, Call<V>>();
+	
+	private final AtomicLong sharedCount = new AtomicLong();
+	
+	/**
+	 * @param key
+	 * @param loader 实际的读取
+	 * @return
+	 */
+	public V execute(String key, Callable<V> loader) {
+		Call<V> call = calls.get(key);
+		if (call == null) {
+			Call<V> created = new Call<V>();
+			call = calls.putIfAbsent(key, created);
+			if (call == null) {
+				try {
+					created.value = loader.call();
+				} catch (Throwable e) {
+					created.error = e;
+				} finally {
+					calls.remove(key, created);
+					created.latch.countDown();
+				}
+				return created.get();
+			}
+		}
+		sharedCount.incrementAndGet();
+		return call.await();
+	}
+	
+	/**
+	 * 之后的调用不再共享该key上正在进行的读取 写入后调用
+	 * @param key
+	 */
+	public void forget(String key) {
+		calls.remove(key);
+	}
+	
+	/**
+	 * @return 共享了其他调用结果的次数
+	 */
+	public long getSharedCount() {
+		return sharedCount.get();
+	}
+	
+	private static class Call<V> {
+		
+		private final CountDownLatch latch = new CountDownLatch(1);
+		
+		private V value;
+		
+		private Throwable error;
+		
+		private V await() {
+			Deadline deadline = Deadline.current();
+			try {
+				if (deadline == null) {
+					latch.await();
+				} else if (!latch.await(deadline.remainingNanos(), TimeUnit.NANOSECONDS)) {
+					throw new DeadlineExceededException("redis调用超过截止时间");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RedisException("redis操作失败", e);
+			}
+			return get();
+		}
+		
+		private V get() {
+			if (error == null) {
+				return value;
+			}
+			if (error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			}
+			if (error instanceof Error) {
+				throw (Error) error;
+			}
+			throw new RedisException("redis操作失败", error);
+		}
+		
+	}
+
+}
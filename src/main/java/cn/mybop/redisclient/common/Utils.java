@@ -5,13 +5,28 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.RedisException;
+import cn.mybop.redisclient.breaker.CircuitBreakerConfig;
+import cn.mybop.redisclient.health.HealthConfig;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPoolConfig;
 
 public class Utils {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(Utils.class);
 		
 	public static boolean isBlank(String str) {
         int strLen;
@@ -210,4 +225,147 @@ public class Utils {
 		}
 		return poolConfig;
 	}
+	
+	/**
+	 * 熔断器配置 未开启熔断时返回null
+	 * @param props
+	 * @return
+	 */
+	public static CircuitBreakerConfig initCircuitBreakerConfig(Properties props) {
+		boolean enabled = Constants.DEFAULT_BREAKER_ENABLED;
+		if (Utils.isNotBlank(props.getProperty(Constants.BREAKER_ENABLED))) {
+			enabled = Boolean.parseBoolean(props.getProperty(Constants.BREAKER_ENABLED));
+		}
+		if (!enabled) {
+			return null;
+		}
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		String windowSize = props.getProperty(Constants.BREAKER_WINDOW_SIZE);
+		if (Utils.isNotBlank(windowSize)) {
+			config.setWindowSize(Integer.parseInt(windowSize));
+		}
+		String minimumCalls = props.getProperty(Constants.BREAKER_MINIMUM_CALLS);
+		if (Utils.isNotBlank(minimumCalls)) {
+			config.setMinimumCalls(Integer.parseInt(minimumCalls));
+		}
+		String failureRateThreshold = props.getProperty(Constants.BREAKER_FAILURE_RATE_THRESHOLD);
+		if (Utils.isNotBlank(failureRateThreshold)) {
+			config.setFailureRateThreshold(Integer.parseInt(failureRateThreshold));
+		}
+		String slowCallDuration = props.getProperty(Constants.BREAKER_SLOW_CALL_DURATION);
+		if (Utils.isNotBlank(slowCallDuration)) {
+			config.setSlowCallDuration(Long.parseLong(slowCallDuration));
+		}
+		String slowCallRateThreshold = props.getProperty(Constants.BREAKER_SLOW_CALL_RATE_THRESHOLD);
+		if (Utils.isNotBlank(slowCallRateThreshold)) {
+			config.setSlowCallRateThreshold(Integer.parseInt(slowCallRateThreshold));
+		}
+		String openDuration = props.getProperty(Constants.BREAKER_OPEN_DURATION);
+		if (Utils.isNotBlank(openDuration)) {
+			config.setOpenDuration(Long.parseLong(openDuration));
+		}
+		String halfOpenCalls = props.getProperty(Constants.BREAKER_HALF_OPEN_CALLS);
+		if (Utils.isNotBlank(halfOpenCalls)) {
+			config.setHalfOpenCalls(Integer.parseInt(halfOpenCalls));
+		}
+		return config;
+	}
+	
+	/**
+	 * 健康分配置 未开启健康分时返回null
+	 * @param props
+	 * @return
+	 */
+	public static HealthConfig initHealthConfig(Properties props) {
+		boolean enabled = Constants.DEFAULT_HEALTH_ENABLED;
+		if (Utils.isNotBlank(props.getProperty(Constants.HEALTH_ENABLED))) {
+			enabled = Boolean.parseBoolean(props.getProperty(Constants.HEALTH_ENABLED));
+		}
+		if (!enabled) {
+			return null;
+		}
+		HealthConfig config = new HealthConfig();
+		String decay = props.getProperty(Constants.HEALTH_DECAY);
+		if (Utils.isNotBlank(decay)) {
+			config.setDecay(Integer.parseInt(decay));
+		}
+		String slowCallDuration = props.getProperty(Constants.HEALTH_SLOW_CALL_DURATION);
+		if (Utils.isNotBlank(slowCallDuration)) {
+			config.setSlowCallDuration(Long.parseLong(slowCallDuration));
+		}
+		String minimumCalls = props.getProperty(Constants.HEALTH_MINIMUM_CALLS);
+		if (Utils.isNotBlank(minimumCalls)) {
+			config.setMinimumCalls(Integer.parseInt(minimumCalls));
+		}
+		String ejectScore = props.getProperty(Constants.HEALTH_EJECT_SCORE);
+		if (Utils.isNotBlank(ejectScore)) {
+			config.setEjectScore(Integer.parseInt(ejectScore));
+		}
+		String healthyScore = props.getProperty(Constants.HEALTH_HEALTHY_SCORE);
+		if (Utils.isNotBlank(healthyScore)) {
+			config.setHealthyScore(Integer.parseInt(healthyScore));
+		}
+		String probeMaxInterval = props.getProperty(Constants.HEALTH_PROBE_MAX_INTERVAL);
+		if (Utils.isNotBlank(probeMaxInterval)) {
+			config.setProbeMaxInterval(Long.parseLong(probeMaxInterval));
+		}
+		return config;
+	}
+	
+	/**
+	 * 按"核心线程数;最大线程数;队列长度;空闲存活秒数"创建线程池 队列长度小于等于0时不排队
+	 * @param threadPool
+	 * @param threadName
+	 * @return
+	 */
+	public static ThreadPoolExecutor initThreadPool(String threadPool, final String threadName) {
+		String[] tmpArr = threadPool.split(";");
+		if (tmpArr.length != 4) {
+			throw new RedisException("线程池[" + threadPool + "]参数个数不等于4");
+		}
+		int queueSize = Integer.parseInt(tmpArr[2]);
+		BlockingQueue<Runnable> queue = null;
+		if (queueSize > 0) {
+			queue = new LinkedBlockingQueue<Runnable>(queueSize);
+		} else {
+			queue = new SynchronousQueue<Runnable>();
+		}
+		return new ThreadPoolExecutor(Integer.parseInt(tmpArr[0]), Integer.parseInt(tmpArr[1]),
+				Integer.parseInt(tmpArr[3]), TimeUnit.SECONDS, queue,
+				new ThreadFactory() {
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r);
+						t.setDaemon(true);
+						t.setName(threadName);
+						return t;
+					}
+					
+				});
+	}
+	
+	/**
+	 * 开启virtual.thread且支持虚拟线程时返回虚拟线程池 否则按threadPool创建线程池
+	 * @param threadPool 为空时不支持虚拟线程返回null
+	 * @param threadName
+	 * @param props
+	 * @return
+	 */
+	public static ExecutorService initExecutor(String threadPool, String threadName, Properties props) {
+		boolean virtualThread = Constants.DEFAULT_VIRTUAL_THREAD;
+		if (isNotBlank(props.getProperty(Constants.VIRTUAL_THREAD))) {
+			virtualThread = Boolean.parseBoolean(props.getProperty(Constants.VIRTUAL_THREAD));
+		}
+		if (virtualThread) {
+			ExecutorService executor = VirtualThreads.newExecutor(threadName);
+			if (executor != null) {
+				return executor;
+			}
+			if (LOGGER.isWarnEnabled()) {
+				LOGGER.warn("当前jvm不支持虚拟线程 " + threadName + "使用线程池");
+			}
+		}
+		return isBlank(threadPool) ? null : initThreadPool(threadPool, threadName);
+	}
 }
@@ -0,0 +1,96 @@
+package cn.mybop.redisclient.common;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 通过反射使用Java 21的虚拟线程 编译目标仍为Java 8
+ * 运行时不支持虚拟线程时isSupported返回false
+ */
+public class VirtualThreads {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+	
+	//Thread.ofVirtual()
+	private static final Method OF_VIRTUAL;
+	
+	//Thread.Builder.name(String, long)
+	private static final Method NAME;
+	
+	//Thread.Builder.factory()
+	private static final Method FACTORY;
+	
+	//Executors.newThreadPerTaskExecutor(ThreadFactory)
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+	
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method factory = null;
+		Method newExecutor = null;
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			name = builderClass.getMethod("name", String.class, long.class);
+			factory = builderClass.getMethod("factory");
+			newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			//预览版未开启时抛出UnsupportedOperationException
+			ofVirtual.invoke(null);
+		} catch (Throwable t) {
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		FACTORY = factory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newExecutor;
+	}
+	
+	public static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+	
+	/**
+	 * @param threadName 线程名前缀 后面加序号
+	 * @return 不支持时返回null
+	 */
+	public static ThreadFactory newThreadFactory(String threadName) {
+		if (!isSupported()) {
+			return null;
+		}
+		try {
+			Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), threadName + "-", 0l);
+			return (ThreadFactory) FACTORY.invoke(builder);
+		} catch (Exception e) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("创建虚拟线程[" + threadName + "]失败", e);
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * 每个任务一个虚拟线程的线程池 不限制并发数 不会拒绝任务
+	 * @param threadName
+	 * @return 不支持时返回null
+	 */
+	public static ExecutorService newExecutor(String threadName) {
+		ThreadFactory factory = newThreadFactory(threadName);
+		if (factory == null) {
+			return null;
+		}
+		try {
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+		} catch (Exception e) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("创建虚拟线程池[" + threadName + "]失败", e);
+			}
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+package cn.mybop.redisclient.health;
+
+import cn.mybop.redisclient.common.Constants;
+
+public class HealthConfig {
+	
+	//新样本在指数加权平均中的权重(百分比)
+	private int decay = Constants.DEFAULT_HEALTH_DECAY;
+	
+	//平均耗时超过该值(毫秒)后按比例扣分
+	private long slowCallDuration = Constants.DEFAULT_HEALTH_SLOW_CALL_DURATION;
+	
+	//最少调用次数 达到后才会因健康分过低被剔除
+	private int minimumCalls = Constants.DEFAULT_HEALTH_MINIMUM_CALLS;
+	
+	//健康分低于该值时从可用列表中剔除
+	private int ejectScore = Constants.DEFAULT_HEALTH_EJECT_SCORE;
+	
+	//健康分不低于该值且有实际调用成功时减少主动探测
+	private int healthyScore = Constants.DEFAULT_HEALTH_HEALTHY_SCORE;
+	
+	//健康服务器两次主动探测的最大间隔(毫秒)
+	private long probeMaxInterval = Constants.DEFAULT_HEALTH_PROBE_MAX_INTERVAL;
+
+	public int getDecay() {
+		return decay;
+	}
+
+	public void setDecay(int decay) {
+		this.decay = decay;
+	}
+
+	public long getSlowCallDuration() {
+		return slowCallDuration;
+	}
+
+	public void setSlowCallDuration(long slowCallDuration) {
+		this.slowCallDuration = slowCallDuration;
+	}
+
+	public int getMinimumCalls() {
+		return minimumCalls;
+	}
+
+	public void setMinimumCalls(int minimumCalls) {
+		this.minimumCalls = minimumCalls;
+	}
+
+	public int getEjectScore() {
+		return ejectScore;
+	}
+
+	public void setEjectScore(int ejectScore) {
+		this.ejectScore = ejectScore;
+	}
+
+	public int getHealthyScore() {
+		return healthyScore;
+	}
+
+	public void setHealthyScore(int healthyScore) {
+		this.healthyScore = healthyScore;
+	}
+
+	public long getProbeMaxInterval() {
+		return probeMaxInterval;
+	}
+
+	public void setProbeMaxInterval(long probeMaxInterval) {
+		this.probeMaxInterval = probeMaxInterval;
+	}
+
+}
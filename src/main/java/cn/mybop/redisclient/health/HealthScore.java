@@ -0,0 +1,89 @@
+package cn.mybop.redisclient.health;
+
+/**
+ * 单个redis服务器的健康分 0-100
+ * 由实际调用的成功率和耗时的指数加权平均计算 不依赖定时探测
+ */
+public class HealthScore {
+	
+	private final String server;
+	
+	private final HealthConfig config;
+	
+	//成功率加权平均 0-100
+	private double successRate = 100d;
+	
+	//耗时加权平均(毫秒)
+	private double latency = 0d;
+	
+	//上次重置后的调用次数
+	private int calls;
+	
+	private long lastSuccessTime;
+	
+	private long lastProbeTime;
+	
+	public HealthScore(String server, HealthConfig config) {
+		this.server = server;
+		this.config = config;
+	}
+	
+	public String getServer() {
+		return server;
+	}
+	
+	public synchronized void onSuccess(long elapsed) {
+		record(100, elapsed);
+		lastSuccessTime = System.currentTimeMillis();
+	}
+	
+	public synchronized void onError(long elapsed) {
+		record(0, elapsed);
+	}
+	
+	private void record(int outcome, long elapsed) {
+		successRate += (outcome - successRate) * config.getDecay() / 100d;
+		latency += (elapsed - latency) * config.getDecay() / 100d;
+		calls++;
+	}
+	
+	public synchronized int getScore() {
+		double score = successRate;
+		if (config.getSlowCallDuration() > 0 && latency > config.getSlowCallDuration()) {
+			score = score * config.getSlowCallDuration() / latency;
+		}
+		return (int) score;
+	}
+	
+	/**
+	 * 调用次数足够且健康分低于剔除分
+	 * @return
+	 */
+	public synchronized boolean isEjectable() {
+		return calls >= config.getMinimumCalls() && getScore() < config.getEjectScore();
+	}
+	
+	/**
+	 * 是否需要主动探测 健康且上次探测后有实际调用成功时 在最大间隔内跳过探测
+	 * 返回true时视为已探测
+	 * @return
+	 */
+	public synchronized boolean needProbe() {
+		long now = System.currentTimeMillis();
+		if (getScore() >= config.getHealthyScore() && lastSuccessTime >= lastProbeTime && now - lastProbeTime < config.getProbeMaxInterval()) {
+			return false;
+		}
+		lastProbeTime = now;
+		return true;
+	}
+	
+	/**
+	 * 剔除或重新加入可用列表时重置
+	 */
+	public synchronized void reset() {
+		successRate = 100d;
+		latency = 0d;
+		calls = 0;
+	}
+
+}
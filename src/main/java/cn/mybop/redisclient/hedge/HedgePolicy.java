@@ -0,0 +1,109 @@
+package cn.mybop.redisclient.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import cn.mybop.redisclient.common.LatencyRecorder;
+
+/**
+ * 对冲读策略
+ * 读请求超过对冲延迟仍未返回时 向另一台服务器再发一次 取先返回的结果
+ * 对冲延迟可以是固定值 也可以取最近读耗时的分位数
+ * 对冲比例通过令牌控制 每次读增加maxPercent个令牌 每次对冲消耗100个令牌
+ */
+public class HedgePolicy {
+	
+	//最多积累的对冲次数
+	private static final long MAX_BURST = 10l;
+	
+	//固定对冲延迟(微秒) 小于等于0时使用分位数
+	private final long delay;
+	
+	private final int percentile;
+	
+	private final int maxPercent;
+	
+	private final LatencyRecorder recorder;
+	
+	private final AtomicLong tokens = new AtomicLong(0l);
+	
+	private final AtomicLong hedgeCount = new AtomicLong(0l);
+	
+	private final AtomicLong hedgeWinCount = new AtomicLong(0l);
+	
+	public HedgePolicy(long delay, int percentile, int maxPercent) {
+		this.delay = delay;
+		this.percentile = percentile;
+		this.maxPercent = maxPercent;
+		this.recorder = new LatencyRecorder(1024, 100, 1000l);
+	}
+	
+	/**
+	 * 对冲延迟(微秒) 分位数样本不足时返回-1 表示不对冲
+	 * @return
+	 */
+	public long getDelay() {
+		if (delay > 0) {
+			return delay;
+		}
+		return recorder.percentile(percentile);
+	}
+	
+	/**
+	 * 记录一次读耗时(微秒)
+	 * @param latency
+	 */
+	public void recordLatency(long latency) {
+		recorder.record(latency);
+	}
+	
+	public void onRead() {
+		long max = MAX_BURST * 100;
+		for (;;) {
+			long current = tokens.get();
+			if (current >= max) {
+				return;
+			}
+			if (tokens.compareAndSet(current, Math.min(current + maxPercent, max))) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * 申请一次对冲 超过对冲比例时返回false
+	 * @return
+	 */
+	public boolean tryAcquire() {
+		for (;;) {
+			long current = tokens.get();
+			if (current < 100) {
+				return false;
+			}
+			if (tokens.compareAndSet(current, current - 100)) {
+				hedgeCount.incrementAndGet();
+				return true;
+			}
+		}
+	}
+	
+	public void onHedgeWin() {
+		hedgeWinCount.incrementAndGet();
+	}
+	
+	/**
+	 * 已发出的对冲读次数
+	 * @return
+	 */
+	public long getHedgeCount() {
+		return hedgeCount.get();
+	}
+	
+	/**
+	 * 对冲读先于原始读返回的次数
+	 * @return
+	 */
+	public long getHedgeWinCount() {
+		return hedgeWinCount.get();
+	}
+
+}
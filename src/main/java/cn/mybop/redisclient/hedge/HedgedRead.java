@@ -0,0 +1,21 @@
+package cn.mybop.redisclient.hedge;
+
+import redis.clients.jedis.Jedis;
+
+public abstract class HedgedRead<T> {
+	
+	/**
+	 * 在指定连接上执行读操作
+	 * @param jedis
+	 * @return
+	 * @throws Exception
+	 */
+	public abstract T read(Jedis jedis) throws Exception;
+	
+	/**
+	 * 对冲读失败或无法对冲时 走普通读流程(含重试)
+	 * @return
+	 */
+	public abstract T fallback();
+
+}
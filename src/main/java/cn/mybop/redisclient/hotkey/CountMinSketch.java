@@ -0,0 +1,67 @@
+package cn.mybop.redisclient.hotkey;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min Sketch 估计各key的出现次数 只会高估不会低估
+ * 各行的下标由64位hash的高低32位组合得到
+ */
+public class CountMinSketch {
+	
+	private final AtomicLongArray counts;
+	
+	private final int depth;
+	
+	private final int mask;
+	
+	/**
+	 * @param depth 行数
+	 * @param width 每行的计数器个数 向上取整为2的幂
+	 */
+	public CountMinSketch(int depth, int width) {
+		int size = Integer.highestOneBit(Math.max(width, 2) - 1) << 1;
+		this.depth = depth;
+		this.mask = size - 1;
+		this.counts = new AtomicLongArray(depth * size);
+	}
+	
+	/**
+	 * 计数加1
+	 * @param hash key的64位hash
+	 * @return 加1后的估计次数
+	 */
+	public long add(long hash) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < depth; i++) {
+			int index = i * (mask + 1) + ((h1 + i * h2) & mask);
+			min = Math.min(min, counts.incrementAndGet(index));
+		}
+		return min;
+	}
+	
+	/**
+	 * @param hash key的64位hash
+	 * @return 估计次数
+	 */
+	public long estimate(long hash) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < depth; i++) {
+			min = Math.min(min, counts.get(i * (mask + 1) + ((h1 + i * h2) & mask)));
+		}
+		return min;
+	}
+	
+	/**
+	 * 清零 与add并发时可能保留部分计数
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0l);
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package cn.mybop.redisclient.hotkey;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点key的本地缓存 值在ttl毫秒后过期
+ * 同一个key按读取方式(get/getBytes/getObject)区分 读取方式不同时不命中
+ * 缓存的值被多个调用方共享 调用方不要修改
+ * 读取前记录key所在分段的写入代数 读取期间本进程写入过时不缓存读到的值
+ */
+public class HotKeyCache {
+	
+	public static final int TYPE_STRING = 1;
+	
+	public static final int TYPE_BYTES = 2;
+	
+	public static final int TYPE_OBJECT = 3;
+	
+	private static final int GENERATION_STRIPES = 1024;
+	
+	private final ConcurrentHashMap<String, CacheEntry> entries = new ConcurrentHashMap<String, CacheEntry>();
+	
+	private final long ttl;
+	
+	private final int maxSize;
+	
+	//按key分段的写入代数 每次invalidate递增
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+	
+	/**
+	 * @param ttl 过期毫秒数
+	 * @param maxSize 最大个数 达到后删除已过期的值 仍达到时不再加入
+	 */
+	public HotKeyCache(long ttl, int maxSize) {
+		this.ttl = ttl;
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * @param key
+	 * @param type 读取方式
+	 * @return 未缓存或已过期时返回null
+	 */
+	public Object get(String key, int type) {
+		CacheEntry entry = entries.get(key);
+		if (entry == null || entry.type != type) {
+			return null;
+		}
+		if (System.currentTimeMillis() >= entry.expireTime) {
+			entries.remove(key, entry);
+			return null;
+		}
+		return entry.value;
+	}
+	
+	/**
+	 * 读取前调用
+	 * @param key
+	 * @return key所在分段当前的写入代数
+	 */
+	public long generation(String key) {
+		return generations.get(stripe(key));
+	}
+	
+	private int stripe(String key) {
+		return (key.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+	}
+	
+	/**
+	 * 读取期间有写入时不缓存 缓存后发现有写入时撤销
+	 * @param key
+	 * @param type 读取方式
+	 * @param value
+	 * @param generation 读取前generation(key)的结果
+	 */
+	public void put(String key, int type, Object value, long generation) {
+		if (value == null) {
+			return;
+		}
+		int stripe = stripe(key);
+		if (generations.get(stripe) != generation) {
+			return;
+		}
+		if (entries.size() >= maxSize && !entries.containsKey(key)) {
+			purge();
+			if (entries.size() >= maxSize) {
+				return;
+			}
+		}
+		CacheEntry entry = new CacheEntry(value, type, System.currentTimeMillis() + ttl);
+		entries.put(key, entry);
+		//invalidate先递增代数再删除 此处看到代数未变时invalidate的删除一定在加入之后
+		if (generations.get(stripe) != generation) {
+			entries.remove(key, entry);
+		}
+	}
+	
+	/**
+	 * 本进程写入该key时失效 其他进程的写入在ttl内不可见
+	 * @param key
+	 */
+	public void invalidate(String key) {
+		generations.incrementAndGet(stripe(key));
+		entries.remove(key);
+	}
+	
+	/**
+	 * 删除已过期的值
+	 */
+	public void purge() {
+		long now = System.currentTimeMillis();
+		for (Iterator<Entry<String, CacheEntry>> iter = entries.entrySet().iterator(); iter.hasNext(); ) {
+			if (now >= iter.next().getValue().expireTime) {
+				iter.remove();
+			}
+		}
+	}
+	
+	public void clear() {
+		for (int i = 0; i < GENERATION_STRIPES; i++) {
+			generations.incrementAndGet(i);
+		}
+		entries.clear();
+	}
+	
+	public int size() {
+		return entries.size();
+	}
+	
+	private static class CacheEntry {
+		
+		private final Object value;
+		
+		private final int type;
+		
+		private final long expireTime;
+		
+		private CacheEntry(Object value, int type, long expireTime) {
+			this.value = value;
+			this.type = type;
+			this.expireTime = expireTime;
+		}
+		
+	}
+
+}
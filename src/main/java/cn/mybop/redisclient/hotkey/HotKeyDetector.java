@@ -0,0 +1,134 @@
+package cn.mybop.redisclient.hotkey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.shard.MurmurHash64;
+
+/**
+ * 按时间窗口统计热点key
+ * 每次读取在Count-Min Sketch中计数 窗口内估计次数达到threshold的key成为候选(至多top个)
+ * 窗口结束时候选按次数排序成为热点key 并清空计数
+ * 当前窗口的候选和上一个窗口的热点key都算作热点
+ */
+public class HotKeyDetector {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(HotKeyDetector.class);
+	
+	private static final int SKETCH_DEPTH = 4;
+	
+	private static final int SKETCH_WIDTH = 4096;
+	
+	private final CountMinSketch sketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+	
+	//当前窗口达到threshold的key -> 估计次数
+	private final ConcurrentHashMap<String, Long> candidates = new ConcurrentHashMap<String, Long>();
+	
+	private final AtomicBoolean rotating = new AtomicBoolean(false);
+	
+	private final String name;
+	
+	private final long window;
+	
+	private final long threshold;
+	
+	private final int top;
+	
+	//上一个窗口的热点key 按次数降序
+	private volatile Map<String, Long> hotKeys = Collections.emptyMap();
+	
+	private volatile long windowEnd;
+	
+	/**
+	 * @param name 客户端名称 用于日志
+	 * @param window 窗口毫秒数
+	 * @param threshold 窗口内读取次数达到该值为热点
+	 * @param top 热点key的最大个数
+	 */
+	public HotKeyDetector(String name, long window, long threshold, int top) {
+		this.name = name;
+		this.window = window;
+		this.threshold = threshold;
+		this.top = top;
+		this.windowEnd = System.currentTimeMillis() + window;
+	}
+	
+	/**
+	 * 记录一次读取
+	 * @param key
+	 * @return 是否为热点key
+	 */
+	public boolean record(String key) {
+		long now = System.currentTimeMillis();
+		if (now >= windowEnd) {
+			rotate(now);
+		}
+		long count = sketch.add(MurmurHash64.hash(key));
+		if (count >= threshold) {
+			if (candidates.size() < top || candidates.containsKey(key)) {
+				candidates.put(key, Long.valueOf(count));
+			}
+			return true;
+		}
+		return hotKeys.containsKey(key);
+	}
+	
+	public boolean isHot(String key) {
+		return candidates.containsKey(key) || hotKeys.containsKey(key);
+	}
+	
+	/**
+	 * 上一个窗口的热点key
+	 * @return key -> 估计读取次数 按次数降序
+	 */
+	public Map<String, Long> getHotKeys() {
+		if (System.currentTimeMillis() >= windowEnd) {
+			rotate(System.currentTimeMillis());
+		}
+		return hotKeys;
+	}
+	
+	private void rotate(long now) {
+		if (!rotating.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			if (now < windowEnd) {
+				return;
+			}
+			List<Entry<String, Long>> entries = new ArrayList<Entry<String, Long>>(candidates.entrySet());
+			Collections.sort(entries, new Comparator<Entry<String, Long>>() {
+				
+				@Override
+				public int compare(Entry<String, Long> o1, Entry<String, Long> o2) {
+					return o2.getValue().compareTo(o1.getValue());
+				}
+				
+			});
+			Map<String, Long> tmpHotKeys = new LinkedHashMap<String, Long>();
+			for (int i = 0; i < entries.size(); i++) {
+				tmpHotKeys.put(entries.get(i).getKey(), entries.get(i).getValue());
+			}
+			hotKeys = Collections.unmodifiableMap(tmpHotKeys);
+			candidates.clear();
+			sketch.reset();
+			windowEnd = now + window;
+			if (tmpHotKeys.size() > 0 && LOGGER.isInfoEnabled()) {
+				LOGGER.info("redis[" + name + "]热点key" + tmpHotKeys);
+			}
+		} finally {
+			rotating.set(false);
+		}
+	}
+
+}
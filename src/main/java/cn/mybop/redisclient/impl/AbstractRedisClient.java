@@ -9,18 +9,25 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import cn.mybop.redisclient.DeadlineExceededException;
 import cn.mybop.redisclient.IRedisClient;
 import cn.mybop.redisclient.RedisException;
 import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.ServerUnavailableException;
 import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.common.Deadline;
+import cn.mybop.redisclient.common.SingleFlight;
 import cn.mybop.redisclient.common.Utils;
 import cn.mybop.redisclient.lifecycle.LifecycleBase;
 import cn.mybop.redisclient.serialization.ISerializable;
 import cn.mybop.redisclient.serialization.SerializableFactory;
+import redis.clients.jedis.Client;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Protocol;
@@ -29,6 +36,7 @@ import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.Tuple;
 import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
 
 public abstract class AbstractRedisClient extends LifecycleBase implements IRedisClient {
 	
@@ -57,6 +65,25 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 	private int database = Protocol.DEFAULT_DATABASE;
 	
 	private String password = null;
+	
+	//借出的jedis及借出时间 归还时统计调用耗时 未开启熔断和健康分时不记录
+	private final Map<Jedis, Long> borrowTimes = new ConcurrentHashMap<Jedis, Long>();
+	
+	//manager是否记录调用结果
+	private boolean recording;
+	
+	//默认调用截止时间(毫秒) 包含获取连接、读写和重试 0表示不限制
+	private long defaultDeadline = 0l;
+	
+	//当前线程正在进行的调用的截止时间 重试时沿用
+	private final ThreadLocal<Deadline> operationDeadline = new ThreadLocal<Deadline>();
+	
+	//未开启single.flight时为null
+	private SingleFlight<byte[]> bytesFlight;
+	
+	private SingleFlight<String> stringFlight;
+	
+	private SingleFlight<Object> objectFlight;
 
 	public RedisManager getManager() {
 		return manager;
@@ -105,6 +132,10 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 	public int getMaxByteSize() {
 		return maxByteSize;
 	}
+	
+	public long getDefaultDeadline() {
+		return defaultDeadline;
+	}
 
 	public AbstractRedisClient(Properties props) {
 		this.props = props;
@@ -140,6 +171,10 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			timeout = Integer.parseInt(props.getProperty(Constants.SERVER_TIMEOUT));
 		}
 		
+		if (Utils.isNotBlank(props.getProperty(Constants.SERVER_DEADLINE))) {
+			defaultDeadline = Long.parseLong(props.getProperty(Constants.SERVER_DEADLINE));
+		}
+		
 		if (Utils.isNotBlank(props.getProperty(Constants.SERVER_DATABASE))) {
 			database = Integer.parseInt(props.getProperty(Constants.SERVER_DATABASE));
 		}
@@ -162,9 +197,20 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			maxByteSize = Integer.parseInt(strMaxByteSize);
 		}
 		
+		boolean singleFlight = Constants.DEFAULT_SINGLE_FLIGHT;
+		if (Utils.isNotBlank(props.getProperty(Constants.SINGLE_FLIGHT))) {
+			singleFlight = Boolean.parseBoolean(props.getProperty(Constants.SINGLE_FLIGHT));
+		}
+		if (singleFlight) {
+			bytesFlight = new SingleFlight<byte[]>();
+			stringFlight = new SingleFlight<String>();
+			objectFlight = new SingleFlight<Object>();
+		}
+		
 		manager = initManager();
 		if (manager != null) {
 			manager.start();
+			recording = manager.isRecording();
 		}
 	}
 	
@@ -182,12 +228,244 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 	 */
 	public abstract void removeUnavailableServer(Jedis jedis);
 	
+	/**
+	 * 通过负载均衡获取jedis 开始一次新的调用
+	 * @return
+	 */
+	protected Jedis getJedis() {
+		return borrowJedis(beginOperation());
+	}
+	
+	/**
+	 * 重试时通过负载均衡获取jedis 沿用本次调用的截止时间
+	 * @return
+	 */
+	protected Jedis getJedisForRetry() {
+		return borrowJedis(operationDeadline.get());
+	}
+	
+	/**
+	 * 获取master jedis 开始一次新的调用
+	 * @return
+	 */
+	protected Jedis getMasterJedis() {
+		return borrowMasterJedis(beginOperation());
+	}
+	
+	/**
+	 * 重试时获取master jedis 沿用本次调用的截止时间
+	 * @return
+	 */
+	protected Jedis getMasterJedisForRetry() {
+		return borrowMasterJedis(operationDeadline.get());
+	}
+	
+	/**
+	 * 获取指定服务器的jedis
+	 * @param server ip:port
+	 * @return
+	 */
+	protected Jedis getJedis(String server) {
+		Deadline deadline = beginOperation();
+		if (deadline == null) {
+			return borrowed(manager.getJedis(server), null);
+		}
+		try {
+			return borrowed(manager.getJedis(server, getMaxWait(deadline)), deadline);
+		} catch (JedisException e) {
+			throw borrowFailed(deadline, e);
+		}
+	}
+	
+	private Jedis borrowJedis(Deadline deadline) {
+		if (deadline == null) {
+			return borrowed(manager.getJedis(), null);
+		}
+		try {
+			return borrowed(manager.getJedis(getMaxWait(deadline)), deadline);
+		} catch (JedisException e) {
+			throw borrowFailed(deadline, e);
+		}
+	}
+	
+	private Jedis borrowMasterJedis(Deadline deadline) {
+		if (deadline == null) {
+			return borrowed(manager.getMasterJedis(), null);
+		}
+		try {
+			return borrowed(manager.getMasterJedis(getMaxWait(deadline)), deadline);
+		} catch (JedisException e) {
+			throw borrowFailed(deadline, e);
+		}
+	}
+	
+	/**
+	 * 开始一次调用 当前线程上有截止时间时使用该截止时间 否则使用默认截止时间
+	 * @return 没有截止时间时返回null
+	 */
+	protected Deadline beginOperation() {
+		Deadline deadline = Deadline.current();
+		if (deadline == null && defaultDeadline > 0) {
+			deadline = Deadline.after(defaultDeadline);
+		}
+		operationDeadline.set(deadline);
+		return deadline;
+	}
+	
+	/**
+	 * 当前线程正在进行的调用的截止时间
+	 * @return
+	 */
+	protected Deadline getOperationDeadline() {
+		return operationDeadline.get();
+	}
+	
+	/**
+	 * 截止前剩余的毫秒数 用作从连接池获取连接的最大等待时间
+	 * @param deadline
+	 * @return
+	 */
+	protected long getMaxWait(Deadline deadline) {
+		long remaining = deadline.remainingMillis();
+		if (remaining <= 0) {
+			throw new DeadlineExceededException("redis调用超过截止时间");
+		}
+		return remaining;
+	}
+	
+	/**
+	 * 重试前等待retrySleeptime 截止前的剩余时间不足以等待时直接抛出DeadlineExceededException
+	 * @throws InterruptedException
+	 */
+	protected void sleepBeforeRetry() throws InterruptedException {
+		if (retrySleeptime <= 0) {
+			return;
+		}
+		Deadline deadline = operationDeadline.get();
+		if (deadline != null && deadline.remainingMillis() <= retrySleeptime) {
+			throw new DeadlineExceededException("redis重试等待超过截止时间");
+		}
+		Thread.sleep(retrySleeptime);
+	}
+	
+	/**
+	 * 获取连接失败时 已超过截止时间的转换为DeadlineExceededException
+	 * @param deadline
+	 * @param e
+	 * @return
+	 */
+	protected RuntimeException borrowFailed(Deadline deadline, JedisException e) {
+		if (deadline.isExpired()) {
+			return new DeadlineExceededException("redis获取连接超过截止时间", e);
+		}
+		return e;
+	}
+	
+	/**
+	 * 不重试时连接失败的异常 读超时由截止时间导致时转换为DeadlineExceededException
+	 * @param e
+	 * @return
+	 */
+	protected RedisException connectionFailed(JedisConnectionException e) {
+		Deadline deadline = operationDeadline.get();
+		if (deadline != null && deadline.isExpired()) {
+			return new DeadlineExceededException("redis调用超过截止时间", e);
+		}
+		return new RedisException("redis操作失败", e);
+	}
+	
+	/**
+	 * 记录jedis借出时间
+	 * @param jedis
+	 * @return
+	 */
+	protected Jedis borrowed(Jedis jedis) {
+		return borrowed(jedis, null);
+	}
+	
+	/**
+	 * 记录jedis借出时间 有截止时间时将读超时缩短为剩余时间
+	 * @param jedis
+	 * @param deadline
+	 * @return
+	 */
+	protected Jedis borrowed(Jedis jedis, Deadline deadline) {
+		if (jedis != null) {
+			if (recording) {
+				borrowTimes.put(jedis, System.currentTimeMillis());
+			}
+			if (deadline != null) {
+				//向上取整 读超时时截止时间一定已到
+				int remaining = (int) Math.max((deadline.remainingNanos() + 999999l) / 1000000l, 1l);
+				if (timeout <= 0 || remaining < timeout) {
+					setSoTimeout(jedis, remaining);
+				}
+			}
+		}
+		return jedis;
+	}
+	
+	private void setSoTimeout(Jedis jedis, int soTimeout) {
+		Client client = jedis.getClient();
+		if (client.isConnected() && !client.isBroken()) {
+			client.setSoTimeout(soTimeout);
+			client.rollbackTimeout();
+		}
+	}
+	
+	/**
+	 * 记录一次失败调用 之后关闭jedis时不再记为成功
+	 * @param jedis
+	 */
+	protected void recordFailure(Jedis jedis) {
+		if (jedis != null && recording) {
+			Long borrowTime = borrowTimes.remove(jedis);
+			if (borrowTime != null) {
+				manager.recordFailure(Utils.getHostAndPort(jedis), System.currentTimeMillis() - borrowTime.longValue());
+			}
+		}
+	}
+	
+	/**
+	 * 写入后调用 之后的读取不再共享写入前开始的读取
+	 * @param key
+	 */
+	protected void forget(String key) {
+		if (bytesFlight != null) {
+			bytesFlight.forget(key);
+			stringFlight.forget(key);
+			objectFlight.forget(key);
+		}
+	}
+	
+	/**
+	 * 记录一次成功调用 恢复截止时间修改过的读超时 不关闭jedis 用于不归还连接池的专用连接
+	 * @param jedis
+	 */
+	protected void release(Jedis jedis) {
+		if (jedis != null) {
+			Long borrowTime = recording ? borrowTimes.remove(jedis) : null;
+			if (borrowTime != null) {
+				manager.recordSuccess(Utils.getHostAndPort(jedis), System.currentTimeMillis() - borrowTime.longValue());
+			}
+			try {
+				if (jedis.getClient().getSoTimeout() != timeout) {
+					//恢复截止时间修改过的读超时
+					setSoTimeout(jedis, timeout);
+				}
+			} catch (Exception e) {
+				//do nothing
+			}
+		}
+	}
+	
 	/**
 	 * close jedis
 	 * @param jedis
 	 */
 	public void closeJedis(Jedis jedis) {
 		if (jedis != null) {
+			release(jedis);
 			try {
 				jedis.close();
 			} catch (Exception e) {
@@ -198,10 +476,29 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		}
 	}
 	
-	public byte[] getBytes(String key) {
+	public byte[] getBytes(final String key) {
+		if (bytesFlight == null) {
+			return _getBytes(key);
+		}
+		return bytesFlight.execute(key, new Callable<byte[]>() {
+			
+			@Override
+			public byte[] call() throws Exception {
+				return _getBytes(key);
+			}
+			
+		});
+	}
+	
+	/**
+	 * 读取一个key 不经过single flight 子类覆盖时getBytes和getObject都走覆盖后的读取
+	 * @param key
+	 * @return
+	 */
+	protected byte[] _getBytes(String key) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			byte[] bytes = jedis.get(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET));
 			return Utils.getOrigBytes(bytes, compressThreshold);
 		} catch (UnsupportedEncodingException e) {
@@ -210,12 +507,14 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -226,10 +525,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				byte[] bytes = retryJedis.get(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET));
 				return Utils.getOrigBytes(bytes, compressThreshold);
 			} catch (UnsupportedEncodingException e) {
@@ -240,6 +537,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e);
 				}
+			} catch (DeadlineExceededException e) {
+				throw e;
 			} catch (Exception e) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e);
 			} finally {
@@ -247,13 +546,13 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public String setBytes(String key, byte[] value) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			byte[] bytes = Utils.getCompressBytes(value, compressThreshold);
 			if (maxByteSize > 0 && value.length >= maxByteSize) {
 				throw new RedisException("不能超过" + maxByteSize + "字节");
@@ -265,26 +564,27 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 				
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				byte[] bytes = Utils.getCompressBytes(value, compressThreshold);
 				if (maxByteSize > 0 && value.length >= maxByteSize) {
 					throw new RedisException("不能超过" + maxByteSize + "字节");
@@ -298,20 +598,23 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long setnxBytes(String key, byte[] value) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			byte[] bytes = Utils.getCompressBytes(value, compressThreshold);
 			if (maxByteSize > 0 && value.length >= maxByteSize) {
 				throw new RedisException("不能超过" + maxByteSize + "字节");
@@ -323,26 +626,27 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 		
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				byte[] bytes = Utils.getCompressBytes(value, compressThreshold);
 				if (maxByteSize > 0 && value.length >= maxByteSize) {
 					throw new RedisException("不能超过" + maxByteSize + "字节");
@@ -356,45 +660,49 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long incr(String key) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.incr(Utils.mergeKey(namespace, key));
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 				
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.incr(Utils.mergeKey(namespace, key));
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -402,45 +710,49 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long decr(String key) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.decr(Utils.mergeKey(namespace, key));
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}		
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 				
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.decr(Utils.mergeKey(namespace, key));
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -448,45 +760,49 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long decrBy(String key, long integer) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.decrBy(Utils.mergeKey(namespace, key), integer);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 		
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.decrBy(Utils.mergeKey(namespace, key), integer);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -494,45 +810,49 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long incrBy(String key, long integer) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.incrBy(Utils.mergeKey(namespace, key), integer);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}	
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 				
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.incrBy(Utils.mergeKey(namespace, key), integer);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -540,45 +860,49 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long append(String key, String value) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.append(Utils.mergeKey(namespace, key), value);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 		
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.append(Utils.mergeKey(namespace, key), value);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -586,31 +910,55 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
+	}
+	
+	public String get(final String key) {
+		if (stringFlight == null) {
+			return _get(key);
+		}
+		return stringFlight.execute(key, new Callable<String>() {
+			
+			@Override
+			public String call() throws Exception {
+				return _get(key);
+			}
+			
+		});
 	}
 	
-	public String get(String key) {
+	/**
+	 * 读取一个key 不经过single flight 子类覆盖时get走覆盖后的读取
+	 * @param key
+	 * @return
+	 */
+	protected String _get(String key) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.get(Utils.mergeKey(namespace, key));
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -621,17 +969,17 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.get(Utils.mergeKey(namespace, key));
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
-				removeUnavailableServer(jedis);
+				removeUnavailableServer(retryJedis);
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -639,38 +987,39 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public String set(String key, String value) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.set(Utils.mergeKey(namespace, key), value);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}	
+		}  catch (DeadlineExceededException e) {
+			throw e;
 		}  catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}		
 		
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.set(Utils.mergeKey(namespace, key), value);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -678,45 +1027,49 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public String set(String key, String value, String nxxx, String expx, int time) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.set(Utils.mergeKey(namespace, key), value, nxxx, expx, time);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		}  catch (DeadlineExceededException e) {
+			throw e;
 		}  catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 		
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.set(Utils.mergeKey(namespace, key), value, nxxx, expx, time);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -724,45 +1077,49 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long setnx(String key, String value) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.setnx(Utils.mergeKey(namespace, key), value);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		}  catch (DeadlineExceededException e) {
+			throw e;
 		}  catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 		
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.setnx(Utils.mergeKey(namespace, key), value);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -770,46 +1127,50 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	@Override
 	public Long del(String key) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.del(Utils.mergeKey(namespace, key));
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		}  catch (DeadlineExceededException e) {
+			throw e;
 		}  catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 		
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.del(Utils.mergeKey(namespace, key));
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -817,19 +1178,36 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	@Override
-	public Object getObject(String key) {
-		byte[] bytes = getBytes(key);
+	public Object getObject(final String key) {
+		if (objectFlight == null) {
+			return _getObject(key);
+		}
+		return objectFlight.execute(key, new Callable<Object>() {
+			
+			@Override
+			public Object call() throws Exception {
+				return _getObject(key);
+			}
+			
+		});
+	}
+	
+	private Object _getObject(String key) {
+		byte[] bytes = _getBytes(key);
 		if (bytes == null || bytes.length == 0) {
 			return null;
 		}
@@ -852,7 +1230,7 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		Map<String, byte[]> rtn = new HashMap<String, byte[]>();
 		int idx = 0;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			Pipeline pipe = jedis.pipelined();	
 			Map<String, Response<byte[]>> responseMap = new HashMap<String, Response<byte[]>>();
 			for (; idx < keys.length; idx++) {
@@ -872,12 +1250,14 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}	
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -887,10 +1267,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				Pipeline pipe = retryJedis.pipelined();	
 				Map<String, Response<byte[]>> responseMap = new HashMap<String, Response<byte[]>>();
 				for (; idx < keys.length; idx++) {
@@ -912,13 +1290,15 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 
 	@Override
@@ -944,7 +1324,7 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		Map<String, String> rtn = new HashMap<String, String>();
 		int idx = 0;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			Pipeline pipe = jedis.pipelined();	
 			Map<String, Response<String>> responseMap = new HashMap<String, Response<String>>();
 			for (; idx < keys.length; idx++) {
@@ -961,12 +1341,14 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -977,10 +1359,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				Pipeline pipe = retryJedis.pipelined();	
 				Map<String, Response<String>> responseMap = new HashMap<String, Response<String>>();
 				for (; idx < keys.length; idx++) {
@@ -999,6 +1379,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1006,25 +1388,27 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	@Override
 	public String flushDB() {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.flushDB();
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		}  catch (DeadlineExceededException e) {
+			throw e;
 		}  catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1035,10 +1419,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.flushDB();
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1046,6 +1428,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1053,25 +1437,27 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	@Override
 	public Long dbSize() {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.dbSize();
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}				
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1082,10 +1468,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.dbSize();
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1093,6 +1477,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1100,24 +1486,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public String info() {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.info();
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		}  catch (DeadlineExceededException e) {
+			throw e;
 		}  catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1128,10 +1516,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.info();
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1139,6 +1525,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1146,24 +1534,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public String info(String section) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.info(section);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		}  catch (DeadlineExceededException e) {
+			throw e;
 		}  catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1174,10 +1564,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.info(section);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1185,6 +1573,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1192,24 +1582,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public String hget(String key,String hashKey) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.hget(Utils.mergeKey(namespace, key), hashKey);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1220,10 +1612,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.hget(Utils.mergeKey(namespace, key), hashKey);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1231,6 +1621,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1238,13 +1630,13 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public byte[] hgetBytes(String key,String hashKey) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.hget(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET),hashKey.getBytes(Constants.DEFAULT_CHARSET));
 		} catch (UnsupportedEncodingException e) {
 			throw new RedisException("redis操作失败", e);
@@ -1252,12 +1644,14 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1268,10 +1662,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.hget(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET),hashKey.getBytes(Constants.DEFAULT_CHARSET));
 			} catch (UnsupportedEncodingException e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
@@ -1281,6 +1673,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1288,7 +1682,7 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Object hgetObject(String key,String hashKey) {
@@ -1302,18 +1696,20 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 	public Boolean hExists(String key,String hashKey) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.hexists(Utils.mergeKey(namespace, key), hashKey);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}				
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1324,10 +1720,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.hexists(Utils.mergeKey(namespace, key), hashKey);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1335,6 +1729,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1342,24 +1738,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Boolean exists(String key) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.exists(Utils.mergeKey(namespace, key));
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1370,10 +1768,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.exists(Utils.mergeKey(namespace, key));
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1381,6 +1777,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1388,24 +1786,180 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
+	}
+	
+	public String type(String key) {
+		Jedis jedis = null;
+		try {
+			jedis = getJedis();
+			return jedis.type(Utils.mergeKey(namespace, key));
+		} catch (JedisConnectionException e) {
+			//remove unavailable server
+			removeUnavailableServer(jedis);
+			if (retryCount == 0) {
+				throw connectionFailed(e);
+			} else {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis操作失败", e);
+				}
+			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RedisException("redis操作失败", e);
+		} finally {
+			//close jedis
+			closeJedis(jedis);
+		}
+		
+		for (int i = 0; i < retryCount; i++) {
+			Jedis retryJedis = null;
+			try {
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
+				return retryJedis.type(Utils.mergeKey(namespace, key));
+			} catch (JedisConnectionException e1) {
+				//remove unavailable server
+				removeUnavailableServer(retryJedis);
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
+				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
+			} catch (Exception e1) {
+				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
+			} finally {
+				//close jedis
+				closeJedis(retryJedis);
+			}
+		}
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
+	}
+	
+	public Long strlen(String key) {
+		Jedis jedis = null;
+		try {
+			jedis = getJedis();
+			return jedis.strlen(Utils.mergeKey(namespace, key));
+		} catch (JedisConnectionException e) {
+			//remove unavailable server
+			removeUnavailableServer(jedis);
+			if (retryCount == 0) {
+				throw connectionFailed(e);
+			} else {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis操作失败", e);
+				}
+			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RedisException("redis操作失败", e);
+		} finally {
+			//close jedis
+			closeJedis(jedis);
+		}
+		
+		for (int i = 0; i < retryCount; i++) {
+			Jedis retryJedis = null;
+			try {
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
+				return retryJedis.strlen(Utils.mergeKey(namespace, key));
+			} catch (JedisConnectionException e1) {
+				//remove unavailable server
+				removeUnavailableServer(retryJedis);
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
+				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
+			} catch (Exception e1) {
+				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
+			} finally {
+				//close jedis
+				closeJedis(retryJedis);
+			}
+		}
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
+	}
+	
+	public byte[] getSetBytes(String key, byte[] value) {
+		Jedis jedis = null;
+		try {
+			jedis = getMasterJedis();
+			byte[] bytes = Utils.getCompressBytes(value, compressThreshold);
+			if (maxByteSize > 0 && value.length >= maxByteSize) {
+				throw new RedisException("不能超过" + maxByteSize + "字节");
+			}
+			return Utils.getOrigBytes(jedis.getSet(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET), bytes), compressThreshold);
+		} catch (JedisConnectionException e) {
+			//remove unavailable server
+			removeUnavailableServer(jedis);
+			if (retryCount == 0) {
+				throw connectionFailed(e);
+			} else {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis操作失败", e);
+				}
+			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RedisException("redis操作失败", e);
+		} finally {
+			//close jedis
+			closeJedis(jedis);
+			forget(key);
+		}
+		
+		for (int i = 0; i < retryCount; i++) {
+			Jedis retryJedis = null;
+			try {
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
+				byte[] bytes = Utils.getCompressBytes(value, compressThreshold);
+				if (maxByteSize > 0 && value.length >= maxByteSize) {
+					throw new RedisException("不能超过" + maxByteSize + "字节");
+				}
+				return Utils.getOrigBytes(retryJedis.getSet(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET), bytes), compressThreshold);
+			} catch (JedisConnectionException e1) {
+				//remove unavailable server
+				removeUnavailableServer(retryJedis);
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
+				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
+			} catch (Exception e1) {
+				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
+			} finally {
+				//close jedis
+				closeJedis(retryJedis);
+				forget(key);
+			}
+		}
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long hset(String key,String hashKey,String hashVal) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.hset(Utils.mergeKey(namespace, key), hashKey,hashVal);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1416,10 +1970,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.hset(Utils.mergeKey(namespace, key), hashKey,hashVal);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1427,6 +1979,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1434,24 +1988,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public String hmset(String key,Map<String,String> map) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.hmset(Utils.mergeKey(namespace, key),map);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1462,10 +2018,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.hmset(Utils.mergeKey(namespace, key),map);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1473,6 +2027,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1480,7 +2036,7 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 
 	public String hmsetObject(String key,Map<String,Object> map) {		
@@ -1504,18 +2060,20 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.hmset(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET),hashes);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1526,10 +2084,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.hmset(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET),hashes);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1537,6 +2093,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1544,13 +2102,13 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Map<String,Object> hgetAllObject(String key){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			Map<byte[],byte[]> hashes = jedis.hgetAll(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET));
 			if(hashes == null || hashes.isEmpty()) {
 				return null;
@@ -1566,12 +2124,14 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}	
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1582,10 +2142,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				Map<byte[],byte[]> hashes = retryJedis.hgetAll(Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET));
 				if(hashes == null || hashes.size()<=0) {
 					return null;
@@ -1603,6 +2161,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1610,24 +2170,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Set<String> hkeys(String key){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.hkeys(Utils.mergeKey(namespace, key));
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1638,10 +2200,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.hkeys(Utils.mergeKey(namespace, key));
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1649,6 +2209,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1656,13 +2218,61 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
+	}
+	
+	public ScanResult<Entry<String, String>> hscan(String key, String cursor, ScanParams params){
+		Jedis jedis = null;
+		try {
+			jedis = getJedis();
+			return jedis.hscan(Utils.mergeKey(namespace, key), cursor, params);
+		} catch (JedisConnectionException e) {
+			//remove unavailable server
+			removeUnavailableServer(jedis);
+			if (retryCount == 0) {
+				throw connectionFailed(e);
+			} else {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis操作失败", e);
+				}
+			}
+		} catch (DeadlineExceededException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RedisException("redis操作失败", e);
+		} finally {
+			//close jedis
+			closeJedis(jedis);
+		}
+		
+		for (int i = 0; i < retryCount; i++) {
+			Jedis retryJedis = null;
+			try {
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
+				return retryJedis.hscan(Utils.mergeKey(namespace, key), cursor, params);
+			} catch (JedisConnectionException e1) {
+				//remove unavailable server
+				removeUnavailableServer(retryJedis);
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
+				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
+			} catch (Exception e1) {
+				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
+			} finally {
+				//close jedis
+				closeJedis(retryJedis);
+			}
+		}
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public String rename(String oldkey,String newkey) {
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.rename(Utils.mergeKey(namespace, oldkey), Utils.mergeKey(namespace, newkey));
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
@@ -1670,26 +2280,28 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			//close jedis
 			closeJedis(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(oldkey);
+			forget(newkey);
 		}
 		
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.rename(Utils.mergeKey(namespace, oldkey), Utils.mergeKey(namespace, newkey));
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1697,30 +2309,36 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retryJedis);
+				forget(oldkey);
+				forget(newkey);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	public long zadd(String key,String value,double score){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.zadd(Utils.mergeKey(namespace, key), score,value);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}	
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1731,10 +2349,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.zadd(Utils.mergeKey(namespace, key), score,value);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1742,6 +2358,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1749,24 +2367,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 
 	public LinkedHashSet<String> zrevrangebyscore(String key, String max, String min, int offset, int count){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return (LinkedHashSet<String>)jedis.zrevrangeByScore(Utils.mergeKey(namespace, key), max, min, offset, count);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1777,10 +2397,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return (LinkedHashSet<String>)retryJedis.zrevrangeByScore(Utils.mergeKey(namespace, key), max, min, offset, count);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1788,6 +2406,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1795,13 +2415,13 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 
 	public long zrem(String key,String[] value){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.zrem(Utils.mergeKey(namespace, key), value);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
@@ -1809,12 +2429,14 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 			//close jedis
 			closeJedis(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1825,10 +2447,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.zrem(Utils.mergeKey(namespace, key), value);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1836,6 +2456,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1843,38 +2465,39 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public long expire(String key,int seconds){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.expire(Utils.mergeKey(namespace, key), seconds);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
 			//close jedis
 			closeJedis(jedis);
+			forget(key);
 		}
 		
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retyJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retyJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retyJedis = getMasterJedis();
 				return retyJedis.expire(Utils.mergeKey(namespace, key), seconds);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1882,31 +2505,36 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
 				//close jedis
 				closeJedis(retyJedis);
+				forget(key);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long hsetBytes(String key,String hashKey,Object hashVal){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.hset(Utils.mergeKey(namespace, key).getBytes(), hashKey.getBytes(), serializable.object2bytes(hashVal));
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1917,10 +2545,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.hset(Utils.mergeKey(namespace, key).getBytes(), hashKey.getBytes(), serializable.object2bytes(hashVal));
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1928,6 +2554,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1935,24 +2563,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Set<String> getKeys(String pattern){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.keys(Utils.mergeKey(namespace, pattern));
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -1963,10 +2593,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.keys(Utils.mergeKey(namespace, pattern));
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -1974,6 +2602,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -1981,24 +2611,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public Long zcount(String key, String max, String min){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getJedis();
+			jedis = getJedis();
 			return jedis.zcount(Utils.mergeKey(namespace, key),max,min);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -2009,10 +2641,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getJedis();
+				sleepBeforeRetry();
+				retryJedis = getJedisForRetry();
 				return retryJedis.zcount(Utils.mergeKey(namespace, key),max,min);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -2020,6 +2650,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -2027,7 +2659,7 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 		
 	public  <T> T  hgetGObject(String key,String hashKey,Class<T> clazz) {
@@ -2041,18 +2673,20 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 	public long sadd(String key,String[] members){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.sadd(Utils.mergeKey(namespace, key), members);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -2063,10 +2697,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.sadd(Utils.mergeKey(namespace, key), members);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -2074,6 +2706,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -2081,24 +2715,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public boolean sismember(String key,String value){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.sismember(key, value);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -2109,10 +2745,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.sismember(key, value);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -2120,6 +2754,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -2127,25 +2763,27 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 
 	public long hdel(String key,String field){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.hdel(key, field);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -2156,10 +2794,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.hdel(key, field);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -2167,6 +2803,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -2174,24 +2812,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public long hdel(byte[] key,byte[] field){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.hdel(key, field);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -2202,10 +2842,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return retryJedis.hdel(key, field);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -2213,6 +2851,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -2220,24 +2860,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 	
 	public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.zscan(key, cursor, params);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -2248,10 +2890,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return  retryJedis.zscan(key, cursor, params);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -2259,6 +2899,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -2266,24 +2908,26 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	} 
 	
 	public Set<String> zrange(String key,long start,long end){
 		Jedis jedis = null;
 		try {
-			jedis = manager.getMasterJedis();
+			jedis = getMasterJedis();
 			return jedis.zrange(key, start, end);
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
 			removeUnavailableServer(jedis);
 			if (retryCount == 0) {
-				throw new RedisException("redis操作失败", e);
+				throw connectionFailed(e);
 			} else {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis操作失败", e);
 				}
 			}			
+		} catch (DeadlineExceededException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RedisException("redis操作失败", e);
 		} finally {
@@ -2294,10 +2938,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 		for (int i = 0; i < retryCount; i++) {
 			Jedis retryJedis = null;
 			try {
-				if (retrySleeptime > 0) {
-					Thread.sleep(retrySleeptime);
-				}
-				retryJedis = manager.getMasterJedis();
+				sleepBeforeRetry();
+				retryJedis = getMasterJedisForRetry();
 				return  retryJedis.zrange(key,start,end);
 			} catch (JedisConnectionException e1) {
 				//remove unavailable server
@@ -2305,6 +2947,8 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis第" + (i + 1) + "次重试失败", e1);
 				}
+			} catch (DeadlineExceededException e1) {
+				throw e1;
 			} catch (Exception e1) {
 				throw new RedisException("redis第" + (i + 1) + "次重试失败", e1);
 			} finally {
@@ -2312,6 +2956,6 @@ public abstract class AbstractRedisClient extends LifecycleBase implements IRedi
 				closeJedis(retryJedis);
 			}
 		}
-		throw new RedisException("redis达到最大重试次数抛出异常");
+		throw new ServerUnavailableException("redis达到最大重试次数抛出异常");
 	}
 }
@@ -66,6 +66,26 @@ public abstract class AbstractRedisManager extends LifecycleBase implements Redi
 		return startTime;
 	}
 
+	@Override
+	public void recordSuccess(String server, long elapsed) {
+		
+	}
+
+	@Override
+	public void recordFailure(String server, long elapsed) {
+		
+	}
+
+	@Override
+	public boolean isRecording() {
+		return false;
+	}
+
+	@Override
+	public boolean needProbe(String server) {
+		return true;
+	}
+
 	@Override
 	protected void startInternal() {
 		startTime = new Timestamp(System.currentTimeMillis());
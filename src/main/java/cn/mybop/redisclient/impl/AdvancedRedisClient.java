@@ -2,23 +2,38 @@ package cn.mybop.redisclient.impl;
 
 import java.lang.reflect.Constructor;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import cn.mybop.redisclient.DeadlineExceededException;
 import cn.mybop.redisclient.RedisException;
 import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.check.AbstractCheckTask;
 import cn.mybop.redisclient.check.CheckTask;
 import cn.mybop.redisclient.check.ICheckTask;
 import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.common.Deadline;
 import cn.mybop.redisclient.common.Utils;
+import cn.mybop.redisclient.hedge.HedgePolicy;
+import cn.mybop.redisclient.hedge.HedgedRead;
 import cn.mybop.redisclient.serialization.ISerializable;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
 
 public abstract class AdvancedRedisClient extends AbstractRedisClient {
 	
@@ -26,6 +41,13 @@ public abstract class AdvancedRedisClient extends AbstractRedisClient {
 	
 	private ScheduledExecutorService scheduledExecutor;
 	
+	//对冲读 未开启时为null
+	private HedgePolicy hedgePolicy;
+	
+	private ExecutorService hedgeExecutor;
+	
+	private ICheckTask checkTask;
+	
 	public AdvancedRedisClient(Properties props) {
 		super(props);
 	}
@@ -38,7 +60,10 @@ public abstract class AdvancedRedisClient extends AbstractRedisClient {
 			loadBalancer = props.getProperty(Constants.SERVER_LOADBALANCER);
 		}
 		JedisPoolConfig poolConfig = Utils.initPoolConfig(props);
-		return new AdvancedRedisManager(servers, poolConfig, getTimeout(), getPassword(), getDatabase(), loadBalancer);
+		AdvancedRedisManager manager = new AdvancedRedisManager(servers, poolConfig, getTimeout(), getPassword(), getDatabase(), loadBalancer);
+		manager.setCircuitBreakerConfig(Utils.initCircuitBreakerConfig(props));
+		manager.setHealthConfig(Utils.initHealthConfig(props));
+		return manager;
 	}
 	
 	public ICheckTask initCheckTask() {
@@ -70,7 +95,7 @@ public abstract class AdvancedRedisClient extends AbstractRedisClient {
 		Properties props = getProps();
 		
 		//先执行一次checktask 增加可用服务列表
-		ICheckTask checkTask = initCheckTask();
+		checkTask = initCheckTask();
 		checkTask.exec();
 
 		//启动检查线程
@@ -94,6 +119,27 @@ public abstract class AdvancedRedisClient extends AbstractRedisClient {
 			
 		});
 		scheduledExecutor.scheduleWithFixedDelay(checkTask, initialDelay, delay, TimeUnit.SECONDS);
+		
+		boolean hedgeEnabled = Constants.DEFAULT_HEDGE_ENABLED;
+		if (Utils.isNotBlank(props.getProperty(Constants.HEDGE_ENABLED))) {
+			hedgeEnabled = Boolean.parseBoolean(props.getProperty(Constants.HEDGE_ENABLED));
+		}
+		if (hedgeEnabled) {
+			long hedgeDelay = 0l;
+			if (Utils.isNotBlank(props.getProperty(Constants.HEDGE_DELAY))) {
+				hedgeDelay = Long.parseLong(props.getProperty(Constants.HEDGE_DELAY)) * 1000l;
+			}
+			int percentile = Constants.DEFAULT_HEDGE_DELAY_PERCENTILE;
+			if (Utils.isNotBlank(props.getProperty(Constants.HEDGE_DELAY_PERCENTILE))) {
+				percentile = Integer.parseInt(props.getProperty(Constants.HEDGE_DELAY_PERCENTILE));
+			}
+			int maxPercent = Constants.DEFAULT_HEDGE_MAX_PERCENT;
+			if (Utils.isNotBlank(props.getProperty(Constants.HEDGE_MAX_PERCENT))) {
+				maxPercent = Integer.parseInt(props.getProperty(Constants.HEDGE_MAX_PERCENT));
+			}
+			hedgePolicy = new HedgePolicy(hedgeDelay, percentile, maxPercent);
+			hedgeExecutor = Utils.initExecutor(props.getProperty(Constants.HEDGE_THREAD_POOL, Constants.DEFAULT_HEDGE_THREAD_POOL), "redis-hedge-thread[" + getName() + "]", props);
+		}
 	}
 
 	@Override
@@ -102,13 +148,289 @@ public abstract class AdvancedRedisClient extends AbstractRedisClient {
 			scheduledExecutor.shutdown();
 			scheduledExecutor = null;
 		}
+		if (checkTask instanceof AbstractCheckTask) {
+			((AbstractCheckTask) checkTask).shutdown();
+		}
+		checkTask = null;
+		if (hedgeExecutor != null) {
+			hedgeExecutor.shutdown();
+			hedgeExecutor = null;
+		}
+		hedgePolicy = null;
 		super.stopInternal();
 	}
+	
+	public HedgePolicy getHedgePolicy() {
+		return hedgePolicy;
+	}
+	
+	/**
+	 * 对冲读 超过对冲延迟未返回时向另一台服务器再发一次 取先成功返回的结果
+	 * @param read
+	 * @return
+	 */
+	protected <T> T hedgedRead(final HedgedRead<T> read) {
+		final HedgePolicy policy = hedgePolicy;
+		ExecutorService executor = hedgeExecutor;
+		if (policy == null || executor == null) {
+			return read.fallback();
+		}
+		policy.onRead();
+		final Deadline deadline = beginOperation();
+		long delay = policy.getDelay();
+		if (delay <= 0) {
+			//分位数样本不足时不会对冲 直接在调用线程读取并积累样本
+			return directRead(read, policy, deadline);
+		}
+		final AtomicReference<String> primaryServer = new AtomicReference<String>();
+		CompletionService<T> completionService = new ExecutorCompletionService<T>(executor);
+		Future<T> primary = null;
+		try {
+			primary = completionService.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					return hedgedCall(read, policy, deadline, primaryServer, null);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			return fallback(read, deadline);
+		}
+		
+		int outstanding = 1;
+		try {
+			if (deadline != null) {
+				delay = Math.min(delay, deadline.remainingNanos() / 1000l);
+			}
+			Future<T> f = completionService.poll(delay, TimeUnit.MICROSECONDS);
+			if (f == null) {
+				if (policy.tryAcquire()) {
+					final String excludeServer = primaryServer.get();
+					try {
+						completionService.submit(new Callable<T>() {
+							@Override
+							public T call() throws Exception {
+								return hedgedCall(read, policy, deadline, null, excludeServer);
+							}
+						});
+						outstanding++;
+					} catch (RejectedExecutionException e) {
+						if (LOGGER.isDebugEnabled()) {
+							LOGGER.debug("对冲读线程池已满 放弃对冲");
+						}
+					}
+				}
+				f = next(completionService, deadline);
+			}
+			while (true) {
+				outstanding--;
+				try {
+					T rtn = f.get();
+					if (f != primary) {
+						policy.onHedgeWin();
+					}
+					return rtn;
+				} catch (ExecutionException e) {
+					if (outstanding == 0) {
+						if (e.getCause() instanceof DeadlineExceededException || (deadline != null && deadline.isExpired())) {
+							throw new DeadlineExceededException("redis对冲读超过截止时间", e.getCause());
+						}
+						if (LOGGER.isErrorEnabled()) {
+							LOGGER.error("redis对冲读失败 使用普通读重试", e.getCause());
+						}
+						return fallback(read, deadline);
+					}
+				}
+				f = next(completionService, deadline);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RedisException("redis操作被中断", e);
+		}
+	}
+	
+	/**
+	 * 不经过对冲线程池直接读取 失败时与对冲读一样使用普通读重试
+	 * @param read
+	 * @param policy
+	 * @param deadline
+	 * @return
+	 */
+	private <T> T directRead(HedgedRead<T> read, HedgePolicy policy, Deadline deadline) {
+		try {
+			return hedgedCall(read, policy, deadline, null, null);
+		} catch (DeadlineExceededException e) {
+			throw e;
+		} catch (Exception e) {
+			if (deadline != null && deadline.isExpired()) {
+				throw new DeadlineExceededException("redis对冲读超过截止时间", e);
+			}
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis对冲读失败 使用普通读重试", e);
+			}
+			return fallback(read, deadline);
+		}
+	}
+	
+	/**
+	 * 沿用本次调用的截止时间走普通读流程 不重新开始计时
+	 * @param read
+	 * @param deadline
+	 * @return
+	 */
+	private <T> T fallback(HedgedRead<T> read, Deadline deadline) {
+		if (deadline == null) {
+			return read.fallback();
+		}
+		Deadline scope = Deadline.start(getMaxWait(deadline));
+		try {
+			return read.fallback();
+		} finally {
+			scope.close();
+		}
+	}
+	
+	private <T> Future<T> next(CompletionService<T> completionService, Deadline deadline) throws InterruptedException {
+		if (deadline == null) {
+			return completionService.take();
+		}
+		Future<T> f = completionService.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+		if (f == null) {
+			throw new DeadlineExceededException("redis对冲读超过截止时间");
+		}
+		return f;
+	}
+	
+	private <T> T hedgedCall(HedgedRead<T> read, HedgePolicy policy, Deadline deadline, AtomicReference<String> server, String excludeServer) throws Exception {
+		Jedis jedis = null;
+		//调用方的截止时间带到对冲线程上
+		Deadline scope = deadline == null ? null : Deadline.start(getMaxWait(deadline));
+		try {
+			if (excludeServer == null) {
+				jedis = getJedis();
+			} else {
+				jedis = getJedisExclude(excludeServer);
+			}
+			if (server != null) {
+				server.set(Utils.getHostAndPort(jedis));
+			}
+			long start = System.nanoTime();
+			T rtn = read.read(jedis);
+			policy.recordLatency((System.nanoTime() - start) / 1000l);
+			return rtn;
+		} catch (JedisConnectionException e) {
+			//remove unavailable server
+			removeUnavailableServer(jedis);
+			throw e;
+		} finally {
+			//close jedis
+			closeJedis(jedis);
+			if (scope != null) {
+				scope.close();
+			}
+		}
+	}
+	
+	/**
+	 * 通过负载均衡获取除指定服务器外的jedis
+	 * @param excludeServer
+	 * @return
+	 */
+	private Jedis getJedisExclude(String excludeServer) {
+		AdvancedRedisManager advancedManager = (AdvancedRedisManager) getManager();
+		Deadline deadline = beginOperation();
+		if (deadline == null) {
+			return borrowed(advancedManager.getJedisExclude(excludeServer));
+		}
+		try {
+			return borrowed(advancedManager.getJedisExclude(excludeServer, getMaxWait(deadline)), deadline);
+		} catch (JedisException e) {
+			throw borrowFailed(deadline, e);
+		}
+	}
+	
+	@Override
+	protected byte[] _getBytes(final String key) {
+		if (hedgePolicy == null) {
+			return super._getBytes(key);
+		}
+		return hedgedRead(new HedgedRead<byte[]>() {
+			@Override
+			public byte[] read(Jedis jedis) throws Exception {
+				byte[] bytes = jedis.get(Utils.mergeKey(getNamespace(), key).getBytes(Constants.DEFAULT_CHARSET));
+				return Utils.getOrigBytes(bytes, getCompressThreshold());
+			}
+			
+			@Override
+			public byte[] fallback() {
+				return AdvancedRedisClient.super._getBytes(key);
+			}
+		});
+	}
+	
+	@Override
+	protected String _get(final String key) {
+		if (hedgePolicy == null) {
+			return super._get(key);
+		}
+		return hedgedRead(new HedgedRead<String>() {
+			@Override
+			public String read(Jedis jedis) throws Exception {
+				return jedis.get(Utils.mergeKey(getNamespace(), key));
+			}
+			
+			@Override
+			public String fallback() {
+				return AdvancedRedisClient.super._get(key);
+			}
+		});
+	}
+	
+	@Override
+	public String hget(final String key, final String hashKey) {
+		if (hedgePolicy == null) {
+			return super.hget(key, hashKey);
+		}
+		return hedgedRead(new HedgedRead<String>() {
+			@Override
+			public String read(Jedis jedis) throws Exception {
+				return jedis.hget(Utils.mergeKey(getNamespace(), key), hashKey);
+			}
+			
+			@Override
+			public String fallback() {
+				return AdvancedRedisClient.super.hget(key, hashKey);
+			}
+		});
+	}
+	
+	@Override
+	public byte[] hgetBytes(final String key, final String hashKey) {
+		if (hedgePolicy == null) {
+			return super.hgetBytes(key, hashKey);
+		}
+		return hedgedRead(new HedgedRead<byte[]>() {
+			@Override
+			public byte[] read(Jedis jedis) throws Exception {
+				return jedis.hget(Utils.mergeKey(getNamespace(), key).getBytes(Constants.DEFAULT_CHARSET), hashKey.getBytes(Constants.DEFAULT_CHARSET));
+			}
+			
+			@Override
+			public byte[] fallback() {
+				return AdvancedRedisClient.super.hgetBytes(key, hashKey);
+			}
+		});
+	}
 
 	@Override
 	public void removeUnavailableServer(Jedis jedis) {
 		if (jedis != null) {
+			recordFailure(jedis);
 			String server = Utils.getHostAndPort(jedis);
+			Deadline deadline = getOperationDeadline();
+			if (deadline != null && deadline.isExpired()) {
+				//截止时间缩短了读超时 不能据此判定服务器不可用
+				return;
+			}
 			if (getManager().removeJedisPool(server)) {
 				if (LOGGER.isErrorEnabled()) {
 					LOGGER.error("redis服务器[" + server + "]不可用 从可用列表中剔除");
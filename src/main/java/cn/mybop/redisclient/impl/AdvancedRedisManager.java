@@ -4,7 +4,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.slf4j.Logger;
@@ -14,11 +17,17 @@ import cn.mybop.redisclient.RedisException;
 import cn.mybop.redisclient.balance.LoadBalancer;
 import cn.mybop.redisclient.balance.RandomLoadBalancer;
 import cn.mybop.redisclient.balance.RoundRobinLoadBalancer;
+import cn.mybop.redisclient.breaker.CircuitBreaker;
+import cn.mybop.redisclient.breaker.CircuitBreakerConfig;
+import cn.mybop.redisclient.breaker.CircuitBreakerState;
+import cn.mybop.redisclient.check.ServerRecoveryHandler;
 import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.health.HealthConfig;
+import cn.mybop.redisclient.health.HealthScore;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
 
 public class AdvancedRedisManager extends AbstractRedisManager {
 	
@@ -29,13 +38,31 @@ public class AdvancedRedisManager extends AbstractRedisManager {
 	//负载均衡策略
 	private LoadBalancer loadBalancer;
 	
-	private Map<String, JedisPool> jedisPools;
+	private Map<String, TimedJedisPool> jedisPools;
 	
 	//可用服务列表
 	private List<String> availableServers;
 	
 	private ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
 	
+	//熔断配置 为null时不启用熔断
+	private CircuitBreakerConfig circuitBreakerConfig;
+	
+	private volatile Map<String, CircuitBreaker> circuitBreakers;
+	
+	//健康分配置 为null时不启用健康分
+	private HealthConfig healthConfig;
+	
+	private volatile Map<String, HealthScore> healthScores;
+	
+	private volatile ServerRecoveryHandler recoveryHandler;
+	
+	//连接池耗尽的次数 不计入熔断和健康分
+	private final AtomicLong poolExhaustedCount = new AtomicLong();
+	
+	//健康分低的服务器至少保留的被选中权重(百分比)
+	private static final int MIN_HEALTH_WEIGHT = 5;
+	
 	public AdvancedRedisManager(String servers, JedisPoolConfig poolConfig, int timeout, final String password, final int database, String loadBalancer) {
 		super(poolConfig, timeout, password, database);
 		this.servers = servers;
@@ -50,6 +77,87 @@ public class AdvancedRedisManager extends AbstractRedisManager {
 	public String getServers() {
 		return servers;
 	}
+	
+	public CircuitBreakerConfig getCircuitBreakerConfig() {
+		return circuitBreakerConfig;
+	}
+
+	public void setCircuitBreakerConfig(CircuitBreakerConfig circuitBreakerConfig) {
+		this.circuitBreakerConfig = circuitBreakerConfig;
+	}
+	
+	public ServerRecoveryHandler getRecoveryHandler() {
+		return recoveryHandler;
+	}
+
+	public void setRecoveryHandler(ServerRecoveryHandler recoveryHandler) {
+		this.recoveryHandler = recoveryHandler;
+	}
+	
+	public HealthConfig getHealthConfig() {
+		return healthConfig;
+	}
+
+	public void setHealthConfig(HealthConfig healthConfig) {
+		this.healthConfig = healthConfig;
+	}
+	
+	/**
+	 * 健康分 未启用健康分时返回-1
+	 * @param server
+	 * @return
+	 */
+	public int getHealthScore(String server) {
+		Map<String, HealthScore> tmpHealthScores = healthScores;
+		if (tmpHealthScores == null) {
+			return -1;
+		}
+		HealthScore healthScore = tmpHealthScores.get(server);
+		return healthScore == null ? -1 : healthScore.getScore();
+	}
+	
+	/**
+	 * 熔断器状态 未启用熔断时返回null
+	 * @param server
+	 * @return
+	 */
+	public CircuitBreakerState getCircuitBreakerState(String server) {
+		Map<String, CircuitBreaker> tmpCircuitBreakers = circuitBreakers;
+		if (tmpCircuitBreakers == null) {
+			return null;
+		}
+		CircuitBreaker circuitBreaker = tmpCircuitBreakers.get(server);
+		return circuitBreaker == null ? null : circuitBreaker.getState();
+	}
+		
+	/**
+	 * 不经过负载均衡直接调用指定服务器前检查熔断器
+	 * @param server
+	 * @return 未启用熔断时返回true 返回true时调用结果需要通过recordSuccess/recordFailure记录
+	 */
+	public boolean tryAcquirePermission(String server) {
+		Map<String, CircuitBreaker> tmpCircuitBreakers = circuitBreakers;
+		if (tmpCircuitBreakers == null) {
+			return true;
+		}
+		CircuitBreaker circuitBreaker = tmpCircuitBreakers.get(server);
+		return circuitBreaker == null || circuitBreaker.tryAcquirePermission();
+	}
+		
+	/**
+	 * 申请到熔断器许可后没有实际调用时归还
+	 * @param server
+	 */
+	public void releasePermission(String server) {
+		Map<String, CircuitBreaker> tmpCircuitBreakers = circuitBreakers;
+		if (tmpCircuitBreakers == null) {
+			return;
+		}
+		CircuitBreaker circuitBreaker = tmpCircuitBreakers.get(server);
+		if (circuitBreaker != null) {
+			circuitBreaker.releasePermission();
+		}
+	}
 		
 	@Override
 	public List<String> getAvailableServers() {
@@ -77,25 +185,242 @@ public class AdvancedRedisManager extends AbstractRedisManager {
 	
 	@Override
 	public Jedis getJedis(String server) {
-		return jedisPools.get(server).getResource();
+		return getJedis(server, -1l);
+	}
+	
+	@Override
+	public Jedis getJedis(String server, long maxWait) {
+		TimedJedisPool pool = jedisPools.get(server);
+		try {
+			return maxWait < 0 ? pool.getResource() : pool.getResource(maxWait);
+		} catch (JedisConnectionException e) {
+			throw e;
+		} catch (JedisException e) {
+			if (isPoolExhausted(e)) {
+				poolExhaustedCount.incrementAndGet();
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * 等待空闲连接超时或连接池已满不等待 连接校验失败等不算
+	 * @param e
+	 * @return
+	 */
+	private static boolean isPoolExhausted(JedisException e) {
+		Throwable cause = e.getCause();
+		if (!(cause instanceof NoSuchElementException) || cause.getMessage() == null) {
+			return false;
+		}
+		return cause.getMessage().startsWith("Timeout waiting for idle object") || cause.getMessage().startsWith("Pool exhausted");
+	}
+	
+	/**
+	 * 连接池耗尽的累计次数
+	 * @return
+	 */
+	public long getPoolExhaustedCount() {
+		return poolExhaustedCount.get();
 	}
 
 	@Override
 	public Jedis getJedis() {
+		return getJedisExclude(null, -1l);
+	}
+	
+	@Override
+	public Jedis getJedis(long maxWait) {
+		return getJedisExclude(null, maxWait);
+	}
+	
+	/**
+	 * 通过负载均衡获取除指定服务器外的jedis 用于对冲读
+	 * @param excludeServer ip:port 为null时不排除
+	 * @return
+	 */
+	public Jedis getJedisExclude(String excludeServer) {
+		return getJedisExclude(excludeServer, -1l);
+	}
+	
+	/**
+	 * 通过负载均衡获取除指定服务器外的jedis
+	 * @param excludeServer ip:port 为null时不排除
+	 * @param maxWait 从连接池获取连接的最大等待毫秒数 小于0时使用连接池配置
+	 * @return
+	 */
+	public Jedis getJedisExclude(String excludeServer, long maxWait) {
+		String server = selectServer(excludeServer);
+		try {
+			return getJedis(server, maxWait);
+		} catch (JedisConnectionException e) {
+			recordFailure(server, 0l);
+			throw e;
+		} catch (JedisException e) {
+			if (isPoolExhausted(e)) {
+				//连接池耗尽不是服务器故障 归还熔断器半开状态的探测名额
+				releasePermission(server);
+			} else {
+				recordFailure(server, 0l);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * 通过负载均衡选择可用服务器 跳过熔断器不允许调用的服务器
+	 * @param excludeServer 不参与选择的服务器
+	 * @return ip:port
+	 */
+	private String selectServer(String excludeServer) {
 		String server = null;
 		rwl.readLock().lock();
 		try {
 			if (availableServers.size() == 0) {
 				throw new JedisConnectionException("无可用的redis服务器");
 			}
-			server = availableServers.get(loadBalancer.selectServer(availableServers));
+			List<String> candidates = availableServers;
+			if (excludeServer != null && availableServers.contains(excludeServer)) {
+				candidates = new ArrayList<String>(availableServers);
+				candidates.remove(excludeServer);
+				if (candidates.size() == 0) {
+					throw new JedisConnectionException("无其他可用的redis服务器");
+				}
+			}
+			Map<String, CircuitBreaker> tmpCircuitBreakers = circuitBreakers;
+			Map<String, HealthScore> tmpHealthScores = healthScores;
+			if (tmpCircuitBreakers == null) {
+				server = candidates.get(selectIndex(candidates, tmpHealthScores));
+			} else {
+				for (int i = 0; i < candidates.size(); i++) {
+					if (!tmpCircuitBreakers.get(candidates.get(i)).isCallPermitted()) {
+						if (candidates == availableServers) {
+							candidates = new ArrayList<String>(availableServers);
+						}
+						candidates.remove(i--);
+					}
+				}
+				while (server == null) {
+					if (candidates.size() == 0) {
+						throw new JedisConnectionException("无可用的redis服务器 可用服务器均已熔断");
+					}
+					int index = selectIndex(candidates, tmpHealthScores);
+					String candidate = candidates.get(index);
+					if (tmpCircuitBreakers.get(candidate).tryAcquirePermission()) {
+						server = candidate;
+					} else {
+						if (candidates == availableServers) {
+							candidates = new ArrayList<String>(availableServers);
+						}
+						candidates.remove(index);
+					}
+				}
+			}
 			if (LOGGER.isDebugEnabled()) {
 				LOGGER.debug("共发现" + availableServers.size() + "个可用redis服务器," + "本次使用redis服务器为" + server);
 			}
 		} finally {
 			rwl.readLock().unlock();
 		}
-		return jedisPools.get(server).getResource();
+		return server;
+	}
+	
+	/**
+	 * 通过负载均衡选择 健康分低的服务器按健康分比例跳过
+	 * @param candidates
+	 * @param tmpHealthScores
+	 * @return
+	 */
+	private int selectIndex(List<String> candidates, Map<String, HealthScore> tmpHealthScores) {
+		int index = loadBalancer.selectServer(candidates);
+		if (tmpHealthScores == null) {
+			return index;
+		}
+		for (int i = 0; i < candidates.size(); i++) {
+			HealthScore healthScore = tmpHealthScores.get(candidates.get(index));
+			if (healthScore == null || ThreadLocalRandom.current().nextInt(100) < Math.max(healthScore.getScore(), MIN_HEALTH_WEIGHT)) {
+				return index;
+			}
+			index = loadBalancer.selectServer(candidates);
+		}
+		return index;
+	}
+	
+	@Override
+	public boolean isRecording() {
+		return circuitBreakers != null || healthScores != null;
+	}
+	
+	@Override
+	public void recordSuccess(String server, long elapsed) {
+		Map<String, CircuitBreaker> tmpCircuitBreakers = circuitBreakers;
+		if (tmpCircuitBreakers != null) {
+			CircuitBreaker circuitBreaker = tmpCircuitBreakers.get(server);
+			if (circuitBreaker != null) {
+				circuitBreaker.onSuccess(elapsed);
+			}
+		}
+		Map<String, HealthScore> tmpHealthScores = healthScores;
+		if (tmpHealthScores != null) {
+			HealthScore healthScore = tmpHealthScores.get(server);
+			if (healthScore != null) {
+				healthScore.onSuccess(elapsed);
+				checkHealth(healthScore);
+			}
+		}
+	}
+
+	@Override
+	public void recordFailure(String server, long elapsed) {
+		Map<String, CircuitBreaker> tmpCircuitBreakers = circuitBreakers;
+		if (tmpCircuitBreakers != null) {
+			CircuitBreaker circuitBreaker = tmpCircuitBreakers.get(server);
+			if (circuitBreaker != null) {
+				circuitBreaker.onError(elapsed);
+			}
+		}
+		Map<String, HealthScore> tmpHealthScores = healthScores;
+		if (tmpHealthScores != null) {
+			HealthScore healthScore = tmpHealthScores.get(server);
+			if (healthScore != null) {
+				healthScore.onError(elapsed);
+				checkHealth(healthScore);
+			}
+		}
+	}
+	
+	/**
+	 * 健康分过低时从可用列表中剔除 至少保留一台可用服务器 之后由定时检查重新加入
+	 * @param healthScore
+	 */
+	private void checkHealth(HealthScore healthScore) {
+		if (!healthScore.isEjectable()) {
+			return;
+		}
+		String server = healthScore.getServer();
+		int score = healthScore.getScore();
+		rwl.writeLock().lock();
+		try {
+			if (availableServers == null || availableServers.size() <= 1 || !availableServers.remove(server)) {
+				return;
+			}
+		} finally {
+			rwl.writeLock().unlock();
+		}
+		healthScore.reset();
+		if (LOGGER.isErrorEnabled()) {
+			LOGGER.error("redis服务器[" + server + "]健康分" + score + "过低 从可用列表中剔除");
+		}
+	}
+	
+	@Override
+	public boolean needProbe(String server) {
+		Map<String, HealthScore> tmpHealthScores = healthScores;
+		if (tmpHealthScores == null) {
+			return true;
+		}
+		HealthScore healthScore = tmpHealthScores.get(server);
+		return healthScore == null || healthScore.needProbe();
 	}
 	
 	@Override
@@ -103,6 +428,11 @@ public class AdvancedRedisManager extends AbstractRedisManager {
 		throw new RedisException("redis manager do not support get master jedis!");
 	}
 	
+	@Override
+	public Jedis getMasterJedis(long maxWait) {
+		throw new RedisException("redis manager do not support get master jedis!");
+	}
+	
 	public boolean removeJedisPool(String server) {
 		rwl.writeLock().lock();
 		try {
@@ -113,6 +443,18 @@ public class AdvancedRedisManager extends AbstractRedisManager {
 	}
 	
 	public void addJedisPool(String server) {
+		ServerRecoveryHandler handler = recoveryHandler;
+		boolean prepared = false;
+		if (handler != null && !isAvailableServer(server)) {
+			if (!handler.beforeAdd(server)) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis服务器[" + server + "]恢复处理失败 暂不加入可用列表");
+				}
+				return;
+			}
+			prepared = true;
+		}
+		boolean added = false;
 		rwl.writeLock().lock();
 		try {
 			if (availableServers.contains(server)) {
@@ -121,10 +463,20 @@ public class AdvancedRedisManager extends AbstractRedisManager {
 				}
 			} else {
 				availableServers.add(server);
+				added = true;
+				//重新加入后健康分重新统计
+				Map<String, HealthScore> tmpHealthScores = healthScores;
+				if (tmpHealthScores != null && tmpHealthScores.get(server) != null) {
+					tmpHealthScores.get(server).reset();
+				}
 			}
 		} finally {
 			rwl.writeLock().unlock();
 		}
+		//beforeAdd之后已被其他线程加入时也需要完成恢复处理
+		if ((added || prepared) && handler != null) {
+			handler.afterAdd(server);
+		}
 	}
 
 	@Override
@@ -134,11 +486,27 @@ public class AdvancedRedisManager extends AbstractRedisManager {
 		if (tmpServers == null || tmpServers.length < 1) {
 			throw new RedisException("redis服务器列表为空");
 		}
-		jedisPools = new ConcurrentHashMap<String, JedisPool>(tmpServers.length);
+		jedisPools = new ConcurrentHashMap<String, TimedJedisPool>(tmpServers.length);
 		availableServers = new ArrayList<String>(tmpServers.length);
 		for (int i = 0; i < tmpServers.length; i++) {
 			String[] tmpHostAndPorts = tmpServers[i].split(":");
-			jedisPools.put(tmpServers[i], new JedisPool(getPoolConfig(), tmpHostAndPorts[0], Integer.parseInt(tmpHostAndPorts[1]), getTimeout(), getPassword(), getDatabase()));
+			jedisPools.put(tmpServers[i], new TimedJedisPool(getPoolConfig(), tmpHostAndPorts[0], Integer.parseInt(tmpHostAndPorts[1]), getTimeout(), getPassword(), getDatabase()));
+		}
+		
+		if (circuitBreakerConfig != null) {
+			Map<String, CircuitBreaker> tmpCircuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>(tmpServers.length);
+			for (int i = 0; i < tmpServers.length; i++) {
+				tmpCircuitBreakers.put(tmpServers[i], new CircuitBreaker(tmpServers[i], circuitBreakerConfig));
+			}
+			circuitBreakers = tmpCircuitBreakers;
+		}
+		
+		if (healthConfig != null) {
+			Map<String, HealthScore> tmpHealthScores = new ConcurrentHashMap<String, HealthScore>(tmpServers.length);
+			for (int i = 0; i < tmpServers.length; i++) {
+				tmpHealthScores.put(tmpServers[i], new HealthScore(tmpServers[i], healthConfig));
+			}
+			healthScores = tmpHealthScores;
 		}
 
 		if (LOGGER.isInfoEnabled()) {
@@ -158,9 +526,9 @@ public class AdvancedRedisManager extends AbstractRedisManager {
 			rwl.writeLock().unlock();
 		}
 		
-		for (Entry<String, JedisPool> entry : jedisPools.entrySet()) {
+		for (Entry<String, TimedJedisPool> entry : jedisPools.entrySet()) {
 			String server = entry.getKey();
-			JedisPool pool = entry.getValue();
+			TimedJedisPool pool = entry.getValue();
 			try {
 				pool.close();
 			} catch (Exception e) {
@@ -176,7 +544,9 @@ public class AdvancedRedisManager extends AbstractRedisManager {
 			}
 		}
 		jedisPools.clear();
-		jedisPools = null;		
+		jedisPools = null;
+		circuitBreakers = null;
+		healthScores = null;
 		super.stopInternal();
 	}
 
@@ -41,6 +41,11 @@ public class ReadOnlyRedisClient extends AdvancedRedisClient {
 		throw new RedisException("read only redis client do not support write operation!");
 	}
 	
+	@Override
+	public byte[] getSetBytes(String key, byte[] value) {
+		throw new RedisException("read only redis client do not support write operation!");
+	}
+	
 	@Override
 	public Long setnxBytes(String key, byte[] value) {
 		throw new RedisException("read only redis client do not support write operation!");
@@ -10,7 +10,6 @@ import org.slf4j.LoggerFactory;
 import cn.mybop.redisclient.RedisException;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPoolConfig;
-import redis.clients.jedis.JedisSentinelPool;
 
 public class SentinelManager extends AbstractRedisManager {
 	
@@ -20,7 +19,7 @@ public class SentinelManager extends AbstractRedisManager {
 	
 	private String masterName;
 	
-	private JedisSentinelPool jedisSentinelPool;
+	private TimedJedisSentinelPool jedisSentinelPool;
 	
 	public SentinelManager(String sentinels, String masterName, JedisPoolConfig poolConfig, int timeout, final String password, final int database) {
 		super(poolConfig, timeout, password, database);
@@ -52,17 +51,32 @@ public class SentinelManager extends AbstractRedisManager {
 	public Jedis getJedis(String server) {
 		throw new RedisException("不支持获取指定server的jedis连接");
 	}
+	
+	@Override
+	public Jedis getJedis(String server, long maxWait) {
+		throw new RedisException("不支持获取指定server的jedis连接");
+	}
 
 	@Override
 	public Jedis getJedis() {
 		return jedisSentinelPool.getResource();
 	}
 	
+	@Override
+	public Jedis getJedis(long maxWait) {
+		return getMasterJedis(maxWait);
+	}
+	
 	@Override
 	public Jedis getMasterJedis() {
 		return jedisSentinelPool.getResource();
 	}
 	
+	@Override
+	public Jedis getMasterJedis(long maxWait) {
+		return maxWait < 0 ? jedisSentinelPool.getResource() : jedisSentinelPool.getResource(maxWait);
+	}
+	
 	public boolean removeJedisPool(String server) {
 		throw new RedisException("不支持该操作");
 	}
@@ -87,7 +101,7 @@ public class SentinelManager extends AbstractRedisManager {
 		for (int i = 0; i < tmpSentinels.length; i++) {
 			sentinelSet.add(tmpSentinels[i]);
 		}
-		jedisSentinelPool = new JedisSentinelPool(masterName, sentinelSet, getPoolConfig(), getTimeout(), getPassword(), getDatabase());
+		jedisSentinelPool = new TimedJedisSentinelPool(masterName, sentinelSet, getPoolConfig(), getTimeout(), getPassword(), getDatabase());
 
 		if (LOGGER.isInfoEnabled()) {
 			LOGGER.info("sentinel服务器[" + sentinels + "-" + masterName + "]启动完成");
@@ -38,7 +38,10 @@ public class SentinelRedisClient extends AdvancedRedisClient {
 			loadBalancer = props.getProperty(Constants.SERVER_LOADBALANCER);
 		}
 		JedisPoolConfig poolConfig = Utils.initPoolConfig(props);
-		return new SentinelRedisManager(servers, sentinels, masterName, poolConfig, getTimeout(), getPassword(), getDatabase(), loadBalancer);
+		SentinelRedisManager manager = new SentinelRedisManager(servers, sentinels, masterName, poolConfig, getTimeout(), getPassword(), getDatabase(), loadBalancer);
+		manager.setCircuitBreakerConfig(Utils.initCircuitBreakerConfig(props));
+		manager.setHealthConfig(Utils.initHealthConfig(props));
+		return manager;
 	}
 
 	@Override
@@ -9,7 +9,6 @@ import org.slf4j.LoggerFactory;
 import cn.mybop.redisclient.RedisException;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPoolConfig;
-import redis.clients.jedis.JedisSentinelPool;
 
 public class SentinelRedisManager extends AdvancedRedisManager {
 	
@@ -19,7 +18,7 @@ public class SentinelRedisManager extends AdvancedRedisManager {
 	
 	private String masterName;
 	
-	private JedisSentinelPool jedisSentinelPool;
+	private TimedJedisSentinelPool jedisSentinelPool;
 	
 	public SentinelRedisManager(String servers, String sentinels, String masterName, JedisPoolConfig poolConfig, int timeout, final String password, final int database, String loadBalancer) {
 		super(servers, poolConfig, timeout, password, database, loadBalancer);
@@ -42,6 +41,11 @@ public class SentinelRedisManager extends AdvancedRedisManager {
 		return jedisSentinelPool.getResource();
 	}
 	
+	@Override
+	public Jedis getMasterJedis(long maxWait) {
+		return maxWait < 0 ? jedisSentinelPool.getResource() : jedisSentinelPool.getResource(maxWait);
+	}
+	
 	@Override
 	protected void startInternal() {
 		super.startInternal();		
@@ -53,7 +57,7 @@ public class SentinelRedisManager extends AdvancedRedisManager {
 		for (int i = 0; i < tmpSentinels.length; i++) {
 			sentinelSet.add(tmpSentinels[i]);
 		}
-		jedisSentinelPool = new JedisSentinelPool(masterName, sentinelSet, getPoolConfig(), getTimeout(), getPassword(), getDatabase());
+		jedisSentinelPool = new TimedJedisSentinelPool(masterName, sentinelSet, getPoolConfig(), getTimeout(), getPassword(), getDatabase());
 
 		if (LOGGER.isInfoEnabled()) {
 			LOGGER.info("sentinel服务器[" + sentinels + "-" + masterName + "]启动完成");
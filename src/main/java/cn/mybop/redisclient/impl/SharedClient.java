@@ -1,8 +1,12 @@
 package cn.mybop.redisclient.impl;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -10,30 +14,111 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.DeadlineExceededException;
 import cn.mybop.redisclient.IRedisClient;
 import cn.mybop.redisclient.RedisException;
 import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.ServerUnavailableException;
+import cn.mybop.redisclient.bloom.MissingKeyGuard;
+import cn.mybop.redisclient.chunk.ChunkManifest;
 import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.common.Deadline;
+import cn.mybop.redisclient.common.SingleFlight;
 import cn.mybop.redisclient.common.Utils;
+import cn.mybop.redisclient.hotkey.HotKeyCache;
+import cn.mybop.redisclient.hotkey.HotKeyDetector;
 import cn.mybop.redisclient.lifecycle.LifecycleBase;
+import cn.mybop.redisclient.shard.KeyMigrator;
+import cn.mybop.redisclient.shard.ShardCall;
+import cn.mybop.redisclient.shard.ShardFailover;
+import cn.mybop.redisclient.shard.ShardLocatorFactory;
+import cn.mybop.redisclient.shard.ShardMover;
+import cn.mybop.redisclient.shard.ShardRing;
+import cn.mybop.redisclient.stream.PagedPublisher;
+import cn.mybop.redisclient.stream.RedisPublishers;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.Tuple;
-import redis.clients.util.Hashing;
-import redis.clients.util.MurmurHash;
 
+/**
+ * 分片客户端
+ * 配置shared.reshard.from时为在线扩容 新分片追加在shared.client.list末尾
+ * 写入新环的分片(写入前先迁移该key) 读取新环的分片不存在时读取旧环的分片 后台按限速迁移旧分片中的key
+ * 配置shared.failover时 分片不可用期间读取(和写入)环上接替的分片 原分片恢复后交还写入接替分片的key
+ * 开启shared.hotkey.enabled时统计热点key 热点key的get/getBytes/getObject读取本地缓存
+ * 配置shared.chunk.threshold时 setBytes的大value分块写入各分片 原key上写入清单 getBytes并行读取分块后拼接 分块存储的key不支持rename
+ * 开启shared.bloom.enabled或配置shared.negative.cache.ttl时 get/getBytes/getObject在本地判断一定不存在的key
+ */
 public class SharedClient extends LifecycleBase implements IRedisClient {
 	
-	private TreeMap<Long, IRedisClient> nodes;
+	private static final Logger LOGGER = LoggerFactory.getLogger(SharedClient.class);
 	
-	private List<IRedisClient> clients;
+	private static final int HANDBACK_LOCK_COUNT = 64;
+	
+	private ShardRing ring;
+	
+	//迁移完成前的旧环 未扩容时为null
+	private volatile ShardRing oldRing;
+	
+	//按分片序号
+	private IRedisClient[] shards;
+	
+	private ShardMover mover;
+	
+	private ScheduledExecutorService moverExecutor;
+	
+	//未开启shared.failover时为null
+	private ShardFailover failover;
+	
+	//分片不可用时是否写入接替分片
+	private boolean writeFailover;
+	
+	private KeyMigrator migrator;
+	
+	//按key分段的交还锁 同一个key的交还不并发执行
+	private ReentrantLock[] handbackLocks;
+	
+	private ExecutorService handbackExecutor;
 	
-	private Hashing algo;
+	//未开启shared.hotkey.enabled时为null
+	private HotKeyDetector hotKeyDetector;
 	
-	private int sharedNode;
+	//shared.hotkey.cache.ttl为0时为null
+	private HotKeyCache hotKeyCache;
+	
+	//按HotKeyCache.TYPE_*的single flight 未开启single.flight时为null
+	private SingleFlight<Object>[] flights;
+	
+	private int chunkThreshold;
+	
+	private int chunkSize;
+	
+	//未开启分块时为null
+	private ExecutorService chunkExecutor;
+	
+	//未开启shared.bloom.enabled且未配置shared.negative.cache.ttl时为null
+	private MissingKeyGuard missingKeyGuard;
+	
+	private ScheduledExecutorService bloomExecutor;
+	
+	private List<IRedisClient> clients;
 	
 	private Properties props;
 	
@@ -52,35 +137,252 @@ public class SharedClient extends LifecycleBase implements IRedisClient {
 			throw new RedisException(Constants.CLIENT_NAME + "参数未定义");
 		}
 		
-		String shareAlgorithm = props.getProperty(Constants.SHARED_ALGORITHM, Constants.DEFAULT_SHARED_ALGORITHM);
-		if (Constants.DEFAULT_SHARED_ALGORITHM.equalsIgnoreCase(shareAlgorithm)) {
-			algo = new MurmurHash();
-		} else {
-			throw new RedisException("暂不支持类型算法");
-		}
-		
-		String strShareNode = props.getProperty(Constants.SHARED_NODE);
-		if (Utils.isNotBlank(strShareNode)) {
-			sharedNode = Integer.parseInt(strShareNode);
-		} else {
-			sharedNode = Constants.DEFAULT_SHARED_NODE;
-		}
-		
-		nodes = new TreeMap<Long, IRedisClient>();
+		IRedisClient[] tmpShards = new IRedisClient[clients.size()];
 		for (int i = 0; i < clients.size(); i++) {
 			IRedisClient redisClient = clients.get(i);
 			if (redisClient instanceof SharedClient) {
 				throw new RedisException("不允许shared redis client再嵌套shared redis client");
 			}
-			for (int n = 0; n < sharedNode; n++) {
-				nodes.put(algo.hash("SHARD-" + i + "-NODE-" + n), redisClient);
+			tmpShards[i] = redisClient;
+		}
+		boolean hashTag = Constants.DEFAULT_SHARED_HASH_TAG;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_HASH_TAG))) {
+			hashTag = Boolean.parseBoolean(props.getProperty(Constants.SHARED_HASH_TAG));
+		}
+		ring = new ShardRing(ShardLocatorFactory.getShardLocator(props, tmpShards.length), hashTag);
+		shards = tmpShards;
+		
+		String failoverMode = props.getProperty(Constants.SHARED_FAILOVER, Constants.DEFAULT_SHARED_FAILOVER);
+		if (Constants.SharedFailover.READ.equalsIgnoreCase(failoverMode) || Constants.SharedFailover.READWRITE.equalsIgnoreCase(failoverMode)) {
+			startFailover(Constants.SharedFailover.READWRITE.equalsIgnoreCase(failoverMode));
+		} else if (!Constants.SharedFailover.NONE.equalsIgnoreCase(failoverMode)) {
+			throw new RedisException("暂不支持" + Constants.SHARED_FAILOVER + "[" + failoverMode + "]");
+		}
+		
+		boolean hotKeyEnabled = Constants.DEFAULT_SHARED_HOTKEY_ENABLED;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_HOTKEY_ENABLED))) {
+			hotKeyEnabled = Boolean.parseBoolean(props.getProperty(Constants.SHARED_HOTKEY_ENABLED));
+		}
+		if (hotKeyEnabled) {
+			startHotKey();
+		}
+		
+		boolean singleFlight = Constants.DEFAULT_SINGLE_FLIGHT;
+		if (Utils.isNotBlank(props.getProperty(Constants.SINGLE_FLIGHT))) {
+			singleFlight = Boolean.parseBoolean(props.getProperty(Constants.SINGLE_FLIGHT));
+		}
+		if (singleFlight) {
+			flights = newFlights(HotKeyCache.TYPE_OBJECT + 1);
+		}
+		
+		chunkThreshold = Constants.DEFAULT_SHARED_CHUNK_THRESHOLD;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_CHUNK_THRESHOLD))) {
+			chunkThreshold = Integer.parseInt(props.getProperty(Constants.SHARED_CHUNK_THRESHOLD));
+		}
+		if (chunkThreshold > 0) {
+			chunkSize = Constants.DEFAULT_SHARED_CHUNK_SIZE;
+			if (Utils.isNotBlank(props.getProperty(Constants.SHARED_CHUNK_SIZE))) {
+				chunkSize = Integer.parseInt(props.getProperty(Constants.SHARED_CHUNK_SIZE));
+			}
+			if (chunkSize <= 0) {
+				throw new RedisException(Constants.SHARED_CHUNK_SIZE + "参数必须大于0");
+			}
+			chunkExecutor = Utils.initExecutor(props.getProperty(Constants.SHARED_CHUNK_THREAD_POOL, Constants.DEFAULT_SHARED_CHUNK_THREAD_POOL), "redis-chunk-thread[" + name + "]", props);
+		}
+		
+		boolean bloomEnabled = Constants.DEFAULT_SHARED_BLOOM_ENABLED;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_BLOOM_ENABLED))) {
+			bloomEnabled = Boolean.parseBoolean(props.getProperty(Constants.SHARED_BLOOM_ENABLED));
+		}
+		long negativeTtl = Constants.DEFAULT_SHARED_NEGATIVE_CACHE_TTL;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_NEGATIVE_CACHE_TTL))) {
+			negativeTtl = Long.parseLong(props.getProperty(Constants.SHARED_NEGATIVE_CACHE_TTL));
+		}
+		if (bloomEnabled || negativeTtl > 0) {
+			startMissingKeyGuard(bloomEnabled, negativeTtl);
+		}
+		
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_RESHARD_FROM))) {
+			int from = Integer.parseInt(props.getProperty(Constants.SHARED_RESHARD_FROM));
+			if (from <= 0 || from > tmpShards.length) {
+				throw new RedisException(Constants.SHARED_RESHARD_FROM + "参数必须在1和" + tmpShards.length + "之间");
+			}
+			if (from < tmpShards.length) {
+				startReshard(new ShardRing(ShardLocatorFactory.getShardLocator(props, from), hashTag));
+			}
+		}
+	}
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static SingleFlight<Object>[] newFlights(int size) {
+		SingleFlight<Object>[] tmpFlights = new SingleFlight[size];
+		for (int i = 0; i < size; i++) {
+			tmpFlights[i] = new SingleFlight<Object>();
+		}
+		return tmpFlights;
+	}
+	
+	private void startFailover(boolean write) {
+		long retryInterval = Constants.DEFAULT_SHARED_FAILOVER_RETRY_INTERVAL;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_FAILOVER_RETRY_INTERVAL))) {
+			retryInterval = Long.parseLong(props.getProperty(Constants.SHARED_FAILOVER_RETRY_INTERVAL));
+		}
+		int maxHandoffKeys = Constants.DEFAULT_SHARED_FAILOVER_MAX_HANDOFF_KEYS;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_FAILOVER_MAX_HANDOFF_KEYS))) {
+			maxHandoffKeys = Integer.parseInt(props.getProperty(Constants.SHARED_FAILOVER_MAX_HANDOFF_KEYS));
+		}
+		failover = new ShardFailover(shards.length, retryInterval, maxHandoffKeys);
+		writeFailover = write;
+		if (write) {
+			migrator = createKeyMigrator();
+			handbackLocks = new ReentrantLock[HANDBACK_LOCK_COUNT];
+			for (int i = 0; i < handbackLocks.length; i++) {
+				handbackLocks[i] = new ReentrantLock();
+			}
+			handbackExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r);
+					t.setDaemon(true);
+					t.setName("redis-handback-thread[" + name + "]");
+					return t;
+				}
+				
+			});
+		}
+	}
+	
+	private void startHotKey() {
+		long window = Constants.DEFAULT_SHARED_HOTKEY_WINDOW;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_HOTKEY_WINDOW))) {
+			window = Long.parseLong(props.getProperty(Constants.SHARED_HOTKEY_WINDOW));
+		}
+		long threshold = Constants.DEFAULT_SHARED_HOTKEY_THRESHOLD;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_HOTKEY_THRESHOLD))) {
+			threshold = Long.parseLong(props.getProperty(Constants.SHARED_HOTKEY_THRESHOLD));
+		}
+		int top = Constants.DEFAULT_SHARED_HOTKEY_TOP;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_HOTKEY_TOP))) {
+			top = Integer.parseInt(props.getProperty(Constants.SHARED_HOTKEY_TOP));
+		}
+		long ttl = Constants.DEFAULT_SHARED_HOTKEY_CACHE_TTL;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_HOTKEY_CACHE_TTL))) {
+			ttl = Long.parseLong(props.getProperty(Constants.SHARED_HOTKEY_CACHE_TTL));
+		}
+		hotKeyDetector = new HotKeyDetector(name, window, threshold, top);
+		if (ttl > 0) {
+			hotKeyCache = new HotKeyCache(ttl, top);
+		}
+	}
+	
+	private void startMissingKeyGuard(boolean bloomEnabled, long negativeTtl) {
+		long expectedKeys = Constants.DEFAULT_SHARED_BLOOM_EXPECTED_KEYS;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_BLOOM_EXPECTED_KEYS))) {
+			expectedKeys = Long.parseLong(props.getProperty(Constants.SHARED_BLOOM_EXPECTED_KEYS));
+		}
+		double fpp = Constants.DEFAULT_SHARED_BLOOM_FPP;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_BLOOM_FPP))) {
+			fpp = Double.parseDouble(props.getProperty(Constants.SHARED_BLOOM_FPP));
+		}
+		int rate = Constants.DEFAULT_SHARED_BLOOM_SCAN_RATE;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_BLOOM_SCAN_RATE))) {
+			rate = Integer.parseInt(props.getProperty(Constants.SHARED_BLOOM_SCAN_RATE));
+		}
+		int scanCount = Constants.DEFAULT_SHARED_BLOOM_SCAN_COUNT;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_BLOOM_SCAN_COUNT))) {
+			scanCount = Integer.parseInt(props.getProperty(Constants.SHARED_BLOOM_SCAN_COUNT));
+		}
+		long interval = Constants.DEFAULT_SHARED_BLOOM_REBUILD_INTERVAL;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_BLOOM_REBUILD_INTERVAL))) {
+			interval = Long.parseLong(props.getProperty(Constants.SHARED_BLOOM_REBUILD_INTERVAL));
+		}
+		int negativeMaxSize = Constants.DEFAULT_SHARED_NEGATIVE_CACHE_SIZE;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_NEGATIVE_CACHE_SIZE))) {
+			negativeMaxSize = Integer.parseInt(props.getProperty(Constants.SHARED_NEGATIVE_CACHE_SIZE));
+		}
+		if (bloomEnabled && (expectedKeys <= 0 || fpp <= 0.0 || fpp >= 1.0)) {
+			throw new RedisException(Constants.SHARED_BLOOM_EXPECTED_KEYS + "必须大于0 " + Constants.SHARED_BLOOM_FPP + "必须在0和1之间");
+		}
+		missingKeyGuard = new MissingKeyGuard(name, bloomEnabled ? shards : null, expectedKeys, fpp, scanCount, rate, negativeTtl, negativeMaxSize);
+		if (!bloomEnabled) {
+			return;
+		}
+		bloomExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setDaemon(true);
+				t.setName("redis-bloom-thread[" + name + "]");
+				return t;
 			}
+			
+		});
+		if (interval > 0) {
+			bloomExecutor.scheduleWithFixedDelay(missingKeyGuard, 0, interval, TimeUnit.SECONDS);
+		} else {
+			bloomExecutor.execute(missingKeyGuard);
 		}
 	}
 	
+	private void startReshard(ShardRing fromRing) {
+		int rate = Constants.DEFAULT_SHARED_RESHARD_RATE;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_RESHARD_RATE))) {
+			rate = Integer.parseInt(props.getProperty(Constants.SHARED_RESHARD_RATE));
+		}
+		int scanCount = Constants.DEFAULT_SHARED_RESHARD_SCAN_COUNT;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_RESHARD_SCAN_COUNT))) {
+			scanCount = Integer.parseInt(props.getProperty(Constants.SHARED_RESHARD_SCAN_COUNT));
+		}
+		long delay = Constants.DEFAULT_SHARED_RESHARD_SCHEDULE_DELAY;
+		if (Utils.isNotBlank(props.getProperty(Constants.SHARED_RESHARD_SCHEDULE_DELAY))) {
+			delay = Long.parseLong(props.getProperty(Constants.SHARED_RESHARD_SCHEDULE_DELAY));
+		}
+		mover = createShardMover(shards, fromRing, ring, scanCount, rate);
+		oldRing = fromRing;
+		moverExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r);
+				t.setDaemon(true);
+				t.setName("redis-reshard-thread[" + name + "]");
+				return t;
+			}
+			
+		});
+		moverExecutor.scheduleWithFixedDelay(mover, 0, delay, TimeUnit.SECONDS);
+	}
+	
 	@Override
 	protected void stopInternal() {
-		nodes.clear();
+		if (moverExecutor != null) {
+			//中断正在进行的迁移
+			moverExecutor.shutdownNow();
+			moverExecutor = null;
+		}
+		mover = null;
+		oldRing = null;
+		if (handbackExecutor != null) {
+			handbackExecutor.shutdownNow();
+			handbackExecutor = null;
+		}
+		failover = null;
+		migrator = null;
+		handbackLocks = null;
+		hotKeyDetector = null;
+		hotKeyCache = null;
+		flights = null;
+		if (chunkExecutor != null) {
+			chunkExecutor.shutdown();
+			chunkExecutor = null;
+		}
+		if (bloomExecutor != null) {
+			bloomExecutor.shutdownNow();
+			bloomExecutor = null;
+		}
+		missingKeyGuard = null;
 		for (Iterator<IRedisClient> iter = clients.iterator(); iter.hasNext(); ) {
 			IRedisClient redisClient = iter.next();
 			if (redisClient != null) {
@@ -89,7 +391,8 @@ public class SharedClient extends LifecycleBase implements IRedisClient {
 		}
 		clients.clear();
 		
-		nodes = null;
+		ring = null;
+		shards = null;
 		clients = null;
 	}
 
@@ -108,144 +411,1069 @@ public class SharedClient extends LifecycleBase implements IRedisClient {
 		throw new RedisException("shared redis client do not have redis manager");
 	}
 	
-	private IRedisClient getShard(byte[] key) {
-		SortedMap<Long, IRedisClient> tail = nodes.tailMap(algo.hash(key));
-		if (tail.isEmpty()) {
-			return nodes.get(nodes.firstKey());
+	private IRedisClient getShard(String key) {
+		return shards[ring.locate(key)];
+	}
+	
+	/**
+	 * 迁移中且key在旧环属于其他分片时返回旧分片 否则返回null
+	 * @param key
+	 * @return
+	 */
+	private IRedisClient getOldShard(String key) {
+		ShardRing fromRing = oldRing;
+		if (fromRing == null) {
+			return null;
+		}
+		if (mover.isFinished()) {
+			oldRing = null;
+			return null;
 		}
-		return tail.get(tail.firstKey());
+		int index = fromRing.locate(key);
+		return index == ring.locate(key) ? null : shards[index];
 	}
 	
-	private IRedisClient getShard(String key) {
+	/**
+	 * 写入新分片前先把旧分片上的key迁移过去
+	 * @param key
+	 * @return
+	 */
+	private IRedisClient getWriteShard(String key) {
+		if (getOldShard(key) != null) {
+			mover.migrate(key);
+		}
+		return getShard(key);
+	}
+	
+	/**
+	 * 迁移中先读取新分片 读取不到时再读取旧分片 旧分片上也读取不到时返回新分片的结果
+	 * @param key
+	 * @param call
+	 * @return
+	 */
+	private <T> T readMoving(String key, ShardCall<T> call) {
+		T rtn = call.call(getShard(key));
+		if (!call.isAbsent(rtn)) {
+			return rtn;
+		}
+		IRedisClient oldShard = getOldShard(key);
+		if (oldShard == null) {
+			return rtn;
+		}
+		T oldRtn = call.call(oldShard);
+		return call.isAbsent(oldRtn) ? rtn : oldRtn;
+	}
+	
+	private <T> T read(String key, ShardCall<T> call) {
+		return read(key, 0, call);
+	}
+	
+	/**
+	 * 读取 本地判断一定不存在时返回null 读取不到时加入负缓存
+	 * @param key
+	 * @param cacheType HotKeyCache.TYPE_* 为0时不缓存也不判断
+	 * @param call
+	 * @return
+	 */
+	private <T> T read(String key, int cacheType, ShardCall<T> call) {
+		MissingKeyGuard tmpGuard = cacheType == 0 ? null : missingKeyGuard;
+		if (tmpGuard == null) {
+			return readCache(key, cacheType, call);
+		}
+		if (tmpGuard.isMissing(key)) {
+			return null;
+		}
+		//读取期间本客户端写入过时不加入负缓存
+		long generation = tmpGuard.generation(key);
+		T rtn = readCache(key, cacheType, call);
+		if (rtn == null) {
+			tmpGuard.recordMiss(key, generation);
+		}
+		return rtn;
+	}
+	
+	/**
+	 * 读取 热点key读取本地缓存
+	 * @param key
+	 * @param cacheType
+	 * @param call
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T readCache(String key, int cacheType, ShardCall<T> call) {
+		HotKeyCache tmpCache = hotKeyCache;
+		if (hotKeyDetector == null || !hotKeyDetector.record(key) || cacheType == 0 || tmpCache == null) {
+			return flight(key, cacheType, call);
+		}
+		Object value = tmpCache.get(key, cacheType);
+		if (value != null) {
+			return (T) value;
+		}
+		//读取期间本进程写入过时不缓存
+		long generation = tmpCache.generation(key);
+		T rtn = flight(key, cacheType, call);
+		tmpCache.put(key, cacheType, rtn, generation);
+		return rtn;
+	}
+	
+	/**
+	 * 开启single.flight时 同一个key上并发的同一种读取只执行一次
+	 * @param key
+	 * @param cacheType HotKeyCache.TYPE_* 为0时不合并
+	 * @param call
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T flight(final String key, int cacheType, final ShardCall<T> call) {
+		if (flights == null || cacheType == 0) {
+			return readShard(key, call);
+		}
+		return (T) flights[cacheType].execute(key, new Callable<Object>() {
+			
+			@Override
+			public Object call() throws Exception {
+				return readShard(key, call);
+			}
+			
+		});
+	}
+	
+	/**
+	 * 读取 分片不可用时读取接替分片
+	 * @param key
+	 * @param call
+	 * @return
+	 */
+	private <T> T readShard(String key, ShardCall<T> call) {
+		if (failover == null) {
+			return readMoving(key, call);
+		}
+		int index = ring.locate(key);
+		if (failover.isHandoff(index, key)) {
+			//交还前接替分片的值为准 包括不可用期间删除的key 与交还互斥
+			ReentrantLock lock = getHandbackLock(key);
+			lock.lock();
+			try {
+				if (failover.isHandoff(index, key)) {
+					return call.call(shards[ring.locateNext(key, index)]);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (failover.isAvailable(index)) {
+			try {
+				T rtn = readMoving(key, call);
+				recovered(index);
+				return rtn;
+			} catch (RuntimeException e) {
+				if (!ShardFailover.isUnavailable(e)) {
+					throw e;
+				}
+				shardDown(index, e);
+			}
+		}
+		return call.call(shards[ring.locateNext(key, index)]);
+	}
+	
+	/**
+	 * 写入 分片不可用时按shared.failover写入接替分片或失败
+	 * @param key
+	 * @param call
+	 * @return
+	 */
+	private <T> T write(String key, ShardCall<T> call) {
+		MissingKeyGuard tmpGuard = missingKeyGuard;
+		if (tmpGuard != null) {
+			tmpGuard.put(key);
+		}
+		try {
+			return writeShard(key, call);
+		} finally {
+			if (tmpGuard != null) {
+				tmpGuard.put(key);
+			}
+			//先忘记再失效 失效后开始的读取不会共享写入前开始的读取并缓存其结果
+			forget(key);
+			if (hotKeyCache != null) {
+				hotKeyCache.invalidate(key);
+			}
+		}
+	}
+	
+	/**
+	 * 之后的读取不再共享写入前开始的读取
+	 * @param key
+	 */
+	private void forget(String key) {
+		SingleFlight<Object>[] tmpFlights = flights;
+		if (tmpFlights != null) {
+			for (int i = 1; i < tmpFlights.length; i++) {
+				tmpFlights[i].forget(key);
+			}
+		}
+	}
+	
+	private <T> T writeShard(String key, ShardCall<T> call) {
+		if (failover == null) {
+			return call.call(getWriteShard(key));
+		}
+		int index = ring.locate(key);
+		if (failover.isAvailable(index)) {
+			try {
+				if (failover.isHandoff(index, key)) {
+					handback(index, key);
+				}
+				T rtn = call.call(getWriteShard(key));
+				recovered(index);
+				return rtn;
+			} catch (RuntimeException e) {
+				if (!ShardFailover.isUnavailable(e)) {
+					throw e;
+				}
+				shardDown(index, e);
+				if (!writeFailover) {
+					throw e;
+				}
+			}
+		} else if (!writeFailover) {
+			throw new ServerUnavailableException("redis分片[" + shards[index].getName() + "]不可用");
+		}
+		if (!failover.recordHandoff(index, key)) {
+			throw new ServerUnavailableException("redis分片[" + shards[index].getName() + "]不可用 待交还的key已达上限");
+		}
+		return call.call(shards[ring.locateNext(key, index)]);
+	}
+	
+	private void shardDown(int index, RuntimeException e) {
+		if (failover.isAvailable(index) && LOGGER.isWarnEnabled()) {
+			LOGGER.warn("redis分片[" + shards[index].getName() + "]不可用 切换到接替分片", e);
+		}
+		failover.markDown(index);
+	}
+	
+	/**
+	 * 原分片调用成功 有待交还的key时在后台交还
+	 * @param index
+	 */
+	private void recovered(final int index) {
+		if (!failover.markUp(index)) {
+			return;
+		}
+		if (handbackExecutor == null) {
+			failover.finishHandback(index);
+			return;
+		}
+		try {
+			handbackExecutor.execute(new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						List<String> keys = failover.getHandoffKeys(index);
+						for (int i = 0; i < keys.size() && failover.isAvailable(index); i++) {
+							handback(index, keys.get(i));
+						}
+						if (LOGGER.isInfoEnabled()) {
+							LOGGER.info("redis分片[" + shards[index].getName() + "]恢复 交还" + keys.size() + "个key");
+						}
+					} catch (Exception e) {
+						if (LOGGER.isErrorEnabled()) {
+							LOGGER.error("redis分片[" + shards[index].getName() + "]交还失败", e);
+						}
+					} finally {
+						failover.finishHandback(index);
+					}
+				}
+				
+			});
+		} catch (RejectedExecutionException e) {
+			failover.finishHandback(index);
+		}
+	}
+	
+	/**
+	 * 把写入接替分片的key交还原分片 接替分片的值为准 覆盖原分片上的值
+	 * @param index
+	 * @param key
+	 */
+	private void handback(int index, String key) {
+		ReentrantLock lock = getHandbackLock(key);
+		lock.lock();
+		try {
+			//其他线程已交还
+			if (!failover.isHandoff(index, key)) {
+				return;
+			}
+			IRedisClient standIn = shards[ring.locateNext(key, index)];
+			//覆盖原分片上不可用前的旧值 不可用期间删除的key在原分片上也删除
+			boolean exists = migrator.copy(standIn, shards[index], key);
+			//先移出待交还 之后的读取使用原分片 再删除接替分片上的值
+			failover.removeHandoff(index, key);
+			if (exists) {
+				migrator.delete(standIn, key);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private ReentrantLock getHandbackLock(String key) {
+		return handbackLocks[(key.hashCode() & 0x7fffffff) % handbackLocks.length];
+	}
+	
+	/**
+	 * 迁移和交还key 测试时可替换
+	 * @return
+	 */
+	protected KeyMigrator createKeyMigrator() {
+		return new KeyMigrator();
+	}
+	
+	/**
+	 * 在线扩容的迁移任务 测试时可替换
+	 * @param shards
+	 * @param fromRing
+	 * @param toRing
+	 * @param scanCount
+	 * @param rate
+	 * @return
+	 */
+	protected ShardMover createShardMover(IRedisClient[] shards, ShardRing fromRing, ShardRing toRing, int scanCount, int rate) {
+		return new ShardMover(shards, fromRing, toRing, scanCount, rate, createKeyMigrator());
+	}
+	
+	/**
+	 * 多个key按分片分组读取
+	 * @param keys
+	 * @param get
+	 * @return 不存在的key不在结果中
+	 */
+	private <T> Map<String, T> multiGet(String[] keys, MultiGet<T> get) {
+		MissingKeyGuard tmpGuard = missingKeyGuard;
+		if (tmpGuard != null) {
+			List<String> list = new ArrayList<String>(keys.length);
+			for (int i = 0; i < keys.length; i++) {
+				if (!tmpGuard.isMissing(keys[i])) {
+					list.add(keys[i]);
+				}
+			}
+			keys = list.toArray(new String[list.size()]);
+		}
+		Map<String, T> rtn =  new HashMap<String, T>();
+		for (Entry<IRedisClient, List<String>> entry : groupByShard(keys, null).entrySet()) {
+			rtn.putAll(multiGet(entry.getKey(), entry.getValue(), get));
+		}
+		//迁移中 新分片上不存在的key读取旧分片
+		if (rtn.size() < keys.length && oldRing != null) {
+			for (Entry<IRedisClient, List<String>> entry : groupByShard(keys, rtn).entrySet()) {
+				rtn.putAll(get.get(entry.getKey(), entry.getValue().toArray(new String[0])));
+			}
+		}
+		return rtn;
+	}
+	
+	/**
+	 * 读取同一分片上的多个key 分片不可用时按接替分片分组读取
+	 * @param redisClient
+	 * @param keys
+	 * @param get
+	 * @return
+	 */
+	private <T> Map<String, T> multiGet(IRedisClient redisClient, List<String> keys, MultiGet<T> get) {
+		if (failover == null) {
+			return get.get(redisClient, keys.toArray(new String[0]));
+		}
+		int index = 0;
+		while (shards[index] != redisClient) {
+			index++;
+		}
+		Map<String, T> rtn = new HashMap<String, T>();
+		List<String> ownKeys = new ArrayList<String>(keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			if (!readHandoff(index, keys.get(i), get, rtn)) {
+				ownKeys.add(keys.get(i));
+			}
+		}
+		if (ownKeys.isEmpty()) {
+			return rtn;
+		}
+		if (failover.isAvailable(index)) {
+			try {
+				rtn.putAll(get.get(redisClient, ownKeys.toArray(new String[0])));
+				recovered(index);
+				return rtn;
+			} catch (RuntimeException e) {
+				if (!ShardFailover.isUnavailable(e)) {
+					throw e;
+				}
+				shardDown(index, e);
+			}
+		}
+		rtn.putAll(multiGetNext(index, ownKeys, get));
+		return rtn;
+	}
+	
+	/**
+	 * 待交还的key读取接替分片 与交还互斥
+	 * @param index
+	 * @param key
+	 * @param get
+	 * @param rtn
+	 * @return 不是待交还的key时返回false
+	 */
+	private <T> boolean readHandoff(int index, String key, MultiGet<T> get, Map<String, T> rtn) {
+		if (!failover.isHandoff(index, key)) {
+			return false;
+		}
+		ReentrantLock lock = getHandbackLock(key);
+		lock.lock();
+		try {
+			if (!failover.isHandoff(index, key)) {
+				return false;
+			}
+			rtn.putAll(get.get(shards[ring.locateNext(key, index)], new String[] {key}));
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 按接替分片分组读取
+	 * @param index 原分片
+	 * @param keys
+	 * @param get
+	 * @return
+	 */
+	private <T> Map<String, T> multiGetNext(int index, List<String> keys, MultiGet<T> get) {
+		Map<IRedisClient, List<String>> keyMap = new HashMap<IRedisClient, List<String>>();
+		for (int i = 0; i < keys.size(); i++) {
+			IRedisClient next = shards[ring.locateNext(keys.get(i), index)];
+			List<String> list = keyMap.get(next);
+			if (list == null) {
+				list = new LinkedList<String>();
+				keyMap.put(next, list);
+			}
+			list.add(keys.get(i));
+		}
+		Map<String, T> rtn =  new HashMap<String, T>();
+		for (Entry<IRedisClient, List<String>> entry : keyMap.entrySet()) {
+			rtn.putAll(get.get(entry.getKey(), entry.getValue().toArray(new String[0])));
+		}
+		return rtn;
+	}
+	
+	private static abstract class MultiGet<T> {
+		
+		public abstract Map<String, T> get(IRedisClient client, String[] keys);
+		
+	}
+	
+	private static final MultiGet<byte[]> GET_BYTES = new MultiGet<byte[]>() {
+		
+		@Override
+		public Map<String, byte[]> get(IRedisClient client, String[] keys) {
+			return client.getBytes(keys);
+		}
+		
+	};
+	
+	private String writeBytes(final String key, final byte[] value) {
+		return write(key, new ShardCall<String>() {
+			
+			@Override
+			public String call(IRedisClient client) {
+				return client.setBytes(key, value);
+			}
+			
+		});
+	}
+	
+	/**
+	 * 读取原始的值 不经过热点key缓存 不拼接分块
+	 * @param key
+	 * @return
+	 */
+	private byte[] readBytes(final String key) {
+		return readShard(key, new ShardCall<byte[]>() {
+			
+			@Override
+			public byte[] call(IRedisClient client) {
+				return client.getBytes(key);
+			}
+			
+		});
+	}
+	
+	/**
+	 * 读取key上的清单 只有字符串类型且长度不超过清单编码后的最大长度时才读取值
+	 * 避免在hash等其他类型上报错 也避免读取整个大value
+	 * @param key
+	 * @return 不是清单时返回null
+	 */
+	private ChunkManifest readManifest(final String key) {
+		return readShard(key, new ShardCall<ChunkManifest>() {
+			
+			@Override
+			public ChunkManifest call(IRedisClient client) {
+				if (!"string".equals(client.type(key))) {
+					return null;
+				}
+				Long len = client.strlen(key);
+				if (len == null || len.longValue() > ChunkManifest.MAX_ENCODED_SIZE) {
+					return null;
+				}
+				return ChunkManifest.decode(client.getBytes(key));
+			}
+			
+		});
+	}
+	
+	/**
+	 * 原子地写入新值并返回旧值 不拼接分块
+	 * @param key
+	 * @param value
+	 * @return
+	 */
+	private byte[] getSetKey(final String key, final byte[] value) {
+		return write(key, new ShardCall<byte[]>() {
+			
+			@Override
+			public byte[] call(IRedisClient client) {
+				return client.getSetBytes(key, value);
+			}
+			
+		});
+	}
+	
+	/**
+	 * 分块写入 先写入新版本的分块 再通过getSet原子地替换清单
+	 * 分块写入失败时原key上的值不变 调用方负责删除被替换的清单的分块
+	 * 并发写入时每个写入方拿到的都是自己替换掉的值 各自删除后不会遗留分块
+	 * @param key
+	 * @param value
+	 * @return 被替换的原始值 可能是清单
+	 */
+	private byte[] setChunks(String key, byte[] value) {
+		final ChunkManifest manifest = ChunkManifest.create(value, ThreadLocalRandom.current().nextLong(), chunkSize);
+		final String[] chunkKeys = manifest.getChunkKeys(key);
+		final Map<String, byte[]> chunkMap = new HashMap<String, byte[]>();
+		for (int i = 0; i < chunkKeys.length; i++) {
+			chunkMap.put(chunkKeys[i], manifest.getChunk(value, i));
+		}
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (final List<String> keys : groupByShard(chunkKeys, null).values()) {
+			tasks.add(new Callable<Object>() {
+				
+				@Override
+				public Object call() throws Exception {
+					for (int i = 0; i < keys.size(); i++) {
+						writeBytes(keys.get(i), chunkMap.get(keys.get(i)));
+					}
+					return null;
+				}
+				
+			});
+		}
 		try {
-			return getShard(key.getBytes(Constants.DEFAULT_CHARSET));
-		} catch (UnsupportedEncodingException e) {
-			throw new RedisException(e);
+			invokeAll(tasks);
+			return getSetKey(key, manifest.encode());
+		} catch (RuntimeException e) {
+			deleteChunks(key, manifest);
+			throw e;
+		}
+	}
+	
+	/**
+	 * 值为清单时读取分块并拼接 读取期间被替换时重新读取一次清单
+	 * @param key
+	 * @param bytes
+	 * @return
+	 */
+	private byte[] assemble(String key, byte[] bytes) {
+		ChunkManifest manifest = ChunkManifest.decode(bytes);
+		if (manifest == null) {
+			return bytes;
+		}
+		byte[] value = readChunks(key, manifest);
+		if (value != null) {
+			return value;
+		}
+		if (hotKeyCache != null) {
+			hotKeyCache.invalidate(key);
+		}
+		bytes = readBytes(key);
+		manifest = ChunkManifest.decode(bytes);
+		if (manifest == null) {
+			return bytes;
+		}
+		value = readChunks(key, manifest);
+		if (value == null) {
+			throw new RedisException("redis key[" + key + "]的分块不完整");
+		}
+		return value;
+	}
+	
+	/**
+	 * 按分片并行读取分块
+	 * @param key
+	 * @param manifest
+	 * @return 分块不齐全或校验失败时返回null
+	 */
+	private byte[] readChunks(String key, ChunkManifest manifest) {
+		String[] chunkKeys = manifest.getChunkKeys(key);
+		List<Callable<Map<String, byte[]>>> tasks = new ArrayList<Callable<Map<String, byte[]>>>();
+		for (final Entry<IRedisClient, List<String>> entry : groupByShard(chunkKeys, null).entrySet()) {
+			tasks.add(new Callable<Map<String, byte[]>>() {
+				
+				@Override
+				public Map<String, byte[]> call() throws Exception {
+					return multiGet(entry.getKey(), entry.getValue(), GET_BYTES);
+				}
+				
+			});
+		}
+		Map<String, byte[]> chunks = new HashMap<String, byte[]>();
+		List<Map<String, byte[]>> results = invokeAll(tasks);
+		for (int i = 0; i < results.size(); i++) {
+			chunks.putAll(results.get(i));
+		}
+		return manifest.assemble(chunkKeys, chunks);
+	}
+	
+	/**
+	 * 在后台删除分块 失败时只记录日志
+	 * @param key
+	 * @param manifest
+	 */
+	private void deleteChunks(String key, ChunkManifest manifest) {
+		final String[] chunkKeys = manifest.getChunkKeys(key);
+		Runnable task = new Runnable() {
+			
+			@Override
+			public void run() {
+				for (int i = 0; i < chunkKeys.length; i++) {
+					try {
+						delKey(chunkKeys[i]);
+					} catch (Exception e) {
+						if (LOGGER.isWarnEnabled()) {
+							LOGGER.warn("redis删除分块[" + chunkKeys[i] + "]失败", e);
+						}
+					}
+				}
+			}
+			
+		};
+		try {
+			chunkExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+	}
+	
+	/**
+	 * 在线程池中并行执行 第一个任务在当前线程执行 线程池已满时也在当前线程执行
+	 * 当前线程上的截止时间传递到线程池
+	 * @param tasks
+	 * @return 按任务顺序的结果
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+		final Deadline deadline = Deadline.current();
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for (int i = 1; i < tasks.size(); i++) {
+			final Callable<T> task = tasks.get(i);
+			Callable<T> tmpTask = task;
+			if (deadline != null) {
+				tmpTask = new Callable<T>() {
+					
+					@Override
+					public T call() throws Exception {
+						Deadline current = Deadline.start(deadline.remainingMillis());
+						try {
+							return task.call();
+						} finally {
+							current.close();
+						}
+					}
+					
+				};
+			}
+			try {
+				futures.add(chunkExecutor.submit(tmpTask));
+			} catch (RejectedExecutionException e) {
+				FutureTask<T> f = new FutureTask<T>(task);
+				f.run();
+				futures.add(f);
+			}
+		}
+		List<T> rtn = new ArrayList<T>(tasks.size());
+		if (tasks.size() > 0) {
+			FutureTask<T> f = new FutureTask<T>(tasks.get(0));
+			f.run();
+			futures.add(0, f);
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				if (deadline == null) {
+					rtn.add(futures.get(i).get());
+				} else {
+					rtn.add(futures.get(i).get(Math.max(deadline.remainingNanos(), 0l), TimeUnit.NANOSECONDS));
+				}
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RedisException("redis操作失败", e.getCause());
+			} catch (TimeoutException e) {
+				throw new DeadlineExceededException("redis调用超过截止时间", e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RedisException("redis操作失败", e);
+			}
+		}
+		return rtn;
+	}
+	
+	/**
+	 * 上一个统计窗口的热点key
+	 * @return key -> 估计读取次数 按次数降序 未开启shared.hotkey.enabled时为空
+	 */
+	public Map<String, Long> getHotKeys() {
+		HotKeyDetector tmpDetector = hotKeyDetector;
+		if (tmpDetector == null) {
+			return new HashMap<String, Long>();
+		}
+		return tmpDetector.getHotKeys();
+	}
+	
+	/**
+	 * 依次SCAN各分片 迁移或交还期间同一个key可能在多个分片上被发送
+	 * @param scanCount 每次SCAN的COUNT
+	 * @return 不含namespace的key
+	 */
+	public PagedPublisher<String> scan(int scanCount) {
+		return RedisPublishers.scan(shards.clone(), scanCount);
+	}
+	
+	/**
+	 * 在本地判断为不存在的读取次数
+	 * @return
+	 */
+	public long getMissingCount() {
+		MissingKeyGuard tmpGuard = missingKeyGuard;
+		return tmpGuard == null ? 0l : tmpGuard.getMissingCount();
+	}
+	
+	/**
+	 * 待交还的key数
+	 * @return
+	 */
+	public int getHandoffCount() {
+		ShardFailover tmpFailover = failover;
+		return tmpFailover == null ? 0 : tmpFailover.getHandoffCount();
+	}
+	
+	/**
+	 * 多个key按分片分组
+	 * @param keys
+	 * @param found 不为null时只对其中不存在且在旧环属于其他分片的key按旧分片分组
+	 * @return
+	 */
+	private Map<IRedisClient, List<String>> groupByShard(String[] keys, Map<String, ?> found) {
+		Map<IRedisClient, List<String>> keyMap = new HashMap<IRedisClient, List<String>>();
+		for (int i = 0; i < keys.length; i++) {
+			IRedisClient redisClient = null;
+			if (found == null) {
+				redisClient = getShard(keys[i]);
+			} else if (!found.containsKey(keys[i])) {
+				redisClient = getOldShard(keys[i]);
+			}
+			if (redisClient == null) {
+				continue;
+			}
+			List<String> list = keyMap.get(redisClient);
+			if (list == null) {
+				list = new LinkedList<String>();
+				keyMap.put(redisClient, list);
+			}
+			list.add(keys[i]);
 		}
+		return keyMap;
+	}
+	
+	/**
+	 * 是否正在迁移
+	 * @return
+	 */
+	public boolean isResharding() {
+		ShardRing fromRing = oldRing;
+		return fromRing != null && !mover.isFinished();
+	}
+	
+	/**
+	 * 各分片预期分到的key比例 按shared.client.list的顺序
+	 * @return 客户端名称 -> 比例
+	 */
+	public Map<String, Double> getExpectedDistribution() {
+		double[] distribution = ring.getExpectedDistribution();
+		Map<String, Double> rtn = new LinkedHashMap<String, Double>();
+		for (int i = 0; i < shards.length; i++) {
+			rtn.put(shards[i].getName(), Double.valueOf(distribution[i]));
+		}
+		return rtn;
+	}
+	
+	/**
+	 * 多个key是否在同一分片 开启shared.hash.tag时hash tag相同的key一定在同一分片
+	 * @param keys
+	 * @return
+	 */
+	public boolean isSameShard(String... keys) {
+		for (int i = 1; i < keys.length; i++) {
+			if (getShard(keys[i]) != getShard(keys[0])) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
 	public String setBytes(String key, byte[] value) {
-		return getShard(key).setBytes(key, value);
+		if (chunkThreshold > 0 && value != null && value.length > chunkThreshold) {
+			ChunkManifest oldManifest = ChunkManifest.decode(setChunks(key, value));
+			if (oldManifest != null) {
+				deleteChunks(key, oldManifest);
+			}
+			return Constants.REPLY_CODE_OK;
+		}
+		if (chunkThreshold <= 0) {
+			return writeBytes(key, value);
+		}
+		//原子地替换 原值为清单时删除其分块
+		ChunkManifest oldManifest = ChunkManifest.decode(getSetKey(key, value));
+		if (oldManifest != null) {
+			deleteChunks(key, oldManifest);
+		}
+		return Constants.REPLY_CODE_OK;
+	}
+	
+	/**
+	 * 开启分块时覆盖写入后删除原清单的分块
+	 * 字符串和对象的写入不能通过getSetBytes完成(压缩标志和序列化由分片决定) 先读取原清单
+	 * 与分块写入并发时仍可能遗留分块
+	 * @param key
+	 * @param call
+	 * @return
+	 */
+	private String overwrite(String key, ShardCall<String> call) {
+		if (chunkThreshold <= 0) {
+			return write(key, call);
+		}
+		ChunkManifest oldManifest = readManifest(key);
+		String rtn = write(key, call);
+		if (oldManifest != null && Constants.REPLY_CODE_OK.equals(rtn)) {
+			deleteChunks(key, oldManifest);
+		}
+		return rtn;
+	}
+	
+	/**
+	 * 开启分块时大value同样分块写入 旧值为清单时拼接后返回 再删除其分块
+	 */
+	@Override
+	public byte[] getSetBytes(String key, byte[] value) {
+		if (chunkThreshold <= 0) {
+			return getSetKey(key, value);
+		}
+		byte[] bytes = value != null && value.length > chunkThreshold ? setChunks(key, value) : getSetKey(key, value);
+		ChunkManifest oldManifest = ChunkManifest.decode(bytes);
+		if (oldManifest == null) {
+			return bytes;
+		}
+		try {
+			return readChunks(key, oldManifest);
+		} finally {
+			deleteChunks(key, oldManifest);
+		}
 	}
 	
-	public Long incr(String key) {
-		return getShard(key).incr(key);
+	public Long incr(final String key) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.incr(key);
+			}
+			
+		});
 	}
 	
-	public Long incrBy(String key, long integer) {
-		return getShard(key).incrBy(key, integer);
+	public Long incrBy(final String key, final long integer) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.incrBy(key, integer);
+			}
+			
+		});
 	}
 	
-	public Long decr(String key) {
-		return getShard(key).decr(key);
+	public Long decr(final String key) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.decr(key);
+			}
+			
+		});
 	}
 	
-	public Long decrBy(String key, long integer) {
-		return getShard(key).decrBy(key, integer);
+	public Long decrBy(final String key, final long integer) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.decrBy(key, integer);
+			}
+			
+		});
 	}
 
 	@Override
-	public byte[] getBytes(String key) {
-		return getShard(key).getBytes(key);
+	public byte[] getBytes(final String key) {
+		byte[] bytes = read(key, HotKeyCache.TYPE_BYTES, new ShardCall<byte[]>() {
+			
+			@Override
+			public byte[] call(IRedisClient client) {
+				return client.getBytes(key);
+			}
+			
+		});
+		return chunkThreshold > 0 ? assemble(key, bytes) : bytes;
 	}
 
 	@Override
 	public Map<String, byte[]> getBytes(String[] keys) {
-		Map<String, List<String>> keyMap = new HashMap<String, List<String>>();
-		Map<String, IRedisClient> clientMap = new HashMap<String, IRedisClient>();
-		for (int i = 0; i < keys.length; i++) {
-			IRedisClient redisClient = getShard(keys[i]);
-			if (keyMap.containsKey(redisClient.getName())) {
-				keyMap.get(redisClient.getName()).add(keys[i]);
-			} else {
-				List<String> list = new LinkedList<String>();
-				list.add(keys[i]);
-				keyMap.put(redisClient.getName(), list);
-				clientMap.put(redisClient.getName(), redisClient);
+		Map<String, byte[]> rtn = multiGet(keys, GET_BYTES);
+		if (chunkThreshold > 0) {
+			for (Iterator<Entry<String, byte[]>> iter = rtn.entrySet().iterator(); iter.hasNext(); ) {
+				Entry<String, byte[]> entry = iter.next();
+				byte[] bytes = assemble(entry.getKey(), entry.getValue());
+				if (bytes == null) {
+					iter.remove();
+				} else {
+					entry.setValue(bytes);
+				}
 			}
 		}
-		Map<String, byte[]> rtn =  new HashMap<String, byte[]>();
-		for (Entry<String, List<String>> entry : keyMap.entrySet()) {
-			String[] tmpkeys = entry.getValue().toArray(new String[0]);
-			rtn.putAll(clientMap.get(entry.getKey()).getBytes(tmpkeys));
-		}
 		return rtn;
 	}
 
 	@Override
-	public String setObject(String key, Object value) {
-		return getShard(key).setObject(key, value);
+	public String setObject(final String key, final Object value) {
+		return overwrite(key, new ShardCall<String>() {
+			
+			@Override
+			public String call(IRedisClient client) {
+				return client.setObject(key, value);
+			}
+			
+		});
 	}
 
 	@Override
-	public Object getObject(String key) {
-		return getShard(key).getObject(key);
+	public Object getObject(final String key) {
+		return read(key, HotKeyCache.TYPE_OBJECT, new ShardCall<Object>() {
+			
+			@Override
+			public Object call(IRedisClient client) {
+				return client.getObject(key);
+			}
+			
+		});
 	}
 
 	@Override
 	public Map<String, Object> getObject(String[] keys) {
-		Map<String, List<String>> keyMap = new HashMap<String, List<String>>();
-		Map<String, IRedisClient> clientMap = new HashMap<String, IRedisClient>();
-		for (int i = 0; i < keys.length; i++) {
-			IRedisClient redisClient = getShard(keys[i]);
-			if (keyMap.containsKey(redisClient.getName())) {
-				keyMap.get(redisClient.getName()).add(keys[i]);
-			} else {
-				List<String> list = new LinkedList<String>();
-				list.add(keys[i]);
-				keyMap.put(redisClient.getName(), list);
-				clientMap.put(redisClient.getName(), redisClient);
+		return multiGet(keys, new MultiGet<Object>() {
+			
+			@Override
+			public Map<String, Object> get(IRedisClient client, String[] keys) {
+				return client.getObject(keys);
 			}
-		}
-		Map<String, Object> rtn =  new HashMap<String, Object>();
-		for (Entry<String, List<String>> entry : keyMap.entrySet()) {
-			String[] tmpkeys = entry.getValue().toArray(new String[0]);
-			rtn.putAll(clientMap.get(entry.getKey()).getObject(tmpkeys));
-		}
-		return rtn;
+			
+		});
 	}
 
 	@Override
-	public String set(String key, String value) {
-		return getShard(key).set(key, value);
+	public String set(final String key, final String value) {
+		return overwrite(key, new ShardCall<String>() {
+			
+			@Override
+			public String call(IRedisClient client) {
+				return client.set(key, value);
+			}
+			
+		});
 	}
 	
-	public String set(String key, String value, String nxxx, String expx, int time) {
-		return getShard(key).set(key, value, nxxx, expx, time);
+	public String set(final String key, final String value, final String nxxx, final String expx, final int time) {
+		return overwrite(key, new ShardCall<String>() {
+			
+			@Override
+			public String call(IRedisClient client) {
+				return client.set(key, value, nxxx, expx, time);
+			}
+			
+		});
 	}
 
 	@Override
-	public String get(String key) {
-		return getShard(key).get(key);
+	public String get(final String key) {
+		return read(key, HotKeyCache.TYPE_STRING, new ShardCall<String>() {
+			
+			@Override
+			public String call(IRedisClient client) {
+				return client.get(key);
+			}
+			
+		});
 	}
 
 	@Override
 	public Map<String, String> get(String[] keys) {
-		Map<String, List<String>> keyMap = new HashMap<String, List<String>>();
-		Map<String, IRedisClient> clientMap = new HashMap<String, IRedisClient>();
-		for (int i = 0; i < keys.length; i++) {
-			IRedisClient redisClient = getShard(keys[i]);
-			if (keyMap.containsKey(redisClient.getName())) {
-				keyMap.get(redisClient.getName()).add(keys[i]);
-			} else {
-				List<String> list = new LinkedList<String>();
-				list.add(keys[i]);
-				keyMap.put(redisClient.getName(), list);
-				clientMap.put(redisClient.getName(), redisClient);
+		return multiGet(keys, new MultiGet<String>() {
+			
+			@Override
+			public Map<String, String> get(IRedisClient client, String[] keys) {
+				return client.get(keys);
 			}
-		}
-		Map<String, String> rtn =  new HashMap<String, String>();
-		for (Entry<String, List<String>> entry : keyMap.entrySet()) {
-			String[] tmpkeys = entry.getValue().toArray(new String[0]);
-			rtn.putAll(clientMap.get(entry.getKey()).get(tmpkeys));
-		}
-		return rtn;
+			
+		});
 	}
 
 	@Override
-	public Long del(String key) {
-		return getShard(key).del(key);
+	public Long del(final String key) {
+		ChunkManifest manifest = chunkThreshold > 0 ? readManifest(key) : null;
+		Long rtn = delKey(key);
+		if (manifest != null) {
+			deleteChunks(key, manifest);
+		}
+		return rtn;
+	}
+	
+	private Long delKey(final String key) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.del(key);
+			}
+			
+		});
 	}
 
 	@Override
@@ -255,6 +1483,12 @@ public class SharedClient extends LifecycleBase implements IRedisClient {
 			IRedisClient redisClient = iter.next();
 			sb.append(redisClient.getName()).append("=").append(redisClient.flushDB()).append(System.getProperty("line.separator"));
 		}
+		if (hotKeyCache != null) {
+			hotKeyCache.clear();
+		}
+		if (missingKeyGuard != null) {
+			missingKeyGuard.clear();
+		}
 		return sb.toString();
 	}
 
@@ -289,81 +1523,285 @@ public class SharedClient extends LifecycleBase implements IRedisClient {
 	}
 
 	@Override
-	public String hget(String key, String hashKey) {
-		return getShard(key).hget(key, hashKey);
+	public String hget(final String key, final String hashKey) {
+		return read(key, new ShardCall<String>() {
+			
+			@Override
+			public String call(IRedisClient client) {
+				return client.hget(key, hashKey);
+			}
+			
+		});
 	}
 
 	@Override
-	public byte[] hgetBytes(String key, String hashKey) {
-		return getShard(key).hgetBytes(key, hashKey);
+	public byte[] hgetBytes(final String key, final String hashKey) {
+		return read(key, new ShardCall<byte[]>() {
+			
+			@Override
+			public byte[] call(IRedisClient client) {
+				return client.hgetBytes(key, hashKey);
+			}
+			
+		});
 	}
 
 	@Override
-	public Object hgetObject(String key, String hashKey) {
-		return getShard(key).hget(key, hashKey);
+	public Object hgetObject(final String key, final String hashKey) {
+		return read(key, new ShardCall<Object>() {
+			
+			@Override
+			public Object call(IRedisClient client) {
+				return client.hget(key, hashKey);
+			}
+			
+		});
 	}
 
 	@Override
-	public Boolean hExists(String key, String hashKey) {
-		return getShard(key).hExists(key, hashKey);
+	public Boolean hExists(final String key, final String hashKey) {
+		return read(key, new ShardCall<Boolean>() {
+			
+			@Override
+			public Boolean call(IRedisClient client) {
+				return client.hExists(key, hashKey);
+			}
+			
+		});
 	}
 	
 	@Override
-	public Boolean exists(String key) {
-		return getShard(key).exists(key);
+	public Boolean exists(final String key) {
+		return read(key, new ShardCall<Boolean>() {
+			
+			@Override
+			public Boolean call(IRedisClient client) {
+				return client.exists(key);
+			}
+			
+		});
+	}
+	
+	@Override
+	public String type(final String key) {
+		return read(key, new ShardCall<String>() {
+			
+			@Override
+			public String call(IRedisClient client) {
+				return client.type(key);
+			}
+			
+			@Override
+			public boolean isAbsent(String rtn) {
+				return rtn == null || "none".equals(rtn);
+			}
+			
+		});
+	}
+	
+	@Override
+	public Long strlen(final String key) {
+		return read(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.strlen(key);
+			}
+			
+		});
 	}
 
 	@Override
-	public Long hset(String key, String hashKey, String hashVal) {
-		return getShard(key).hset(key, hashKey, hashVal);
+	public Long hset(final String key, final String hashKey, final String hashVal) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.hset(key, hashKey, hashVal);
+			}
+			
+		});
 	}
 
 	@Override
-	public String hmset(String key, Map<String, String> map) {
-		return getShard(key).hmset(key, map);
+	public String hmset(final String key, final Map<String, String> map) {
+		return write(key, new ShardCall<String>() {
+			
+			@Override
+			public String call(IRedisClient client) {
+				return client.hmset(key, map);
+			}
+			
+		});
 	}
 	@Override
-	public String hmsetObject(String key,Map<String,Object> map) {
-		return getShard(key).hmsetObject(key, map);
+	public String hmsetObject(final String key, final Map<String,Object> map) {
+		return write(key, new ShardCall<String>() {
+			
+			@Override
+			public String call(IRedisClient client) {
+				return client.hmsetObject(key, map);
+			}
+			
+		});
 	}
 	@Override
-	public Map<String,Object>hgetAllObject(String key){
-		return getShard(key).hgetAllObject(key);
+	public Map<String,Object> hgetAllObject(final String key) {
+		return read(key, new ShardCall<Map<String,Object>>() {
+			
+			@Override
+			public Map<String,Object> call(IRedisClient client) {
+				return client.hgetAllObject(key);
+			}
+			
+		});
 	}
 	
 	@Override
-	public Set<String> hkeys(String key) {
-		return getShard(key).hkeys(key);
+	public Set<String> hkeys(final String key) {
+		return read(key, new ShardCall<Set<String>>() {
+			
+			@Override
+			public Set<String> call(IRedisClient client) {
+				return client.hkeys(key);
+			}
+			
+		});
+	}
+
+	@Override
+	public ScanResult<Entry<String, String>> hscan(final String key, final String cursor, final ScanParams params) {
+		return read(key, new ShardCall<ScanResult<Entry<String, String>>>() {
+			
+			@Override
+			public ScanResult<Entry<String, String>> call(IRedisClient client) {
+				return client.hscan(key, cursor, params);
+			}
+			
+		});
 	}
 
 	@Override
 	public String rename(String oldkey, String newkey) {
-		throw new RedisException("shared redis client do not support rename operation!");
+		IRedisClient redisClient = getWriteShard(oldkey);
+		if (redisClient != getWriteShard(newkey)) {
+			throw new RedisException("shared redis client only support rename in the same shard, use the same hash tag for both keys!");
+		}
+		if (failover != null) {
+			//不切换到接替分片 两个key的接替分片可能不同
+			int index = ring.locate(oldkey);
+			if (!failover.isAvailable(index)) {
+				throw new ServerUnavailableException("redis分片[" + redisClient.getName() + "]不可用");
+			}
+			if (migrator != null && failover.isHandoff(index, oldkey)) {
+				handback(index, oldkey);
+			}
+			if (migrator != null && failover.isHandoff(index, newkey)) {
+				handback(index, newkey);
+			}
+		}
+		ChunkManifest oldManifest = null;
+		if (chunkThreshold > 0) {
+			//分块的key由key名生成 改名后无法找到分块
+			if (readManifest(oldkey) != null) {
+				throw new RedisException("redis key[" + oldkey + "]分块存储 不支持rename");
+			}
+			oldManifest = readManifest(newkey);
+		}
+		if (missingKeyGuard != null) {
+			missingKeyGuard.put(newkey);
+		}
+		try {
+			String rtn = redisClient.rename(oldkey, newkey);
+			if (oldManifest != null) {
+				//newkey上被覆盖的清单
+				deleteChunks(newkey, oldManifest);
+			}
+			return rtn;
+		} finally {
+			if (missingKeyGuard != null) {
+				//写入后再递增代数 避免改名期间的读取加入负缓存
+				missingKeyGuard.put(newkey);
+			}
+			forget(oldkey);
+			forget(newkey);
+			if (hotKeyCache != null) {
+				hotKeyCache.invalidate(oldkey);
+				hotKeyCache.invalidate(newkey);
+			}
+		}
 	}
 
 	@Override
-	public long zadd(String key, String value, double score) {
-		return getShard(key).zadd(key, value, score);
+	public long zadd(final String key, final String value, final double score) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.zadd(key, value, score);
+			}
+			
+		});
 	}
 
 	@Override
-	public LinkedHashSet<String> zrevrangebyscore(String key, String max, String min, int offset, int count) {
-		return getShard(key).zrevrangebyscore(key, max, min, offset, count);
+	public LinkedHashSet<String> zrevrangebyscore(final String key, final String max, final String min, final int offset, final int count) {
+		return read(key, new ShardCall<LinkedHashSet<String>>() {
+			
+			@Override
+			public LinkedHashSet<String> call(IRedisClient client) {
+				return client.zrevrangebyscore(key, max, min, offset, count);
+			}
+			
+		});
 	}
 
 	@Override
-	public Long hsetBytes(String key, String hashKey, Object hashVal) {
-		return getShard(key).hsetBytes(key, hashKey, hashVal);
+	public Long hsetBytes(final String key, final String hashKey, final Object hashVal) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.hsetBytes(key, hashKey, hashVal);
+			}
+			
+		});
 	}
 
 	@Override
-	public long zrem(String key, String[] value) {
-		return getShard(key).zrem(key, value);
+	public long zrem(final String key, final String[] value) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.zrem(key, value);
+			}
+			
+		});
 	}
 
 	@Override
-	public long expire(String key, int seconds) {
-		return getShard(key).expire(key, seconds);
+	public long expire(final String key, final int seconds) {
+		ChunkManifest manifest = chunkThreshold > 0 ? readManifest(key) : null;
+		if (manifest != null) {
+			//分块与清单同时过期
+			String[] chunkKeys = manifest.getChunkKeys(key);
+			for (int i = 0; i < chunkKeys.length; i++) {
+				expireKey(chunkKeys[i], seconds);
+			}
+		}
+		return expireKey(key, seconds);
+	}
+	
+	private long expireKey(final String key, final int seconds) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.expire(key, seconds);
+			}
+			
+		});
 	}
 	
 	public Set<String> getKeys(String pattern){
@@ -371,60 +1809,163 @@ public class SharedClient extends LifecycleBase implements IRedisClient {
 	}
 
 	@Override
-	public Long zcount(String key, String max, String min) {
-		return getShard(key).zcount(key, max, min);
+	public Long zcount(final String key, final String max, final String min) {
+		return read(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.zcount(key, max, min);
+			}
+			
+		});
 	}
 	
-	public  <T> T  hgetGObject(String key,String hashKey,Class<T> clazz){
-		return getShard(key).hgetGObject(key, hashKey, clazz);
+	public <T> T hgetGObject(final String key, final String hashKey, final Class<T> clazz) {
+		return read(key, new ShardCall<T>() {
+			
+			@Override
+			public T call(IRedisClient client) {
+				return client.hgetGObject(key, hashKey, clazz);
+			}
+			
+		});
 	}
 
 	@Override
-	public long sadd(String key, String[] members) {
-		return getShard(key).sadd(key, members);
+	public long sadd(final String key, final String[] members) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.sadd(key, members);
+			}
+			
+		});
 	}
 
 	@Override
-	public boolean sismember(String key, String value) {
-		return getShard(key).sismember(key, value);
+	public boolean sismember(final String key, final String value) {
+		return read(key, new ShardCall<Boolean>() {
+			
+			@Override
+			public Boolean call(IRedisClient client) {
+				return client.sismember(key, value);
+			}
+			
+		});
 	}
 	
-	public long hdel(String key,String field){
-		return getShard(key).hdel(key, field);
+	public long hdel(final String key, final String field) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.hdel(key, field);
+			}
+			
+		});
 	}
 	
-	public long hdel(byte[] key,byte[] field){
-		return getShard(key).hdel(key, field);
+	/**
+	 * key为UTF-8时与String key同样路由 否则按字节路由到新环的分片 不参与迁移和故障转移
+	 */
+	public long hdel(final byte[] key, final byte[] field) {
+		String strKey = decodeKey(key);
+		if (strKey == null) {
+			return shards[ring.locate(key)].hdel(key, field);
+		}
+		return write(strKey, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.hdel(key, field);
+			}
+			
+		});
+	}
+	
+	/**
+	 * @param key
+	 * @return 不是合法的UTF-8时返回null
+	 */
+	private static String decodeKey(byte[] key) {
+		try {
+			return Charset.forName(Constants.DEFAULT_CHARSET).newDecoder().decode(ByteBuffer.wrap(key)).toString();
+		} catch (CharacterCodingException e) {
+			return null;
+		}
 	}
 
 	@Override
-	public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
-		 return getShard(key).zscan(key, cursor, params);
+	public ScanResult<Tuple> zscan(final String key, final String cursor, final ScanParams params) {
+		return read(key, new ShardCall<ScanResult<Tuple>>() {
+			
+			@Override
+			public ScanResult<Tuple> call(IRedisClient client) {
+				return client.zscan(key, cursor, params);
+			}
+			
+		});
 	}
 
 	@Override
-	public Set<String> zrange(String key, long start, long end) {
-		return getShard(key).zrange(key, start, end);
+	public Set<String> zrange(final String key, final long start, final long end) {
+		return read(key, new ShardCall<Set<String>>() {
+			
+			@Override
+			public Set<String> call(IRedisClient client) {
+				return client.zrange(key, start, end);
+			}
+			
+		});
 	}
 
 	@Override
-	public Long setnxBytes(String key, byte[] value) {
-		return getShard(key).setnxBytes(key, value);
+	public Long setnxBytes(final String key, final byte[] value) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.setnxBytes(key, value);
+			}
+			
+		});
 	}
 
 	@Override
-	public Long setnx(String key, String value) {
-		return getShard(key).setnx(key, value);
+	public Long setnx(final String key, final String value) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.setnx(key, value);
+			}
+			
+		});
 	}
 
 	@Override
-	public Long setnxObject(String key, Object value) {
-		return getShard(key).setnxObject(key, value);
+	public Long setnxObject(final String key, final Object value) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.setnxObject(key, value);
+			}
+			
+		});
 	}
 
 	@Override
-	public Long append(String key, String value) {
-		return getShard(key).append(key, value);
+	public Long append(final String key, final String value) {
+		return write(key, new ShardCall<Long>() {
+			
+			@Override
+			public Long call(IRedisClient client) {
+				return client.append(key, value);
+			}
+			
+		});
 	}
 
 	@Override
@@ -0,0 +1,39 @@
+package cn.mybop.redisclient.impl;
+
+import java.util.NoSuchElementException;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * 支持按次指定最大等待时间的JedisPool
+ */
+public class TimedJedisPool extends JedisPool {
+	
+	public TimedJedisPool(GenericObjectPoolConfig poolConfig, String host, int port, int timeout, String password, int database) {
+		super(poolConfig, host, port, timeout, password, database);
+	}
+	
+	/**
+	 * 在maxWait毫秒内获取连接
+	 * @param maxWait
+	 * @return
+	 */
+	public Jedis getResource(long maxWait) {
+		Jedis jedis = null;
+		try {
+			jedis = internalPool.borrowObject(maxWait);
+		} catch (NoSuchElementException nse) {
+			throw new JedisException("Could not get a resource from the pool", nse);
+		} catch (Exception e) {
+			throw new JedisConnectionException("Could not get a resource from the pool", e);
+		}
+		jedis.setDataSource(this);
+		return jedis;
+	}
+
+}
@@ -0,0 +1,51 @@
+package cn.mybop.redisclient.impl;
+
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisSentinelPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * 支持按次指定最大等待时间的JedisSentinelPool
+ */
+public class TimedJedisSentinelPool extends JedisSentinelPool {
+	
+	public TimedJedisSentinelPool(String masterName, Set<String> sentinels, GenericObjectPoolConfig poolConfig, int timeout, String password, int database) {
+		super(masterName, sentinels, poolConfig, timeout, password, database);
+	}
+	
+	/**
+	 * 在maxWait毫秒内获取master连接
+	 * @param maxWait
+	 * @return
+	 */
+	public Jedis getResource(long maxWait) {
+		long deadline = System.currentTimeMillis() + maxWait;
+		while (true) {
+			Jedis jedis = null;
+			try {
+				jedis = internalPool.borrowObject(Math.max(deadline - System.currentTimeMillis(), 1l));
+			} catch (NoSuchElementException nse) {
+				throw new JedisException("Could not get a resource from the pool", nse);
+			} catch (Exception e) {
+				throw new JedisConnectionException("Could not get a resource from the pool", e);
+			}
+			//master切换后丢弃旧master的连接
+			HostAndPort master = getCurrentHostMaster();
+			HostAndPort connection = new HostAndPort(jedis.getClient().getHost(), jedis.getClient().getPort());
+			if (master.equals(connection)) {
+				jedis.setDataSource(this);
+				return jedis;
+			}
+			//jedis没有标记连接损坏的公开方法 直接从连接池销毁
+			returnBrokenResourceObject(jedis);
+		}
+	}
+
+}
@@ -1,35 +1,51 @@
 package cn.mybop.redisclient.impl;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.Set;
 import java.util.Map.Entry;
+import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-
+import cn.mybop.redisclient.DeadlineExceededException;
 import cn.mybop.redisclient.RedisException;
+import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.ServerUnavailableException;
 import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.common.Deadline;
 import cn.mybop.redisclient.common.Utils;
+import cn.mybop.redisclient.repair.AntiEntropyRepair;
+import cn.mybop.redisclient.write.BackpressurePolicy;
+import cn.mybop.redisclient.write.HintedHandoff;
+import cn.mybop.redisclient.write.ServerWriteQueue;
+import cn.mybop.redisclient.write.WriteAcks;
+import cn.mybop.redisclient.write.WriteCallback;
+import cn.mybop.redisclient.write.WriteCommand;
+import cn.mybop.redisclient.write.WriteHandler;
+import cn.mybop.redisclient.write.WriteListener;
+import cn.mybop.redisclient.write.WriteType;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.ScanParams;
-import redis.clients.jedis.ScanResult;
-import redis.clients.jedis.Tuple;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisConnectionException;
-
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
 
 public class WriteAllReadAnyRedisClient extends AdvancedRedisClient {
 	
@@ -41,6 +57,37 @@ public class WriteAllReadAnyRedisClient extends AdvancedRedisClient {
 	
 	private boolean asyncWrite;
 	
+	private static final int WRITE_ACKS_ALL = 0;
+	
+	private static final int WRITE_ACKS_MAJORITY = -1;
+	
+	//需要的确认数 WRITE_ACKS_ALL、WRITE_ACKS_MAJORITY或具体数量
+	private int writeAcks = WRITE_ACKS_ALL;
+	
+	private volatile WriteListener writeListener;
+	
+	//调用方没有收到异常的单台服务器写入失败数
+	private final AtomicLong lateFailureCount = new AtomicLong();
+	
+	//未达到确认数的写入次数
+	private final AtomicLong quorumFailureCount = new AtomicLong();
+	
+	//不可用服务器错过的写入 服务器恢复时重放 未开启时为null
+	private HintedHandoff hintedHandoff;
+	
+	private String[] allServers;
+	
+	//副本间后台修复 未开启时为null
+	private AntiEntropyRepair repair;
+	
+	private ScheduledExecutorService repairExecutor;
+	
+	//每台服务器的写入队列 未开启时为null
+	private Map<String, ServerWriteQueue> writeQueues;
+	
+	//写入队列线程使用的专用连接 只由对应服务器的写入线程访问
+	private final Map<String, Jedis> writerConnections = new ConcurrentHashMap<String, Jedis>();
+	
 	public WriteAllReadAnyRedisClient(Properties props) {
 		super(props);
 		if (Utils.isNotBlank(props.getProperty(Constants.WRITEALL_THROW_EXCEPTION_WHEN_WRITE_ERROR))) {
@@ -55,318 +102,739 @@ public class WriteAllReadAnyRedisClient extends AdvancedRedisClient {
 			asyncWrite = Constants.DEFAULT_WRITEALL_ASYNC_WRITE;
 		}
 		
-		if (Utils.isNotBlank(props.getProperty(Constants.WRITEALL_THREAD_POOL))) {
-			String threadPool = props.getProperty(Constants.WRITEALL_THREAD_POOL);
-			String[] tmpArr = threadPool.split(";");
-			if (tmpArr.length != 4) {
-				throw new RedisException("线程池[" + threadPool + "]参数个数不等于4");
-			}
-			executor = new ThreadPoolExecutor(Integer.parseInt(tmpArr[0]), Integer.parseInt(tmpArr[1]),
-					Integer.parseInt(tmpArr[3]), TimeUnit.SECONDS,
-					new LinkedBlockingQueue<Runnable>(Integer.parseInt(tmpArr[2])),
-					new ThreadFactory() {
+		String strWriteAcks = props.getProperty(Constants.WRITEALL_WRITE_ACKS);
+		if (Utils.isBlank(strWriteAcks)) {
+			strWriteAcks = Constants.DEFAULT_WRITEALL_WRITE_ACKS;
+		}
+		if (Constants.DEFAULT_WRITEALL_WRITE_ACKS.equalsIgnoreCase(strWriteAcks)) {
+			writeAcks = WRITE_ACKS_ALL;
+		} else if (Constants.WRITEALL_WRITE_ACKS_MAJORITY.equalsIgnoreCase(strWriteAcks)) {
+			writeAcks = WRITE_ACKS_MAJORITY;
+		} else {
+			writeAcks = Integer.parseInt(strWriteAcks);
+			if (writeAcks < 1) {
+				throw new RedisException(Constants.WRITEALL_WRITE_ACKS + "参数[" + strWriteAcks + "]不正确");
+			}
+		}
+		
+		if (Utils.isNotBlank(props.getProperty(Constants.WRITEALL_WRITE_LISTENER))) {
+			String listenerClass = props.getProperty(Constants.WRITEALL_WRITE_LISTENER);
+			try {
+				writeListener = (WriteListener) Class.forName(listenerClass).getDeclaredConstructor().newInstance();
+			} catch (InvocationTargetException e) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("创建WriteListener类[" + listenerClass + "]失败", e.getCause());
+				}
+			} catch (ReflectiveOperationException e) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("加载WriteListener类[" + listenerClass + "]失败 需要public的无参构造方法", e);
+				}
+			} catch (ClassCastException e) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("WriteListener类[" + listenerClass + "]没有实现" + WriteListener.class.getName(), e);
+				}
+			}
+		}
+		
+		//未配置writeall.thread.pool时 开启virtual.thread也并行写入
+		executor = Utils.initExecutor(props.getProperty(Constants.WRITEALL_THREAD_POOL), "redis-exec-thread[" + props.getProperty(Constants.CLIENT_NAME) + "]", props);
+	}
+	
+	public WriteListener getWriteListener() {
+		return writeListener;
+	}
 
-						@Override
-						public Thread newThread(Runnable r) {
-							Thread t = new Thread(r);
-							t.setDaemon(true);
-							t.setName("redis-exec-thread[" + getName() + "]");
-							return t;
-						}
-						
-					});
+	public void setWriteListener(WriteListener writeListener) {
+		this.writeListener = writeListener;
+	}
+	
+	public long getLateFailureCount() {
+		return lateFailureCount.get();
+	}
+	
+	public long getQuorumFailureCount() {
+		return quorumFailureCount.get();
+	}
+	
+	@Override
+	public RedisManager initManager() {
+		RedisManager manager = super.initManager();
+		Properties props = getProps();
+		allServers = manager.getServers().split(",");
+		boolean hintEnabled = Constants.DEFAULT_HINT_ENABLED;
+		if (Utils.isNotBlank(props.getProperty(Constants.HINT_ENABLED))) {
+			hintEnabled = Boolean.parseBoolean(props.getProperty(Constants.HINT_ENABLED));
 		}
+		if (hintEnabled) {
+			int maxCommands = Constants.DEFAULT_HINT_MAX_COMMANDS;
+			if (Utils.isNotBlank(props.getProperty(Constants.HINT_MAX_COMMANDS))) {
+				maxCommands = Integer.parseInt(props.getProperty(Constants.HINT_MAX_COMMANDS));
+			}
+			int fileSize = Constants.DEFAULT_HINT_FILE_SIZE;
+			if (Utils.isNotBlank(props.getProperty(Constants.HINT_FILE_SIZE))) {
+				fileSize = Integer.parseInt(props.getProperty(Constants.HINT_FILE_SIZE));
+			}
+			int replayBatch = Constants.DEFAULT_HINT_REPLAY_BATCH;
+			if (Utils.isNotBlank(props.getProperty(Constants.HINT_REPLAY_BATCH))) {
+				replayBatch = Integer.parseInt(props.getProperty(Constants.HINT_REPLAY_BATCH));
+			}
+			String dir = Utils.isNotBlank(props.getProperty(Constants.HINT_DIR)) ? props.getProperty(Constants.HINT_DIR) : null;
+			hintedHandoff = new HintedHandoff(manager, allServers, maxCommands, dir, fileSize, replayBatch, props.getProperty(Constants.CLIENT_NAME));
+			((AdvancedRedisManager) manager).setRecoveryHandler(hintedHandoff);
+		}
+		return manager;
 	}
 	
 	@Override
 	protected void startInternal() {
 		super.startInternal();
+		
+		Properties props = getProps();
+		int queueSize = Constants.DEFAULT_WRITEALL_QUEUE_SIZE;
+		if (Utils.isNotBlank(props.getProperty(Constants.WRITEALL_QUEUE_SIZE))) {
+			queueSize = Integer.parseInt(props.getProperty(Constants.WRITEALL_QUEUE_SIZE));
+		}
+		if (queueSize > 0) {
+			BackpressurePolicy policy = BackpressurePolicy.parse(props.getProperty(Constants.WRITEALL_QUEUE_POLICY, Constants.DEFAULT_WRITEALL_QUEUE_POLICY));
+			long queueTimeout = Constants.DEFAULT_WRITEALL_QUEUE_TIMEOUT;
+			if (Utils.isNotBlank(props.getProperty(Constants.WRITEALL_QUEUE_TIMEOUT))) {
+				queueTimeout = Long.parseLong(props.getProperty(Constants.WRITEALL_QUEUE_TIMEOUT));
+			}
+			boolean coalesce = Constants.DEFAULT_WRITEALL_QUEUE_COALESCE;
+			if (Utils.isNotBlank(props.getProperty(Constants.WRITEALL_QUEUE_COALESCE))) {
+				coalesce = Boolean.parseBoolean(props.getProperty(Constants.WRITEALL_QUEUE_COALESCE));
+			}
+			int batchSize = Constants.DEFAULT_WRITEALL_QUEUE_BATCH;
+			if (Utils.isNotBlank(props.getProperty(Constants.WRITEALL_QUEUE_BATCH))) {
+				batchSize = Integer.parseInt(props.getProperty(Constants.WRITEALL_QUEUE_BATCH));
+			}
+			WriteHandler handler = new WriteHandler() {
+				
+				@Override
+				public List<Object> writeBatch(String server, List<WriteCommand> commands) throws Exception {
+					return WriteAllReadAnyRedisClient.this.writeBatch(server, commands);
+				}
+				
+				@Override
+				public void onFailure(String server, List<WriteCommand> commands, Throwable cause) {
+					hint(server, commands, cause);
+					notifyFailure(server, commands, cause);
+				}
+				
+				@Override
+				public void close(String server) {
+					closeWriterConnection(server);
+				}
+				
+			};
+			Map<String, ServerWriteQueue> tmpWriteQueues = new HashMap<String, ServerWriteQueue>(allServers.length);
+			for (int i = 0; i < allServers.length; i++) {
+				tmpWriteQueues.put(allServers[i], new ServerWriteQueue(allServers[i], queueSize, policy, queueTimeout, coalesce, batchSize, handler,
+						"redis-write-thread[" + getName() + "][" + allServers[i] + "]"));
+			}
+			writeQueues = tmpWriteQueues;
+		}
+		
+		boolean repairEnabled = Constants.DEFAULT_REPAIR_ENABLED;
+		if (Utils.isNotBlank(props.getProperty(Constants.REPAIR_ENABLED))) {
+			repairEnabled = Boolean.parseBoolean(props.getProperty(Constants.REPAIR_ENABLED));
+		}
+		if (repairEnabled) {
+			int scanCount = Constants.DEFAULT_REPAIR_SCAN_COUNT;
+			if (Utils.isNotBlank(props.getProperty(Constants.REPAIR_SCAN_COUNT))) {
+				scanCount = Integer.parseInt(props.getProperty(Constants.REPAIR_SCAN_COUNT));
+			}
+			int buckets = Constants.DEFAULT_REPAIR_BUCKETS;
+			if (Utils.isNotBlank(props.getProperty(Constants.REPAIR_BUCKETS))) {
+				buckets = Integer.parseInt(props.getProperty(Constants.REPAIR_BUCKETS));
+			}
+			int maxKeys = Constants.DEFAULT_REPAIR_MAX_KEYS;
+			if (Utils.isNotBlank(props.getProperty(Constants.REPAIR_MAX_KEYS))) {
+				maxKeys = Integer.parseInt(props.getProperty(Constants.REPAIR_MAX_KEYS));
+			}
+			int rate = Constants.DEFAULT_REPAIR_RATE;
+			if (Utils.isNotBlank(props.getProperty(Constants.REPAIR_RATE))) {
+				rate = Integer.parseInt(props.getProperty(Constants.REPAIR_RATE));
+			}
+			long delay = Constants.DEFAULT_REPAIR_SCHEDULE_DELAY;
+			if (Utils.isNotBlank(props.getProperty(Constants.REPAIR_SCHEDULE_DELAY))) {
+				delay = Long.parseLong(props.getProperty(Constants.REPAIR_SCHEDULE_DELAY));
+			}
+			repair = new AntiEntropyRepair(getManager(), getNamespace(), scanCount, buckets, maxKeys, rate);
+			repairExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r);
+					t.setDaemon(true);
+					t.setName("redis-repair-thread[" + getName() + "]");
+					return t;
+				}
+				
+			});
+			repairExecutor.scheduleWithFixedDelay(repair, delay, delay, TimeUnit.SECONDS);
+		}
 	}
 
 	@Override
 	protected void stopInternal() {
+		if (repairExecutor != null) {
+			//中断正在进行的修复
+			repairExecutor.shutdownNow();
+			repairExecutor = null;
+		}
+		repair = null;
+		if (writeQueues != null) {
+			//剩余的命令记录hint
+			for (ServerWriteQueue writeQueue : writeQueues.values()) {
+				writeQueue.stop(getTimeout());
+			}
+			writeQueues = null;
+		}
 		if (executor != null) {
 			executor.shutdown();
 			executor = null;
 		}
 		super.stopInternal();
+		if (hintedHandoff != null) {
+			hintedHandoff.close();
+			hintedHandoff = null;
+		}
 	}
 	
-	public String setBytes(String key, byte[] value) {		
-		List<String> servers = getManager().getAvailableServers();
-		if (servers == null || servers.size() == 0) {
-			throw new RedisException("无可用的redis服务器");
+	/**
+	 * 副本间后台修复 未开启时返回null
+	 * @return
+	 */
+	public AntiEntropyRepair getRepair() {
+		return repair;
+	}
+	
+	/**
+	 * 写入队列 未开启时返回null
+	 * @param server
+	 * @return
+	 */
+	public ServerWriteQueue getWriteQueue(String server) {
+		return writeQueues == null ? null : writeQueues.get(server);
+	}
+	
+	/**
+	 * 待重放的命令数
+	 * @param server
+	 * @return
+	 */
+	public int getHintSize(String server) {
+		return hintedHandoff == null ? 0 : hintedHandoff.size(server);
+	}
+	
+	/**
+	 * hint溢出的服务器修复数据后调用 之后重放完成即可加入可用列表
+	 * @param server
+	 */
+	public void clearHintOverflow(String server) {
+		if (hintedHandoff != null) {
+			hintedHandoff.clearOverflow(server);
 		}
-		int compressThreshold = getCompressThreshold();
-		int maxByteSize = getMaxByteSize();
-		String namespace = getNamespace();
-		final byte[] keyBytes;
+	}
+	
+	/**
+	 * 写入所有可用服务器
+	 * @param command
+	 * @param defaultValue 没有服务器写入成功时的返回值
+	 * @return
+	 */
+	private Object writeAll(WriteCommand command, Object defaultValue) {
+		List<Object> rtn = writeAll(Collections.singletonList(command));
+		return rtn == null ? defaultValue : rtn.get(0);
+	}
+	
+	/**
+	 * 写入字符串类型可读取的key 写入后之后的读取不再共享写入前开始的读取
+	 * @param key
+	 * @param command
+	 * @param defaultValue
+	 * @return
+	 */
+	private Object writeAll(String key, WriteCommand command, Object defaultValue) {
 		try {
-			keyBytes = Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET);
-		} catch (UnsupportedEncodingException e) {
-			throw new RedisException("key[" + key + "]转字符码失败", e);
+			return writeAll(command, defaultValue);
+		} finally {
+			forget(key);
 		}
+	}
+	
+	private byte[] mergeKey(String key) {
+		return WriteCommand.encode(Utils.mergeKey(getNamespace(), key));
+	}
+	
+	private byte[] compress(byte[] value) {
 		final byte[] valueByes;
 		try {
-			valueByes = Utils.getCompressBytes(value, compressThreshold);
+			valueByes = Utils.getCompressBytes(value, getCompressThreshold());
 		} catch (IOException e) {
 			throw new RedisException("压缩字节数组失败", e);
 		}
+		int maxByteSize = getMaxByteSize();
 		if (maxByteSize > 0 && valueByes.length >= maxByteSize) {
 			throw new RedisException("不能超过" + maxByteSize + "字节");
 		}
-		String btn = Constants.REPLY_CODE_OK;
-		Map<String, Future<String>> futures = null;
-		for (int index = 0; index < servers.size(); index++) {
-			final String server = servers.get(index);
-			if (executor == null) {
-				btn = _setBytes(server, keyBytes, valueByes);
-			} else {
-				if (futures == null) {
-					futures = new HashMap<String, Future<String>>(servers.size());
-				}
-				Future<String> f = executor.submit(new Callable<String>() {
-					@Override
-					public String call() throws Exception {						
-						return _setBytes(server, keyBytes, valueByes);
-					}
-				});
-				futures.put(server, f);
-			}
-		}
-		if (!asyncWrite && futures != null) {
-			for (Entry<String, Future<String>> entry : futures.entrySet()) {
-				Future<String> f = entry.getValue();
-				try {
-					btn = f.get();
-				} catch (Exception e) {
-					throw new RedisException("redis[" + entry.getKey() + "]操作失败", e);
-				}
-			}
-		}
-		return btn;
+		return valueByes;
 	}
 	
-	private String _setBytes(String server, byte[] keyBytes, byte[] valueByes) {
-		String btn = Constants.REPLY_CODE_OK;
-		Jedis jedis = null;
+	@Override
+	public String setBytes(String key, byte[] value) {
+		return (String) writeAll(key, new WriteCommand(WriteType.SET, mergeKey(key), compress(value)), Constants.REPLY_CODE_OK);
+	}
+	
+	@Override
+	public byte[] getSetBytes(String key, byte[] value) {
+		byte[] bytes = (byte[]) writeAll(key, new WriteCommand(WriteType.GETSET, mergeKey(key), compress(value)), null);
 		try {
-			jedis = getManager().getJedis(server);
-			btn = jedis.set(keyBytes, valueByes);
-			if (!Constants.REPLY_CODE_OK.equals(btn)) {
-				throw new RedisException("redis[" + server + "]应答" + btn);
-			}			
-		} catch (JedisConnectionException e) {
-			if (LOGGER.isErrorEnabled()) {
-				LOGGER.error("redis[" + server + "]操作失败", e);
-			}
-			//remove unavailable server
-			removeUnavailableServer(jedis);
-			if (throwExceptionWhenWriteError) {
-				throw new RedisException("redis[" + server + "]操作失败", e);
-			}
-		} catch (Exception e) {
-			if (LOGGER.isErrorEnabled()) {
-				LOGGER.error("redis[" + server + "]操作失败", e);
-			}
-			if (throwExceptionWhenWriteError) {
-				throw new RedisException("redis[" + server + "]操作失败", e);
-			}
-		} finally {
-			//close jedis
-			closeJedis(jedis);			
+			return Utils.getOrigBytes(bytes, getCompressThreshold());
+		} catch (IOException e) {
+			throw new RedisException("解压字节数组失败", e);
 		}
-		return btn;
 	}
 	
+	@Override
 	public Long setnxBytes(String key, byte[] value) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+		return (Long) writeAll(key, new WriteCommand(WriteType.SETNX, mergeKey(key), compress(value)), null);
 	}
 	
+	@Override
 	public Long incr(String key) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+		return (Long) writeAll(key, new WriteCommand(WriteType.INCR, mergeKey(key)), null);
 	}
 	
+	@Override
 	public Long decr(String key) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+		return (Long) writeAll(key, new WriteCommand(WriteType.DECR, mergeKey(key)), null);
 	}
 	
+	@Override
 	public Long decrBy(String key, long integer) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+		return (Long) writeAll(key, new WriteCommand(WriteType.DECRBY, mergeKey(key), WriteCommand.encode(String.valueOf(integer))), null);
 	}
 	
+	@Override
 	public Long incrBy(String key, long integer) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+		return (Long) writeAll(key, new WriteCommand(WriteType.INCRBY, mergeKey(key), WriteCommand.encode(String.valueOf(integer))), null);
 	}
 	
+	@Override
 	public Long append(String key, String value) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+		return (Long) writeAll(key, new WriteCommand(WriteType.APPEND, mergeKey(key), WriteCommand.encode(value)), null);
 	}
-		
+	
+	@Override
 	public String set(String key, String value) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+		return (String) writeAll(key, new WriteCommand(WriteType.SET, mergeKey(key), WriteCommand.encode(value)), Constants.REPLY_CODE_OK);
 	}
 	
+	@Override
 	public String set(String key, String value, String nxxx, String expx, int time) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+		return (String) writeAll(key, new WriteCommand(WriteType.SET_PARAMS, mergeKey(key), WriteCommand.encode(value),
+				WriteCommand.encode(nxxx), WriteCommand.encode(expx), WriteCommand.encode(String.valueOf(time))), null);
 	}
 	
+	@Override
 	public Long setnx(String key, String value) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+		return (Long) writeAll(key, new WriteCommand(WriteType.SETNX, mergeKey(key), WriteCommand.encode(value)), null);
 	}
 	
 	@Override
 	public Long del(String key) {
-		List<String> servers = getManager().getAvailableServers();
-		if (servers == null || servers.size() == 0) {
-			throw new RedisException("无可用的redis服务器");
+		return (Long) writeAll(key, new WriteCommand(WriteType.DEL, mergeKey(key)), null);
+	}
+	
+	@Override
+	public String flushDB() {
+		return (String) writeAll(new WriteCommand(WriteType.FLUSHDB, null), Constants.REPLY_CODE_OK);
+	}
+	
+	@Override
+	public Long hset(String key, String hashKey, String hashVal) {
+		return (Long) writeAll(new WriteCommand(WriteType.HSET, mergeKey(key), WriteCommand.encode(hashKey), WriteCommand.encode(hashVal)), null);
+	}
+	
+	@Override
+	public Long hsetBytes(String key, String hashKey, Object hashVal) {
+		return (Long) writeAll(new WriteCommand(WriteType.HSET, Utils.mergeKey(getNamespace(), key).getBytes(), hashKey.getBytes(), getSerializable().object2bytes(hashVal)), null);
+	}
+	
+	@Override
+	public String hmset(String key, Map<String, String> map) {
+		byte[][] args = new byte[map.size() * 2][];
+		int i = 0;
+		for (Entry<String, String> entry : map.entrySet()) {
+			args[i++] = WriteCommand.encode(entry.getKey());
+			args[i++] = WriteCommand.encode(entry.getValue());
 		}
-		Long btn = null;
-		Map<String, Future<Long>> futures = null;
-		for (int index = 0; index < servers.size(); index++) {
-			final String server = servers.get(index);
-			if (executor == null) {
-				btn = _del(server, key);
-			} else {
-				if (futures == null) {
-					futures = new HashMap<String, Future<Long>>(servers.size());
-				}
-				Future<Long> f = executor.submit(new Callable<Long>() {
-					@Override
-					public Long call() throws Exception {						
-						return _del(server, key);
-					}
-				});
-				futures.put(server, f);
-			}
+		return (String) writeAll(new WriteCommand(WriteType.HMSET, mergeKey(key), args), Constants.REPLY_CODE_OK);
+	}
+	
+	@Override
+	public String hmsetObject(String key, Map<String, Object> map) {
+		if (map == null || map.size() <= 0) {
+			return null;
 		}
-		if (!asyncWrite && futures != null) {
-			for (Entry<String, Future<Long>> entry : futures.entrySet()) {
-				Future<Long> f = entry.getValue();
-				try {
-					btn = f.get();
-				} catch (Exception e) {
-					throw new RedisException("redis[" + entry.getKey() + "]操作失败", e);
-				}
+		byte[][] args = new byte[map.size() * 2][];
+		int i = 0;
+		for (Entry<String, Object> entry : map.entrySet()) {
+			args[i++] = WriteCommand.encode(entry.getKey());
+			try {
+				args[i++] = Utils.getCompressBytes(getSerializable().object2bytes(entry.getValue()), getCompressThreshold());
+			} catch (IOException e) {
+				throw new RedisException("redis操作失败", e);
 			}
 		}
-		return btn;
+		return (String) writeAll(new WriteCommand(WriteType.HMSET, mergeKey(key), args), Constants.REPLY_CODE_OK);
 	}
 	
-	private Long _del(String server, String key) {
-		Long btn = null;
-		Jedis jedis = null;
+	@Override
+	public long hdel(String key, String field) {
+		return toLong(writeAll(new WriteCommand(WriteType.HDEL, WriteCommand.encode(key), WriteCommand.encode(field)), null));
+	}
+	
+	@Override
+	public long hdel(byte[] key, byte[] field) {
+		return toLong(writeAll(new WriteCommand(WriteType.HDEL, key, field), null));
+	}
+	
+	@Override
+	public String rename(String oldkey, String newkey) {
 		try {
-			jedis = getManager().getJedis(server);
-			return jedis.del(key);
-		} catch (JedisConnectionException e) {
-			if (LOGGER.isErrorEnabled()) {
-				LOGGER.error("redis[" + server + "]操作失败", e);
-			}
-			//remove unavailable server
-			removeUnavailableServer(jedis);
-			if (throwExceptionWhenWriteError) {
-				throw new RedisException("redis[" + server + "]操作失败", e);
-			}
-		} catch (Exception e) {
-			if (LOGGER.isErrorEnabled()) {
-				LOGGER.error("redis[" + server + "]操作失败", e);
-			}
-			if (throwExceptionWhenWriteError) {
-				throw new RedisException("redis[" + server + "]操作失败", e);
-			}
+			return (String) writeAll(new WriteCommand(WriteType.RENAME, mergeKey(oldkey), mergeKey(newkey)), Constants.REPLY_CODE_OK);
 		} finally {
-			//close jedis
-			closeJedis(jedis);
+			forget(oldkey);
+			forget(newkey);
 		}
-		return btn;
 	}
 	
 	@Override
-	public String setObject(String key, Object value) {
-		return setBytes(key, getSerializable().object2bytes(value));
+	public long zadd(String key, String value, double score) {
+		return toLong(writeAll(new WriteCommand(WriteType.ZADD, mergeKey(key), WriteCommand.encode(String.valueOf(score)), WriteCommand.encode(value)), null));
 	}
 	
 	@Override
-	public Long setnxObject(String key, Object value) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
+	public long zrem(String key, String[] value) {
+		return toLong(writeAll(new WriteCommand(WriteType.ZREM, mergeKey(key), WriteCommand.encode(value)), null));
 	}
-		
+	
 	@Override
-	public String flushDB() {
-		List<String> servers = getManager().getAvailableServers();
+	public long sadd(String key, String[] members) {
+		return toLong(writeAll(new WriteCommand(WriteType.SADD, mergeKey(key), WriteCommand.encode(members)), null));
+	}
+	
+	@Override
+	public long expire(String key, int seconds) {
+		return toLong(writeAll(key, new WriteCommand(WriteType.EXPIRE, mergeKey(key), WriteCommand.encode(String.valueOf(seconds))), null));
+	}
+	
+	private long toLong(Object rtn) {
+		return rtn == null ? 0l : ((Long) rtn).longValue();
+	}
+	
+	/**
+	 * 写入所有可用服务器
+	 * 没有线程池时依次写入 有线程池时并发写入 达到writeall.write.acks确认数后返回 其余服务器在后台继续写入
+	 * 开启写入队列时加入各服务器的写入队列 由各服务器的写入线程批量写入 异步写入时直接返回null
+	 * 调用方没有收到异常的失败通知给WriteListener
+	 * 每台服务器上的多条命令通过一次pipeline写入
+	 * @param commands
+	 * @return 其中一台写入成功的服务器上各命令的应答 没有服务器写入成功时返回null
+	 */
+	public List<Object> writeAll(final List<WriteCommand> commands) {
+		if (commands == null || commands.size() == 0) {
+			return null;
+		}
+		Deadline deadline = beginOperation();
+		if (deadline == null) {
+			return writeAll(commands, null);
+		}
+		//队列已满时的等待和依次写入都不超过本次调用的截止时间
+		Deadline scope = Deadline.start(getMaxWait(deadline));
+		try {
+			return writeAll(commands, deadline);
+		} finally {
+			scope.close();
+		}
+	}
+	
+	private List<Object> writeAll(final List<WriteCommand> commands, Deadline deadline) {
+		//不可用或正在重放hint的服务器记录hint 与重放互斥 保证重放完成后不会再出现旧命令
+		HintedHandoff tmpHintedHandoff = hintedHandoff;
+		List<String> servers = tmpHintedHandoff == null ? getManager().getAvailableServers() : tmpHintedHandoff.route(commands);
 		if (servers == null || servers.size() == 0) {
-			throw new RedisException("无可用的redis服务器");
+			throw new ServerUnavailableException("无可用的redis服务器");
 		}
-		String btn = Constants.REPLY_CODE_OK;
-		Map<String, Future<String>> futures = null;
+		Map<String, ServerWriteQueue> queues = writeQueues;
+		if (queues != null && asyncWrite) {
+			for (int index = 0; index < servers.size(); index++) {
+				queues.get(servers.get(index)).offer(commands);
+			}
+			return null;
+		}
+		if (queues == null && executor == null) {
+			List<Object> btn = null;
+			for (int index = 0; index < servers.size(); index++) {
+				String server = servers.get(index);
+				try {
+					btn = write(server, commands);
+				} catch (Exception e) {
+					hint(server, commands, e);
+					if (throwExceptionWhenWriteError) {
+						throw new RedisException("redis[" + server + "]操作失败", e);
+					}
+					notifyFailure(server, commands, e);
+				}
+			}
+			return btn;
+		}
+		
+		int required = asyncWrite ? 0 : getRequiredAcks(servers.size());
+		final WriteAcks<List<Object>> acks = new WriteAcks<List<Object>>(required, servers.size());
 		for (int index = 0; index < servers.size(); index++) {
 			final String server = servers.get(index);
-			if (executor == null) {
-				btn = _flushDB(server);
-			} else {
-				if (futures == null) {
-					futures = new HashMap<String, Future<String>>(servers.size());
-				}
-				Future<String> f = executor.submit(new Callable<String>() {
+			if (queues != null) {
+				queues.get(server).offer(commands, new WriteCallback() {
 					@Override
-					public String call() throws Exception {						
-						return _flushDB(server);
+					public void onSuccess(List<Object> replies) {
+						acks.onSuccess(replies);
+					}
+					
+					@Override
+					public void onFailure(Throwable cause) {
+						hint(server, commands, cause);
+						if (acks.onFailure(server, cause)) {
+							notifyFailure(server, commands, cause);
+						}
 					}
 				});
-				futures.put(server, f);
+				continue;
 			}
-		}
-		if (!asyncWrite && futures != null) {
-			for (Entry<String, Future<String>> entry : futures.entrySet()) {
-				Future<String> f = entry.getValue();
-				try {
-					btn = f.get();
-				} catch (Exception e) {
-					throw new RedisException("redis[" + entry.getKey() + "]操作失败", e);
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							acks.onSuccess(write(server, commands));
+						} catch (Exception e) {
+							hint(server, commands, e);
+							if (acks.onFailure(server, e)) {
+								notifyFailure(server, commands, e);
+							}
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis[" + server + "]写入线程池已满", e);
 				}
+				hint(server, commands, e);
+				acks.onFailure(server, e);
 			}
 		}
-		return btn;
+		
+		boolean acked = false;
+		try {
+			acked = acks.await(deadline == null ? -1l : Math.max(deadline.remainingNanos(), 0l));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			acks.finish();
+			throw new RedisException("redis操作被中断", e);
+		}
+		Map<String, Throwable> failures = acks.finish();
+		if (!acked) {
+			quorumFailureCount.incrementAndGet();
+			if (deadline != null && deadline.isExpired()) {
+				throw new DeadlineExceededException("redis写入确认数" + acks.getAcks() + "未达到" + required + " 超过截止时间", acks.getLastFailure());
+			}
+			if (throwExceptionWhenWriteError) {
+				throw new RedisException("redis写入确认数" + acks.getAcks() + "未达到" + required, acks.getLastFailure());
+			}
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis写入确认数" + acks.getAcks() + "未达到" + required);
+			}
+		}
+		if (failures != null) {
+			for (Entry<String, Throwable> entry : failures.entrySet()) {
+				notifyFailure(entry.getKey(), commands, entry.getValue());
+			}
+		}
+		return acks.getResult();
 	}
 	
-	private String _flushDB(String server) {
-		String btn = Constants.REPLY_CODE_OK;
+	/**
+	 * 通过pipeline在单台服务器上写入 失败时抛出异常
+	 * @param server
+	 * @param commands
+	 * @return 各命令的应答
+	 * @throws Exception
+	 */
+	private List<Object> write(String server, List<WriteCommand> commands) throws Exception {
 		Jedis jedis = null;
 		try {
-			jedis = getManager().getJedis(server);
-			btn = jedis.flushDB();
-			if (!Constants.REPLY_CODE_OK.equals(btn)) {
-				throw new RedisException("redis[" + server + "]应答" + btn);
+			jedis = getJedis(server);
+			Pipeline pipeline = jedis.pipelined();
+			List<Response<?>> responses = new ArrayList<Response<?>>(commands.size());
+			for (int i = 0; i < commands.size(); i++) {
+				responses.add(commands.get(i).apply(pipeline));
 			}
+			pipeline.sync();
+			List<Object> rtn = new ArrayList<Object>(commands.size());
+			for (int i = 0; i < commands.size(); i++) {
+				Object reply = responses.get(i).get();
+				if (commands.get(i).getType().isStatusReply() && !Constants.REPLY_CODE_OK.equals(reply)) {
+					throw new RedisException("redis[" + server + "]应答" + reply);
+				}
+				rtn.add(reply);
+			}
+			return rtn;
 		} catch (JedisConnectionException e) {
 			if (LOGGER.isErrorEnabled()) {
 				LOGGER.error("redis[" + server + "]操作失败", e);
 			}
 			//remove unavailable server
 			removeUnavailableServer(jedis);
-			if (throwExceptionWhenWriteError) {
-				throw new RedisException("redis[" + server + "]操作失败", e);
-			}
+			throw e;
 		} catch (Exception e) {
 			if (LOGGER.isErrorEnabled()) {
-				LOGGER.error("redis操作失败", e);
-			}
-			if (throwExceptionWhenWriteError) {
-				throw new RedisException("redis[" + server + "]操作失败", e);
+				LOGGER.error("redis[" + server + "]操作失败", e);
 			}
+			throw e;
 		} finally {
 			//close jedis
 			closeJedis(jedis);
 		}
-		return btn;
+	}
+	
+	/**
+	 * 连接出错或线程池已满时记录hint 命令本身执行出错的不记录
+	 * 只记录已从可用列表中剔除或正在重放的服务器 仍在可用列表中的服务器重放时机不确定 记录后可能覆盖新数据
+	 * @param server
+	 * @param commands
+	 * @param cause
+	 */
+	private void hint(String server, List<WriteCommand> commands, Throwable cause) {
+		HintedHandoff tmpHintedHandoff = hintedHandoff;
+		if (tmpHintedHandoff == null) {
+			return;
+		}
+		if (cause instanceof RejectedExecutionException || cause instanceof DeadlineExceededException
+				|| (cause instanceof JedisException && !(cause instanceof JedisDataException))) {
+			if (!tmpHintedHandoff.hint(server, commands) && LOGGER.isWarnEnabled()) {
+				LOGGER.warn("redis[" + server + "]仍在可用列表中 不记录hint");
+			}
+		}
+	}
+	
+	/**
+	 * 写入线程在专用连接上通过一次pipeline写入 连接出错时关闭连接 下次写入时重新建立
+	 * 和连接池中的连接一样检查熔断器、记录调用结果并按截止时间缩短读超时
+	 * @param server
+	 * @param commands
+	 * @return 各命令的应答 单条命令出错时为JedisDataException
+	 * @throws Exception
+	 */
+	private List<Object> writeBatch(String server, List<WriteCommand> commands) throws Exception {
+		if (!((AdvancedRedisManager) getManager()).tryAcquirePermission(server)) {
+			throw new JedisConnectionException("redis[" + server + "]已熔断");
+		}
+		Deadline deadline = beginOperation();
+		Jedis jedis = writerConnections.get(server);
+		try {
+			if (jedis == null) {
+				String[] hostAndPort = server.split(":");
+				jedis = new Jedis(hostAndPort[0], Integer.parseInt(hostAndPort[1]), getTimeout());
+				writerConnections.put(server, jedis);
+				borrowed(jedis, deadline);
+				if (getPassword() != null) {
+					jedis.auth(getPassword());
+				}
+				if (getDatabase() != 0) {
+					jedis.select(getDatabase());
+				}
+			} else {
+				borrowed(jedis, deadline);
+			}
+			Pipeline pipeline = jedis.pipelined();
+			List<Response<?>> responses = new ArrayList<Response<?>>(commands.size());
+			for (int i = 0; i < commands.size(); i++) {
+				responses.add(commands.get(i).apply(pipeline));
+			}
+			pipeline.sync();
+			List<Object> replies = new ArrayList<Object>(commands.size());
+			for (int i = 0; i < commands.size(); i++) {
+				try {
+					replies.add(responses.get(i).get());
+				} catch (JedisDataException e) {
+					replies.add(e);
+				}
+			}
+			release(jedis);
+			return replies;
+		} catch (Exception e) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis[" + server + "]操作失败", e);
+			}
+			if (e instanceof JedisConnectionException) {
+				//remove unavailable server
+				removeUnavailableServer(jedis);
+			} else {
+				recordFailure(jedis);
+			}
+			closeWriterConnection(server);
+			throw e;
+		}
+	}
+	
+	private void closeWriterConnection(String server) {
+		Jedis jedis = writerConnections.remove(server);
+		if (jedis != null) {
+			try {
+				jedis.close();
+			} catch (Exception e) {
+				//do nothing
+			}
+		}
+	}
+	
+	private void notifyFailure(String server, List<WriteCommand> commands, Throwable cause) {
+		lateFailureCount.incrementAndGet();
+		WriteListener listener = writeListener;
+		if (listener != null) {
+			try {
+				listener.onFailure(server, commands.size() == 1 ? commands.get(0).toString() : commands.size() + "条命令", cause);
+			} catch (Exception e) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("WriteListener处理失败", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * 需要的确认数
+	 * @param total 可用服务器数
+	 * @return
+	 */
+	private int getRequiredAcks(int total) {
+		if (writeAcks == WRITE_ACKS_ALL) {
+			return total;
+		}
+		if (writeAcks == WRITE_ACKS_MAJORITY) {
+			return total / 2 + 1;
+		}
+		return Math.min(writeAcks, total);
 	}
 	
 	@Override
 	public Long dbSize() {
 		List<String> servers = getManager().getAvailableServers();
 		if (servers == null || servers.size() == 0) {
-			throw new RedisException("无可用的redis服务器");
+			throw new ServerUnavailableException("无可用的redis服务器");
 		}
 		Long rtn = 0l;
 		Map<String, Future<Long>> futures = null;
@@ -418,7 +886,7 @@ public class WriteAllReadAnyRedisClient extends AdvancedRedisClient {
 	private Long _dbSize(String server) {
 		Jedis jedis = null;
 		try {
-			jedis = getManager().getJedis(server);
+			jedis = getJedis(server);
 			return jedis.dbSize();
 		} catch (JedisConnectionException e) {
 			//remove unavailable server
@@ -432,112 +900,4 @@ public class WriteAllReadAnyRedisClient extends AdvancedRedisClient {
 		}
 	}
 	
-	public String info() {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public String info(String section) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public String hget(String key,String hashKey) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public byte[] hgetBytes(String key,String hashKey) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public Object hgetObject(String key,String hashKey) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public Boolean hExists(String key,String hashKey) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public Boolean exists(String key) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public Long hset(String key,String hashKey,String hashVal) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public String hmset(String key,Map<String,String> map) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-
-	public String hmsetObject(String key,Map<String,Object> map) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public Map<String,Object> hgetAllObject(String key){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public Set<String> hkeys(String key){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public String rename(String oldkey,String newkey) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	public long zadd(String key,String value,double score){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-
-	public LinkedHashSet<String> zrevrangebyscore(String key, String max, String min, int offset, int count){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-
-	public long zrem(String key,String[] value){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public long expire(String key,int seconds){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public Long hsetBytes(String key,String hashKey,Object hashVal){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public Set<String> getKeys(String pattern){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public Long zcount(String key, String max, String min){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-		
-	public  <T> T  hgetGObject(String key,String hashKey,Class<T> clazz) {
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public long sadd(String key,String[] members){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public boolean sismember(String key,String value){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-
-	public long hdel(String key,String field){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public long hdel(byte[] key,byte[] field){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
-	public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	} 
-	
-	public Set<String> zrange(String key,long start,long end){
-		throw new RedisException("write all read an redis client do temporarily  not support this operation!");
-	}
-	
 }
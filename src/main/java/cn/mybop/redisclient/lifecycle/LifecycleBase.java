@@ -1,5 +1,7 @@
 package cn.mybop.redisclient.lifecycle;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,60 +11,73 @@ public abstract class LifecycleBase implements Lifecycle {
 
 	private volatile LifecycleState state = LifecycleState.NEW;
 	
+	//不使用synchronized 启动和停止中的阻塞操作不占用虚拟线程的载体线程
+	private final ReentrantLock lock = new ReentrantLock();
+	
 	protected abstract void startInternal();
 	
-	public final synchronized void start() {
-		if (LifecycleState.STARTED.equals(state)) {
-			if (LOGGER.isInfoEnabled()) {
-				LOGGER.info("lifecycleBase.alreadyStarted");
-			}
-			return;
-		}
-		
-		if (LifecycleState.STOPPED.equals(state)) {
-			throw new LifecycleException("lifecycleBase.alreadyStoped");
-		}
-		
-		if (LifecycleState.FAILED.equals(state)) {
-			stop();
-		}
-		
+	public final void start() {
+		lock.lock();
 		try {
-			startInternal();
-		} catch (Throwable t) {
-			setStateInternal(LifecycleState.FAILED);
-			throw new LifecycleException("lifecycleBase.startFail", t);
+			if (LifecycleState.STARTED.equals(state)) {
+				if (LOGGER.isInfoEnabled()) {
+					LOGGER.info("lifecycleBase.alreadyStarted");
+				}
+				return;
+			}
+			
+			if (LifecycleState.STOPPED.equals(state)) {
+				throw new LifecycleException("lifecycleBase.alreadyStoped");
+			}
+			
+			if (LifecycleState.FAILED.equals(state)) {
+				stop();
+			}
+			
+			try {
+				startInternal();
+			} catch (Throwable t) {
+				setStateInternal(LifecycleState.FAILED);
+				throw new LifecycleException("lifecycleBase.startFail", t);
+			}
+			
+			setStateInternal(LifecycleState.STARTED);
+		} finally {
+			lock.unlock();
 		}
-		
-		setStateInternal(LifecycleState.STARTED);
 	}
 	
 	protected abstract void stopInternal();
 
-	public final synchronized void stop() {
-		if (LifecycleState.STOPPED.equals(state)) {
-			if (LOGGER.isInfoEnabled()) {
-				LOGGER.info("lifecycleBase.alreadyStopped");
-			}
-			return;
-		}
-		
-		if (LifecycleState.NEW.equals(state)) {
-			state = LifecycleState.STOPPED;
-			return;
-		}
-		
+	public final void stop() {
+		lock.lock();
 		try {
-			stopInternal();
-		} catch (Throwable t) {
-			setStateInternal(LifecycleState.FAILED);
-			new LifecycleException("lifecycleBase.stopFail", t);
+			if (LifecycleState.STOPPED.equals(state)) {
+				if (LOGGER.isInfoEnabled()) {
+					LOGGER.info("lifecycleBase.alreadyStopped");
+				}
+				return;
+			}
+			
+			if (LifecycleState.NEW.equals(state)) {
+				state = LifecycleState.STOPPED;
+				return;
+			}
+			
+			try {
+				stopInternal();
+			} catch (Throwable t) {
+				setStateInternal(LifecycleState.FAILED);
+				new LifecycleException("lifecycleBase.stopFail", t);
+			}
+			
+			setStateInternal(LifecycleState.STOPPED);
+		} finally {
+			lock.unlock();
 		}
-		
-		setStateInternal(LifecycleState.STOPPED);
 	}
 	
-	private synchronized void setStateInternal(LifecycleState state) {
+	private void setStateInternal(LifecycleState state) {
 		this.state = state;
 	}
 	
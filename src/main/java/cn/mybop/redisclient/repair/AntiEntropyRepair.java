@@ -0,0 +1,429 @@
+package cn.mybop.redisclient.repair;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.common.RateLimiter;
+import cn.mybop.redisclient.common.Utils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Transaction;
+import redis.clients.util.MurmurHash;
+
+/**
+ * 写全部读任一的副本间后台修复
+ * 1.SCAN各服务器的namespace 按key的hash分桶 每个桶的摘要为桶内各key(key和DUMP值)摘要之和
+ * 2.只对摘要不一致的桶再SCAN一次 得到各服务器上每个key的摘要
+ * 3.不一致的key重新读取确认后 以多数服务器的版本为准 DUMP/RESTORE覆盖或删除少数服务器上的key 没有多数的跳过
+ * 扫描和修复的key数按repair.rate限速
+ * 修复时WATCH该key并比较DUMP 重新确认后被并发写入的key不修复 留到下轮
+ */
+public class AntiEntropyRepair implements Runnable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AntiEntropyRepair.class);
+
+	private static final int SEED = 0x1234ABCD;
+
+	private static final Charset UTF8 = Charset.forName(Constants.DEFAULT_CHARSET);
+
+	//key不存在时的摘要
+	private static final long MISSING = 0l;
+
+	private final RedisManager manager;
+
+	private final byte[] match;
+
+	private final int scanCount;
+
+	private final int buckets;
+
+	private final int maxKeys;
+
+	private final RateLimiter rateLimiter;
+
+	private final AtomicLong scannedCount = new AtomicLong();
+
+	private final AtomicLong repairedCount = new AtomicLong();
+
+	private final AtomicLong unresolvedCount = new AtomicLong();
+
+	/**
+	 * @param manager
+	 * @param namespace 为空时扫描全部key
+	 * @param scanCount 每次SCAN的COUNT
+	 * @param buckets 分桶数
+	 * @param maxKeys 每轮最多比较的key数
+	 * @param rate 每秒最多扫描和修复的key数
+	 */
+	public AntiEntropyRepair(RedisManager manager, String namespace, int scanCount, int buckets, int maxKeys, int rate) {
+		this.manager = manager;
+		this.match = Utils.isNotBlank(namespace) ? Utils.mergeKey(namespace, "*").getBytes(UTF8) : null;
+		this.scanCount = scanCount;
+		this.buckets = buckets;
+		this.maxKeys = maxKeys;
+		this.rateLimiter = new RateLimiter(rate);
+	}
+
+	/**
+	 * 累计扫描的key数
+	 * @return
+	 */
+	public long getScannedCount() {
+		return scannedCount.get();
+	}
+
+	/**
+	 * 累计修复的key数
+	 * @return
+	 */
+	public long getRepairedCount() {
+		return repairedCount.get();
+	}
+
+	/**
+	 * 累计没有多数版本无法修复的key数
+	 * @return
+	 */
+	public long getUnresolvedCount() {
+		return unresolvedCount.get();
+	}
+
+	@Override
+	public void run() {
+		List<String> servers = manager.getAvailableServers();
+		if (servers == null || servers.size() < 3) {
+			//少于3台时无法确定多数版本
+			return;
+		}
+		servers = new ArrayList<String>(servers);
+		try {
+			repair(servers);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Exception e) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis副本修复失败", e);
+			}
+		}
+	}
+
+	private void repair(List<String> servers) throws Exception {
+		long startTime = System.currentTimeMillis();
+		int n = servers.size();
+		long[][] bucketDigests = new long[n][];
+		for (int i = 0; i < n; i++) {
+			bucketDigests[i] = new long[buckets];
+			scan(servers.get(i), bucketDigests[i], null, null, i, n);
+		}
+		Set<Integer> diffBuckets = new HashSet<Integer>();
+		for (int b = 0; b < buckets; b++) {
+			for (int i = 1; i < n; i++) {
+				if (bucketDigests[i][b] != bucketDigests[0][b]) {
+					diffBuckets.add(b);
+					break;
+				}
+			}
+		}
+		if (diffBuckets.size() == 0) {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("redis副本一致 耗时" + (System.currentTimeMillis() - startTime) + "毫秒");
+			}
+			return;
+		}
+
+		Map<ByteBuffer, long[]> keyDigests = new HashMap<ByteBuffer, long[]>();
+		for (int i = 0; i < n; i++) {
+			scan(servers.get(i), null, diffBuckets, keyDigests, i, n);
+		}
+
+		List<byte[]> diffKeys = new ArrayList<byte[]>();
+		int repaired = 0;
+		for (Iterator<Entry<ByteBuffer, long[]>> it = keyDigests.entrySet().iterator(); it.hasNext();) {
+			Entry<ByteBuffer, long[]> entry = it.next();
+			if (!isConsistent(entry.getValue())) {
+				diffKeys.add(entry.getKey().array());
+				if (diffKeys.size() >= scanCount) {
+					repaired += repairKeys(servers, diffKeys);
+					diffKeys.clear();
+				}
+			}
+		}
+		if (diffKeys.size() > 0) {
+			repaired += repairKeys(servers, diffKeys);
+		}
+		if (LOGGER.isInfoEnabled()) {
+			LOGGER.info("redis副本修复 不一致的桶" + diffBuckets.size() + "个 修复key" + repaired + "个 耗时" + (System.currentTimeMillis() - startTime) + "毫秒");
+		}
+	}
+
+	/**
+	 * SCAN单台服务器
+	 * @param server
+	 * @param digests 不为null时累加各桶摘要
+	 * @param filter 不为null时只记录这些桶内的key
+	 * @param keyDigests 各key在各服务器上的摘要
+	 * @param index 服务器序号
+	 * @param n 服务器数
+	 * @throws InterruptedException
+	 */
+	private void scan(String server, long[] digests, Set<Integer> filter, Map<ByteBuffer, long[]> keyDigests, int index, int n) throws InterruptedException {
+		ScanParams params = new ScanParams().count(scanCount);
+		if (match != null) {
+			params.match(match);
+		}
+		byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+		boolean limited = false;
+		do {
+			Jedis jedis = null;
+			List<byte[]> keys;
+			List<Response<byte[]>> dumps;
+			try {
+				jedis = manager.getJedis(server);
+				ScanResult<byte[]> result = jedis.scan(cursor, params);
+				cursor = result.getCursorAsBytes();
+				keys = result.getResult();
+				Pipeline pipeline = jedis.pipelined();
+				dumps = new ArrayList<Response<byte[]>>(keys.size());
+				for (int i = 0; i < keys.size(); i++) {
+					if (filter == null || filter.contains(bucket(keys.get(i)))) {
+						dumps.add(pipeline.dump(keys.get(i)));
+					} else {
+						dumps.add(null);
+					}
+				}
+				pipeline.sync();
+			} finally {
+				if (jedis != null) {
+					jedis.close();
+				}
+			}
+			for (int i = 0; i < keys.size(); i++) {
+				if (dumps.get(i) == null) {
+					continue;
+				}
+				byte[] key = keys.get(i);
+				long digest = digest(key, dumps.get(i).get());
+				if (digests != null) {
+					digests[bucket(key)] += digest;
+				} else {
+					ByteBuffer wrapped = ByteBuffer.wrap(key);
+					long[] serverDigests = keyDigests.get(wrapped);
+					if (serverDigests == null) {
+						if (keyDigests.size() >= maxKeys) {
+							limited = true;
+							continue;
+						}
+						serverDigests = new long[n];
+						keyDigests.put(wrapped, serverDigests);
+					}
+					serverDigests[index] = digest;
+				}
+			}
+			scannedCount.addAndGet(keys.size());
+			rateLimiter.acquire(keys.size());
+		} while (!isStart(cursor));
+		if (limited && LOGGER.isWarnEnabled()) {
+			LOGGER.warn("redis[" + server + "]不一致的key超过" + maxKeys + "个 其余下轮修复");
+		}
+	}
+
+	/**
+	 * 重新读取各服务器上的值 仍不一致时以多数版本修复
+	 * @param servers
+	 * @param keys
+	 * @return 修复的key数
+	 * @throws Exception
+	 */
+	private int repairKeys(List<String> servers, List<byte[]> keys) throws Exception {
+		int n = servers.size();
+		byte[][][] values = new byte[n][][];
+		long[][] ttls = new long[n][];
+		for (int i = 0; i < n; i++) {
+			Jedis jedis = null;
+			try {
+				jedis = manager.getJedis(servers.get(i));
+				Pipeline pipeline = jedis.pipelined();
+				List<Response<byte[]>> dumps = new ArrayList<Response<byte[]>>(keys.size());
+				List<Response<Long>> pttls = new ArrayList<Response<Long>>(keys.size());
+				for (int k = 0; k < keys.size(); k++) {
+					dumps.add(pipeline.dump(keys.get(k)));
+					pttls.add(pipeline.pttl(keys.get(k)));
+				}
+				pipeline.sync();
+				values[i] = new byte[keys.size()][];
+				ttls[i] = new long[keys.size()];
+				for (int k = 0; k < keys.size(); k++) {
+					values[i][k] = dumps.get(k).get();
+					ttls[i][k] = pttls.get(k).get();
+				}
+			} finally {
+				if (jedis != null) {
+					jedis.close();
+				}
+			}
+		}
+
+		int repaired = 0;
+		long[] digests = new long[n];
+		for (int k = 0; k < keys.size(); k++) {
+			for (int i = 0; i < n; i++) {
+				digests[i] = digest(keys.get(k), values[i][k]);
+			}
+			if (isConsistent(digests)) {
+				continue;
+			}
+			Long majority = majority(digests);
+			if (majority == null) {
+				unresolvedCount.incrementAndGet();
+				if (LOGGER.isWarnEnabled()) {
+					LOGGER.warn("redis key[" + new String(keys.get(k), UTF8) + "]没有多数版本 无法修复");
+				}
+				continue;
+			}
+			int source = -1;
+			for (int i = 0; i < n; i++) {
+				if (digests[i] == majority.longValue()) {
+					source = i;
+					break;
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				if (digests[i] != majority.longValue() && fix(servers.get(i), keys.get(k), values[i][k], values[source][k], ttls[source][k])) {
+					repairedCount.incrementAndGet();
+					repaired++;
+				}
+			}
+			rateLimiter.acquire(1);
+		}
+		return repaired;
+	}
+
+	/**
+	 * 用多数版本覆盖 多数版本不存在时删除
+	 * @param server
+	 * @param key
+	 * @param expected 重新确认时该服务器上DUMP的值
+	 * @param value 多数版本DUMP的值
+	 * @param pttl 毫秒 -1为不过期
+	 * @return 是否修复
+	 */
+	private boolean fix(String server, byte[] key, byte[] expected, byte[] value, long pttl) {
+		Jedis jedis = null;
+		try {
+			jedis = manager.getJedis(server);
+			if (!restore(jedis, key, expected, value, pttl)) {
+				if (LOGGER.isInfoEnabled()) {
+					LOGGER.info("redis[" + server + "]key[" + new String(key, UTF8) + "]修复前已被修改 下轮重新比较");
+				}
+				return false;
+			}
+			if (LOGGER.isInfoEnabled()) {
+				LOGGER.info("redis[" + server + "]修复key[" + new String(key, UTF8) + "]");
+			}
+			return true;
+		} catch (Exception e) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis[" + server + "]修复key[" + new String(key, UTF8) + "]失败", e);
+			}
+			return false;
+		} finally {
+			if (jedis != null) {
+				jedis.close();
+			}
+		}
+	}
+
+	/**
+	 * WATCH后比较当前值 与重新确认时相同才在事务中覆盖 期间有写入时EXEC放弃
+	 * @param jedis
+	 * @param key
+	 * @param expected 重新确认时的DUMP值 null为不存在
+	 * @param value 多数版本DUMP的值 null时删除
+	 * @param pttl 毫秒 -1为不过期
+	 * @return 是否修复
+	 */
+	static boolean restore(Jedis jedis, byte[] key, byte[] expected, byte[] value, long pttl) {
+		jedis.watch(key);
+		if (!Arrays.equals(jedis.dump(key), expected)) {
+			jedis.unwatch();
+			return false;
+		}
+		Transaction transaction = jedis.multi();
+		transaction.del(key);
+		if (value != null) {
+			transaction.restore(key, pttl > 0 ? (int) Math.min(pttl, Integer.MAX_VALUE) : 0, value);
+		}
+		List<Object> replies = transaction.exec();
+		return replies != null && replies.size() > 0;
+	}
+
+	private int bucket(byte[] key) {
+		return (int) ((MurmurHash.hash64A(key, SEED) >>> 1) % buckets);
+	}
+
+	private static boolean isStart(byte[] cursor) {
+		return cursor.length == 1 && cursor[0] == '0';
+	}
+
+	/**
+	 * key和值的摘要 值为null(key不存在)时为MISSING
+	 * @param key
+	 * @param value
+	 * @return
+	 */
+	static long digest(byte[] key, byte[] value) {
+		if (value == null) {
+			return MISSING;
+		}
+		long digest = MurmurHash.hash64A(key, SEED) * 31 + MurmurHash.hash64A(value, SEED);
+		return digest == MISSING ? 1l : digest;
+	}
+
+	static boolean isConsistent(long[] digests) {
+		for (int i = 1; i < digests.length; i++) {
+			if (digests[i] != digests[0]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 超过半数的摘要
+	 * @param digests
+	 * @return 没有时返回null
+	 */
+	static Long majority(long[] digests) {
+		for (int i = 0; i < digests.length; i++) {
+			int count = 0;
+			for (int j = 0; j < digests.length; j++) {
+				if (digests[j] == digests[i]) {
+					count++;
+				}
+			}
+			if (count * 2 > digests.length) {
+				return digests[i];
+			}
+		}
+		return null;
+	}
+
+}
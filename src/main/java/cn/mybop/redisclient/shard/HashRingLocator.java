@@ -0,0 +1,110 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * MurmurHash一致性hash环 每个分片shared.node个虚拟节点 配置权重时为shared.node乘以权重
+ * 环展开为有序的long[]和对应的分片序号int[] 定位时二分查找
+ */
+public class HashRingLocator implements ShardLocator {
+	
+	//虚拟节点的hash 升序
+	private final long[] hashes;
+	
+	//各虚拟节点对应的分片序号
+	private final int[] shards;
+	
+	private final int shardCount;
+	
+	public HashRingLocator(int shardCount, int sharedNode) {
+		this(shardCount, sharedNode, null);
+	}
+	
+	/**
+	 * @param shardCount
+	 * @param sharedNode 权重为1的分片的虚拟节点数
+	 * @param weights 按分片序号的权重 为null时都为1
+	 */
+	public HashRingLocator(int shardCount, int sharedNode, double[] weights) {
+		this.shardCount = shardCount;
+		//hash相同时后加入的分片覆盖之前的 与原TreeMap环一致
+		TreeMap<Long, Integer> nodes = new TreeMap<Long, Integer>();
+		for (int i = 0; i < shardCount; i++) {
+			int nodeCount = weights == null ? sharedNode : (int) Math.max(1l, Math.round(sharedNode * weights[i]));
+			for (int n = 0; n < nodeCount; n++) {
+				nodes.put(MurmurHash64.hash("SHARD-" + i + "-NODE-" + n), i);
+			}
+		}
+		hashes = new long[nodes.size()];
+		shards = new int[nodes.size()];
+		int index = 0;
+		for (Entry<Long, Integer> entry : nodes.entrySet()) {
+			hashes[index] = entry.getKey();
+			shards[index] = entry.getValue();
+			index++;
+		}
+	}
+
+	@Override
+	public int locate(long hash) {
+		return shards[indexOf(hash)];
+	}
+	
+	/**
+	 * 环上顺时针的下一个属于其他分片的虚拟节点
+	 */
+	@Override
+	public int locateNext(long hash, int shard) {
+		int index = indexOf(hash);
+		for (int i = 0; i < shards.length; i++) {
+			int next = shards[(index + i) % shards.length];
+			if (next != shard) {
+				return next;
+			}
+		}
+		return shard;
+	}
+	
+	/**
+	 * @param hash
+	 * @return 第一个不小于hash的虚拟节点的下标 没有时回到环的起点
+	 */
+	private int indexOf(long hash) {
+		int low = 0;
+		int high = hashes.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (hashes[mid] < hash) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low == hashes.length ? 0 : low;
+	}
+
+	@Override
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	/**
+	 * 各分片的虚拟节点覆盖的hash区间长度之和
+	 */
+	@Override
+	public double[] getExpectedDistribution() {
+		double[] distribution = new double[shardCount];
+		if (hashes.length == 1) {
+			distribution[shards[0]] = 1.0;
+			return distribution;
+		}
+		for (int i = 0; i < hashes.length; i++) {
+			//第一个虚拟节点覆盖最后一个节点之后回绕的区间
+			long length = hashes[i] - hashes[i == 0 ? hashes.length - 1 : i - 1];
+			distribution[shards[i]] += ((double) (length >>> 1) * 2.0 + (length & 1)) / 18446744073709551616.0;
+		}
+		return distribution;
+	}
+
+}
@@ -0,0 +1,45 @@
+package cn.mybop.redisclient.shard;
+
+/**
+ * hash tag 与redis cluster规则相同
+ * key中第一个'{'与其后第一个'}'之间不为空时 只用其中的内容计算分片 如user:{123}:profile和user:{123}:prefs在同一分片
+ */
+public class HashTag {
+	
+	/**
+	 * @param key
+	 * @return 有hash tag时只计算tag部分
+	 */
+	public static long hash(String key) {
+		int start = key.indexOf('{');
+		if (start >= 0) {
+			int end = key.indexOf('}', start + 1);
+			if (end > start + 1) {
+				return MurmurHash64.hash(key, start + 1, end, MurmurHash64.SEED);
+			}
+		}
+		return MurmurHash64.hash(key);
+	}
+	
+	/**
+	 * @param key
+	 * @return 有hash tag时只计算tag部分
+	 */
+	public static long hash(byte[] key) {
+		for (int start = 0; start < key.length; start++) {
+			if (key[start] == '{') {
+				for (int end = start + 1; end < key.length; end++) {
+					if (key[end] == '}') {
+						if (end > start + 1) {
+							return MurmurHash64.hash(key, start + 1, end - start - 1, MurmurHash64.SEED);
+						}
+						break;
+					}
+				}
+				break;
+			}
+		}
+		return MurmurHash64.hash(key);
+	}
+
+}
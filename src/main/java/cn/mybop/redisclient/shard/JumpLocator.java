@@ -0,0 +1,62 @@
+package cn.mybop.redisclient.shard;
+
+/**
+ * Jump一致性hash 不需要额外内存 分片只能在末尾增减
+ */
+public class JumpLocator implements ShardLocator {
+	
+	private final int shardCount;
+	
+	public JumpLocator(int shardCount) {
+		this.shardCount = shardCount;
+	}
+
+	@Override
+	public int locate(long hash) {
+		return jump(hash, shardCount);
+	}
+	
+	/**
+	 * 在其余分片上重新jump
+	 */
+	@Override
+	public int locateNext(long hash, int shard) {
+		if (shardCount == 1) {
+			return shard;
+		}
+		int next = jump(RendezvousLocator.mix(hash), shardCount - 1);
+		return next >= shard ? next + 1 : next;
+	}
+	
+	/**
+	 * Lamping & Veach的jump consistent hash
+	 * @param key
+	 * @param buckets
+	 * @return
+	 */
+	static int jump(long key, int buckets) {
+		long b = -1l;
+		long j = 0l;
+		while (j < buckets) {
+			b = j;
+			key = key * 2862933555777941757l + 1;
+			j = (long) ((b + 1) * ((double) (1l << 31) / (double) ((key >>> 33) + 1)));
+		}
+		return (int) b;
+	}
+
+	@Override
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	@Override
+	public double[] getExpectedDistribution() {
+		double[] distribution = new double[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			distribution[i] = 1.0 / shardCount;
+		}
+		return distribution;
+	}
+
+}
@@ -0,0 +1,222 @@
+package cn.mybop.redisclient.shard;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.ServerUnavailableException;
+import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.common.Utils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * 在两个分片客户端之间迁移单个key
+ * 迁移为DUMP源分片 RESTORE到目标分片(目标分片已有该key时保留目标的值) 再删除源分片上的key
+ * 交还使用copy 用源分片的值覆盖目标分片
+ * sentinel分片读写master 其他分片从第一台可用服务器读 写入所有可用服务器
+ * DUMP到RESTORE之间该key被删除时 旧值会被迁移到目标分片
+ */
+public class KeyMigrator {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(KeyMigrator.class);
+	
+	private static final Charset UTF8 = Charset.forName(Constants.DEFAULT_CHARSET);
+	
+	/**
+	 * 迁移 目标分片上已有该key时保留目标的值
+	 * @param source
+	 * @param target
+	 * @param key 不含namespace
+	 * @return 是否迁移了
+	 */
+	public boolean move(IRedisClient source, IRedisClient target, String key) {
+		Dump dump = dump(source, key);
+		if (dump == null) {
+			return false;
+		}
+		restore(target, key, dump, false);
+		delete(source, key);
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("redis key[" + key + "]从" + source.getName() + "迁移到" + target.getName());
+		}
+		return true;
+	}
+	
+	/**
+	 * 用源分片的值覆盖目标分片 源分片上不存在该key时删除目标分片上的key 不删除源分片
+	 * @param source
+	 * @param target
+	 * @param key
+	 * @return 源分片上是否存在该key
+	 */
+	public boolean copy(IRedisClient source, IRedisClient target, String key) {
+		Dump dump = dump(source, key);
+		if (dump == null) {
+			delete(target, key);
+			return false;
+		}
+		restore(target, key, dump, true);
+		return true;
+	}
+	
+	/**
+	 * DUMP和PTTL
+	 * @param client
+	 * @param key
+	 * @return 不存在时返回null
+	 */
+	protected Dump dump(IRedisClient client, String key) {
+		byte[] fullKey = Utils.mergeKey(client.getNamespace(), key).getBytes(UTF8);
+		Jedis jedis = null;
+		try {
+			RedisManager manager = client.getManager();
+			jedis = isSentinel(manager) ? manager.getMasterJedis() : manager.getJedis(firstAvailableServer(manager));
+			Pipeline pipeline = jedis.pipelined();
+			Response<byte[]> dump = pipeline.dump(fullKey);
+			Response<Long> ttl = pipeline.pttl(fullKey);
+			pipeline.sync();
+			if (dump.get() == null || ttl.get().longValue() == -2) {
+				return null;
+			}
+			return new Dump(dump.get(), ttl.get().longValue());
+		} finally {
+			close(jedis);
+		}
+	}
+	
+	/**
+	 * 写入所有可用服务器
+	 * @param client
+	 * @param key
+	 * @param dump
+	 * @param replace 为true时在事务中DEL后RESTORE 为false时已有该key(BUSYKEY)则保留
+	 */
+	protected void restore(IRedisClient client, String key, Dump dump, boolean replace) {
+		byte[] fullKey = Utils.mergeKey(client.getNamespace(), key).getBytes(UTF8);
+		int ttl = dump.pttl > 0 ? (int) Math.min(dump.pttl, Integer.MAX_VALUE) : 0;
+		List<Jedis> writers = borrowWriters(client);
+		try {
+			for (int i = 0; i < writers.size(); i++) {
+				if (replace) {
+					Transaction transaction = writers.get(i).multi();
+					transaction.del(fullKey);
+					transaction.restore(fullKey, ttl, dump.value);
+					transaction.exec();
+					continue;
+				}
+				try {
+					writers.get(i).restore(fullKey, ttl, dump.value);
+				} catch (JedisDataException e) {
+					//BUSYKEY 目标分片上已有更新的值
+					if (e.getMessage() == null || !e.getMessage().startsWith("BUSYKEY")) {
+						throw e;
+					}
+				}
+			}
+		} finally {
+			closeAll(writers);
+		}
+	}
+	
+	/**
+	 * 从所有可用服务器删除
+	 * @param client
+	 * @param key
+	 */
+	public void delete(IRedisClient client, String key) {
+		byte[] fullKey = Utils.mergeKey(client.getNamespace(), key).getBytes(UTF8);
+		List<Jedis> writers = borrowWriters(client);
+		try {
+			for (int i = 0; i < writers.size(); i++) {
+				writers.get(i).del(fullKey);
+			}
+		} finally {
+			closeAll(writers);
+		}
+	}
+	
+	/**
+	 * DUMP的值及剩余毫秒数
+	 */
+	protected static class Dump {
+		
+		private final byte[] value;
+		
+		//不过期时为-1
+		private final long pttl;
+		
+		public Dump(byte[] value, long pttl) {
+			this.value = value;
+			this.pttl = pttl;
+		}
+		
+		public byte[] getValue() {
+			return value;
+		}
+		
+		public long getPttl() {
+			return pttl;
+		}
+		
+	}
+	
+	private List<Jedis> borrowWriters(IRedisClient client) {
+		RedisManager manager = client.getManager();
+		List<Jedis> writers = new ArrayList<Jedis>();
+		try {
+			if (isSentinel(manager)) {
+				writers.add(manager.getMasterJedis());
+			} else {
+				List<String> servers = manager.getAvailableServers();
+				if (servers == null || servers.size() == 0) {
+					throw new ServerUnavailableException("redis[" + client.getName() + "]无可用的redis服务器");
+				}
+				for (int i = 0; i < servers.size(); i++) {
+					writers.add(manager.getJedis(servers.get(i)));
+				}
+			}
+		} catch (RuntimeException e) {
+			closeAll(writers);
+			throw e;
+		}
+		return writers;
+	}
+	
+	static boolean isSentinel(RedisManager manager) {
+		return Utils.isNotBlank(manager.getSentinels());
+	}
+	
+	static String firstAvailableServer(RedisManager manager) {
+		List<String> servers = manager.getAvailableServers();
+		if (servers == null || servers.size() == 0) {
+			throw new ServerUnavailableException("无可用的redis服务器");
+		}
+		return servers.get(0);
+	}
+	
+	private static void closeAll(List<Jedis> jedisList) {
+		for (int i = 0; i < jedisList.size(); i++) {
+			close(jedisList.get(i));
+		}
+	}
+	
+	static void close(Jedis jedis) {
+		if (jedis != null) {
+			try {
+				jedis.close();
+			} catch (Exception e) {
+				//do nothing
+			}
+		}
+	}
+
+}
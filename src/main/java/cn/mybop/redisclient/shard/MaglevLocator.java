@@ -0,0 +1,90 @@
+package cn.mybop.redisclient.shard;
+
+/**
+ * Maglev查找表 各分片按各自的排列轮流填表 定位为一次数组访问
+ * 表长度应为远大于分片数的质数
+ */
+public class MaglevLocator implements ShardLocator {
+	
+	private final int[] table;
+	
+	private final int shardCount;
+	
+	public MaglevLocator(int shardCount, int tableSize) {
+		if (!isPrime(tableSize) || tableSize < shardCount) {
+			throw new IllegalArgumentException("maglev表长度[" + tableSize + "]必须为不小于分片数的质数");
+		}
+		this.shardCount = shardCount;
+		this.table = new int[tableSize];
+		long[] offsets = new long[shardCount];
+		long[] skips = new long[shardCount];
+		long[] next = new long[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			offsets[i] = (MurmurHash64.hash("SHARD-" + i + "-OFFSET") >>> 1) % tableSize;
+			skips[i] = (MurmurHash64.hash("SHARD-" + i + "-SKIP") >>> 1) % (tableSize - 1) + 1;
+		}
+		for (int i = 0; i < tableSize; i++) {
+			table[i] = -1;
+		}
+		int filled = 0;
+		while (filled < tableSize) {
+			for (int i = 0; i < shardCount && filled < tableSize; i++) {
+				int slot = (int) ((offsets[i] + next[i] * skips[i]) % tableSize);
+				while (table[slot] >= 0) {
+					next[i]++;
+					slot = (int) ((offsets[i] + next[i] * skips[i]) % tableSize);
+				}
+				table[slot] = i;
+				next[i]++;
+				filled++;
+			}
+		}
+	}
+
+	@Override
+	public int locate(long hash) {
+		return table[(int) ((hash >>> 1) % table.length)];
+	}
+	
+	/**
+	 * 查找表中之后第一个属于其他分片的位置
+	 */
+	@Override
+	public int locateNext(long hash, int shard) {
+		int slot = (int) ((hash >>> 1) % table.length);
+		for (int i = 1; i < table.length; i++) {
+			int next = table[(slot + i) % table.length];
+			if (next != shard) {
+				return next;
+			}
+		}
+		return shard;
+	}
+	
+	private static boolean isPrime(int n) {
+		if (n < 2) {
+			return false;
+		}
+		for (int i = 2; (long) i * i <= n; i++) {
+			if (n % i == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	@Override
+	public double[] getExpectedDistribution() {
+		double[] distribution = new double[shardCount];
+		for (int i = 0; i < table.length; i++) {
+			distribution[table[i]] += 1.0 / table.length;
+		}
+		return distribution;
+	}
+
+}
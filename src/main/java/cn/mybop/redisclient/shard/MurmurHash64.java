@@ -0,0 +1,160 @@
+package cn.mybop.redisclient.shard;
+
+/**
+ * MurmurHash64A 结果与jedis MurmurHash.hash64A相同 计算过程不分配对象
+ * String按UTF-8编码计算 不生成中间的byte[]
+ */
+public class MurmurHash64 {
+	
+	//与jedis MurmurHash.hash(byte[])相同的种子
+	public static final int SEED = 0x1234ABCD;
+	
+	private static final long M = 0xc6a4a7935bd1e995l;
+	
+	private static final int R = 47;
+	
+	public static long hash(byte[] data) {
+		return hash(data, SEED);
+	}
+	
+	public static long hash(byte[] data, int seed) {
+		return hash(data, 0, data.length, seed);
+	}
+	
+	/**
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @param seed
+	 * @return
+	 */
+	public static long hash(byte[] data, int offset, int length, int seed) {
+		long h = seed ^ (length * M);
+		int blocks = length >>> 3;
+		for (int i = 0; i < blocks; i++) {
+			int index = offset + (i << 3);
+			long k = (data[index] & 0xffl)
+					| (data[index + 1] & 0xffl) << 8
+					| (data[index + 2] & 0xffl) << 16
+					| (data[index + 3] & 0xffl) << 24
+					| (data[index + 4] & 0xffl) << 32
+					| (data[index + 5] & 0xffl) << 40
+					| (data[index + 6] & 0xffl) << 48
+					| (data[index + 7] & 0xffl) << 56;
+			h = mixBlock(h, k);
+		}
+		int tail = blocks << 3;
+		if (tail < length) {
+			long k = 0l;
+			for (int i = tail; i < length; i++) {
+				k |= (data[offset + i] & 0xffl) << ((i - tail) << 3);
+			}
+			h ^= k;
+			h *= M;
+		}
+		return finish(h);
+	}
+	
+	public static long hash(String str) {
+		return hash(str, SEED);
+	}
+	
+	/**
+	 * 与hash(str.getBytes("UTF-8"), seed)相同 不成对的代理字符按'?'编码
+	 * @param str
+	 * @param seed
+	 * @return
+	 */
+	public static long hash(String str, int seed) {
+		return hash(str, 0, str.length(), seed);
+	}
+	
+	/**
+	 * 与hash(str.substring(start, end).getBytes("UTF-8"), seed)相同
+	 * @param str
+	 * @param start
+	 * @param end
+	 * @param seed
+	 * @return
+	 */
+	public static long hash(String str, int start, int end, int seed) {
+		int length = utf8Length(str, start, end);
+		long h = seed ^ (length * M);
+		long k = 0l;
+		int filled = 0;
+		int len = end;
+		for (int i = start; i < len; i++) {
+			char c = str.charAt(i);
+			int encoded;
+			int bytes;
+			if (c < 0x80) {
+				encoded = c;
+				bytes = 1;
+			} else if (c < 0x800) {
+				encoded = (0xc0 | (c >> 6)) | (0x80 | (c & 0x3f)) << 8;
+				bytes = 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, str.charAt(++i));
+				encoded = (0xf0 | (cp >> 18)) | (0x80 | ((cp >> 12) & 0x3f)) << 8
+						| (0x80 | ((cp >> 6) & 0x3f)) << 16 | (0x80 | (cp & 0x3f)) << 24;
+				bytes = 4;
+			} else if (Character.isSurrogate(c)) {
+				encoded = '?';
+				bytes = 1;
+			} else {
+				encoded = (0xe0 | (c >> 12)) | (0x80 | ((c >> 6) & 0x3f)) << 8 | (0x80 | (c & 0x3f)) << 16;
+				bytes = 3;
+			}
+			for (int b = 0; b < bytes; b++) {
+				k |= ((encoded >>> (b << 3)) & 0xffl) << (filled << 3);
+				if (++filled == 8) {
+					h = mixBlock(h, k);
+					k = 0l;
+					filled = 0;
+				}
+			}
+		}
+		if (filled > 0) {
+			h ^= k;
+			h *= M;
+		}
+		return finish(h);
+	}
+	
+	private static int utf8Length(String str, int start, int end) {
+		int length = 0;
+		int len = end;
+		for (int i = start; i < len; i++) {
+			char c = str.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+	
+	private static long mixBlock(long h, long k) {
+		k *= M;
+		k ^= k >>> R;
+		k *= M;
+		h ^= k;
+		return h * M;
+	}
+	
+	private static long finish(long h) {
+		h ^= h >>> R;
+		h *= M;
+		h ^= h >>> R;
+		return h;
+	}
+
+}
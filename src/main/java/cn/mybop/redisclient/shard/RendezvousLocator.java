@@ -0,0 +1,104 @@
+package cn.mybop.redisclient.shard;
+
+/**
+ * Rendezvous(最高随机权重)hash 取与key组合后得分最高的分片 定位为O(分片数)
+ * 配置权重时得分为-weight/ln(u) u为组合hash映射到(0,1] 分片被选中的概率与权重成正比
+ */
+public class RendezvousLocator implements ShardLocator {
+	
+	private final long[] seeds;
+	
+	//为null时不加权
+	private final double[] weights;
+	
+	public RendezvousLocator(int shardCount) {
+		this(shardCount, null);
+	}
+	
+	/**
+	 * @param shardCount
+	 * @param weights 按分片序号的权重 为null时不加权
+	 */
+	public RendezvousLocator(int shardCount, double[] weights) {
+		this.weights = weights;
+		seeds = new long[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			seeds[i] = MurmurHash64.hash("SHARD-" + i);
+		}
+	}
+
+	@Override
+	public int locate(long hash) {
+		return highest(hash, -1);
+	}
+	
+	/**
+	 * 得分第二高的分片
+	 */
+	@Override
+	public int locateNext(long hash, int shard) {
+		return seeds.length == 1 ? shard : highest(hash, shard);
+	}
+	
+	/**
+	 * @param hash
+	 * @param excluded 不参与的分片 为-1时所有分片都参与
+	 * @return 得分最高的分片
+	 */
+	private int highest(long hash, int excluded) {
+		int shard = -1;
+		long max = Long.MIN_VALUE;
+		double weightedMax = 0.0;
+		for (int i = 0; i < seeds.length; i++) {
+			if (i == excluded) {
+				continue;
+			}
+			long score = mix(hash ^ seeds[i]);
+			if (weights == null) {
+				if (score > max || shard < 0) {
+					max = score;
+					shard = i;
+				}
+			} else {
+				//高53位映射到(0,1]
+				double u = ((score >>> 11) + 1) * 0x1.0p-53;
+				double weighted = -weights[i] / Math.log(u);
+				if (weighted > weightedMax || shard < 0) {
+					weightedMax = weighted;
+					shard = i;
+				}
+			}
+		}
+		return shard;
+	}
+	
+	/**
+	 * splitmix64的混淆函数
+	 * @param z
+	 * @return
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9l;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebl;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public int getShardCount() {
+		return seeds.length;
+	}
+
+	@Override
+	public double[] getExpectedDistribution() {
+		double[] distribution = new double[seeds.length];
+		double total = 0.0;
+		for (int i = 0; i < seeds.length; i++) {
+			total += weights == null ? 1.0 : weights[i];
+		}
+		for (int i = 0; i < seeds.length; i++) {
+			distribution[i] = (weights == null ? 1.0 : weights[i]) / total;
+		}
+		return distribution;
+	}
+
+}
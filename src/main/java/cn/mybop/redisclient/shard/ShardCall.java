@@ -0,0 +1,45 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.Collection;
+import java.util.Map;
+
+import cn.mybop.redisclient.IRedisClient;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+public abstract class ShardCall<T> {
+	
+	/**
+	 * 在指定分片上执行操作
+	 * @param client
+	 * @return
+	 */
+	public abstract T call(IRedisClient client);
+	
+	/**
+	 * 结果是否表示key不存在 迁移中新分片上不存在时读取旧分片
+	 * 默认为 null false 0 空集合 扫描完的空结果 其他结果的命令需要覆盖
+	 * @param rtn
+	 * @return
+	 */
+	public boolean isAbsent(T rtn) {
+		if (rtn == null || Boolean.FALSE.equals(rtn)) {
+			return true;
+		}
+		if (rtn instanceof Number) {
+			return ((Number) rtn).longValue() == 0l;
+		}
+		if (rtn instanceof Collection) {
+			return ((Collection<?>) rtn).isEmpty();
+		}
+		if (rtn instanceof Map) {
+			return ((Map<?, ?>) rtn).isEmpty();
+		}
+		if (rtn instanceof ScanResult) {
+			ScanResult<?> result = (ScanResult<?>) rtn;
+			return ScanParams.SCAN_POINTER_START.equals(result.getStringCursor()) && result.getResult().isEmpty();
+		}
+		return false;
+	}
+
+}
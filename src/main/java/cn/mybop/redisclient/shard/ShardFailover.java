@@ -0,0 +1,143 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import cn.mybop.redisclient.DeadlineExceededException;
+import cn.mybop.redisclient.ServerUnavailableException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 分片不可用时的状态
+ * 分片调用因服务器不可用失败后标记为不可用 retryInterval毫秒内直接使用接替分片 之后再尝试原分片
+ * 不可用期间写入接替分片的key记录下来 原分片恢复后交还
+ */
+public class ShardFailover {
+	
+	//各分片不可用的截止时间
+	private final AtomicLongArray downUntil;
+	
+	//各分片写入了接替分片、待交还的key
+	private final List<Set<String>> handoffKeys;
+	
+	private final AtomicInteger handoffCount = new AtomicInteger();
+	
+	//各分片是否正在交还
+	private final AtomicBoolean[] handingBack;
+	
+	private final long retryInterval;
+	
+	private final int maxHandoffKeys;
+	
+	/**
+	 * @param shardCount
+	 * @param retryInterval 标记为不可用后再次尝试的间隔毫秒数
+	 * @param maxHandoffKeys 待交还的key的最大个数
+	 */
+	public ShardFailover(int shardCount, long retryInterval, int maxHandoffKeys) {
+		this.downUntil = new AtomicLongArray(shardCount);
+		this.handoffKeys = new ArrayList<Set<String>>(shardCount);
+		this.handingBack = new AtomicBoolean[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			handoffKeys.add(ConcurrentHashMap.<String>newKeySet());
+			handingBack[i] = new AtomicBoolean();
+		}
+		this.retryInterval = retryInterval;
+		this.maxHandoffKeys = maxHandoffKeys;
+	}
+	
+	/**
+	 * 失败是否因为分片的服务器不可用 数据错误和超过截止时间不算
+	 * @param e
+	 * @return
+	 */
+	public static boolean isUnavailable(Throwable e) {
+		if (e instanceof DeadlineExceededException) {
+			return false;
+		}
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof ServerUnavailableException || t instanceof JedisConnectionException) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public boolean isAvailable(int shard) {
+		return System.currentTimeMillis() >= downUntil.get(shard);
+	}
+	
+	public void markDown(int shard) {
+		downUntil.set(shard, System.currentTimeMillis() + retryInterval);
+	}
+	
+	/**
+	 * 原分片调用成功
+	 * @param shard
+	 * @return 有待交还的key且没有正在交还时返回true 调用方负责交还并在完成后调用finishHandback
+	 */
+	public boolean markUp(int shard) {
+		if (downUntil.get(shard) != 0l) {
+			downUntil.set(shard, 0l);
+		}
+		return !handoffKeys.get(shard).isEmpty() && handingBack[shard].compareAndSet(false, true);
+	}
+	
+	public void finishHandback(int shard) {
+		handingBack[shard].set(false);
+	}
+	
+	/**
+	 * 记录写入接替分片的key
+	 * @param shard 原分片
+	 * @param key
+	 * @return 超过maxHandoffKeys时返回false 此时不能写入接替分片
+	 */
+	public boolean recordHandoff(int shard, String key) {
+		Set<String> keys = handoffKeys.get(shard);
+		if (keys.contains(key)) {
+			return true;
+		}
+		if (handoffCount.incrementAndGet() > maxHandoffKeys) {
+			handoffCount.decrementAndGet();
+			return false;
+		}
+		if (!keys.add(key)) {
+			handoffCount.decrementAndGet();
+		}
+		return true;
+	}
+	
+	public boolean isHandoff(int shard, String key) {
+		return handoffKeys.get(shard).contains(key);
+	}
+	
+	/**
+	 * 交还完成
+	 * @param shard
+	 * @param key
+	 */
+	public void removeHandoff(int shard, String key) {
+		if (handoffKeys.get(shard).remove(key)) {
+			handoffCount.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * @param shard
+	 * @return 待交还的key的快照
+	 */
+	public List<String> getHandoffKeys(int shard) {
+		return new ArrayList<String>(handoffKeys.get(shard));
+	}
+	
+	public int getHandoffCount() {
+		return handoffCount.get();
+	}
+
+}
@@ -0,0 +1,30 @@
+package cn.mybop.redisclient.shard;
+
+/**
+ * 根据key定位分片 实现类构造后只读 可以并发使用
+ */
+public interface ShardLocator {
+	
+	/**
+	 * @param hash key的MurmurHash64.hash
+	 * @return 分片序号 从0开始
+	 */
+	public int locate(long hash);
+	
+	/**
+	 * 分片shard不可用时接替它的分片 同一个key总是得到同一个结果
+	 * @param hash key的MurmurHash64.hash
+	 * @param shard locate(hash)的结果
+	 * @return 只有一个分片时返回shard
+	 */
+	public int locateNext(long hash, int shard);
+	
+	public int getShardCount();
+	
+	/**
+	 * 按分片序号 各分片预期分到的key比例 合计为1
+	 * @return
+	 */
+	public double[] getExpectedDistribution();
+
+}
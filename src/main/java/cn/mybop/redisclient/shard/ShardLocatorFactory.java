@@ -0,0 +1,65 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.Properties;
+
+import cn.mybop.redisclient.RedisException;
+import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.common.Utils;
+
+public class ShardLocatorFactory {
+	
+	public static ShardLocator getShardLocator(Properties props, int shardCount) {
+		String algorithm = props.getProperty(Constants.SHARED_ALGORITHM, Constants.DEFAULT_SHARED_ALGORITHM);
+		double[] weights = getWeights(props, shardCount);
+		if (Constants.SharedAlgorithm.HASH.equalsIgnoreCase(algorithm)) {
+			int sharedNode = Constants.DEFAULT_SHARED_NODE;
+			if (Utils.isNotBlank(props.getProperty(Constants.SHARED_NODE))) {
+				sharedNode = Integer.parseInt(props.getProperty(Constants.SHARED_NODE));
+			}
+			return new HashRingLocator(shardCount, sharedNode, weights);
+		} else if (Constants.SharedAlgorithm.RENDEZVOUS.equalsIgnoreCase(algorithm)) {
+			return new RendezvousLocator(shardCount, weights);
+		} else if (weights != null) {
+			throw new RedisException("算法[" + algorithm + "]不支持" + Constants.SHARED_WEIGHTS + "参数");
+		} else if (Constants.SharedAlgorithm.JUMP.equalsIgnoreCase(algorithm)) {
+			return new JumpLocator(shardCount);
+		} else if (Constants.SharedAlgorithm.MAGLEV.equalsIgnoreCase(algorithm)) {
+			int tableSize = Constants.DEFAULT_SHARED_MAGLEV_TABLE_SIZE;
+			if (Utils.isNotBlank(props.getProperty(Constants.SHARED_MAGLEV_TABLE_SIZE))) {
+				tableSize = Integer.parseInt(props.getProperty(Constants.SHARED_MAGLEV_TABLE_SIZE));
+			}
+			try {
+				return new MaglevLocator(shardCount, tableSize);
+			} catch (IllegalArgumentException e) {
+				throw new RedisException(e.getMessage(), e);
+			}
+		}
+		throw new RedisException("暂不支持类型算法[" + algorithm + "]");
+	}
+	
+	/**
+	 * 解析shared.weights 按shared.client.list的顺序 扩容时旧环使用前shardCount个
+	 * @param props
+	 * @param shardCount
+	 * @return 未配置时为null
+	 */
+	static double[] getWeights(Properties props, int shardCount) {
+		String value = props.getProperty(Constants.SHARED_WEIGHTS);
+		if (Utils.isBlank(value)) {
+			return null;
+		}
+		String[] items = value.split(",");
+		if (items.length < shardCount) {
+			throw new RedisException(Constants.SHARED_WEIGHTS + "参数个数少于分片数" + shardCount);
+		}
+		double[] weights = new double[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			weights[i] = Double.parseDouble(items[i].trim());
+			if (!(weights[i] > 0)) {
+				throw new RedisException(Constants.SHARED_WEIGHTS + "参数必须大于0");
+			}
+		}
+		return weights;
+	}
+
+}
@@ -0,0 +1,139 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.common.RateLimiter;
+
+/**
+ * 在线扩容时把key从旧环的分片迁移到新环的分片
+ * 后台按repair限速SCAN旧环的各分片 写入前也会先迁移该key
+ * 单个key的迁移见KeyMigrator
+ */
+public class ShardMover implements Runnable {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShardMover.class);
+	
+	private final IRedisClient[] shards;
+	
+	private final ShardRing oldRing;
+	
+	private final ShardRing newRing;
+	
+	private final int scanCount;
+	
+	private final RateLimiter rateLimiter;
+	
+	private final KeyMigrator migrator;
+	
+	private final AtomicLong movedCount = new AtomicLong();
+	
+	//完整扫描一轮没有需要迁移的key
+	private volatile boolean finished;
+	
+	/**
+	 * @param shards 按新环的分片序号 旧环为其中前oldRing.getShardCount()个
+	 * @param oldRing
+	 * @param newRing
+	 * @param scanCount 每次SCAN的COUNT
+	 * @param rate 每秒最多扫描的key数
+	 * @param migrator
+	 */
+	public ShardMover(IRedisClient[] shards, ShardRing oldRing, ShardRing newRing, int scanCount, int rate, KeyMigrator migrator) {
+		this.shards = shards;
+		this.oldRing = oldRing;
+		this.newRing = newRing;
+		this.scanCount = scanCount;
+		this.rateLimiter = new RateLimiter(rate);
+		this.migrator = migrator;
+	}
+	
+	public boolean isFinished() {
+		return finished;
+	}
+	
+	public long getMovedCount() {
+		return movedCount.get();
+	}
+	
+	/**
+	 * 写入前迁移 key在旧环和新环属于同一分片时不做处理
+	 * @param key
+	 */
+	public void migrate(String key) {
+		int from = oldRing.locate(key);
+		int to = newRing.locate(key);
+		if (from != to) {
+			if (migrator.move(shards[from], shards[to], key)) {
+				movedCount.incrementAndGet();
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		if (finished) {
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		long moved = 0l;
+		try {
+			for (int i = 0; i < oldRing.getShardCount(); i++) {
+				moved += scan(i);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (Exception e) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis分片迁移失败", e);
+			}
+			return;
+		}
+		if (moved == 0) {
+			finished = true;
+			if (LOGGER.isInfoEnabled()) {
+				LOGGER.info("redis分片迁移完成 共迁移" + movedCount.get() + "个key");
+			}
+		} else if (LOGGER.isInfoEnabled()) {
+			LOGGER.info("redis分片迁移" + moved + "个key 耗时" + (System.currentTimeMillis() - startTime) + "毫秒");
+		}
+	}
+	
+	/**
+	 * 扫描旧环的一个分片 迁移新环中属于其他分片的key
+	 * @param index
+	 * @return 迁移的key数
+	 * @throws InterruptedException
+	 */
+	private long scan(int index) throws InterruptedException {
+		IRedisClient source = shards[index];
+		ShardScan scan = createScan(source, scanCount);
+		long moved = 0l;
+		while (scan.hasNext()) {
+			List<String> keys = scan.next();
+			for (int i = 0; i < keys.size(); i++) {
+				String key = keys.get(i);
+				if (oldRing.locate(key) != index) {
+					continue;
+				}
+				int to = newRing.locate(key);
+				if (to != index && migrator.move(source, shards[to], key)) {
+					movedCount.incrementAndGet();
+					moved++;
+				}
+			}
+			rateLimiter.acquire(keys.size());
+		}
+		return moved;
+	}
+	
+	protected ShardScan createScan(IRedisClient source, int scanCount) {
+		return new ShardScan(source, scanCount);
+	}
+
+}
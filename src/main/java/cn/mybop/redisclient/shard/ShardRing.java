@@ -0,0 +1,42 @@
+package cn.mybop.redisclient.shard;
+
+/**
+ * 分片路由 key的hash(开启hash tag时只计算tag部分)交给ShardLocator定位
+ */
+public class ShardRing {
+	
+	private final ShardLocator locator;
+	
+	private final boolean hashTag;
+	
+	public ShardRing(ShardLocator locator, boolean hashTag) {
+		this.locator = locator;
+		this.hashTag = hashTag;
+	}
+	
+	public int locate(String key) {
+		return locator.locate(hashTag ? HashTag.hash(key) : MurmurHash64.hash(key));
+	}
+	
+	public int locate(byte[] key) {
+		return locator.locate(hashTag ? HashTag.hash(key) : MurmurHash64.hash(key));
+	}
+	
+	/**
+	 * @param key
+	 * @param shard locate(key)的结果
+	 * @return 分片shard不可用时接替的分片
+	 */
+	public int locateNext(String key, int shard) {
+		return locator.locateNext(hashTag ? HashTag.hash(key) : MurmurHash64.hash(key), shard);
+	}
+	
+	public int getShardCount() {
+		return locator.getShardCount();
+	}
+	
+	public double[] getExpectedDistribution() {
+		return locator.getExpectedDistribution();
+	}
+
+}
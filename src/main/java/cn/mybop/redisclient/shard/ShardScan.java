@@ -0,0 +1,80 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.common.Utils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+/**
+ * 按批SCAN一个分片上namespace下的key 返回的key不含namespace
+ * sentinel分片扫描master 其他分片的一轮SCAN使用同一台服务器
+ */
+public class ShardScan {
+	
+	private final IRedisClient source;
+	
+	private final String prefix;
+	
+	private final ScanParams params;
+	
+	private String cursor = ScanParams.SCAN_POINTER_START;
+	
+	private String server;
+	
+	private boolean finished;
+	
+	/**
+	 * @param source
+	 * @param scanCount 每次SCAN的COUNT
+	 */
+	public ShardScan(IRedisClient source, int scanCount) {
+		this.source = source;
+		String namespace = source.getNamespace();
+		this.prefix = Utils.isNotBlank(namespace) ? Utils.mergeKey(namespace, "") : "";
+		this.params = new ScanParams().count(scanCount);
+		if (prefix.length() > 0) {
+			params.match(prefix + "*");
+		}
+	}
+	
+	public boolean hasNext() {
+		return !finished;
+	}
+	
+	/**
+	 * 执行一次SCAN 结果可能为空
+	 * @return
+	 */
+	public List<String> next() {
+		List<String> keys;
+		Jedis jedis = null;
+		try {
+			RedisManager manager = source.getManager();
+			if (KeyMigrator.isSentinel(manager)) {
+				jedis = manager.getMasterJedis();
+			} else {
+				if (server == null) {
+					server = KeyMigrator.firstAvailableServer(manager);
+				}
+				jedis = manager.getJedis(server);
+			}
+			ScanResult<String> result = jedis.scan(cursor, params);
+			cursor = result.getStringCursor();
+			keys = result.getResult();
+		} finally {
+			KeyMigrator.close(jedis);
+		}
+		finished = ScanParams.SCAN_POINTER_START.equals(cursor);
+		List<String> rtn = new ArrayList<String>(keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			rtn.add(keys.get(i).substring(prefix.length()));
+		}
+		return rtn;
+	}
+
+}
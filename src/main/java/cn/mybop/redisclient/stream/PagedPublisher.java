@@ -0,0 +1,42 @@
+package cn.mybop.redisclient.stream;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 按需求分页读取的Publisher 在调用request的线程中读取
+ * 缓存的一页发送完且仍有需求时才读取下一页 设置预取线程池后在发送当前页时预取下一页
+ * 每次订阅从头读取
+ */
+public abstract class PagedPublisher<T> implements Publisher<T> {
+	
+	private volatile Executor prefetchExecutor;
+	
+	protected abstract Pager<T> newPager();
+	
+	/**
+	 * 之后的订阅在线程池中预取下一页 最多超出需求读取一页
+	 * @param executor 为null时不预取
+	 * @return
+	 */
+	public PagedPublisher<T> prefetch(Executor executor) {
+		this.prefetchExecutor = executor;
+		return this;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber");
+		}
+		Pager<T> pager = newPager();
+		Executor executor = prefetchExecutor;
+		if (executor != null) {
+			pager = new PrefetchPager<T>(pager, executor);
+		}
+		PagedSubscription<T> subscription = new PagedSubscription<T>(subscriber, pager);
+		subscriber.onSubscribe(subscription);
+		//没有数据时不等待request即结束
+		subscription.drain();
+	}
+
+}
@@ -0,0 +1,126 @@
+package cn.mybop.redisclient.stream;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 同一时间只有一个线程发送 其他线程的request和onNext中的request只增加需求
+ */
+class PagedSubscription<T> implements Subscription {
+	
+	private final Subscriber<? super T> subscriber;
+	
+	private final Pager<T> pager;
+	
+	private final AtomicLong requested = new AtomicLong();
+	
+	private final AtomicInteger wip = new AtomicInteger();
+	
+	//只在发送线程中访问
+	private final ArrayDeque<T> buffer = new ArrayDeque<T>();
+	
+	private volatile boolean cancelled;
+	
+	private volatile Throwable invalidRequest;
+	
+	private boolean done;
+	
+	PagedSubscription(Subscriber<? super T> subscriber, Pager<T> pager) {
+		this.subscriber = subscriber;
+		this.pager = pager;
+	}
+
+	@Override
+	public void request(long n) {
+		if (n <= 0) {
+			invalidRequest = new IllegalArgumentException("request必须大于0:" + n);
+		} else {
+			long r;
+			do {
+				r = requested.get();
+				if (r == Long.MAX_VALUE) {
+					break;
+				}
+			} while (!requested.compareAndSet(r, r + n < 0 ? Long.MAX_VALUE : r + n));
+		}
+		drain();
+	}
+
+	@Override
+	public void cancel() {
+		cancelled = true;
+		drain();
+	}
+	
+	void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			if (!done) {
+				emit();
+			}
+			if (done || cancelled) {
+				buffer.clear();
+			}
+			missed = wip.addAndGet(-missed);
+		} while (missed != 0);
+	}
+	
+	private void emit() {
+		while (!cancelled) {
+			Throwable error = invalidRequest;
+			if (error != null) {
+				finish(error);
+				return;
+			}
+			if (buffer.isEmpty()) {
+				List<T> page;
+				try {
+					if (!pager.hasNext()) {
+						finish(null);
+						return;
+					}
+					long r = requested.get();
+					if (r == 0) {
+						return;
+					}
+					page = pager.next(r);
+				} catch (Throwable t) {
+					finish(t);
+					return;
+				}
+				buffer.addAll(page);
+				continue;
+			}
+			long r = requested.get();
+			if (r == 0) {
+				return;
+			}
+			T item = buffer.poll();
+			if (r != Long.MAX_VALUE) {
+				requested.decrementAndGet();
+			}
+			try {
+				subscriber.onNext(item);
+			} catch (RuntimeException e) {
+				cancelled = true;
+				throw e;
+			}
+		}
+	}
+	
+	private void finish(Throwable error) {
+		done = true;
+		cancelled = true;
+		if (error == null) {
+			subscriber.onComplete();
+		} else {
+			subscriber.onError(error);
+		}
+	}
+
+}
@@ -0,0 +1,19 @@
+package cn.mybop.redisclient.stream;
+
+import java.util.List;
+
+/**
+ * 按页读取 每个订阅一个实例 只在一个线程中同时调用
+ */
+public abstract class Pager<T> {
+	
+	public abstract boolean hasNext();
+	
+	/**
+	 * 读取下一页 可能为空
+	 * @param demand 当前的需求 用于决定页的大小
+	 * @return
+	 */
+	public abstract List<T> next(long demand);
+
+}
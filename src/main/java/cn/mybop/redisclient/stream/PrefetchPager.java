@@ -0,0 +1,79 @@
+package cn.mybop.redisclient.stream;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import cn.mybop.redisclient.RedisException;
+
+/**
+ * 返回一页时在线程池中预取下一页 与订阅者处理当前页重叠
+ * 预取按上一次的需求决定页的大小 最多超出需求读取一页
+ * 预取期间只有预取线程访问被包装的pager 取得结果后才由调用线程访问
+ */
+class PrefetchPager<T> extends Pager<T> {
+
+	private final Pager<T> pager;
+
+	private final Executor executor;
+
+	private FutureTask<List<T>> prefetch;
+
+	PrefetchPager(Pager<T> pager, Executor executor) {
+		this.pager = pager;
+		this.executor = executor;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return prefetch != null || pager.hasNext();
+	}
+
+	@Override
+	public List<T> next(final long demand) {
+		List<T> page;
+		if (prefetch == null) {
+			page = pager.next(demand);
+		} else {
+			page = await(prefetch);
+			prefetch = null;
+		}
+		if (pager.hasNext()) {
+			FutureTask<List<T>> task = new FutureTask<List<T>>(new Callable<List<T>>() {
+				@Override
+				public List<T> call() throws Exception {
+					return pager.next(demand);
+				}
+			});
+			try {
+				executor.execute(task);
+				prefetch = task;
+			} catch (RejectedExecutionException e) {
+				//线程池已满时不预取 下一页在调用线程读取
+			}
+		}
+		return page;
+	}
+
+	private List<T> await(FutureTask<List<T>> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RedisException("redis操作被中断", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RedisException("redis预取失败", cause);
+		}
+	}
+
+}
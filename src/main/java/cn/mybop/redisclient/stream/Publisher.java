@@ -0,0 +1,11 @@
+package cn.mybop.redisclient.stream;
+
+/**
+ * 与org.reactivestreams.Publisher及java.util.concurrent.Flow.Publisher相同的约定
+ * 目标为Java 8且不引入依赖 需要时可直接适配
+ */
+public interface Publisher<T> {
+	
+	public void subscribe(Subscriber<? super T> subscriber);
+
+}
@@ -0,0 +1,255 @@
+package cn.mybop.redisclient.stream;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.impl.SharedClient;
+import cn.mybop.redisclient.shard.ShardScan;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+
+/**
+ * 批量读取和SCAN的Publisher
+ * 多个key按需求分批读取 每批不超过batchSize 不存在的key不发送
+ * SCAN与redis的SCAN一致 可能重复发送同一个key
+ * 每批读取都是一次pipeline往返 需要与订阅者处理重叠时通过PagedPublisher.prefetch预取下一批
+ */
+public class RedisPublishers {
+	
+	public static PagedPublisher<Entry<String, byte[]>> getBytes(final IRedisClient client, Iterable<String> keys, int batchSize) {
+		return multiGet(keys, batchSize, new BatchGet<byte[]>() {
+			
+			@Override
+			public Map<String, byte[]> get(String[] keys) {
+				return client.getBytes(keys);
+			}
+			
+		});
+	}
+	
+	public static PagedPublisher<Entry<String, String>> get(final IRedisClient client, Iterable<String> keys, int batchSize) {
+		return multiGet(keys, batchSize, new BatchGet<String>() {
+			
+			@Override
+			public Map<String, String> get(String[] keys) {
+				return client.get(keys);
+			}
+			
+		});
+	}
+	
+	public static PagedPublisher<Entry<String, Object>> getObject(final IRedisClient client, Iterable<String> keys, int batchSize) {
+		return multiGet(keys, batchSize, new BatchGet<Object>() {
+			
+			@Override
+			public Map<String, Object> get(String[] keys) {
+				return client.getObject(keys);
+			}
+			
+		});
+	}
+	
+	/**
+	 * @param keys 每次订阅重新遍历
+	 * @param batchSize
+	 * @param get
+	 * @return 按keys的顺序发送
+	 */
+	public static <V> PagedPublisher<Entry<String, V>> multiGet(final Iterable<String> keys, final int batchSize, final BatchGet<V> get) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		return new PagedPublisher<Entry<String, V>>() {
+			
+			@Override
+			protected Pager<Entry<String, V>> newPager() {
+				return new MultiGetPager<V>(keys.iterator(), batchSize, get);
+			}
+			
+		};
+	}
+	
+	/**
+	 * SCAN namespace下的所有key 分片客户端依次SCAN各分片
+	 * @param client
+	 * @param scanCount 每次SCAN的COUNT
+	 * @return 不含namespace的key
+	 */
+	public static PagedPublisher<String> scan(IRedisClient client, int scanCount) {
+		if (client instanceof SharedClient) {
+			return ((SharedClient) client).scan(scanCount);
+		}
+		return scan(new IRedisClient[] {client}, scanCount);
+	}
+	
+	/**
+	 * 依次SCAN各分片 前一个分片扫描完成后才开始下一个分片
+	 * @param shards
+	 * @param scanCount
+	 * @return
+	 */
+	public static PagedPublisher<String> scan(final IRedisClient[] shards, final int scanCount) {
+		return new PagedPublisher<String>() {
+			
+			@Override
+			protected Pager<String> newPager() {
+				return new ScanPager(shards, scanCount);
+			}
+			
+		};
+	}
+	
+	public static PagedPublisher<Tuple> zscan(final IRedisClient client, final String key, final int scanCount) {
+		return new PagedPublisher<Tuple>() {
+			
+			@Override
+			protected Pager<Tuple> newPager() {
+				return new CursorPager<Tuple>(scanCount) {
+					
+					@Override
+					protected ScanResult<Tuple> scan(String cursor, ScanParams params) {
+						return client.zscan(key, cursor, params);
+					}
+					
+				};
+			}
+			
+		};
+	}
+	
+	public static PagedPublisher<Entry<String, String>> hscan(final IRedisClient client, final String key, final int scanCount) {
+		return new PagedPublisher<Entry<String, String>>() {
+			
+			@Override
+			protected Pager<Entry<String, String>> newPager() {
+				return new CursorPager<Entry<String, String>>(scanCount) {
+					
+					@Override
+					protected ScanResult<Entry<String, String>> scan(String cursor, ScanParams params) {
+						return client.hscan(key, cursor, params);
+					}
+					
+				};
+			}
+			
+		};
+	}
+	
+	public static abstract class BatchGet<V> {
+		
+		/**
+		 * @param keys
+		 * @return 不存在的key不在结果中
+		 */
+		public abstract Map<String, V> get(String[] keys);
+		
+	}
+	
+	private static class MultiGetPager<V> extends Pager<Entry<String, V>> {
+		
+		private final Iterator<String> keys;
+		
+		private final int batchSize;
+		
+		private final BatchGet<V> get;
+		
+		private MultiGetPager(Iterator<String> keys, int batchSize, BatchGet<V> get) {
+			this.keys = keys;
+			this.batchSize = batchSize;
+			this.get = get;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return keys.hasNext();
+		}
+
+		@Override
+		public List<Entry<String, V>> next(long demand) {
+			int size = (int) Math.min(demand, batchSize);
+			List<String> batch = new ArrayList<String>(size);
+			while (batch.size() < size && keys.hasNext()) {
+				batch.add(keys.next());
+			}
+			Map<String, V> values = get.get(batch.toArray(new String[batch.size()]));
+			List<Entry<String, V>> rtn = new ArrayList<Entry<String, V>>(values.size());
+			for (int i = 0; i < batch.size(); i++) {
+				V value = values.get(batch.get(i));
+				if (value != null) {
+					rtn.add(new SimpleImmutableEntry<String, V>(batch.get(i), value));
+				}
+			}
+			return rtn;
+		}
+		
+	}
+	
+	private static class ScanPager extends Pager<String> {
+		
+		private final IRedisClient[] shards;
+		
+		private final int scanCount;
+		
+		private int index = -1;
+		
+		private ShardScan current;
+		
+		private ScanPager(IRedisClient[] shards, int scanCount) {
+			this.shards = shards;
+			this.scanCount = scanCount;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (current == null || !current.hasNext()) {
+				if (index + 1 >= shards.length) {
+					return false;
+				}
+				current = new ShardScan(shards[++index], scanCount);
+			}
+			return true;
+		}
+
+		@Override
+		public List<String> next(long demand) {
+			return current.next();
+		}
+		
+	}
+	
+	private static abstract class CursorPager<T> extends Pager<T> {
+		
+		private final ScanParams params;
+		
+		private String cursor = ScanParams.SCAN_POINTER_START;
+		
+		private boolean finished;
+		
+		private CursorPager(int scanCount) {
+			this.params = new ScanParams().count(scanCount);
+		}
+		
+		protected abstract ScanResult<T> scan(String cursor, ScanParams params);
+
+		@Override
+		public boolean hasNext() {
+			return !finished;
+		}
+
+		@Override
+		public List<T> next(long demand) {
+			ScanResult<T> result = scan(cursor, params);
+			cursor = result.getStringCursor();
+			finished = ScanParams.SCAN_POINTER_START.equals(cursor);
+			return result.getResult();
+		}
+		
+	}
+
+}
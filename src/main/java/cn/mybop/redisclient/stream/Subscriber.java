@@ -0,0 +1,17 @@
+package cn.mybop.redisclient.stream;
+
+/**
+ * 与org.reactivestreams.Subscriber相同的约定
+ * onNext的个数不超过通过Subscription.request请求的个数 onError和onComplete最多调用一次
+ */
+public interface Subscriber<T> {
+	
+	public void onSubscribe(Subscription subscription);
+	
+	public void onNext(T item);
+	
+	public void onError(Throwable throwable);
+	
+	public void onComplete();
+
+}
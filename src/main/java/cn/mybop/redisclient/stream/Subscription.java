@@ -0,0 +1,15 @@
+package cn.mybop.redisclient.stream;
+
+/**
+ * 与org.reactivestreams.Subscription相同的约定
+ */
+public interface Subscription {
+	
+	/**
+	 * @param n 增加的需求 小于等于0时以IllegalArgumentException结束
+	 */
+	public void request(long n);
+	
+	public void cancel();
+
+}
@@ -0,0 +1,29 @@
+package cn.mybop.redisclient.validate;
+
+import java.util.Properties;
+
+import cn.mybop.redisclient.serialization.ISerializable;
+
+/**
+ * 可以和ping合并在同一次往返中的validate 只需读取一个key
+ */
+public interface IPipelinedValidate extends IValidate {
+	
+	/**
+	 * 需要读取的key 不需要读取时返回null
+	 * @param props
+	 * @return
+	 */
+	public byte[] getKey(Properties props);
+	
+	/**
+	 * 根据读取到的value验证
+	 * @param server ip:port
+	 * @param value getKey对应的value 可能为null
+	 * @param serializable
+	 * @param props
+	 * @return
+	 */
+	public boolean validate(String server, byte[] value, ISerializable serializable, Properties props);
+
+}
@@ -5,11 +5,21 @@ import java.util.Properties;
 import cn.mybop.redisclient.serialization.ISerializable;
 import redis.clients.jedis.Jedis;
 
-public class NoNeedValidateImpl implements IValidate {
+public class NoNeedValidateImpl implements IPipelinedValidate {
 
 	@Override
 	public boolean validate(Jedis jedis, ISerializable serializable, Properties props) {
 		return true;
 	}
 
+	@Override
+	public byte[] getKey(Properties props) {
+		return null;
+	}
+
+	@Override
+	public boolean validate(String server, byte[] value, ISerializable serializable, Properties props) {
+		return true;
+	}
+
 }
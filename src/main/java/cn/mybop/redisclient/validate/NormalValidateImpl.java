@@ -11,15 +11,44 @@ import cn.mybop.redisclient.common.Utils;
 import cn.mybop.redisclient.serialization.ISerializable;
 import redis.clients.jedis.Jedis;
 
-public class NormalValidateImpl implements IValidate {
+public class NormalValidateImpl implements IPipelinedValidate {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(NormalValidateImpl.class);
 
 	@Override
 	public boolean validate(Jedis jedis, ISerializable serializable, Properties props) {
+		byte[] bytes = getKey(props);
+		if (bytes == null) {
+			return false;
+		}
+		String server = jedis.getClient().getHost() + ":" + jedis.getClient().getPort();
+		try {
+			return validate(server, jedis.get(bytes), serializable, props);
+		} catch (Exception e) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis[" + server + "]验证发生错误",  e);
+			}
+			return false;
+		} 
+	}
+
+	@Override
+	public byte[] getKey(Properties props) {
 		String key = props.getProperty(Constants.VALIDATE_KEY);
-		String value = props.getProperty(Constants.VALIDATE_VALUE);
 		String namespace = props.getProperty(Constants.SERVER_NAMESPACE);
+		try {
+			return Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("字符串转换字节失败", e);
+			}
+			return null;
+		}
+	}
+
+	@Override
+	public boolean validate(String server, byte[] value, ISerializable serializable, Properties props) {
+		String validateValue = props.getProperty(Constants.VALIDATE_VALUE);
 		
 		int compressThreshold = 0;
 		String strCompressThreshold = props.getProperty(Constants.COMPRESS_THRESHOLD);
@@ -27,34 +56,24 @@ public class NormalValidateImpl implements IValidate {
 			compressThreshold = Integer.parseInt(strCompressThreshold);
 		}
 		try {
-			byte[] bytes = null;
-			try {
-				bytes = Utils.mergeKey(namespace, key).getBytes(Constants.DEFAULT_CHARSET);
-			} catch (UnsupportedEncodingException e) {
-				if (LOGGER.isErrorEnabled()) {
-					LOGGER.error("字符串转换字节失败", e);
-				}
-				return false;
-			}
-			byte[] rtnBytes = jedis.get(bytes);
-			if (rtnBytes == null) {
+			if (value == null) {
 				if (LOGGER.isErrorEnabled()) {
-					LOGGER.error("redis[" + jedis.getClient().getHost() + ":" + jedis.getClient().getPort() + "]中没有设置对应key的value");
+					LOGGER.error("redis[" + server + "]中没有设置对应key的value");
 				}
 				return false;
 			}			
-			byte[] origBytes = Utils.getOrigBytes(rtnBytes, compressThreshold);			
+			byte[] origBytes = Utils.getOrigBytes(value, compressThreshold);			
 			String rtn = serializable.bytes2object(origBytes, String.class);
-			if (!value.equals(rtn)) {
+			if (!validateValue.equals(rtn)) {
 				if (LOGGER.isErrorEnabled()) {
-					LOGGER.error("redis[" + jedis.getClient().getHost() + ":" + jedis.getClient().getPort() + "]中key设置的value[" + rtn + "]不对");
+					LOGGER.error("redis[" + server + "]中key设置的value[" + rtn + "]不对");
 				}
 				return false;
 			}
 			return true;
 		} catch (Exception e) {
 			if (LOGGER.isErrorEnabled()) {
-				LOGGER.error("redis[" + jedis.getClient().getHost() + ":" + jedis.getClient().getPort() + "]验证发生错误",  e);
+				LOGGER.error("redis[" + server + "]验证发生错误",  e);
 			}
 			return false;
 		} 
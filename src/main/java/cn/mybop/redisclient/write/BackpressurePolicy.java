@@ -0,0 +1,26 @@
+package cn.mybop.redisclient.write;
+
+/**
+ * 单台服务器写入队列已满时的处理方式
+ */
+public enum BackpressurePolicy {
+	
+	//等待至多writeall.queue.timeout毫秒 仍然已满时本次写入失败
+	BLOCK,
+	
+	//丢弃最早的待写入命令
+	DROP_OLDEST,
+	
+	//由调用线程代替写入线程写入队头的命令 腾出空位后再加入队列
+	CALLER_RUNS;
+	
+	public static BackpressurePolicy parse(String policy) {
+		for (BackpressurePolicy value : values()) {
+			if (value.name().replace("_", "").equalsIgnoreCase(policy.replace("_", ""))) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("不支持的队列策略[" + policy + "]");
+	}
+
+}
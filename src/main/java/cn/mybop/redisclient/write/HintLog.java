@@ -0,0 +1,40 @@
+package cn.mybop.redisclient.write;
+
+import java.util.List;
+
+/**
+ * 单台服务器错过的写入命令 按写入顺序保存 容量有限
+ */
+public interface HintLog {
+	
+	/**
+	 * 追加命令
+	 * @param command
+	 * @return 容量已满时返回false 并标记为溢出
+	 */
+	public boolean append(WriteCommand command);
+	
+	/**
+	 * 读取最早的命令 不删除
+	 * @param max
+	 * @return
+	 */
+	public List<WriteCommand> peek(int max);
+	
+	/**
+	 * 删除最早的count条命令
+	 * @param count
+	 */
+	public void remove(int count);
+	
+	public int size();
+	
+	/**
+	 * 是否有命令因容量已满被丢弃 清空后重置
+	 * @return
+	 */
+	public boolean isOverflowed();
+	
+	public void close();
+
+}
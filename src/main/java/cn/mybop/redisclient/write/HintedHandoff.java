@@ -0,0 +1,302 @@
+package cn.mybop.redisclient.write;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.check.ServerRecoveryHandler;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * 记录不可用服务器错过的写入 服务器恢复后重新加入可用列表前分批重放
+ * 加入可用列表后再重放一次期间新增的命令 重放完成前该服务器的写入继续记录hint 保证按写入顺序到达
+ * 只记录不在可用列表中或正在重放的服务器 仍在可用列表中的服务器不记录 避免之后重放旧命令覆盖新数据
+ * 写入结果未知(如读超时)的命令也会重放 incr等非幂等命令可能重复执行
+ * hint溢出的服务器缺少写入 重放后仍不加入可用列表 修复数据后调用clearOverflow
+ */
+public class HintedHandoff implements ServerRecoveryHandler {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(HintedHandoff.class);
+	
+	private final RedisManager manager;
+	
+	private final int replayBatch;
+	
+	private final Map<String, HintLog> hintLogs;
+	
+	/**
+	 * 已开始重放但未完成的服务器
+	 */
+	private final Set<String> recovering = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	/**
+	 * hint曾经溢出的服务器 直到调用clearOverflow前不加入可用列表
+	 */
+	private final Set<String> overflowed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	/**
+	 * 写入方持有读锁判断是否记录hint 最后一次重放持有写锁 重放完成后的写入不会再记录hint
+	 * 持有写锁时最多重放一批 避免慢服务器长时间阻塞所有写入
+	 */
+	private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
+	
+	/**
+	 * @param manager
+	 * @param servers 全量服务器
+	 * @param maxCommands 每台服务器最多保存的命令数 使用内存保存时有效
+	 * @param dir 不为null时使用内存映射文件保存
+	 * @param fileSize 每台服务器的文件大小
+	 * @param replayBatch 每批重放的命令数
+	 * @param name client name 用于文件名
+	 */
+	public HintedHandoff(RedisManager manager, String[] servers, int maxCommands, String dir, int fileSize, int replayBatch, String name) {
+		this.manager = manager;
+		this.replayBatch = Math.max(replayBatch, 1);
+		this.hintLogs = new ConcurrentHashMap<String, HintLog>(servers.length);
+		if (dir != null) {
+			new File(dir).mkdirs();
+		}
+		for (int i = 0; i < servers.length; i++) {
+			if (dir == null) {
+				hintLogs.put(servers[i], new MemoryHintLog(maxCommands));
+			} else {
+				hintLogs.put(servers[i], new MappedHintLog(new File(dir, name + "-" + servers[i].replace(':', '_') + ".hint"), fileSize));
+			}
+		}
+	}
+	
+	/**
+	 * 获取可写入的服务器 不可用或正在重放的服务器记录hint
+	 * 没有可写入的服务器时不记录hint 返回空列表
+	 * @param commands
+	 * @return 需要直接写入的服务器
+	 */
+	public List<String> route(List<WriteCommand> commands) {
+		rwl.readLock().lock();
+		try {
+			List<String> servers = manager.getAvailableServers();
+			List<String> writable = new ArrayList<String>(servers.size());
+			for (int i = 0; i < servers.size(); i++) {
+				if (!recovering.contains(servers.get(i))) {
+					writable.add(servers.get(i));
+				}
+			}
+			if (writable.size() == 0) {
+				return writable;
+			}
+			for (String server : hintLogs.keySet()) {
+				if (!writable.contains(server)) {
+					append(server, commands);
+				}
+			}
+			return writable;
+		} finally {
+			rwl.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * 写入失败时记录服务器错过的写入 仍在可用列表中且不在重放的服务器不记录
+	 * @param server
+	 * @param commands
+	 * @return 是否已记录
+	 */
+	public boolean hint(String server, List<WriteCommand> commands) {
+		rwl.readLock().lock();
+		try {
+			if (manager.isAvailableServer(server) && !recovering.contains(server)) {
+				return false;
+			}
+			append(server, commands);
+			return true;
+		} finally {
+			rwl.readLock().unlock();
+		}
+	}
+	
+	private void append(String server, List<WriteCommand> commands) {
+		HintLog hintLog = hintLogs.get(server);
+		if (hintLog == null) {
+			return;
+		}
+		for (int i = 0; i < commands.size(); i++) {
+			if (!hintLog.append(commands.get(i))) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis[" + server + "]hint已满 丢弃命令" + commands.get(i));
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * 待重放的命令数
+	 * @param server
+	 * @return
+	 */
+	public int size(String server) {
+		HintLog hintLog = hintLogs.get(server);
+		return hintLog == null ? 0 : hintLog.size();
+	}
+
+	/**
+	 * hint是否曾经溢出
+	 * @param server
+	 * @return
+	 */
+	public boolean isOverflowed(String server) {
+		return overflowed.contains(server);
+	}
+	
+	/**
+	 * 溢出服务器的数据修复后调用 之后重放完成即可加入可用列表
+	 * @param server
+	 */
+	public void clearOverflow(String server) {
+		if (overflowed.remove(server) && LOGGER.isInfoEnabled()) {
+			LOGGER.info("redis[" + server + "]清除hint溢出标记");
+		}
+	}
+
+	/**
+	 * 是否正在重放
+	 * @param server
+	 * @return
+	 */
+	public boolean isRecovering(String server) {
+		return recovering.contains(server);
+	}
+
+	@Override
+	public boolean beforeAdd(String server) {
+		//加入可用列表后直到重放完成 写入继续记录hint
+		recovering.add(server);
+		return replay(server, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void afterAdd(String server) {
+		//先不加锁重放大部分 再持有写锁重放剩余的一批 期间写入等待 剩余超过一批时重新剔除
+		replay(server, Integer.MAX_VALUE);
+		boolean replayed = false;
+		rwl.writeLock().lock();
+		try {
+			replayed = replay(server, 1);
+			if (replayed) {
+				recovering.remove(server);
+			}
+		} finally {
+			rwl.writeLock().unlock();
+		}
+		if (!replayed) {
+			//重新剔除 由定时检查再次加入时继续重放
+			manager.removeJedisPool(server);
+			if (LOGGER.isErrorEnabled()) {
+				LOGGER.error("redis服务器[" + server + "]重放hint未完成 从可用列表中剔除");
+			}
+		}
+	}
+	
+	/**
+	 * 分批重放 命令本身执行出错的跳过 连接出错时停止
+	 * @param server
+	 * @param maxBatches 最多重放的批数
+	 * @return 是否全部重放完成
+	 */
+	private boolean replay(String server, int maxBatches) {
+		HintLog hintLog = hintLogs.get(server);
+		if (hintLog == null) {
+			return true;
+		}
+		if (hintLog.isOverflowed()) {
+			//重放清空后hint log不再记录溢出
+			overflowed.add(server);
+		}
+		if (hintLog.size() == 0) {
+			return !keepOut(server, 0);
+		}
+		int replayed = 0;
+		for (int batch = 0; ; batch++) {
+			List<WriteCommand> commands = hintLog.peek(replayBatch);
+			if (commands.size() == 0) {
+				break;
+			}
+			if (batch >= maxBatches) {
+				if (LOGGER.isWarnEnabled()) {
+					LOGGER.warn("redis[" + server + "]重放" + replayed + "条后仍有" + hintLog.size() + "条未重放");
+				}
+				return false;
+			}
+			Jedis jedis = null;
+			try {
+				jedis = manager.getJedis(server);
+				Pipeline pipeline = jedis.pipelined();
+				List<Response<?>> responses = new ArrayList<Response<?>>(commands.size());
+				for (int i = 0; i < commands.size(); i++) {
+					responses.add(commands.get(i).apply(pipeline));
+				}
+				pipeline.sync();
+				for (int i = 0; i < responses.size(); i++) {
+					try {
+						responses.get(i).get();
+					} catch (JedisDataException e) {
+						if (LOGGER.isErrorEnabled()) {
+							LOGGER.error("redis[" + server + "]重放命令" + commands.get(i) + "失败", e);
+						}
+					}
+				}
+			} catch (Exception e) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis[" + server + "]重放hint失败 已重放" + replayed + "条", e);
+				}
+				return false;
+			} finally {
+				if (jedis != null) {
+					try {
+						jedis.close();
+					} catch (Exception e) {
+						//do nothing
+					} finally {
+						jedis = null;
+					}
+				}
+			}
+			hintLog.remove(commands.size());
+			replayed += commands.size();
+		}
+		if (LOGGER.isInfoEnabled()) {
+			LOGGER.info("redis[" + server + "]重放hint" + replayed + "条");
+		}
+		return !keepOut(server, replayed);
+	}
+	
+	private boolean keepOut(String server, int replayed) {
+		if (!overflowed.contains(server)) {
+			return false;
+		}
+		if (LOGGER.isErrorEnabled()) {
+			LOGGER.error("redis[" + server + "]hint曾经溢出 重放" + replayed + "条后数据仍不一致 修复后调用clearOverflow才能加入可用列表");
+		}
+		return true;
+	}
+	
+	public void close() {
+		for (Entry<String, HintLog> entry : hintLogs.entrySet()) {
+			entry.getValue().close();
+		}
+	}
+
+}
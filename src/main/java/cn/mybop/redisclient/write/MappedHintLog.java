@@ -0,0 +1,158 @@
+package cn.mybop.redisclient.write;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.RedisException;
+
+/**
+ * 基于内存映射文件的HintLog 进程重启后未重放的命令仍然保留
+ * 文件头 写位置(4字节) 读位置(4字节) 条数(4字节) 溢出标记(4字节) 之后为顺序追加的命令
+ */
+public class MappedHintLog implements HintLog {
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedHintLog.class);
+	
+	private static final int HEADER_SIZE = 16;
+	
+	private final File file;
+	
+	private RandomAccessFile raf;
+	
+	private MappedByteBuffer buffer;
+	
+	private int writePosition;
+	
+	private int readPosition;
+	
+	private int count;
+	
+	private boolean overflowed;
+	
+	public MappedHintLog(File file, int fileSize) {
+		this.file = file;
+		try {
+			boolean exists = file.exists() && file.length() >= HEADER_SIZE;
+			raf = new RandomAccessFile(file, "rw");
+			int size = exists ? (int) Math.max(file.length(), fileSize) : fileSize;
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			if (exists) {
+				writePosition = buffer.getInt(0);
+				readPosition = buffer.getInt(4);
+				count = buffer.getInt(8);
+				overflowed = buffer.getInt(12) != 0;
+			}
+			if (writePosition < HEADER_SIZE || writePosition > size || readPosition < HEADER_SIZE || readPosition > writePosition) {
+				writePosition = HEADER_SIZE;
+				readPosition = HEADER_SIZE;
+				count = 0;
+			}
+			writeHeader();
+			if (count > 0 && LOGGER.isInfoEnabled()) {
+				LOGGER.info("hint文件[" + file + "]中有" + count + "条未重放的命令");
+			}
+		} catch (IOException e) {
+			close();
+			throw new RedisException("打开hint文件[" + file + "]失败", e);
+		}
+	}
+
+	@Override
+	public synchronized boolean append(WriteCommand command) {
+		if (buffer == null) {
+			return false;
+		}
+		int size = command.getSerializedSize();
+		if (writePosition + size > buffer.capacity()) {
+			if (!overflowed) {
+				overflowed = true;
+				writeHeader();
+			}
+			return false;
+		}
+		buffer.position(writePosition);
+		command.writeTo(buffer);
+		writePosition += size;
+		count++;
+		writeHeader();
+		return true;
+	}
+
+	@Override
+	public synchronized List<WriteCommand> peek(int max) {
+		List<WriteCommand> rtn = new ArrayList<WriteCommand>(Math.min(max, count));
+		if (buffer == null) {
+			return rtn;
+		}
+		buffer.position(readPosition);
+		for (int i = 0; i < max && i < count; i++) {
+			rtn.add(WriteCommand.readFrom(buffer));
+		}
+		return rtn;
+	}
+
+	@Override
+	public synchronized void remove(int removeCount) {
+		if (buffer == null) {
+			return;
+		}
+		buffer.position(readPosition);
+		for (int i = 0; i < removeCount && count > 0; i++) {
+			WriteCommand.readFrom(buffer);
+			count--;
+		}
+		readPosition = buffer.position();
+		if (count == 0) {
+			//已全部重放 从头开始写
+			writePosition = HEADER_SIZE;
+			readPosition = HEADER_SIZE;
+			overflowed = false;
+		}
+		writeHeader();
+	}
+
+	@Override
+	public synchronized int size() {
+		return count;
+	}
+
+	@Override
+	public synchronized boolean isOverflowed() {
+		return overflowed;
+	}
+	
+	private void writeHeader() {
+		buffer.putInt(0, writePosition);
+		buffer.putInt(4, readPosition);
+		buffer.putInt(8, count);
+		buffer.putInt(12, overflowed ? 1 : 0);
+	}
+
+	@Override
+	public synchronized void close() {
+		if (buffer != null) {
+			buffer.force();
+			buffer = null;
+		}
+		if (raf != null) {
+			try {
+				raf.close();
+			} catch (IOException e) {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("关闭hint文件[" + file + "]失败", e);
+				}
+			} finally {
+				raf = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+package cn.mybop.redisclient.write;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 内存中的HintLog 按命令条数限制容量
+ */
+public class MemoryHintLog implements HintLog {
+	
+	private final int maxCommands;
+	
+	private final ArrayDeque<WriteCommand> commands = new ArrayDeque<WriteCommand>();
+	
+	private boolean overflowed;
+	
+	public MemoryHintLog(int maxCommands) {
+		this.maxCommands = maxCommands;
+	}
+
+	@Override
+	public synchronized boolean append(WriteCommand command) {
+		if (commands.size() >= maxCommands) {
+			overflowed = true;
+			return false;
+		}
+		commands.addLast(command);
+		return true;
+	}
+
+	@Override
+	public synchronized List<WriteCommand> peek(int max) {
+		List<WriteCommand> rtn = new ArrayList<WriteCommand>(Math.min(max, commands.size()));
+		Iterator<WriteCommand> it = commands.iterator();
+		while (it.hasNext() && rtn.size() < max) {
+			rtn.add(it.next());
+		}
+		return rtn;
+	}
+
+	@Override
+	public synchronized void remove(int count) {
+		for (int i = 0; i < count && !commands.isEmpty(); i++) {
+			commands.removeFirst();
+		}
+		if (commands.isEmpty()) {
+			overflowed = false;
+		}
+	}
+
+	@Override
+	public synchronized int size() {
+		return commands.size();
+	}
+
+	@Override
+	public synchronized boolean isOverflowed() {
+		return overflowed;
+	}
+
+	@Override
+	public synchronized void close() {
+		commands.clear();
+	}
+
+}
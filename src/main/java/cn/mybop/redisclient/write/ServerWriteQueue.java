@@ -0,0 +1,421 @@
+package cn.mybop.redisclient.write;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.mybop.redisclient.RedisException;
+import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.common.Deadline;
+
+/**
+ * 单台服务器的有界写入队列 由一个后台线程按顺序取出至多batchSize次写入 在专用连接上通过一次pipeline写入
+ * 队列已满时按BackpressurePolicy处理 CALLER_RUNS时调用线程代替后台线程写入队头的命令 与后台线程互斥 不打乱写入顺序
+ * 开启合并时 同一个key上待写入的SET/DEL只保留最后一条 中间有该key上其他命令时不合并 有WriteCallback的写入不合并
+ */
+public class ServerWriteQueue {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ServerWriteQueue.class);
+
+	private final String server;
+
+	private final int capacity;
+
+	private final BackpressurePolicy policy;
+
+	private final long offerTimeoutNanos;
+
+	private final boolean coalesce;
+
+	private final int batchSize;
+
+	private final WriteHandler handler;
+
+	private final ArrayDeque<Entry> queue = new ArrayDeque<Entry>();
+
+	//key -> 队列中该key上最后一条可合并的命令
+	private final Map<ByteBuffer, Entry> pendingKeys = new HashMap<ByteBuffer, Entry>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notEmpty = lock.newCondition();
+
+	private final Condition notFull = lock.newCondition();
+
+	//后台线程和CALLER_RUNS的调用线程互斥地从队头取出并写入 保证按入队顺序写入
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	private final Thread worker;
+
+	private volatile boolean stopped;
+
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * @param server ip:port
+	 * @param capacity 队列长度
+	 * @param policy 队列已满时的处理方式
+	 * @param offerTimeout BLOCK时的最长等待毫秒数
+	 * @param coalesce 是否合并同一个key上的SET/DEL
+	 * @param batchSize 每次pipeline最多写入的次数
+	 * @param handler
+	 * @param threadName
+	 */
+	public ServerWriteQueue(String server, int capacity, BackpressurePolicy policy, long offerTimeout, boolean coalesce, int batchSize, WriteHandler handler, String threadName) {
+		this.server = server;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeout);
+		this.coalesce = coalesce;
+		this.batchSize = Math.max(batchSize, 1);
+		this.handler = handler;
+		this.worker = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				drain();
+			}
+
+		});
+		this.worker.setDaemon(true);
+		this.worker.setName(threadName);
+		this.worker.start();
+	}
+
+	/**
+	 * 加入队列 被拒绝或丢弃的命令通过WriteHandler.onFailure通知
+	 * @param commands
+	 */
+	public void offer(List<WriteCommand> commands) {
+		offer(commands, null);
+	}
+
+	/**
+	 * 加入队列 写入结果、被拒绝或丢弃通过callback通知
+	 * @param commands
+	 * @param callback 为null时只通知失败给WriteHandler.onFailure
+	 */
+	public void offer(List<WriteCommand> commands, WriteCallback callback) {
+		while (true) {
+			Entry dropped = null;
+			boolean rejected = false;
+			boolean callerRuns = false;
+			lock.lock();
+			try {
+				if (stopped) {
+					rejected = true;
+				} else if (callback != null || !merge(commands)) {
+					if (queue.size() >= capacity) {
+						if (policy == BackpressurePolicy.DROP_OLDEST) {
+							dropped = queue.pollFirst();
+							unindex(dropped);
+						} else if (policy == BackpressurePolicy.CALLER_RUNS) {
+							callerRuns = true;
+						} else {
+							rejected = !awaitNotFull();
+						}
+					}
+					if (!rejected && !callerRuns && (callback != null || !merge(commands))) {
+						Entry entry = new Entry(commands, callback);
+						queue.addLast(entry);
+						index(entry);
+						notEmpty.signal();
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+			if (dropped != null) {
+				droppedCount.incrementAndGet();
+				fail(dropped, new RejectedExecutionException("redis[" + server + "]写入队列已满 丢弃最早的命令"));
+			}
+			if (rejected) {
+				rejectedCount.incrementAndGet();
+				fail(new Entry(commands, callback), new RejectedExecutionException("redis[" + server + "]写入队列已满或已停止"));
+			}
+			if (!callerRuns) {
+				return;
+			}
+			//不直接写入本次的命令 先写入队头的命令腾出空位 避免越过队列中同一个key上的写入
+			drainBatch(new ArrayList<Entry>(batchSize));
+		}
+	}
+
+	/**
+	 * 等待队列有空位 不超过offerTimeout和当前截止时间
+	 * @return 是否有空位
+	 */
+	private boolean awaitNotFull() {
+		long nanos = offerTimeoutNanos;
+		Deadline deadline = Deadline.current();
+		if (deadline != null) {
+			nanos = Math.min(nanos, deadline.remainingNanos());
+		}
+		try {
+			while (queue.size() >= capacity && !stopped) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = notFull.awaitNanos(nanos);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return !stopped;
+	}
+
+	/**
+	 * 合并到队列中同一个key上的命令
+	 * @param commands
+	 * @return 是否已合并
+	 */
+	private boolean merge(List<WriteCommand> commands) {
+		if (!coalesce || commands.size() != 1 || !commands.get(0).getType().isOverwrite()) {
+			return false;
+		}
+		Entry entry = pendingKeys.get(ByteBuffer.wrap(commands.get(0).getKey()));
+		if (entry == null) {
+			return false;
+		}
+		entry.commands = commands;
+		coalescedCount.incrementAndGet();
+		return true;
+	}
+
+	private void index(Entry entry) {
+		if (!coalesce) {
+			return;
+		}
+		List<WriteCommand> commands = entry.commands;
+		boolean mergeable = entry.callback == null && commands.size() == 1;
+		for (int i = 0; i < commands.size(); i++) {
+			WriteCommand command = commands.get(i);
+			if (command.getKey() == null || command.getType() == WriteType.RENAME) {
+				//影响多个key
+				pendingKeys.clear();
+			} else if (mergeable && command.getType().isOverwrite()) {
+				pendingKeys.put(ByteBuffer.wrap(command.getKey()), entry);
+			} else {
+				pendingKeys.remove(ByteBuffer.wrap(command.getKey()));
+			}
+		}
+	}
+
+	private void unindex(Entry entry) {
+		if (!coalesce || entry.commands.size() != 1 || entry.commands.get(0).getKey() == null) {
+			return;
+		}
+		ByteBuffer key = ByteBuffer.wrap(entry.commands.get(0).getKey());
+		if (pendingKeys.get(key) == entry) {
+			pendingKeys.remove(key);
+		}
+	}
+
+	private void drain() {
+		List<Entry> batch = new ArrayList<Entry>(batchSize);
+		try {
+			while (true) {
+				lock.lock();
+				try {
+					while (queue.isEmpty() && !stopped) {
+						notEmpty.awaitUninterruptibly();
+					}
+					if (stopped) {
+						return;
+					}
+				} finally {
+					lock.unlock();
+				}
+				drainBatch(batch);
+			}
+		} finally {
+			//等待调用线程正在进行的写入完成后再关闭专用连接
+			writeLock.lock();
+			try {
+				handler.close(server);
+			} finally {
+				writeLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * 从队头取出至多batchSize次写入并写入 队列已空(已被其他线程取出)或已停止时直接返回
+	 * @param batch
+	 */
+	private void drainBatch(List<Entry> batch) {
+		writeLock.lock();
+		try {
+			lock.lock();
+			try {
+				if (stopped) {
+					return;
+				}
+				while (batch.size() < batchSize && !queue.isEmpty()) {
+					Entry entry = queue.pollFirst();
+					unindex(entry);
+					batch.add(entry);
+				}
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			if (batch.size() > 0) {
+				writeBatch(batch);
+			}
+		} finally {
+			writeLock.unlock();
+			batch.clear();
+		}
+	}
+
+	/**
+	 * 多次写入合并为一次pipeline 连接出错时全部失败 否则按各自命令的应答分别通知
+	 * @param batch
+	 */
+	private void writeBatch(List<Entry> batch) {
+		List<WriteCommand> commands;
+		if (batch.size() == 1) {
+			commands = batch.get(0).commands;
+		} else {
+			commands = new ArrayList<WriteCommand>();
+			for (int i = 0; i < batch.size(); i++) {
+				commands.addAll(batch.get(i).commands);
+			}
+		}
+		List<Object> replies;
+		try {
+			replies = handler.writeBatch(server, commands);
+		} catch (Exception e) {
+			for (int i = 0; i < batch.size(); i++) {
+				fail(batch.get(i), e);
+			}
+			return;
+		}
+		int offset = 0;
+		for (int i = 0; i < batch.size(); i++) {
+			Entry entry = batch.get(i);
+			int size = entry.commands.size();
+			Throwable error = null;
+			for (int j = 0; j < size && error == null; j++) {
+				Object reply = replies.get(offset + j);
+				if (reply instanceof Throwable) {
+					error = (Throwable) reply;
+				} else if (entry.commands.get(j).getType().isStatusReply() && !Constants.REPLY_CODE_OK.equals(reply)) {
+					error = new RedisException("redis[" + server + "]应答" + reply);
+				}
+			}
+			if (error == null) {
+				succeed(entry, replies.subList(offset, offset + size));
+			} else {
+				if (LOGGER.isErrorEnabled()) {
+					LOGGER.error("redis[" + server + "]操作失败", error);
+				}
+				fail(entry, error);
+			}
+			offset += size;
+		}
+	}
+
+	private void succeed(Entry entry, List<Object> replies) {
+		if (entry.callback != null) {
+			entry.callback.onSuccess(replies);
+		}
+	}
+
+	private void fail(Entry entry, Throwable cause) {
+		if (entry.callback != null) {
+			entry.callback.onFailure(cause);
+		} else {
+			handler.onFailure(server, entry.commands, cause);
+		}
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * 停止后台线程 等待正在写入的命令至多timeout毫秒 队列中剩余的命令通过WriteHandler.onFailure通知
+	 * @param timeout
+	 */
+	public void stop(long timeout) {
+		List<Entry> remaining;
+		lock.lock();
+		try {
+			stopped = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			worker.join(timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		lock.lock();
+		try {
+			remaining = queue.isEmpty() ? Collections.<Entry>emptyList() : new ArrayList<Entry>(queue);
+			queue.clear();
+			pendingKeys.clear();
+		} finally {
+			lock.unlock();
+		}
+		if (remaining.size() > 0 && LOGGER.isWarnEnabled()) {
+			LOGGER.warn("redis[" + server + "]写入队列停止时还有" + remaining.size() + "条未写入");
+		}
+		for (int i = 0; i < remaining.size(); i++) {
+			fail(remaining.get(i), new RejectedExecutionException("redis[" + server + "]写入队列已停止"));
+		}
+	}
+
+	private static class Entry {
+
+		//合并时替换
+		private List<WriteCommand> commands;
+
+		private final WriteCallback callback;
+
+		private Entry(List<WriteCommand> commands, WriteCallback callback) {
+			this.commands = commands;
+			this.callback = callback;
+		}
+
+	}
+
+}
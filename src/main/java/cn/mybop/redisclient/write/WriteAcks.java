@@ -0,0 +1,148 @@
+package cn.mybop.redisclient.write;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 一次多服务器写入的确认统计
+ * 调用方等待达到所需确认数后返回 其余服务器在后台继续写入
+ * 使用ReentrantLock等待 调用方为虚拟线程时不占用载体线程
+ */
+public class WriteAcks<T> {
+	
+	private final int required;
+	
+	private final int total;
+	
+	private int acks;
+	
+	private int failures;
+	
+	private T result;
+	
+	private Throwable lastFailure;
+	
+	//调用方是否已返回
+	private boolean returned;
+	
+	//调用方返回前发生的失败
+	private Map<String, Throwable> pendingFailures;
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	private final Condition changed = lock.newCondition();
+	
+	public WriteAcks(int required, int total) {
+		this.required = required;
+		this.total = total;
+	}
+	
+	public void onSuccess(T rtn) {
+		lock.lock();
+		try {
+			acks++;
+			result = rtn;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 记录一次失败
+	 * @param server
+	 * @param cause
+	 * @return 调用方已返回时为true 需要由写入线程通知
+	 */
+	public boolean onFailure(String server, Throwable cause) {
+		lock.lock();
+		try {
+			failures++;
+			lastFailure = cause;
+			changed.signalAll();
+			if (returned) {
+				return true;
+			}
+			if (pendingFailures == null) {
+				pendingFailures = new LinkedHashMap<String, Throwable>();
+			}
+			pendingFailures.put(server, cause);
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 等待达到所需确认数 或剩余服务器全部成功也无法达到
+	 * @param timeoutNanos 小于0时一直等待
+	 * @return 是否达到所需确认数
+	 * @throws InterruptedException
+	 */
+	public boolean await(long timeoutNanos) throws InterruptedException {
+		lock.lock();
+		try {
+			long deadline = System.nanoTime() + timeoutNanos;
+			while (acks < required && total - failures >= required) {
+				if (timeoutNanos < 0) {
+					changed.await();
+				} else {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+					changed.awaitNanos(remaining);
+				}
+			}
+			return acks >= required;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 调用方返回 之后的失败由写入线程通知
+	 * @return 返回前发生的失败
+	 */
+	public Map<String, Throwable> finish() {
+		lock.lock();
+		try {
+			returned = true;
+			Map<String, Throwable> rtn = pendingFailures;
+			pendingFailures = null;
+			return rtn;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getAcks() {
+		lock.lock();
+		try {
+			return acks;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public T getResult() {
+		lock.lock();
+		try {
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Throwable getLastFailure() {
+		lock.lock();
+		try {
+			return lastFailure;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,17 @@
+package cn.mybop.redisclient.write;
+
+import java.util.List;
+
+/**
+ * 写入队列中一次写入的结果通知 由写入线程调用
+ */
+public interface WriteCallback {
+	
+	/**
+	 * @param replies 各命令的应答
+	 */
+	public void onSuccess(List<Object> replies);
+	
+	public void onFailure(Throwable cause);
+
+}
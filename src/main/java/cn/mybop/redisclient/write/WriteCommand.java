@@ -0,0 +1,190 @@
+package cn.mybop.redisclient.write;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cn.mybop.redisclient.RedisException;
+import cn.mybop.redisclient.common.Constants;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+/**
+ * 一条写入命令 key和参数都已编码为字节 可以在任意服务器的pipeline上重放
+ */
+public class WriteCommand {
+	
+	private final WriteType type;
+	
+	private final byte[] key;
+	
+	private final byte[][] args;
+	
+	public WriteCommand(WriteType type, byte[] key, byte[]... args) {
+		this.type = type;
+		this.key = key;
+		this.args = args == null ? new byte[0][] : args;
+	}
+
+	public WriteType getType() {
+		return type;
+	}
+
+	public byte[] getKey() {
+		return key;
+	}
+
+	public byte[][] getArgs() {
+		return args;
+	}
+	
+	/**
+	 * 加入pipeline
+	 * @param pipeline
+	 * @return
+	 */
+	public Response<?> apply(Pipeline pipeline) {
+		switch (type) {
+		case SET:
+			return pipeline.set(key, args[0]);
+		case SET_PARAMS:
+			return pipeline.set(key, args[0], args[1], args[2], toInt(args[3]));
+		case SETNX:
+			return pipeline.setnx(key, args[0]);
+		case INCR:
+			return pipeline.incr(key);
+		case DECR:
+			return pipeline.decr(key);
+		case INCRBY:
+			return pipeline.incrBy(key, toLong(args[0]));
+		case DECRBY:
+			return pipeline.decrBy(key, toLong(args[0]));
+		case APPEND:
+			return pipeline.append(key, args[0]);
+		case DEL:
+			return pipeline.del(key);
+		case HSET:
+			return pipeline.hset(key, args[0], args[1]);
+		case HMSET:
+			Map<byte[], byte[]> hashes = new LinkedHashMap<byte[], byte[]>(args.length / 2);
+			for (int i = 0; i + 1 < args.length; i += 2) {
+				hashes.put(args[i], args[i + 1]);
+			}
+			return pipeline.hmset(key, hashes);
+		case HDEL:
+			return pipeline.hdel(key, args);
+		case RENAME:
+			return pipeline.rename(key, args[0]);
+		case ZADD:
+			return pipeline.zadd(key, Double.parseDouble(toString(args[0])), args[1]);
+		case ZREM:
+			return pipeline.zrem(key, args);
+		case SADD:
+			return pipeline.sadd(key, args);
+		case EXPIRE:
+			return pipeline.expire(key, toInt(args[0]));
+		case FLUSHDB:
+			return pipeline.flushDB();
+		case GETSET:
+			return pipeline.getSet(key, args[0]);
+		default:
+			throw new RedisException("不支持的写入命令" + type);
+		}
+	}
+	
+	/**
+	 * 序列化后的字节数
+	 * @return
+	 */
+	public int getSerializedSize() {
+		int size = 1 + 4 + (key == null ? 0 : key.length) + 4;
+		for (int i = 0; i < args.length; i++) {
+			size += 4 + (args[i] == null ? 0 : args[i].length);
+		}
+		return size;
+	}
+	
+	/**
+	 * 序列化 类型(1字节) key长度(4字节 null为-1) key 参数个数(4字节) 各参数长度和内容
+	 * @param buffer
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		buffer.put((byte) type.ordinal());
+		writeBytes(buffer, key);
+		buffer.putInt(args.length);
+		for (int i = 0; i < args.length; i++) {
+			writeBytes(buffer, args[i]);
+		}
+	}
+	
+	public static WriteCommand readFrom(ByteBuffer buffer) {
+		WriteType type = WriteType.values()[buffer.get()];
+		byte[] key = readBytes(buffer);
+		byte[][] args = new byte[buffer.getInt()][];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = readBytes(buffer);
+		}
+		return new WriteCommand(type, key, args);
+	}
+	
+	private static void writeBytes(ByteBuffer buffer, byte[] bytes) {
+		if (bytes == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+	}
+	
+	private static byte[] readBytes(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+	
+	public static byte[] encode(String str) {
+		if (str == null) {
+			return null;
+		}
+		try {
+			return str.getBytes(Constants.DEFAULT_CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new RedisException("字符串[" + str + "]转字节失败", e);
+		}
+	}
+	
+	public static byte[][] encode(String[] strs) {
+		byte[][] rtn = new byte[strs.length][];
+		for (int i = 0; i < strs.length; i++) {
+			rtn[i] = encode(strs[i]);
+		}
+		return rtn;
+	}
+	
+	private static String toString(byte[] bytes) {
+		try {
+			return new String(bytes, Constants.DEFAULT_CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new RedisException("字节转字符串失败", e);
+		}
+	}
+	
+	private static long toLong(byte[] bytes) {
+		return Long.parseLong(toString(bytes));
+	}
+	
+	private static int toInt(byte[] bytes) {
+		return Integer.parseInt(toString(bytes));
+	}
+	
+	@Override
+	public String toString() {
+		return type + " " + (key == null ? "" : toString(key));
+	}
+
+}
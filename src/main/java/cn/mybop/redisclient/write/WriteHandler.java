@@ -0,0 +1,34 @@
+package cn.mybop.redisclient.write;
+
+import java.util.List;
+
+/**
+ * 写入队列对单台服务器的实际写入
+ */
+public interface WriteHandler {
+	
+	/**
+	 * 由写入线程在该服务器的专用连接上通过一次pipeline写入 队列策略为CALLER_RUNS时也由调用线程调用 不会并发调用
+	 * 连接出错时抛出异常 单条命令出错时对应位置的应答为异常对象
+	 * @param server ip:port
+	 * @param commands
+	 * @return 各命令的应答
+	 * @throws Exception
+	 */
+	public List<Object> writeBatch(String server, List<WriteCommand> commands) throws Exception;
+	
+	/**
+	 * 没有WriteCallback的命令写入失败、队列已满被拒绝或被丢弃
+	 * @param server ip:port
+	 * @param commands
+	 * @param cause
+	 */
+	public void onFailure(String server, List<WriteCommand> commands, Throwable cause);
+	
+	/**
+	 * 写入线程退出时关闭专用连接
+	 * @param server ip:port
+	 */
+	public void close(String server);
+
+}
@@ -0,0 +1,16 @@
+package cn.mybop.redisclient.write;
+
+/**
+ * 写入单台服务器失败的监听
+ * 只通知调用方没有因此收到异常的失败 包括返回后才完成的写入
+ */
+public interface WriteListener {
+	
+	/**
+	 * @param server ip:port
+	 * @param command 写入命令
+	 * @param cause
+	 */
+	public void onFailure(String server, String command, Throwable cause);
+
+}
@@ -0,0 +1,47 @@
+package cn.mybop.redisclient.write;
+
+/**
+ * 可以扇出到多台服务器的写入命令
+ */
+public enum WriteType {
+	
+	SET(true, true),
+	SET_PARAMS(false, false),
+	SETNX(false, false),
+	INCR(false, false),
+	DECR(false, false),
+	INCRBY(false, false),
+	DECRBY(false, false),
+	APPEND(false, false),
+	DEL(false, true),
+	HSET(false, false),
+	HMSET(true, false),
+	HDEL(false, false),
+	RENAME(true, false),
+	ZADD(false, false),
+	ZREM(false, false),
+	SADD(false, false),
+	EXPIRE(false, false),
+	FLUSHDB(true, false),
+	GETSET(false, false);
+	
+	//应答是否必须为OK
+	private final boolean statusReply;
+	
+	//执行后key的值与之前的值无关 同一个key上待写入的此类命令只需保留最后一条
+	private final boolean overwrite;
+	
+	private WriteType(boolean statusReply, boolean overwrite) {
+		this.statusReply = statusReply;
+		this.overwrite = overwrite;
+	}
+
+	public boolean isStatusReply() {
+		return statusReply;
+	}
+
+	public boolean isOverwrite() {
+		return overwrite;
+	}
+
+}
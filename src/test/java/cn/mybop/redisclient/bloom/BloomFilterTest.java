@@ -0,0 +1,63 @@
+package cn.mybop.redisclient.bloom;
+
+import junit.framework.TestCase;
+
+public class BloomFilterTest extends TestCase {
+
+	public void testNoFalseNegative() {
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filter.put("key" + i);
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(filter.mightContain("key" + i));
+		}
+	}
+
+	public void testFalsePositiveRate() {
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filter.put("key" + i);
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (filter.mightContain("missing" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue("falsePositives:" + falsePositives, falsePositives < 100000 * 0.02);
+		assertEquals(7, filter.getHashCount());
+	}
+
+	public void testNegativeCache() throws InterruptedException {
+		MissingKeyGuard guard = new MissingKeyGuard("test", null, 100, 0.01, 100, 0, 50, 2);
+		assertFalse(guard.isMissing("a"));
+		guard.recordMiss("a", guard.generation("a"));
+		assertTrue(guard.isMissing("a"));
+		guard.put("a");
+		assertFalse(guard.isMissing("a"));
+		guard.recordMiss("a", guard.generation("a"));
+		guard.recordMiss("b", guard.generation("b"));
+		//已达最大个数
+		guard.recordMiss("c", guard.generation("c"));
+		assertFalse(guard.isMissing("c"));
+		Thread.sleep(60);
+		assertFalse(guard.isMissing("a"));
+		assertFalse(guard.isReady());
+	}
+
+	/**
+	 * 读取期间本客户端写入过的key不加入负缓存
+	 */
+	public void testMissRacingPut() {
+		MissingKeyGuard guard = new MissingKeyGuard("test", null, 100, 0.01, 100, 0, 60000, 100);
+		long generation = guard.generation("a");
+		guard.put("a");
+		guard.put("a");
+		guard.recordMiss("a", generation);
+		assertFalse(guard.isMissing("a"));
+		guard.recordMiss("a", guard.generation("a"));
+		assertTrue(guard.isMissing("a"));
+	}
+
+}
@@ -0,0 +1,87 @@
+package cn.mybop.redisclient.breaker;
+
+import junit.framework.TestCase;
+
+public class CircuitBreakerTest extends TestCase {
+
+	private CircuitBreakerConfig getConfig() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setWindowSize(10);
+		config.setMinimumCalls(10);
+		config.setFailureRateThreshold(50);
+		config.setSlowCallDuration(100);
+		config.setSlowCallRateThreshold(80);
+		config.setOpenDuration(50);
+		config.setHalfOpenCalls(2);
+		return config;
+	}
+
+	public void testOpenOnFailureRate() {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("127.0.0.1:6379", getConfig());
+		for (int i = 0; i < 5; i++) {
+			circuitBreaker.onSuccess(1);
+		}
+		for (int i = 0; i < 4; i++) {
+			circuitBreaker.onError(1);
+		}
+		assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+		circuitBreaker.onError(1);
+		assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+	}
+
+	public void testOpenOnSlowCallRate() {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("127.0.0.1:6379", getConfig());
+		for (int i = 0; i < 2; i++) {
+			circuitBreaker.onSuccess(1);
+		}
+		for (int i = 0; i < 8; i++) {
+			circuitBreaker.onSuccess(200);
+		}
+		assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+	}
+
+	public void testHalfOpen() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("127.0.0.1:6379", getConfig());
+		for (int i = 0; i < 10; i++) {
+			circuitBreaker.onError(1);
+		}
+		assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+		Thread.sleep(60);
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.getState());
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onSuccess(1);
+		circuitBreaker.onSuccess(1);
+		assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+
+		for (int i = 0; i < 10; i++) {
+			circuitBreaker.onError(1);
+		}
+		Thread.sleep(60);
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.onSuccess(1);
+		circuitBreaker.onError(1);
+		assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+	}
+
+	/**
+	 * 没有实际发生的调用归还探测名额 不计入统计
+	 */
+	public void testReleasePermission() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("127.0.0.1:6379", getConfig());
+		for (int i = 0; i < 10; i++) {
+			circuitBreaker.onError(1);
+		}
+		Thread.sleep(60);
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+		circuitBreaker.releasePermission();
+		assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.getState());
+		assertTrue(circuitBreaker.tryAcquirePermission());
+		assertFalse(circuitBreaker.tryAcquirePermission());
+	}
+
+}
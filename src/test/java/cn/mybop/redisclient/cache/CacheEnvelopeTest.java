@@ -0,0 +1,45 @@
+package cn.mybop.redisclient.cache;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class CacheEnvelopeTest extends TestCase {
+
+	public void testEncode() {
+		byte[] value = "value".getBytes();
+		CacheEnvelope envelope = CacheEnvelope.decode(new CacheEnvelope(value, 12345l, 67, false).encode());
+		assertTrue(Arrays.equals(value, envelope.getValue()));
+		assertEquals(12345l, envelope.getExpireTime());
+		assertEquals(67, envelope.getDelta());
+		assertFalse(envelope.isNegative());
+	}
+
+	public void testNegative() {
+		CacheEnvelope envelope = CacheEnvelope.decode(new CacheEnvelope(null, 12345l, 0, true).encode());
+		assertTrue(envelope.isNegative());
+		assertNull(envelope.getValue());
+	}
+
+	public void testNotEnvelope() {
+		assertNull(CacheEnvelope.decode(null));
+		assertNull(CacheEnvelope.decode("plain value".getBytes()));
+	}
+
+	public void testXFetch() {
+		long now = System.currentTimeMillis();
+		assertTrue(XFetch.shouldRefresh(now, 10, now, 1.0));
+		assertFalse(XFetch.shouldRefresh(now, 10, now + 1000, 0.0));
+		//离过期远远大于加载耗时时不刷新
+		assertFalse(XFetch.shouldRefresh(now, 1, now + 1000000, 1.0));
+		//临近过期时大多数调用刷新
+		int refreshed = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (XFetch.shouldRefresh(now, 1000, now + 100, 1.0)) {
+				refreshed++;
+			}
+		}
+		assertTrue("refreshed:" + refreshed, refreshed > 800);
+	}
+
+}
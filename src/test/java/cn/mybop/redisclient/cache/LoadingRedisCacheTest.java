@@ -0,0 +1,196 @@
+package cn.mybop.redisclient.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.mybop.redisclient.serialization.JavaSerializable;
+import cn.mybop.redisclient.shard.MemoryRedisClient;
+import junit.framework.TestCase;
+
+public class LoadingRedisCacheTest extends TestCase {
+
+	private MemoryRedisClient client;
+
+	private LoadingRedisCache<String> cache;
+
+	private final List<Map<String, String>> batches = new ArrayList<Map<String, String>>();
+
+	private volatile boolean failing;
+
+	@Override
+	protected void setUp() throws Exception {
+		client = new MemoryRedisClient("cache");
+		cache = new LoadingRedisCache<String>(client, new JavaSerializable(), 60, 10, 0.0);
+		cache.setWriteBehind(new CacheWriter<String>() {
+
+			@Override
+			public void writeAll(Map<String, String> values) throws Exception {
+				if (failing) {
+					throw new Exception("writer down");
+				}
+				synchronized (batches) {
+					batches.add(new LinkedHashMap<String, String>(values));
+				}
+			}
+
+		}, 2, 60000l, 100);
+		cache.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		cache.stop();
+	}
+
+	/**
+	 * 加载期间的put不被加载结果覆盖
+	 */
+	public void testLoadDoesNotOverwritePut() {
+		String value = cache.getOrLoad("k", new CacheLoader<String>() {
+
+			@Override
+			public String load(String key) throws Exception {
+				cache.put(key, "put");
+				return "loaded";
+			}
+
+		});
+		assertEquals("loaded", value);
+		assertEquals("put", cache.getOrLoad("k", new CacheLoader<String>() {
+
+			@Override
+			public String load(String key) throws Exception {
+				fail();
+				return null;
+			}
+
+		}));
+	}
+
+	/**
+	 * 按batchSize分批 达到batchSize时在后台持久化 最后持久化的是最新的值
+	 */
+	public void testBatching() {
+		cache.put("a", "1");
+		cache.put("b", "1");
+		cache.put("c", "1");
+		cache.put("a", "2");
+		cache.put("d", "1");
+		cache.flush();
+		assertEquals(0, cache.getPendingCount());
+		Map<String, String> persisted = new LinkedHashMap<String, String>();
+		synchronized (batches) {
+			for (int i = 0; i < batches.size(); i++) {
+				assertTrue(batches.get(i).size() <= 2);
+				persisted.putAll(batches.get(i));
+			}
+		}
+		assertEquals(4, persisted.size());
+		assertEquals("2", persisted.get("a"));
+	}
+
+	/**
+	 * stop时持久化剩余的值
+	 */
+	public void testFlushOnStop() {
+		cache.put("a", "1");
+		cache.stop();
+		assertEquals(0, cache.getPendingCount());
+		assertEquals(1, batches.size());
+		assertEquals("1", batches.get(0).get("a"));
+	}
+
+	/**
+	 * 持久化失败时保留 失败期间的新值覆盖重试的值
+	 */
+	public void testWriterFailure() {
+		cache.put("a", "1");
+		failing = true;
+		cache.flush();
+		assertEquals(1, cache.getPendingCount());
+		assertEquals(0, batches.size());
+
+		cache.put("a", "2");
+		failing = false;
+		cache.flush();
+		assertEquals(0, cache.getPendingCount());
+		assertEquals(1, batches.size());
+		assertEquals("2", batches.get(0).get("a"));
+	}
+
+	/**
+	 * 未命中时返回null 由调用方set 记录计算耗时
+	 */
+	public void testGetSet() throws Exception {
+		assertNull(cache.get("k"));
+		assertEquals(1, cache.getRefreshingCount());
+		Thread.sleep(20);
+		cache.set("k", "v", 60);
+		assertEquals(0, cache.getRefreshingCount());
+		assertEquals("v", cache.get("k"));
+		assertTrue(CacheEnvelope.decode(client.getBytes("k")).getDelta() >= 20);
+	}
+
+	/**
+	 * 超时未set的刷新视为不存在 不按其计算耗时
+	 */
+	public void testStaleRefresh() throws Exception {
+		cache.setRefreshTimeout(50);
+		assertNull(cache.get("k"));
+		Thread.sleep(100);
+		//重新记录开始时间
+		assertNull(cache.get("k"));
+		cache.set("k", "v", 60);
+		assertTrue(CacheEnvelope.decode(client.getBytes("k")).getDelta() < 50);
+
+		assertNull(cache.get("s"));
+		Thread.sleep(100);
+		cache.set("s", "v", 60);
+		assertEquals(0, CacheEnvelope.decode(client.getBytes("s")).getDelta());
+	}
+
+	/**
+	 * 需要提前刷新时只有一个调用方得到null 超时后允许其他调用方刷新
+	 */
+	public void testClaimRefresh() throws Exception {
+		LoadingRedisCache<String> eager = new LoadingRedisCache<String>(client, new JavaSerializable(), 60, 10, 1e9);
+		eager.start();
+		try {
+			assertNull(eager.get("k"));
+			Thread.sleep(10);
+			eager.set("k", "v", 60);
+
+			assertNull(eager.get("k"));
+			assertEquals("v", eager.get("k"));
+			assertEquals("v", eager.get("k"));
+			assertEquals(1, eager.getRefreshCount());
+
+			eager.setRefreshTimeout(50);
+			Thread.sleep(100);
+			assertNull(eager.get("k"));
+			assertEquals("v", eager.get("k"));
+			assertEquals(2, eager.getRefreshCount());
+		} finally {
+			eager.stop();
+		}
+	}
+
+	/**
+	 * 修改过期时间时保留值和加载耗时 不存在时返回false
+	 */
+	public void testExpire() throws Exception {
+		assertNull(cache.get("k"));
+		Thread.sleep(20);
+		cache.set("k", "v", 1);
+		int delta = CacheEnvelope.decode(client.getBytes("k")).getDelta();
+		assertTrue(cache.expire("k", 120));
+		CacheEnvelope envelope = CacheEnvelope.decode(client.getBytes("k"));
+		assertEquals(delta, envelope.getDelta());
+		assertTrue(envelope.getExpireTime() > System.currentTimeMillis() + 60000l);
+		assertEquals("v", cache.get("k"));
+		assertFalse(cache.expire("missing", 120));
+	}
+
+}
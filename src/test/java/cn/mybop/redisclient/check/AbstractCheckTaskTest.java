@@ -0,0 +1,93 @@
+package cn.mybop.redisclient.check;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.impl.AdvancedRedisManager;
+import junit.framework.TestCase;
+import redis.clients.jedis.JedisPoolConfig;
+
+public class AbstractCheckTaskTest extends TestCase {
+
+	private static final List<String> SERVERS = Arrays.asList("127.0.0.1:7001", "127.0.0.1:7002", "127.0.0.1:7003");
+
+	private final Map<String, Thread> probeThreads = new ConcurrentHashMap<String, Thread>();
+
+	private final Set<String> slowServers = ConcurrentHashMap.<String> newKeySet();
+
+	private AbstractCheckTask task;
+
+	@Override
+	protected void setUp() throws Exception {
+		AdvancedRedisManager manager = new AdvancedRedisManager("127.0.0.1:7001,127.0.0.1:7002,127.0.0.1:7003", new JedisPoolConfig(), 1000, null, 0, null);
+		Properties props = new Properties();
+		props.setProperty(Constants.CHECK_PROBE_TIMEOUT, "200");
+		task = new AbstractCheckTask(manager, null, props) {
+
+			@Override
+			public void exec() {
+			}
+
+			@Override
+			protected ProbeResult probe(String server) {
+				probeThreads.put(server, Thread.currentThread());
+				try {
+					Thread.sleep(slowServers.contains(server) ? 1000 : 100);
+				} catch (InterruptedException e) {
+					return new ProbeResult(server, false, null);
+				}
+				return new ProbeResult(server, true, null);
+			}
+
+		};
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		task.shutdown();
+	}
+
+	/**
+	 * 所有服务器并发探测 耗时不随服务器个数增加
+	 */
+	public void testParallelProbe() {
+		long start = System.currentTimeMillis();
+		Map<String, ProbeResult> results = task.probe(SERVERS);
+		assertTrue(System.currentTimeMillis() - start < 250);
+		assertEquals(SERVERS, new ArrayList<String>(results.keySet()));
+		for (ProbeResult result : results.values()) {
+			assertTrue(result.isPassed());
+			assertNotSame(Thread.currentThread(), probeThreads.get(result.getServer()));
+		}
+	}
+
+	/**
+	 * 超过探测超时时间未返回的视为不通过 不影响其他服务器
+	 */
+	public void testProbeTimeout() {
+		slowServers.add(SERVERS.get(1));
+		long start = System.currentTimeMillis();
+		Map<String, ProbeResult> results = task.probe(SERVERS);
+		assertTrue(System.currentTimeMillis() - start < 500);
+		assertTrue(results.get(SERVERS.get(0)).isPassed());
+		assertFalse(results.get(SERVERS.get(1)).isPassed());
+		assertTrue(results.get(SERVERS.get(2)).isPassed());
+	}
+
+	/**
+	 * 关闭线程池后在当前线程探测
+	 */
+	public void testShutdown() {
+		task.shutdown();
+		Map<String, ProbeResult> results = task.probe(SERVERS.subList(0, 1));
+		assertTrue(results.get(SERVERS.get(0)).isPassed());
+		assertSame(Thread.currentThread(), probeThreads.get(SERVERS.get(0)));
+	}
+
+}
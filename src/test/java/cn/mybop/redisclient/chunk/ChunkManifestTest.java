@@ -0,0 +1,54 @@
+package cn.mybop.redisclient.chunk;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class ChunkManifestTest extends TestCase {
+
+	private byte[] value(int length) {
+		byte[] value = new byte[length];
+		for (int i = 0; i < length; i++) {
+			value[i] = (byte) (i * 31);
+		}
+		return value;
+	}
+
+	public void testEncode() {
+		ChunkManifest manifest = ChunkManifest.create(value(1000), 0x1234l, 300);
+		assertEquals(4, manifest.getChunkCount());
+		ChunkManifest decoded = ChunkManifest.decode(manifest.encode());
+		assertEquals(0x1234l, decoded.getVersion());
+		assertEquals(1000, decoded.getTotalLength());
+		assertEquals(4, decoded.getChunkCount());
+		assertEquals("k:chunk:1234:3", decoded.getChunkKeys("k")[3]);
+
+		assertNull(ChunkManifest.decode(null));
+		assertNull(ChunkManifest.decode(value(ChunkManifest.SIZE)));
+		assertNull(ChunkManifest.decode(value(10)));
+	}
+
+	public void testAssemble() {
+		byte[] value = value(1000);
+		ChunkManifest manifest = ChunkManifest.create(value, 1l, 300);
+		String[] keys = manifest.getChunkKeys("k");
+		Map<String, byte[]> chunks = new HashMap<String, byte[]>();
+		for (int i = 0; i < keys.length; i++) {
+			chunks.put(keys[i], manifest.getChunk(value, i));
+		}
+		assertEquals(100, chunks.get(keys[3]).length);
+		assertTrue(Arrays.equals(value, manifest.assemble(keys, chunks)));
+
+		//分块被其他版本覆盖
+		byte[] other = value(300);
+		other[0]++;
+		chunks.put(keys[0], other);
+		assertNull(manifest.assemble(keys, chunks));
+		//分块缺失
+		chunks.remove(keys[0]);
+		assertNull(manifest.assemble(keys, chunks));
+	}
+
+}
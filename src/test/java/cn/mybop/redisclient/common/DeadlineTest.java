@@ -0,0 +1,93 @@
+package cn.mybop.redisclient.common;
+
+import java.util.Properties;
+
+import cn.mybop.redisclient.DeadlineExceededException;
+import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.check.ICheckTask;
+import cn.mybop.redisclient.impl.AdvancedRedisManager;
+import cn.mybop.redisclient.impl.ReadOnlyRedisClient;
+import junit.framework.TestCase;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class DeadlineTest extends TestCase {
+
+	private ReadOnlyRedisClient client;
+
+	@Override
+	protected void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty(Constants.CLIENT_NAME, "deadline");
+		props.setProperty(Constants.SERVER_LIST, "127.0.0.1:7001");
+		props.setProperty(Constants.SERVER_RETRY_COUNT, "3");
+		props.setProperty(Constants.SERVER_RETRY_SLEEPTIME, "200");
+		client = new ReadOnlyRedisClient(props) {
+
+			@Override
+			public RedisManager initManager() {
+				return new AdvancedRedisManager("127.0.0.1:7001", new JedisPoolConfig(), 1000, null, 0, null) {
+
+					@Override
+					public Jedis getJedisExclude(String excludeServer, long maxWait) {
+						return new Jedis("127.0.0.1", 7001) {
+
+							@Override
+							public byte[] get(byte[] key) {
+								throw new JedisConnectionException("connection reset");
+							}
+
+						};
+					}
+
+					@Override
+					public boolean removeJedisPool(String server) {
+						return false;
+					}
+
+				};
+			}
+
+			@Override
+			public ICheckTask initCheckTask() {
+				return new ICheckTask() {
+
+					@Override
+					public void run() {
+					}
+
+					@Override
+					public void exec() {
+					}
+
+				};
+			}
+
+		};
+		client.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.stop();
+	}
+
+	/**
+	 * 剩余时间不足以等待重试间隔时直接失败 不等待
+	 */
+	public void testRetrySleepBoundedByDeadline() {
+		long start = System.currentTimeMillis();
+		Deadline deadline = Deadline.start(50);
+		try {
+			client.getBytes("k");
+			fail();
+		} catch (DeadlineExceededException e) {
+			//expected
+		} finally {
+			deadline.close();
+		}
+		assertTrue(System.currentTimeMillis() - start < 200);
+	}
+
+}
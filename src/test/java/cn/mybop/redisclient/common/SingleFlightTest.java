@@ -0,0 +1,120 @@
+package cn.mybop.redisclient.common;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cn.mybop.redisclient.DeadlineExceededException;
+import cn.mybop.redisclient.RedisException;
+import junit.framework.TestCase;
+
+public class SingleFlightTest extends TestCase {
+
+	public void testShared() throws InterruptedException {
+		final SingleFlight<Object> flight = new SingleFlight<Object>();
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Object[] results = new Object[8];
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					results[index] = flight.execute("a", new Callable<Object>() {
+
+						@Override
+						public Object call() throws Exception {
+							loads.incrementAndGet();
+							started.countDown();
+							release.await();
+							return new Object();
+						}
+
+					});
+				}
+
+			});
+			threads[i].start();
+			if (i == 0) {
+				started.await();
+			}
+		}
+		while (flight.getSharedCount() < threads.length - 1) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		assertEquals(1, loads.get());
+		for (int i = 1; i < results.length; i++) {
+			assertSame(results[0], results[i]);
+		}
+		//完成后不缓存
+		assertEquals("b", flight.execute("a", new Callable<Object>() {
+
+			@Override
+			public Object call() throws Exception {
+				return "b";
+			}
+
+		}));
+	}
+
+	public void testError() {
+		SingleFlight<Object> flight = new SingleFlight<Object>();
+		try {
+			flight.execute("a", new Callable<Object>() {
+
+				@Override
+				public Object call() throws Exception {
+					throw new Exception("x");
+				}
+
+			});
+			fail();
+		} catch (RedisException e) {
+			assertEquals("x", e.getCause().getMessage());
+		}
+	}
+
+	public void testDeadline() throws InterruptedException {
+		final SingleFlight<Object> flight = new SingleFlight<Object>();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Thread loader = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				flight.execute("a", new Callable<Object>() {
+
+					@Override
+					public Object call() throws Exception {
+						started.countDown();
+						release.await();
+						return null;
+					}
+
+				});
+			}
+
+		});
+		loader.start();
+		started.await();
+		Deadline deadline = Deadline.start(20);
+		try {
+			flight.execute("a", null);
+			fail();
+		} catch (DeadlineExceededException e) {
+			//expected
+		} finally {
+			deadline.close();
+			release.countDown();
+		}
+		loader.join();
+	}
+
+}
@@ -0,0 +1,39 @@
+package cn.mybop.redisclient.common;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import junit.framework.TestCase;
+
+public class VirtualThreadsTest extends TestCase {
+
+	/**
+	 * 不支持虚拟线程时使用线程池
+	 */
+	public void testInitExecutor() throws Exception {
+		Properties props = new Properties();
+		props.setProperty(Constants.VIRTUAL_THREAD, "true");
+		ExecutorService executor = Utils.initExecutor("0;2;0;60", "test", props);
+		try {
+			String name = executor.submit(new Callable<String>() {
+				
+				@Override
+				public String call() throws Exception {
+					return Thread.currentThread().getName();
+				}
+				
+			}).get();
+			assertTrue(name, name.startsWith("test"));
+		} finally {
+			executor.shutdown();
+		}
+		executor = Utils.initExecutor(null, "test", props);
+		assertEquals(VirtualThreads.isSupported(), executor != null);
+		if (executor != null) {
+			executor.shutdown();
+		}
+		assertNull(Utils.initExecutor(null, "test", new Properties()));
+	}
+
+}
@@ -0,0 +1,79 @@
+package cn.mybop.redisclient.health;
+
+import cn.mybop.redisclient.impl.AdvancedRedisManager;
+import junit.framework.TestCase;
+import redis.clients.jedis.JedisPoolConfig;
+
+public class HealthScoreTest extends TestCase {
+
+	private HealthConfig getConfig() {
+		HealthConfig config = new HealthConfig();
+		config.setDecay(20);
+		config.setSlowCallDuration(100);
+		config.setMinimumCalls(5);
+		config.setEjectScore(30);
+		config.setHealthyScore(90);
+		config.setProbeMaxInterval(60000);
+		return config;
+	}
+
+	public void testScore() {
+		HealthScore healthScore = new HealthScore("127.0.0.1:6379", getConfig());
+		for (int i = 0; i < 10; i++) {
+			healthScore.onSuccess(1);
+		}
+		assertEquals(100, healthScore.getScore());
+		assertFalse(healthScore.isEjectable());
+		for (int i = 0; i < 10; i++) {
+			healthScore.onError(1);
+		}
+		assertTrue(healthScore.getScore() < 30);
+		assertTrue(healthScore.isEjectable());
+		healthScore.reset();
+		assertEquals(100, healthScore.getScore());
+		assertFalse(healthScore.isEjectable());
+	}
+
+	public void testSlowCall() {
+		HealthScore healthScore = new HealthScore("127.0.0.1:6379", getConfig());
+		for (int i = 0; i < 50; i++) {
+			healthScore.onSuccess(400);
+		}
+		int score = healthScore.getScore();
+		assertTrue(score > 20 && score < 30);
+	}
+
+	public void testNeedProbe() {
+		HealthScore healthScore = new HealthScore("127.0.0.1:6379", getConfig());
+		assertTrue(healthScore.needProbe());
+		//上次探测后没有实际调用成功
+		assertTrue(healthScore.needProbe());
+		healthScore.onSuccess(1);
+		assertFalse(healthScore.needProbe());
+		healthScore.onError(1);
+		assertTrue(healthScore.needProbe());
+	}
+
+	/**
+	 * 未开启熔断和健康分时不记录调用结果
+	 */
+	public void testRecording() {
+		AdvancedRedisManager manager = new AdvancedRedisManager("127.0.0.1:6379", new JedisPoolConfig(), 1000, null, 0, null);
+		manager.start();
+		try {
+			assertFalse(manager.isRecording());
+		} finally {
+			manager.stop();
+		}
+
+		manager = new AdvancedRedisManager("127.0.0.1:6379", new JedisPoolConfig(), 1000, null, 0, null);
+		manager.setHealthConfig(getConfig());
+		manager.start();
+		try {
+			assertTrue(manager.isRecording());
+		} finally {
+			manager.stop();
+		}
+	}
+
+}
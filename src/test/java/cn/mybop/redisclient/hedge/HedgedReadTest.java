@@ -0,0 +1,138 @@
+package cn.mybop.redisclient.hedge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.check.ICheckTask;
+import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.impl.AdvancedRedisManager;
+import cn.mybop.redisclient.impl.ReadOnlyRedisClient;
+import junit.framework.TestCase;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolConfig;
+
+public class HedgedReadTest extends TestCase {
+
+	private final List<String> readThreads = new ArrayList<String>();
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private volatile byte[] value;
+
+	private ReadOnlyRedisClient client;
+
+	@Override
+	protected void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty(Constants.CLIENT_NAME, "hedge");
+		props.setProperty(Constants.SERVER_LIST, "127.0.0.1:7001,127.0.0.1:7002");
+		props.setProperty(Constants.SINGLE_FLIGHT, "true");
+		props.setProperty(Constants.HEDGE_ENABLED, "true");
+		props.setProperty(Constants.HEDGE_DELAY, "10000");
+		client = new ReadOnlyRedisClient(props) {
+
+			@Override
+			public RedisManager initManager() {
+				return new AdvancedRedisManager("127.0.0.1:7001,127.0.0.1:7002", new JedisPoolConfig(), 1000, null, 0, null) {
+
+					@Override
+					public Jedis getJedisExclude(String excludeServer, long maxWait) {
+						return newJedis();
+					}
+
+				};
+			}
+
+			@Override
+			public ICheckTask initCheckTask() {
+				return new ICheckTask() {
+
+					@Override
+					public void run() {
+					}
+
+					@Override
+					public void exec() {
+					}
+
+				};
+			}
+
+		};
+		client.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		release.countDown();
+		client.stop();
+	}
+
+	/**
+	 * 记录读取线程 等待放行后返回value
+	 * @return
+	 */
+	private Jedis newJedis() {
+		return new Jedis("127.0.0.1", 7001) {
+
+			@Override
+			public byte[] get(byte[] key) {
+				synchronized (readThreads) {
+					readThreads.add(Thread.currentThread().getName());
+				}
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return value;
+			}
+
+		};
+	}
+
+	/**
+	 * 同时开启对冲读和single flight时 getObject在对冲线程中读取 并发读取只读一次
+	 */
+	public void testGetObject() throws Exception {
+		value = client.getSerializable().object2bytes("v");
+		final AtomicReference<Object> first = new AtomicReference<Object>();
+		Thread reader = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				first.set(client.getObject("k"));
+			}
+
+		});
+		reader.start();
+		for (int i = 0; i < 100 && readThreads.isEmpty(); i++) {
+			Thread.sleep(10);
+		}
+		final AtomicReference<Object> second = new AtomicReference<Object>();
+		Thread joiner = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				second.set(client.getObject("k"));
+			}
+
+		});
+		joiner.start();
+		Thread.sleep(50);
+		release.countDown();
+		reader.join(5000);
+		joiner.join(5000);
+
+		assertEquals("v", first.get());
+		assertEquals("v", second.get());
+		assertEquals(1, readThreads.size());
+		assertTrue(readThreads.get(0).startsWith("redis-hedge-thread"));
+	}
+
+}
@@ -0,0 +1,80 @@
+package cn.mybop.redisclient.hotkey;
+
+import java.util.Map;
+
+import cn.mybop.redisclient.shard.MurmurHash64;
+import junit.framework.TestCase;
+
+public class HotKeyDetectorTest extends TestCase {
+
+	public void testCountMinSketch() {
+		CountMinSketch sketch = new CountMinSketch(4, 1000);
+		for (int i = 0; i < 10000; i++) {
+			sketch.add(MurmurHash64.hash("key" + i));
+		}
+		long hot = MurmurHash64.hash("hot");
+		for (int i = 0; i < 500; i++) {
+			sketch.add(hot);
+		}
+		//只会高估
+		assertTrue(sketch.estimate(hot) >= 500);
+		assertTrue(sketch.estimate(hot) < 600);
+		sketch.reset();
+		assertEquals(0, sketch.estimate(hot));
+	}
+
+	public void testDetect() throws InterruptedException {
+		HotKeyDetector detector = new HotKeyDetector("test", 100, 50, 2);
+		for (int i = 0; i < 1000; i++) {
+			detector.record("key" + i);
+		}
+		boolean hot = false;
+		for (int i = 0; i < 100; i++) {
+			hot = detector.record("a");
+			detector.record("b");
+			detector.record("c");
+		}
+		assertTrue(hot);
+		assertTrue(detector.isHot("a"));
+		assertFalse(detector.isHot("key1"));
+		Thread.sleep(150);
+		Map<String, Long> hotKeys = detector.getHotKeys();
+		//至多top个
+		assertEquals(2, hotKeys.size());
+		assertTrue(hotKeys.containsKey("a"));
+		assertTrue(detector.record("a"));
+	}
+
+	public void testCache() throws InterruptedException {
+		HotKeyCache cache = new HotKeyCache(50, 1);
+		cache.put("a", HotKeyCache.TYPE_STRING, "1", cache.generation("a"));
+		assertEquals("1", cache.get("a", HotKeyCache.TYPE_STRING));
+		assertNull(cache.get("a", HotKeyCache.TYPE_OBJECT));
+		cache.put("b", HotKeyCache.TYPE_STRING, "2", cache.generation("b"));
+		assertNull(cache.get("b", HotKeyCache.TYPE_STRING));
+		cache.invalidate("a");
+		assertNull(cache.get("a", HotKeyCache.TYPE_STRING));
+		cache.put("b", HotKeyCache.TYPE_STRING, "2", cache.generation("b"));
+		Thread.sleep(80);
+		assertNull(cache.get("b", HotKeyCache.TYPE_STRING));
+	}
+
+	/**
+	 * 读取期间失效过的key不缓存读到的值
+	 */
+	public void testCacheRacingInvalidate() {
+		HotKeyCache cache = new HotKeyCache(60000, 100);
+		long generation = cache.generation("a");
+		cache.invalidate("a");
+		cache.put("a", HotKeyCache.TYPE_STRING, "old", generation);
+		assertNull(cache.get("a", HotKeyCache.TYPE_STRING));
+		cache.put("a", HotKeyCache.TYPE_STRING, "new", cache.generation("a"));
+		assertEquals("new", cache.get("a", HotKeyCache.TYPE_STRING));
+
+		generation = cache.generation("b");
+		cache.clear();
+		cache.put("b", HotKeyCache.TYPE_STRING, "old", generation);
+		assertEquals(0, cache.size());
+	}
+
+}
@@ -0,0 +1,158 @@
+package cn.mybop.redisclient.repair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Transaction;
+
+public class AntiEntropyRepairTest extends TestCase {
+
+	public void testDigest() {
+		byte[] key = "a".getBytes();
+		assertEquals(0l, AntiEntropyRepair.digest(key, null));
+		assertTrue(AntiEntropyRepair.digest(key, "1".getBytes()) != AntiEntropyRepair.digest(key, "2".getBytes()));
+		assertTrue(AntiEntropyRepair.digest(key, "1".getBytes()) != AntiEntropyRepair.digest("b".getBytes(), "1".getBytes()));
+	}
+
+	public void testMajority() {
+		assertEquals(Long.valueOf(5l), AntiEntropyRepair.majority(new long[] {5l, 5l, 7l}));
+		assertEquals(Long.valueOf(0l), AntiEntropyRepair.majority(new long[] {0l, 3l, 0l}));
+		assertNull(AntiEntropyRepair.majority(new long[] {1l, 2l, 3l}));
+		assertNull(AntiEntropyRepair.majority(new long[] {1l, 1l, 2l, 2l}));
+		assertTrue(AntiEntropyRepair.isConsistent(new long[] {4l, 4l, 4l}));
+		assertFalse(AntiEntropyRepair.isConsistent(new long[] {4l, 4l, 0l}));
+	}
+
+	/**
+	 * 与重新确认时的值相同时覆盖 不存在的多数版本删除
+	 */
+	public void testRestore() {
+		MemoryJedis jedis = new MemoryJedis();
+		jedis.values.put("a", "old".getBytes());
+		assertTrue(AntiEntropyRepair.restore(jedis, "a".getBytes(), "old".getBytes(), "new".getBytes(), 1000l));
+		assertEquals("new", new String(jedis.values.get("a")));
+		assertEquals(Long.valueOf(1000l), jedis.ttls.get("a"));
+
+		assertTrue(AntiEntropyRepair.restore(jedis, "a".getBytes(), "new".getBytes(), null, -1l));
+		assertFalse(jedis.values.containsKey("a"));
+
+		assertTrue(AntiEntropyRepair.restore(jedis, "b".getBytes(), null, "new".getBytes(), -1l));
+		assertEquals("new", new String(jedis.values.get("b")));
+		assertEquals(Long.valueOf(0l), jedis.ttls.get("b"));
+	}
+
+	/**
+	 * 重新确认后被写入的key不覆盖
+	 */
+	public void testRestoreAfterWrite() {
+		MemoryJedis jedis = new MemoryJedis();
+		jedis.values.put("a", "written".getBytes());
+		assertFalse(AntiEntropyRepair.restore(jedis, "a".getBytes(), "old".getBytes(), "new".getBytes(), -1l));
+		assertEquals("written", new String(jedis.values.get("a")));
+		assertFalse(jedis.watching);
+
+		jedis.values.remove("a");
+		jedis.values.put("b", "written".getBytes());
+		assertFalse(AntiEntropyRepair.restore(jedis, "b".getBytes(), null, null, -1l));
+		assertEquals("written", new String(jedis.values.get("b")));
+	}
+
+	/**
+	 * WATCH之后的写入使事务放弃
+	 */
+	public void testRestoreRacingWrite() {
+		MemoryJedis jedis = new MemoryJedis();
+		jedis.values.put("a", "old".getBytes());
+		jedis.writeAfterDump = "written".getBytes();
+		assertFalse(AntiEntropyRepair.restore(jedis, "a".getBytes(), "old".getBytes(), "new".getBytes(), -1l));
+		assertEquals("written", new String(jedis.values.get("a")));
+	}
+
+	/**
+	 * 只模拟restore用到的命令 WATCH的key被修改时EXEC返回null
+	 */
+	private static class MemoryJedis extends Jedis {
+
+		private final Map<String, byte[]> values = new HashMap<String, byte[]>();
+
+		private final Map<String, Long> ttls = new HashMap<String, Long>();
+
+		private boolean watching;
+
+		private boolean dirty;
+
+		private byte[] writeAfterDump;
+
+		@Override
+		public String watch(byte[]... keys) {
+			watching = true;
+			dirty = false;
+			return "OK";
+		}
+
+		@Override
+		public String unwatch() {
+			watching = false;
+			return "OK";
+		}
+
+		@Override
+		public byte[] dump(byte[] key) {
+			byte[] value = values.get(new String(key));
+			if (writeAfterDump != null) {
+				values.put(new String(key), writeAfterDump);
+				dirty = true;
+			}
+			return value;
+		}
+
+		@Override
+		public Transaction multi() {
+			final List<Object[]> commands = new ArrayList<Object[]>();
+			return new Transaction() {
+
+				@Override
+				public Response<Long> del(byte[] key) {
+					commands.add(new Object[] {new String(key), null, null});
+					return null;
+				}
+
+				@Override
+				public Response<String> restore(byte[] key, int ttl, byte[] serializedValue) {
+					commands.add(new Object[] {new String(key), serializedValue, Long.valueOf(ttl)});
+					return null;
+				}
+
+				@Override
+				public List<Object> exec() {
+					boolean aborted = dirty;
+					watching = false;
+					if (aborted) {
+						return null;
+					}
+					List<Object> replies = new ArrayList<Object>();
+					for (int i = 0; i < commands.size(); i++) {
+						Object[] command = commands.get(i);
+						if (command[1] == null) {
+							values.remove(command[0]);
+							ttls.remove(command[0]);
+						} else {
+							values.put((String) command[0], (byte[]) command[1]);
+							ttls.put((String) command[0], (Long) command[2]);
+						}
+						replies.add("OK");
+					}
+					return replies;
+				}
+
+			};
+		}
+
+	}
+
+}
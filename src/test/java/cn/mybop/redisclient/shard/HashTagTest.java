@@ -0,0 +1,25 @@
+package cn.mybop.redisclient.shard;
+
+import junit.framework.TestCase;
+
+public class HashTagTest extends TestCase {
+
+	public void testHash() throws Exception {
+		assertEquals(MurmurHash64.hash("123"), HashTag.hash("user:{123}:profile"));
+		assertEquals(HashTag.hash("user:{123}:profile"), HashTag.hash("user:{123}:prefs"));
+		assertEquals(MurmurHash64.hash("用户"), HashTag.hash("{用户}:1"));
+		//空tag和没有闭合的'{'按整个key计算
+		assertEquals(MurmurHash64.hash("user:{}:profile"), HashTag.hash("user:{}:profile"));
+		assertEquals(MurmurHash64.hash("user:{123"), HashTag.hash("user:{123"));
+		//只取第一个'{'
+		assertEquals(MurmurHash64.hash("a{b"), HashTag.hash("{a{b}c}"));
+	}
+
+	public void testBytes() throws Exception {
+		String[] keys = {"user:{123}:profile", "{用户}:1", "user:{}:profile", "user:{123", "{a{b}c}", "plain"};
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(keys[i], HashTag.hash(keys[i]), HashTag.hash(keys[i].getBytes("UTF-8")));
+		}
+	}
+
+}
@@ -0,0 +1,28 @@
+package cn.mybop.redisclient.shard;
+
+import cn.mybop.redisclient.IRedisClient;
+
+/**
+ * 在MemoryRedisClient之间迁移 只支持字符串
+ */
+public class MemoryKeyMigrator extends KeyMigrator {
+
+	@Override
+	protected Dump dump(IRedisClient client, String key) {
+		byte[] value = client.getBytes(key);
+		return value == null ? null : new Dump(value, -1l);
+	}
+
+	@Override
+	protected void restore(IRedisClient client, String key, Dump dump, boolean replace) {
+		if (replace || !client.exists(key)) {
+			client.setBytes(key, dump.getValue());
+		}
+	}
+
+	@Override
+	public void delete(IRedisClient client, String key) {
+		client.del(key);
+	}
+
+}
@@ -0,0 +1,394 @@
+package cn.mybop.redisclient.shard;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.RedisException;
+import cn.mybop.redisclient.RedisManager;
+import cn.mybop.redisclient.ServerUnavailableException;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Tuple;
+
+/**
+ * 测试用的内存分片 只支持字符串和hash 不支持的命令抛出UnsupportedOperationException
+ * down为true时所有命令抛出ServerUnavailableException
+ */
+public class MemoryRedisClient implements IRedisClient {
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	//byte[]或Map<String, String>
+	final ConcurrentHashMap<String, Object> data = new ConcurrentHashMap<String, Object>();
+	
+	private final String name;
+	
+	volatile boolean down;
+	
+	public MemoryRedisClient(String name) {
+		this.name = name;
+	}
+	
+	private void check() {
+		if (down) {
+			throw new ServerUnavailableException("redis[" + name + "]不可用");
+		}
+	}
+	
+	private byte[] string(String key) {
+		check();
+		Object value = data.get(key);
+		if (value != null && !(value instanceof byte[])) {
+			throw new RedisException("WRONGTYPE Operation against a key holding the wrong kind of value");
+		}
+		return (byte[]) value;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Map<String, String> hash(String key, boolean create) {
+		check();
+		Object value = data.get(key);
+		if (value == null && create) {
+			value = new ConcurrentHashMap<String, String>();
+			data.put(key, value);
+		}
+		if (value != null && !(value instanceof Map)) {
+			throw new RedisException("WRONGTYPE Operation against a key holding the wrong kind of value");
+		}
+		return (Map<String, String>) value;
+	}
+
+	@Override
+	public void start() {
+	}
+
+	@Override
+	public void stop() {
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String getNamespace() {
+		return null;
+	}
+
+	@Override
+	public RedisManager initManager() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public RedisManager getManager() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String setBytes(String key, byte[] value) {
+		check();
+		data.put(key, value);
+		return "OK";
+	}
+
+	@Override
+	public byte[] getBytes(String key) {
+		return string(key);
+	}
+
+	@Override
+	public Map<String, byte[]> getBytes(String[] keys) {
+		Map<String, byte[]> rtn = new HashMap<String, byte[]>();
+		for (int i = 0; i < keys.length; i++) {
+			check();
+			Object value = data.get(keys[i]);
+			if (value instanceof byte[]) {
+				rtn.put(keys[i], (byte[]) value);
+			}
+		}
+		return rtn;
+	}
+
+	@Override
+	public String setObject(String key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object getObject(String key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Map<String, Object> getObject(String[] keys) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String set(String key, String value) {
+		return setBytes(key, value.getBytes(UTF8));
+	}
+
+	@Override
+	public String set(String key, String value, String nxxx, String expx, int time) {
+		return set(key, value);
+	}
+
+	@Override
+	public String get(String key) {
+		byte[] value = string(key);
+		return value == null ? null : new String(value, UTF8);
+	}
+
+	@Override
+	public Long incr(String key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Long decr(String key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Long incrBy(String key, long integer) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Long decrBy(String key, long integer) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Map<String, String> get(String[] keys) {
+		Map<String, String> rtn = new HashMap<String, String>();
+		for (Entry<String, byte[]> entry : getBytes(keys).entrySet()) {
+			rtn.put(entry.getKey(), new String(entry.getValue(), UTF8));
+		}
+		return rtn;
+	}
+
+	@Override
+	public Long del(String key) {
+		check();
+		return data.remove(key) == null ? 0l : 1l;
+	}
+
+	@Override
+	public Long setnxBytes(String key, byte[] value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Long setnx(String key, String value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Long setnxObject(String key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Long append(String key, String value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String flushDB() {
+		check();
+		data.clear();
+		return "OK";
+	}
+
+	@Override
+	public Long dbSize() {
+		check();
+		return Long.valueOf(data.size());
+	}
+
+	@Override
+	public String info(String section) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String info() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String hget(String key, String hashKey) {
+		Map<String, String> hash = hash(key, false);
+		return hash == null ? null : hash.get(hashKey);
+	}
+
+	@Override
+	public byte[] hgetBytes(String key, String hashKey) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object hgetObject(String key, String hashKey) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Boolean hExists(String key, String hashKey) {
+		return hget(key, hashKey) != null;
+	}
+
+	@Override
+	public Boolean exists(String key) {
+		check();
+		return data.containsKey(key);
+	}
+
+	@Override
+	public String type(String key) {
+		check();
+		Object value = data.get(key);
+		if (value == null) {
+			return "none";
+		}
+		return value instanceof byte[] ? "string" : "hash";
+	}
+
+	@Override
+	public Long strlen(String key) {
+		byte[] value = string(key);
+		return value == null ? 0l : (long) value.length;
+	}
+
+	@Override
+	public byte[] getSetBytes(String key, byte[] value) {
+		byte[] old = string(key);
+		data.put(key, value);
+		return old;
+	}
+
+	@Override
+	public Long hset(String key, String hashKey, String hashVal) {
+		return hash(key, true).put(hashKey, hashVal) == null ? 1l : 0l;
+	}
+
+	@Override
+	public Long hsetBytes(String key, String hashKey, Object hashVal) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String hmset(String key, Map<String, String> map) {
+		hash(key, true).putAll(map);
+		return "OK";
+	}
+
+	@Override
+	public String hmsetObject(String key, Map<String, Object> map) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Map<String, Object> hgetAllObject(String key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Set<String> hkeys(String key) {
+		Map<String, String> hash = hash(key, false);
+		return hash == null ? new LinkedHashSet<String>() : new LinkedHashSet<String>(hash.keySet());
+	}
+
+	@Override
+	public ScanResult<Entry<String, String>> hscan(String key, String cursor, ScanParams params) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public String rename(String oldkey, String newkey) {
+		check();
+		Object value = data.remove(oldkey);
+		if (value == null) {
+			throw new RedisException("ERR no such key");
+		}
+		data.put(newkey, value);
+		return "OK";
+	}
+
+	@Override
+	public long zadd(String key, String value, double score) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public long zrem(String key, String[] value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public long expire(String key, int seconds) {
+		check();
+		return data.containsKey(key) ? 1l : 0l;
+	}
+
+	@Override
+	public Set<String> getKeys(String pattern) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Long zcount(String key, String max, String min) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public LinkedHashSet<String> zrevrangebyscore(String key, String max, String min, int offset, int count) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public <T> T hgetGObject(String key, String hashKey, Class<T> clazz) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public long sadd(String key, String[] members) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean sismember(String key, String value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public long hdel(String key, String field) {
+		Map<String, String> hash = hash(key, false);
+		return hash != null && hash.remove(field) != null ? 1l : 0l;
+	}
+
+	@Override
+	public long hdel(byte[] key, byte[] field) {
+		return hdel(new String(key, UTF8), new String(field, UTF8));
+	}
+
+	@Override
+	public ScanResult<Tuple> zscan(String key, String cursor, ScanParams params) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Set<String> zrange(String key, long start, long end) {
+		throw new UnsupportedOperationException();
+	}
+
+}
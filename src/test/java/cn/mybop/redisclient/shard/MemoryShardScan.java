@@ -0,0 +1,31 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次返回MemoryRedisClient上的全部key
+ */
+public class MemoryShardScan extends ShardScan {
+
+	private final MemoryRedisClient source;
+
+	private boolean finished;
+
+	public MemoryShardScan(MemoryRedisClient source) {
+		super(source, 0);
+		this.source = source;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return !finished;
+	}
+
+	@Override
+	public List<String> next() {
+		finished = true;
+		return new ArrayList<String>(source.data.keySet());
+	}
+
+}
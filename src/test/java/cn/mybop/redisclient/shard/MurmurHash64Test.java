@@ -0,0 +1,63 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+import redis.clients.util.MurmurHash;
+
+public class MurmurHash64Test extends TestCase {
+
+	public void testSameAsJedis() throws Exception {
+		Random random = new Random(1);
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int len = random.nextInt(40);
+			for (int j = 0; j < len; j++) {
+				switch (random.nextInt(5)) {
+				case 0:
+					sb.append((char) (0x20 + random.nextInt(0x5f)));
+					break;
+				case 1:
+					sb.append((char) (0x80 + random.nextInt(0x780)));
+					break;
+				case 2:
+					sb.append((char) (0x4e00 + random.nextInt(0x5000)));
+					break;
+				case 3:
+					sb.appendCodePoint(0x10000 + random.nextInt(0x10000));
+					break;
+				default:
+					//不成对的代理字符
+					sb.append((char) (0xd800 + random.nextInt(0x800)));
+				}
+			}
+			String str = sb.toString();
+			byte[] bytes = str.getBytes("UTF-8");
+			long expected = new MurmurHash().hash(bytes);
+			assertEquals(str, expected, MurmurHash64.hash(bytes));
+			assertEquals(str, expected, MurmurHash64.hash(str));
+		}
+	}
+
+	public void testHashRingSameAsTreeMap() {
+		MurmurHash algo = new MurmurHash();
+		TreeMap<Long, Integer> nodes = new TreeMap<Long, Integer>();
+		for (int i = 0; i < 5; i++) {
+			for (int n = 0; n < 160; n++) {
+				nodes.put(algo.hash("SHARD-" + i + "-NODE-" + n), i);
+			}
+		}
+		HashRingLocator locator = new HashRingLocator(5, 160);
+		for (int i = 0; i < 10000; i++) {
+			long hash = algo.hash("key" + i);
+			SortedMap<Long, Integer> tail = nodes.tailMap(hash);
+			int expected = tail.isEmpty() ? nodes.get(nodes.firstKey()) : tail.get(tail.firstKey());
+			assertEquals(expected, locator.locate(hash));
+		}
+		assertEquals(nodes.get(nodes.firstKey()).intValue(), locator.locate(Long.MAX_VALUE));
+		assertEquals(nodes.get(nodes.firstKey()).intValue(), locator.locate(Long.MIN_VALUE));
+	}
+
+}
@@ -0,0 +1,49 @@
+package cn.mybop.redisclient.shard;
+
+import cn.mybop.redisclient.DeadlineExceededException;
+import cn.mybop.redisclient.RedisException;
+import cn.mybop.redisclient.ServerUnavailableException;
+import junit.framework.TestCase;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+public class ShardFailoverTest extends TestCase {
+
+	public void testIsUnavailable() {
+		assertTrue(ShardFailover.isUnavailable(new ServerUnavailableException("redis达到最大重试次数抛出异常")));
+		assertTrue(ShardFailover.isUnavailable(new RedisException("redis操作失败", new JedisConnectionException("refused"))));
+		assertFalse(ShardFailover.isUnavailable(new RedisException("redis操作失败", new JedisDataException("WRONGTYPE"))));
+		assertFalse(ShardFailover.isUnavailable(new DeadlineExceededException("redis调用超过截止时间", new JedisConnectionException("timeout"))));
+	}
+
+	public void testMarkDown() {
+		ShardFailover failover = new ShardFailover(2, 60000, 10);
+		assertTrue(failover.isAvailable(0));
+		failover.markDown(0);
+		assertFalse(failover.isAvailable(0));
+		assertTrue(failover.isAvailable(1));
+		assertFalse(failover.markUp(0));
+		assertTrue(failover.isAvailable(0));
+	}
+
+	public void testHandoff() {
+		ShardFailover failover = new ShardFailover(2, 60000, 2);
+		assertTrue(failover.recordHandoff(0, "a"));
+		assertTrue(failover.recordHandoff(0, "a"));
+		assertTrue(failover.recordHandoff(1, "b"));
+		assertFalse(failover.recordHandoff(1, "c"));
+		assertEquals(2, failover.getHandoffCount());
+		assertTrue(failover.isHandoff(0, "a"));
+		assertFalse(failover.isHandoff(1, "a"));
+
+		//同时只有一个交还
+		assertTrue(failover.markUp(0));
+		assertFalse(failover.markUp(0));
+		failover.removeHandoff(0, "a");
+		failover.finishHandback(0);
+		assertFalse(failover.markUp(0));
+		assertEquals(1, failover.getHandoffCount());
+		assertTrue(failover.recordHandoff(1, "c"));
+	}
+
+}
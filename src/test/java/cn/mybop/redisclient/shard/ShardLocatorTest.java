@@ -0,0 +1,130 @@
+package cn.mybop.redisclient.shard;
+
+import junit.framework.TestCase;
+
+public class ShardLocatorTest extends TestCase {
+
+	private static final int KEYS = 20000;
+
+	private void assertBalanced(ShardLocator locator, double tolerance) {
+		int[] counts = new int[locator.getShardCount()];
+		for (int i = 0; i < KEYS; i++) {
+			counts[locator.locate(MurmurHash64.hash("key" + i))]++;
+		}
+		double expected = (double) KEYS / counts.length;
+		for (int i = 0; i < counts.length; i++) {
+			assertTrue("shard " + i + ":" + counts[i], Math.abs(counts[i] - expected) <= expected * tolerance);
+		}
+	}
+
+	/**
+	 * 增加一个分片后 只有约1/(n+1)的key移动 且都移动到新分片
+	 */
+	private void assertMinimalMovement(ShardLocator before, ShardLocator after) {
+		int moved = 0;
+		for (int i = 0; i < KEYS; i++) {
+			long key = MurmurHash64.hash("key" + i);
+			int from = before.locate(key);
+			int to = after.locate(key);
+			if (from != to) {
+				assertEquals(before.getShardCount(), to);
+				moved++;
+			}
+		}
+		double expected = (double) KEYS / after.getShardCount();
+		assertTrue("moved:" + moved, Math.abs(moved - expected) <= expected * 0.2);
+	}
+
+	public void testJump() {
+		assertEquals(0, JumpLocator.jump(12345l, 1));
+		assertBalanced(new JumpLocator(10), 0.1);
+		assertMinimalMovement(new JumpLocator(10), new JumpLocator(11));
+	}
+
+	public void testRendezvous() {
+		assertBalanced(new RendezvousLocator(10), 0.1);
+		assertMinimalMovement(new RendezvousLocator(10), new RendezvousLocator(11));
+	}
+
+	public void testMaglev() {
+		assertBalanced(new MaglevLocator(10, 65537), 0.1);
+		try {
+			new MaglevLocator(10, 65536);
+			fail();
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	public void testHashRing() {
+		assertBalanced(new HashRingLocator(10, 160), 0.3);
+	}
+
+	/**
+	 * 实际分布与权重及getExpectedDistribution一致
+	 */
+	private void assertWeighted(ShardLocator locator, double[] weights, double tolerance) {
+		int[] counts = new int[locator.getShardCount()];
+		for (int i = 0; i < KEYS; i++) {
+			counts[locator.locate(MurmurHash64.hash("key" + i))]++;
+		}
+		double total = 0.0;
+		for (int i = 0; i < weights.length; i++) {
+			total += weights[i];
+		}
+		double[] distribution = locator.getExpectedDistribution();
+		double sum = 0.0;
+		for (int i = 0; i < counts.length; i++) {
+			double actual = (double) counts[i] / KEYS;
+			assertEquals("shard " + i, weights[i] / total, actual, weights[i] / total * tolerance);
+			assertEquals("shard " + i, distribution[i], actual, 0.02);
+			sum += distribution[i];
+		}
+		assertEquals(1.0, sum, 1e-9);
+	}
+
+	public void testWeighted() {
+		double[] weights = new double[] {1, 1, 2, 4};
+		assertWeighted(new RendezvousLocator(4, weights), weights, 0.1);
+		assertWeighted(new HashRingLocator(4, 160, weights), weights, 0.3);
+	}
+
+	public void testExpectedDistribution() {
+		double[] even = new double[] {1, 1, 1, 1, 1};
+		assertWeighted(new JumpLocator(5), even, 0.1);
+		assertWeighted(new MaglevLocator(5, 65537), even, 0.1);
+		assertWeighted(new HashRingLocator(5, 160), even, 0.3);
+		assertEquals(1.0, new HashRingLocator(1, 1).getExpectedDistribution()[0], 0.0);
+	}
+
+	/**
+	 * 接替分片不是原分片 且原分片的key分散到其他各分片
+	 */
+	private void assertLocateNext(ShardLocator locator) {
+		int[] counts = new int[locator.getShardCount()];
+		for (int i = 0; i < KEYS; i++) {
+			long hash = MurmurHash64.hash("key" + i);
+			int shard = locator.locate(hash);
+			int next = locator.locateNext(hash, shard);
+			assertTrue(next != shard);
+			assertEquals(next, locator.locateNext(hash, shard));
+			if (shard == 0) {
+				counts[next]++;
+			}
+		}
+		for (int i = 1; i < counts.length; i++) {
+			assertTrue("shard " + i + ":" + counts[i], counts[i] > 0);
+		}
+	}
+
+	public void testLocateNext() {
+		assertLocateNext(new HashRingLocator(5, 160));
+		assertLocateNext(new JumpLocator(5));
+		assertLocateNext(new RendezvousLocator(5));
+		assertLocateNext(new RendezvousLocator(5, new double[] {1, 2, 1, 2, 1}));
+		assertLocateNext(new MaglevLocator(5, 65537));
+		assertEquals(0, new JumpLocator(1).locateNext(12345l, 0));
+		assertEquals(0, new HashRingLocator(1, 10).locateNext(12345l, 0));
+	}
+
+}
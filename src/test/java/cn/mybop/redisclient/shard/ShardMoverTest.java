@@ -0,0 +1,93 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.Properties;
+
+import cn.mybop.redisclient.IRedisClient;
+import junit.framework.TestCase;
+
+public class ShardMoverTest extends TestCase {
+
+	private MemoryRedisClient[] shards;
+
+	private ShardRing oldRing;
+
+	private ShardRing newRing;
+
+	private ShardMover mover;
+
+	@Override
+	protected void setUp() throws Exception {
+		shards = new MemoryRedisClient[3];
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = new MemoryRedisClient("shard" + i);
+		}
+		Properties props = new Properties();
+		oldRing = new ShardRing(ShardLocatorFactory.getShardLocator(props, 2), false);
+		newRing = new ShardRing(ShardLocatorFactory.getShardLocator(props, 3), false);
+		mover = new ShardMover(shards, oldRing, newRing, 100, 100000, new MemoryKeyMigrator()) {
+
+			@Override
+			protected ShardScan createScan(IRedisClient source, int scanCount) {
+				return new MemoryShardScan((MemoryRedisClient) source);
+			}
+
+		};
+		for (int i = 0; i < 200; i++) {
+			shards[oldRing.locate("key" + i)].set("key" + i, "v" + i);
+		}
+	}
+
+	/**
+	 * 扫描后每个key都在新环的分片上 再扫描一轮没有迁移时结束
+	 */
+	public void testRun() {
+		mover.run();
+		assertTrue(mover.getMovedCount() > 0);
+		assertFalse(mover.isFinished());
+		int moved = 0;
+		for (int i = 0; i < 200; i++) {
+			String key = "key" + i;
+			int from = oldRing.locate(key);
+			int to = newRing.locate(key);
+			assertEquals("v" + i, shards[to].get(key));
+			if (from != to) {
+				assertFalse(shards[from].exists(key));
+				moved++;
+			}
+		}
+		assertEquals(moved, mover.getMovedCount());
+
+		mover.run();
+		assertTrue(mover.isFinished());
+		assertEquals(moved, mover.getMovedCount());
+	}
+
+	/**
+	 * 写入前迁移单个key 新分片上已有的值不被覆盖
+	 */
+	public void testMigrate() {
+		String key = movedKey();
+		int from = oldRing.locate(key);
+		int to = newRing.locate(key);
+		mover.migrate(key);
+		assertFalse(shards[from].exists(key));
+		assertEquals(1, mover.getMovedCount());
+
+		shards[from].set(key, "old");
+		shards[to].set(key, "new");
+		mover.migrate(key);
+		assertEquals("new", shards[to].get(key));
+		assertFalse(shards[from].exists(key));
+	}
+
+	private String movedKey() {
+		for (int i = 0; i < 200; i++) {
+			if (oldRing.locate("key" + i) != newRing.locate("key" + i)) {
+				return "key" + i;
+			}
+		}
+		fail();
+		return null;
+	}
+
+}
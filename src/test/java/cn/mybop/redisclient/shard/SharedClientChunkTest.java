@@ -0,0 +1,173 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.RedisException;
+import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.impl.SharedClient;
+import junit.framework.TestCase;
+
+public class SharedClientChunkTest extends TestCase {
+
+	private List<MemoryRedisClient> shards;
+
+	private final List<String> reads = new ArrayList<String>();
+
+	private SharedClient client;
+
+	@Override
+	protected void setUp() throws Exception {
+		shards = new ArrayList<MemoryRedisClient>();
+		List<IRedisClient> clients = new ArrayList<IRedisClient>();
+		for (int i = 0; i < 3; i++) {
+			MemoryRedisClient shard = new MemoryRedisClient("shard" + i) {
+
+				@Override
+				public byte[] getBytes(String key) {
+					synchronized (reads) {
+						reads.add(key);
+					}
+					return super.getBytes(key);
+				}
+
+			};
+			shards.add(shard);
+			clients.add(shard);
+		}
+		Properties props = new Properties();
+		props.setProperty(Constants.CLIENT_NAME, "test");
+		props.setProperty(Constants.SHARED_CHUNK_THRESHOLD, "256");
+		props.setProperty(Constants.SHARED_CHUNK_SIZE, "64");
+		props.setProperty(Constants.SHARED_HASH_TAG, "true");
+		client = new SharedClient(props, clients);
+		client.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.stop();
+	}
+
+	private byte[] value(int length, int seed) {
+		byte[] value = new byte[length];
+		for (int i = 0; i < length; i++) {
+			value[i] = (byte) (i * 31 + seed);
+		}
+		return value;
+	}
+
+	private int chunkCount() {
+		int count = 0;
+		for (int i = 0; i < shards.size(); i++) {
+			for (String key : shards.get(i).data.keySet()) {
+				if (key.contains(":chunk:")) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 分块在后台删除
+	 * @param expected
+	 * @throws InterruptedException
+	 */
+	private void awaitChunkCount(int expected) throws InterruptedException {
+		for (int i = 0; i < 100 && chunkCount() != expected; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, chunkCount());
+	}
+
+	/**
+	 * 覆盖写入后只保留当前版本的分块
+	 */
+	public void testOverwriteDeletesReplacedChunks() throws Exception {
+		byte[] first = value(400, 1);
+		byte[] second = value(416, 2);
+		client.setBytes("big", first);
+		assertTrue(Arrays.equals(first, client.getBytes("big")));
+		awaitChunkCount(7);
+		client.setBytes("big", second);
+		assertTrue(Arrays.equals(second, client.getBytes("big")));
+		awaitChunkCount(7);
+	}
+
+	/**
+	 * getSet返回拼接后的旧值 并删除旧版本的分块
+	 */
+	public void testGetSetBytes() throws Exception {
+		byte[] first = value(400, 1);
+		byte[] second = value(320, 2);
+		assertNull(client.getSetBytes("big", first));
+		assertTrue(Arrays.equals(first, client.getSetBytes("big", second)));
+		assertTrue(Arrays.equals(second, client.getBytes("big")));
+		awaitChunkCount(5);
+	}
+
+	/**
+	 * 删除清单时删除分块 删除和过期时不读取大value 非字符串类型不报错
+	 */
+	public void testDelAndExpire() throws Exception {
+		client.setBytes("big", value(400, 1));
+		client.setBytes("plain", value(200, 2));
+		client.hset("hash", "f", "v");
+		awaitChunkCount(7);
+
+		reads.clear();
+		assertEquals(1l, client.expire("big", 60));
+		assertEquals(1l, client.expire("plain", 60));
+		assertEquals(1l, client.expire("hash", 60));
+		assertEquals(Arrays.asList("big"), reads);
+
+		reads.clear();
+		assertEquals(Long.valueOf(1l), client.del("plain"));
+		assertEquals(Long.valueOf(1l), client.del("hash"));
+		assertEquals(Long.valueOf(1l), client.del("big"));
+		assertEquals(Arrays.asList("big"), reads);
+		awaitChunkCount(0);
+	}
+
+	/**
+	 * 小value、字符串覆盖分块存储的key时删除原分块
+	 */
+	public void testOverwriteWithSmallValue() throws Exception {
+		client.setBytes("big", value(400, 1));
+		awaitChunkCount(7);
+		client.setBytes("big", value(100, 2));
+		assertTrue(Arrays.equals(value(100, 2), client.getBytes("big")));
+		awaitChunkCount(0);
+
+		client.setBytes("big", value(400, 3));
+		awaitChunkCount(7);
+		client.set("big", "small");
+		assertEquals("small", client.get("big"));
+		awaitChunkCount(0);
+	}
+
+	/**
+	 * 分块存储的key不支持rename 覆盖分块存储的newkey时删除其分块
+	 */
+	public void testRename() throws Exception {
+		client.setBytes("{r}big", value(400, 1));
+		client.setBytes("{r}plain", value(100, 2));
+		awaitChunkCount(7);
+		try {
+			client.rename("{r}big", "{r}other");
+			fail();
+		} catch (RedisException e) {
+			//expected
+		}
+		assertTrue(Arrays.equals(value(400, 1), client.getBytes("{r}big")));
+
+		assertEquals("OK", client.rename("{r}plain", "{r}big"));
+		assertTrue(Arrays.equals(value(100, 2), client.getBytes("{r}big")));
+		awaitChunkCount(0);
+	}
+
+}
@@ -0,0 +1,132 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.impl.SharedClient;
+import junit.framework.TestCase;
+
+public class SharedClientFailoverTest extends TestCase {
+	
+	private List<MemoryRedisClient> shards;
+	
+	private SharedClient client;
+
+	@Override
+	protected void setUp() throws Exception {
+		shards = new ArrayList<MemoryRedisClient>();
+		List<IRedisClient> clients = new ArrayList<IRedisClient>();
+		for (int i = 0; i < 3; i++) {
+			MemoryRedisClient shard = new MemoryRedisClient("shard" + i);
+			shards.add(shard);
+			clients.add(shard);
+		}
+		Properties props = new Properties();
+		props.setProperty(Constants.CLIENT_NAME, "test");
+		props.setProperty(Constants.SHARED_FAILOVER, Constants.SharedFailover.READWRITE);
+		//每次调用都尝试原分片
+		props.setProperty(Constants.SHARED_FAILOVER_RETRY_INTERVAL, "0");
+		client = new SharedClient(props, clients) {
+			
+			@Override
+			protected KeyMigrator createKeyMigrator() {
+				return new MemoryKeyMigrator();
+			}
+			
+		};
+		client.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.stop();
+	}
+	
+	private MemoryRedisClient owner(String key) {
+		for (int i = 0; i < shards.size(); i++) {
+			if (shards.get(i).data.containsKey(key)) {
+				return shards.get(i);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 访问原分片上的其他key 原分片调用成功后在后台交还
+	 * @param owner
+	 */
+	private void touch(MemoryRedisClient owner) {
+		for (int i = 0; i < 1000; i++) {
+			client.set("probe" + i, "v");
+			if (owner("probe" + i) == owner) {
+				return;
+			}
+		}
+		fail();
+	}
+	
+	private void awaitHandback() throws InterruptedException {
+		for (int i = 0; i < 100 && client.getHandoffCount() > 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, client.getHandoffCount());
+	}
+
+	/**
+	 * 不可用期间的写入在恢复后可读 交还后覆盖原分片的旧值
+	 */
+	public void testWriteDuringOutage() throws InterruptedException {
+		client.set("k", "old");
+		MemoryRedisClient owner = owner("k");
+		owner.down = true;
+		client.set("k", "new");
+		assertEquals(1, client.getHandoffCount());
+		owner.down = false;
+		
+		//交还前读取接替分片
+		assertEquals("new", client.get(new String[] {"k"}).get("k"));
+		assertEquals("new", client.get("k"));
+		touch(owner);
+		awaitHandback();
+		assertEquals("new", owner.get("k"));
+		assertSame(owner, owner("k"));
+		assertEquals("new", client.get("k"));
+	}
+
+	/**
+	 * 不可用期间删除的key在恢复后不可读 交还后原分片上也删除
+	 */
+	public void testDeleteDuringOutage() throws InterruptedException {
+		client.set("d", "old");
+		MemoryRedisClient owner = owner("d");
+		owner.down = true;
+		client.del("d");
+		owner.down = false;
+		
+		assertTrue(client.get(new String[] {"d"}).isEmpty());
+		assertNull(client.get("d"));
+		touch(owner);
+		awaitHandback();
+		assertNull(owner("d"));
+		assertNull(client.get("d"));
+	}
+
+	/**
+	 * 恢复后的写入先交还再写入原分片
+	 */
+	public void testWriteAfterRecover() throws InterruptedException {
+		client.set("w", "old");
+		MemoryRedisClient owner = owner("w");
+		owner.down = true;
+		client.set("w", "outage");
+		owner.down = false;
+		client.set("w", "recovered");
+		awaitHandback();
+		assertEquals("recovered", client.get("w"));
+		assertSame(owner, owner("w"));
+	}
+
+}
@@ -0,0 +1,153 @@
+package cn.mybop.redisclient.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import cn.mybop.redisclient.IRedisClient;
+import cn.mybop.redisclient.common.Constants;
+import cn.mybop.redisclient.impl.SharedClient;
+import junit.framework.TestCase;
+
+public class SharedClientReshardTest extends TestCase {
+
+	private List<MemoryRedisClient> shards;
+
+	private ShardRing oldRing;
+
+	private ShardRing newRing;
+
+	private ManualMover mover;
+
+	private SharedClient client;
+
+	@Override
+	protected void setUp() throws Exception {
+		shards = new ArrayList<MemoryRedisClient>();
+		List<IRedisClient> clients = new ArrayList<IRedisClient>();
+		for (int i = 0; i < 3; i++) {
+			MemoryRedisClient shard = new MemoryRedisClient("shard" + i);
+			shards.add(shard);
+			clients.add(shard);
+		}
+		Properties props = new Properties();
+		props.setProperty(Constants.CLIENT_NAME, "test");
+		props.setProperty(Constants.SHARED_RESHARD_FROM, "2");
+		oldRing = new ShardRing(ShardLocatorFactory.getShardLocator(props, 2), false);
+		newRing = new ShardRing(ShardLocatorFactory.getShardLocator(props, 3), false);
+		client = new SharedClient(props, clients) {
+
+			@Override
+			protected ShardMover createShardMover(IRedisClient[] shards, ShardRing fromRing, ShardRing toRing, int scanCount, int rate) {
+				mover = new ManualMover(shards, fromRing, toRing, scanCount, rate);
+				return mover;
+			}
+
+		};
+		client.start();
+	}
+
+	/**
+	 * 后台定时执行的扫描不迁移 由测试调用scan触发
+	 */
+	private static class ManualMover extends ShardMover {
+
+		public ManualMover(IRedisClient[] shards, ShardRing oldRing, ShardRing newRing, int scanCount, int rate) {
+			super(shards, oldRing, newRing, scanCount, rate, new MemoryKeyMigrator());
+		}
+
+		@Override
+		public void run() {
+		}
+
+		public void scan() {
+			super.run();
+		}
+
+		@Override
+		protected ShardScan createScan(IRedisClient source, int scanCount) {
+			return new MemoryShardScan((MemoryRedisClient) source);
+		}
+
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.stop();
+	}
+
+	/**
+	 * 新环中属于新分片的key
+	 * @param prefix
+	 * @return
+	 */
+	private String movedKey(String prefix) {
+		for (int i = 0; i < 1000; i++) {
+			if (oldRing.locate(prefix + i) != newRing.locate(prefix + i)) {
+				return prefix + i;
+			}
+		}
+		fail();
+		return null;
+	}
+
+	private MemoryRedisClient oldOwner(String key) {
+		return shards.get(oldRing.locate(key));
+	}
+
+	private MemoryRedisClient newOwner(String key) {
+		return shards.get(newRing.locate(key));
+	}
+
+	/**
+	 * 新分片读取不到时读取旧分片 新分片上有值时以新分片为准
+	 */
+	public void testDualRead() {
+		String key = movedKey("r");
+		oldOwner(key).set(key, "old");
+		assertEquals("old", client.get(key));
+		assertTrue(client.exists(key));
+		assertEquals("old", client.get(new String[] {key}).get(key));
+		assertEquals("string", client.type(key));
+		assertEquals("none", client.type(movedKey("missing")));
+
+		newOwner(key).set(key, "new");
+		assertEquals("new", client.get(key));
+		assertNull(client.get(movedKey("missing")));
+	}
+
+	/**
+	 * 写入前把旧分片上的key迁移到新分片
+	 */
+	public void testMigrateOnWrite() {
+		String strKey = movedKey("s");
+		oldOwner(strKey).set(strKey, "old");
+		client.set(strKey, "new");
+		assertFalse(oldOwner(strKey).exists(strKey));
+		assertEquals("new", newOwner(strKey).get(strKey));
+		assertEquals(1, mover.getMovedCount());
+	}
+
+	/**
+	 * 迁移完成后不再读取旧环
+	 */
+	public void testFinish() {
+		String key = movedKey("f");
+		oldOwner(key).set(key, "v");
+		assertTrue(client.isResharding());
+		mover.scan();
+		assertEquals("v", newOwner(key).get(key));
+		assertFalse(oldOwner(key).exists(key));
+		assertTrue(client.isResharding());
+
+		mover.scan();
+		assertFalse(client.isResharding());
+		assertEquals("v", client.get(key));
+
+		//不再读取旧环
+		oldOwner(key).set(key, "stale");
+		newOwner(key).del(key);
+		assertNull(client.get(key));
+	}
+
+}
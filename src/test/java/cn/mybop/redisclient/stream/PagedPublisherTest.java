@@ -0,0 +1,212 @@
+package cn.mybop.redisclient.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+public class PagedPublisherTest extends TestCase {
+
+	private static class TestSubscriber<T> implements Subscriber<T> {
+		
+		private Subscription subscription;
+		
+		private final List<T> items = new ArrayList<T>();
+		
+		private Throwable error;
+		
+		private int completed;
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(T item) {
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			completed++;
+		}
+		
+	}
+	
+	private final List<String> gets = new ArrayList<String>();
+	
+	//手动执行预取任务
+	private final List<Runnable> tasks = new ArrayList<Runnable>();
+	
+	private final Executor executor = new Executor() {
+		
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+		
+	};
+	
+	private void runTasks() {
+		List<Runnable> pending = new ArrayList<Runnable>(tasks);
+		tasks.clear();
+		for (int i = 0; i < pending.size(); i++) {
+			pending.get(i).run();
+		}
+	}
+	
+	private PagedPublisher<Entry<String, Integer>> newPublisher(List<String> keys, int batchSize) {
+		return RedisPublishers.multiGet(keys, batchSize, new RedisPublishers.BatchGet<Integer>() {
+			
+			@Override
+			public Map<String, Integer> get(String[] keys) {
+				gets.add(Arrays.toString(keys));
+				Map<String, Integer> rtn = new HashMap<String, Integer>();
+				for (int i = 0; i < keys.length; i++) {
+					if (!keys[i].startsWith("missing")) {
+						rtn.put(keys[i], Integer.valueOf(keys[i].length()));
+					}
+				}
+				return rtn;
+			}
+			
+		});
+	}
+
+	/**
+	 * 只按需求读取 不存在的key不发送
+	 */
+	public void testBackpressure() {
+		TestSubscriber<Entry<String, Integer>> subscriber = new TestSubscriber<Entry<String, Integer>>();
+		newPublisher(Arrays.asList("a", "bb", "missing", "ccc", "dddd"), 10).subscribe(subscriber);
+		assertTrue(gets.isEmpty());
+		subscriber.subscription.request(2);
+		assertEquals(Arrays.asList("[a, bb]"), gets);
+		assertEquals(2, subscriber.items.size());
+		assertEquals("bb", subscriber.items.get(1).getKey());
+		assertEquals(Integer.valueOf(2), subscriber.items.get(1).getValue());
+		subscriber.subscription.request(1);
+		assertEquals(Arrays.asList("[a, bb]", "[missing]", "[ccc]"), gets);
+		assertEquals(3, subscriber.items.size());
+		assertEquals(0, subscriber.completed);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(4, subscriber.items.size());
+		assertEquals(1, subscriber.completed);
+		assertNull(subscriber.error);
+	}
+
+	public void testBatchSize() {
+		TestSubscriber<Entry<String, Integer>> subscriber = new TestSubscriber<Entry<String, Integer>>();
+		newPublisher(Arrays.asList("a", "b", "c", "d", "e"), 2).subscribe(subscriber);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(Arrays.asList("[a, b]", "[c, d]", "[e]"), gets);
+		assertEquals(5, subscriber.items.size());
+		assertEquals(1, subscriber.completed);
+	}
+
+	public void testEmpty() {
+		TestSubscriber<Entry<String, Integer>> subscriber = new TestSubscriber<Entry<String, Integer>>();
+		newPublisher(new ArrayList<String>(), 2).subscribe(subscriber);
+		assertEquals(1, subscriber.completed);
+		assertTrue(gets.isEmpty());
+	}
+
+	public void testInvalidRequest() {
+		TestSubscriber<Entry<String, Integer>> subscriber = new TestSubscriber<Entry<String, Integer>>();
+		newPublisher(Arrays.asList("a", "b"), 2).subscribe(subscriber);
+		subscriber.subscription.request(0);
+		assertTrue(subscriber.error instanceof IllegalArgumentException);
+		subscriber.subscription.request(1);
+		assertTrue(subscriber.items.isEmpty());
+		assertEquals(0, subscriber.completed);
+	}
+
+	public void testCancel() {
+		TestSubscriber<Entry<String, Integer>> subscriber = new TestSubscriber<Entry<String, Integer>>();
+		newPublisher(Arrays.asList("a", "b", "c"), 1).subscribe(subscriber);
+		subscriber.subscription.request(1);
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(2);
+		assertEquals(1, subscriber.items.size());
+		assertEquals(0, subscriber.completed);
+	}
+
+	public void testError() {
+		final RuntimeException e = new RuntimeException("test");
+		TestSubscriber<Entry<String, Integer>> subscriber = new TestSubscriber<Entry<String, Integer>>();
+		RedisPublishers.multiGet(Arrays.asList("a"), 1, new RedisPublishers.BatchGet<Integer>() {
+			
+			@Override
+			public Map<String, Integer> get(String[] keys) {
+				throw e;
+			}
+			
+		}).subscribe(subscriber);
+		subscriber.subscription.request(1);
+		assertSame(e, subscriber.error);
+	}
+
+	/**
+	 * 发送当前批时预取下一批 使用预取的结果不再读取
+	 */
+	public void testPrefetch() {
+		TestSubscriber<Entry<String, Integer>> subscriber = new TestSubscriber<Entry<String, Integer>>();
+		newPublisher(Arrays.asList("a", "b", "c", "d", "e"), 2).prefetch(executor).subscribe(subscriber);
+		assertTrue(tasks.isEmpty());
+		subscriber.subscription.request(2);
+		assertEquals(Arrays.asList("[a, b]"), gets);
+		assertEquals(1, tasks.size());
+		runTasks();
+		assertEquals(Arrays.asList("[a, b]", "[c, d]"), gets);
+		
+		subscriber.subscription.request(2);
+		assertEquals(Arrays.asList("[a, b]", "[c, d]"), gets);
+		assertEquals(4, subscriber.items.size());
+		assertEquals("d", subscriber.items.get(3).getKey());
+		runTasks();
+		
+		subscriber.subscription.request(2);
+		assertEquals(Arrays.asList("[a, b]", "[c, d]", "[e]"), gets);
+		assertEquals(5, subscriber.items.size());
+		assertEquals(1, subscriber.completed);
+		assertTrue(tasks.isEmpty());
+	}
+
+	/**
+	 * 预取失败时在读取该批时发送错误
+	 */
+	public void testPrefetchError() {
+		final RuntimeException e = new RuntimeException("test");
+		TestSubscriber<Entry<String, Integer>> subscriber = new TestSubscriber<Entry<String, Integer>>();
+		RedisPublishers.multiGet(Arrays.asList("a", "b"), 1, new RedisPublishers.BatchGet<Integer>() {
+			
+			@Override
+			public Map<String, Integer> get(String[] keys) {
+				if ("b".equals(keys[0])) {
+					throw e;
+				}
+				return Collections.singletonMap(keys[0], Integer.valueOf(1));
+			}
+			
+		}).prefetch(executor).subscribe(subscriber);
+		subscriber.subscription.request(1);
+		assertEquals(1, subscriber.items.size());
+		runTasks();
+		assertNull(subscriber.error);
+		subscriber.subscription.request(1);
+		assertSame(e, subscriber.error);
+	}
+
+}
@@ -0,0 +1,49 @@
+package cn.mybop.redisclient.write;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class HintLogTest extends TestCase {
+
+	public void testMemoryHintLog() {
+		HintLog hintLog = new MemoryHintLog(2);
+		assertTrue(hintLog.append(new WriteCommand(WriteType.INCR, WriteCommand.encode("a"))));
+		assertTrue(hintLog.append(new WriteCommand(WriteType.DEL, WriteCommand.encode("b"))));
+		assertFalse(hintLog.append(new WriteCommand(WriteType.DEL, WriteCommand.encode("c"))));
+		assertTrue(hintLog.isOverflowed());
+		assertEquals(1, hintLog.peek(1).size());
+		hintLog.remove(2);
+		assertEquals(0, hintLog.size());
+		assertFalse(hintLog.isOverflowed());
+	}
+
+	public void testMappedHintLog() throws Exception {
+		File file = File.createTempFile("redis-client", ".hint");
+		file.delete();
+		try {
+			HintLog hintLog = new MappedHintLog(file, 1024);
+			assertTrue(hintLog.append(new WriteCommand(WriteType.SET, WriteCommand.encode("a"), WriteCommand.encode("1"))));
+			assertTrue(hintLog.append(new WriteCommand(WriteType.FLUSHDB, null)));
+			assertTrue(hintLog.append(new WriteCommand(WriteType.ZREM, WriteCommand.encode("z"), WriteCommand.encode(new String[] {"m1", "m2"}))));
+			hintLog.remove(1);
+			hintLog.close();
+
+			hintLog = new MappedHintLog(file, 1024);
+			assertEquals(2, hintLog.size());
+			List<WriteCommand> commands = hintLog.peek(10);
+			assertEquals(WriteType.FLUSHDB, commands.get(0).getType());
+			assertNull(commands.get(0).getKey());
+			assertEquals(WriteType.ZREM, commands.get(1).getType());
+			assertEquals("z", new String(commands.get(1).getKey(), "UTF-8"));
+			assertEquals("m2", new String(commands.get(1).getArgs()[1], "UTF-8"));
+			hintLog.remove(2);
+			assertEquals(0, hintLog.size());
+			hintLog.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+}
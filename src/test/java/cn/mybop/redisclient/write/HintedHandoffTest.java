@@ -0,0 +1,174 @@
+package cn.mybop.redisclient.write;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cn.mybop.redisclient.impl.AdvancedRedisManager;
+import junit.framework.TestCase;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class HintedHandoffTest extends TestCase {
+
+	private static final String[] SERVERS = new String[] {"127.0.0.1:7001", "127.0.0.1:7002"};
+
+	private final List<String> available = new ArrayList<String>(Arrays.asList(SERVERS));
+	
+	//获取连接失败的次数 用完后返回可以重放的连接
+	private int failures = Integer.MAX_VALUE;
+
+	private final AdvancedRedisManager manager = new AdvancedRedisManager("127.0.0.1:7001,127.0.0.1:7002", new JedisPoolConfig(), 1000, null, 0, null) {
+
+		@Override
+		public List<String> getAvailableServers() {
+			return new ArrayList<String>(available);
+		}
+
+		@Override
+		public boolean isAvailableServer(String server) {
+			return available.contains(server);
+		}
+
+		@Override
+		public boolean removeJedisPool(String server) {
+			return available.remove(server);
+		}
+
+		@Override
+		public Jedis getJedis(String server) {
+			if (failures > 0) {
+				failures--;
+				throw new JedisConnectionException("redis[" + server + "]不可用");
+			}
+			return new Jedis("127.0.0.1", 7002) {
+				
+				@Override
+				public Pipeline pipelined() {
+					Pipeline pipeline = new Pipeline() {
+						
+						@Override
+						public void sync() {
+						}
+						
+					};
+					pipeline.setClient(new Client() {
+						
+						@Override
+						protected Connection sendCommand(Command cmd, byte[]... args) {
+							return this;
+						}
+						
+					});
+					return pipeline;
+				}
+				
+			};
+		}
+
+	};
+
+	private List<WriteCommand> commands(String key) {
+		return Arrays.asList(new WriteCommand(WriteType.DEL, WriteCommand.encode(key)));
+	}
+
+	public void testRouteHintsUnavailable() {
+		HintedHandoff hintedHandoff = new HintedHandoff(manager, SERVERS, 100, null, 0, 10, "test");
+		available.remove(SERVERS[1]);
+		List<String> writable = hintedHandoff.route(commands("a"));
+		assertEquals(Arrays.asList(SERVERS[0]), writable);
+		assertEquals(0, hintedHandoff.size(SERVERS[0]));
+		assertEquals(1, hintedHandoff.size(SERVERS[1]));
+
+		//没有可写入的服务器时不记录
+		available.clear();
+		assertEquals(0, hintedHandoff.route(commands("b")).size());
+		assertEquals(1, hintedHandoff.size(SERVERS[1]));
+	}
+
+	public void testHintOnlyEjected() {
+		HintedHandoff hintedHandoff = new HintedHandoff(manager, SERVERS, 100, null, 0, 10, "test");
+		assertFalse(hintedHandoff.hint(SERVERS[0], commands("a")));
+		assertEquals(0, hintedHandoff.size(SERVERS[0]));
+
+		available.remove(SERVERS[0]);
+		assertTrue(hintedHandoff.hint(SERVERS[0], commands("a")));
+		assertEquals(1, hintedHandoff.size(SERVERS[0]));
+	}
+
+	public void testRecoveringServerKeepsHinting() {
+		HintedHandoff hintedHandoff = new HintedHandoff(manager, SERVERS, 100, null, 0, 10, "test");
+		available.remove(SERVERS[1]);
+		hintedHandoff.route(commands("a"));
+
+		//重放失败时不加入可用列表 继续记录hint
+		assertFalse(hintedHandoff.beforeAdd(SERVERS[1]));
+		assertTrue(hintedHandoff.isRecovering(SERVERS[1]));
+
+		//已加入可用列表但重放未完成时 写入仍记录hint
+		available.add(SERVERS[1]);
+		assertEquals(Arrays.asList(SERVERS[0]), hintedHandoff.route(commands("b")));
+		assertTrue(hintedHandoff.hint(SERVERS[1], commands("c")));
+		assertEquals(3, hintedHandoff.size(SERVERS[1]));
+
+		//重放仍然失败时重新剔除
+		hintedHandoff.afterAdd(SERVERS[1]);
+		assertFalse(available.contains(SERVERS[1]));
+		assertTrue(hintedHandoff.isRecovering(SERVERS[1]));
+		assertEquals(3, hintedHandoff.size(SERVERS[1]));
+	}
+
+	public void testRecoveredWithoutHints() {
+		HintedHandoff hintedHandoff = new HintedHandoff(manager, SERVERS, 100, null, 0, 10, "test");
+		available.remove(SERVERS[1]);
+		assertTrue(hintedHandoff.beforeAdd(SERVERS[1]));
+		available.add(SERVERS[1]);
+		hintedHandoff.afterAdd(SERVERS[1]);
+		assertFalse(hintedHandoff.isRecovering(SERVERS[1]));
+		assertEquals(2, hintedHandoff.route(commands("a")).size());
+		assertEquals(0, hintedHandoff.size(SERVERS[1]));
+	}
+
+	public void testFinalReplayBounded() {
+		HintedHandoff hintedHandoff = new HintedHandoff(manager, SERVERS, 100, null, 0, 1, "test");
+		available.remove(SERVERS[1]);
+		hintedHandoff.route(commands("a"));
+		hintedHandoff.route(commands("b"));
+		hintedHandoff.route(commands("c"));
+
+		//持有写锁时只重放一批 剩余的下次加入时继续重放
+		failures = 2;
+		assertFalse(hintedHandoff.beforeAdd(SERVERS[1]));
+		available.add(SERVERS[1]);
+		hintedHandoff.afterAdd(SERVERS[1]);
+		assertFalse(available.contains(SERVERS[1]));
+		assertTrue(hintedHandoff.isRecovering(SERVERS[1]));
+		assertEquals(2, hintedHandoff.size(SERVERS[1]));
+
+		assertTrue(hintedHandoff.beforeAdd(SERVERS[1]));
+		assertEquals(0, hintedHandoff.size(SERVERS[1]));
+	}
+
+	public void testOverflowKeepsServerOut() {
+		HintedHandoff hintedHandoff = new HintedHandoff(manager, SERVERS, 1, null, 0, 10, "test");
+		available.remove(SERVERS[1]);
+		hintedHandoff.route(commands("a"));
+		hintedHandoff.route(commands("b"));
+
+		//溢出时重放后仍不加入可用列表
+		failures = 0;
+		assertFalse(hintedHandoff.beforeAdd(SERVERS[1]));
+		assertEquals(0, hintedHandoff.size(SERVERS[1]));
+		assertTrue(hintedHandoff.isOverflowed(SERVERS[1]));
+		assertFalse(hintedHandoff.beforeAdd(SERVERS[1]));
+
+		hintedHandoff.clearOverflow(SERVERS[1]);
+		assertTrue(hintedHandoff.beforeAdd(SERVERS[1]));
+	}
+
+}
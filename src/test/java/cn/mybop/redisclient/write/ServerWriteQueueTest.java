@@ -0,0 +1,170 @@
+package cn.mybop.redisclient.write;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class ServerWriteQueueTest extends TestCase {
+
+	private static class BlockingHandler implements WriteHandler {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+
+		private final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+
+		private final List<Integer> batches = Collections.synchronizedList(new ArrayList<Integer>());
+
+		@Override
+		public List<Object> writeBatch(String server, List<WriteCommand> commands) throws Exception {
+			started.countDown();
+			release.await();
+			batches.add(commands.size());
+			List<Object> replies = new ArrayList<Object>(commands.size());
+			for (int i = 0; i < commands.size(); i++) {
+				written.add(toString(commands.subList(i, i + 1)));
+				replies.add("OK");
+			}
+			return replies;
+		}
+
+		@Override
+		public void close(String server) {
+		}
+
+		@Override
+		public void onFailure(String server, List<WriteCommand> commands, Throwable cause) {
+			failed.add(toString(commands));
+		}
+
+		private String toString(List<WriteCommand> commands) {
+			WriteCommand command = commands.get(0);
+			return command.getType() + " " + new String(command.getKey()) + (command.getArgs().length > 0 ? " " + new String(command.getArgs()[0]) : "");
+		}
+
+	}
+
+	private static List<WriteCommand> set(String key, String value) {
+		return Collections.singletonList(new WriteCommand(WriteType.SET, key.getBytes(), value.getBytes()));
+	}
+
+	private static List<WriteCommand> incr(String key) {
+		return Collections.singletonList(new WriteCommand(WriteType.INCR, key.getBytes()));
+	}
+
+	private void waitDrained(ServerWriteQueue queue, BlockingHandler handler, int count) throws InterruptedException {
+		handler.release.countDown();
+		for (int i = 0; i < 200 && handler.written.size() < count; i++) {
+			Thread.sleep(10);
+		}
+	}
+
+	public void testCoalesce() throws Exception {
+		BlockingHandler handler = new BlockingHandler();
+		ServerWriteQueue queue = new ServerWriteQueue("127.0.0.1:6379", 10, BackpressurePolicy.BLOCK, 10, true, 2, handler, "test");
+		queue.offer(set("first", "0"));
+		assertTrue(handler.started.await(1, TimeUnit.SECONDS));
+		queue.offer(set("a", "1"));
+		queue.offer(set("b", "1"));
+		queue.offer(set("a", "2"));
+		queue.offer(incr("b"));
+		queue.offer(set("b", "3"));
+		assertEquals(4, queue.size());
+		assertEquals(1, queue.getCoalescedCount());
+		waitDrained(queue, handler, 5);
+		assertEquals("[SET first 0, SET a 2, SET b 1, INCR b, SET b 3]", handler.written.toString());
+		assertEquals("[1, 2, 2]", handler.batches.toString());
+		queue.stop(1000);
+	}
+
+	public void testDropOldest() throws Exception {
+		BlockingHandler handler = new BlockingHandler();
+		ServerWriteQueue queue = new ServerWriteQueue("127.0.0.1:6379", 2, BackpressurePolicy.DROP_OLDEST, 10, false, 10, handler, "test");
+		queue.offer(set("first", "0"));
+		assertTrue(handler.started.await(1, TimeUnit.SECONDS));
+		queue.offer(set("a", "1"));
+		queue.offer(set("b", "1"));
+		queue.offer(set("c", "1"));
+		assertEquals(1, queue.getDroppedCount());
+		assertEquals("[SET a 1]", handler.failed.toString());
+		waitDrained(queue, handler, 3);
+		assertEquals("[SET first 0, SET b 1, SET c 1]", handler.written.toString());
+		queue.stop(1000);
+	}
+
+	public void testCallback() throws Exception {
+		BlockingHandler handler = new BlockingHandler();
+		ServerWriteQueue queue = new ServerWriteQueue("127.0.0.1:6379", 10, BackpressurePolicy.BLOCK, 10, true, 10, handler, "test");
+		final List<Object> replies = Collections.synchronizedList(new ArrayList<Object>());
+		WriteCallback callback = new WriteCallback() {
+			@Override
+			public void onSuccess(List<Object> rtn) {
+				replies.addAll(rtn);
+			}
+
+			@Override
+			public void onFailure(Throwable cause) {
+				replies.add(cause);
+			}
+		};
+		queue.offer(set("first", "0"));
+		assertTrue(handler.started.await(1, TimeUnit.SECONDS));
+		queue.offer(set("a", "1"), callback);
+		queue.offer(set("a", "2"), callback);
+		assertEquals(0, queue.getCoalescedCount());
+		waitDrained(queue, handler, 3);
+		assertEquals("[OK, OK]", replies.toString());
+		queue.stop(1000);
+	}
+
+	public void testBlockTimeout() throws Exception {
+		BlockingHandler handler = new BlockingHandler();
+		ServerWriteQueue queue = new ServerWriteQueue("127.0.0.1:6379", 1, BackpressurePolicy.BLOCK, 10, false, 10, handler, "test");
+		queue.offer(set("first", "0"));
+		assertTrue(handler.started.await(1, TimeUnit.SECONDS));
+		queue.offer(set("a", "1"));
+		queue.offer(set("b", "1"));
+		assertEquals(1, queue.getRejectedCount());
+		assertEquals("[SET b 1]", handler.failed.toString());
+		queue.stop(10);
+		assertEquals("[SET b 1, SET a 1]", handler.failed.toString());
+		handler.release.countDown();
+	}
+
+	/**
+	 * 调用线程先写入队头的命令 不越过队列中同一个key上的写入
+	 */
+	public void testCallerRunsKeepsOrder() throws Exception {
+		BlockingHandler handler = new BlockingHandler();
+		final ServerWriteQueue queue = new ServerWriteQueue("127.0.0.1:6379", 1, BackpressurePolicy.CALLER_RUNS, 10, false, 10, handler, "test");
+		queue.offer(set("first", "0"));
+		assertTrue(handler.started.await(1, TimeUnit.SECONDS));
+		queue.offer(set("a", "1"));
+		Thread caller = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				queue.offer(set("a", "2"));
+			}
+
+		});
+		caller.start();
+		//写入线程正在写入时调用线程等待
+		caller.join(100);
+		assertTrue(caller.isAlive());
+		waitDrained(queue, handler, 3);
+		caller.join(1000);
+		assertFalse(caller.isAlive());
+		assertEquals("[SET first 0, SET a 1, SET a 2]", handler.written.toString());
+		assertEquals(0, handler.failed.size());
+		queue.stop(1000);
+	}
+
+}
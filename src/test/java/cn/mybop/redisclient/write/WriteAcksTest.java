@@ -0,0 +1,36 @@
+package cn.mybop.redisclient.write;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class WriteAcksTest extends TestCase {
+
+	public void testQuorum() throws InterruptedException {
+		WriteAcks<String> acks = new WriteAcks<String>(2, 3);
+		acks.onSuccess("OK");
+		assertFalse(acks.onFailure("127.0.0.1:6379", new RuntimeException()));
+		assertFalse(acks.await(0));
+		acks.onSuccess("OK");
+		assertTrue(acks.await(-1));
+		Map<String, Throwable> failures = acks.finish();
+		assertEquals(1, failures.size());
+		assertTrue(acks.onFailure("127.0.0.1:6380", new RuntimeException()));
+	}
+
+	public void testUnreachable() throws InterruptedException {
+		WriteAcks<String> acks = new WriteAcks<String>(2, 3);
+		acks.onFailure("127.0.0.1:6379", new RuntimeException());
+		acks.onFailure("127.0.0.1:6380", new RuntimeException());
+		//剩余服务器全部成功也无法达到确认数 不再等待
+		assertFalse(acks.await(-1));
+	}
+
+	public void testAwaitTimeout() throws InterruptedException {
+		WriteAcks<String> acks = new WriteAcks<String>(1, 1);
+		long start = System.currentTimeMillis();
+		assertFalse(acks.await(20000000l));
+		assertTrue(System.currentTimeMillis() - start >= 15);
+	}
+
+}
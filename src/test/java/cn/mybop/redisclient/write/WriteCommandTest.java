@@ -0,0 +1,167 @@
+package cn.mybop.redisclient.write;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Protocol.Command;
+
+public class WriteCommandTest extends TestCase {
+
+	/**
+	 * 只记录发出的命令 不连接服务器
+	 */
+	private static class RecordingClient extends Client {
+
+		private final List<String> commands = new ArrayList<String>();
+
+		@Override
+		protected Connection sendCommand(Command cmd, byte[]... args) {
+			StringBuilder sb = new StringBuilder(cmd.name());
+			for (int i = 0; i < args.length; i++) {
+				sb.append(' ').append(new String(args[i]));
+			}
+			commands.add(sb.toString());
+			return this;
+		}
+
+		@Override
+		protected Connection sendCommand(Command cmd) {
+			commands.add(cmd.name());
+			return this;
+		}
+
+	}
+
+	private static byte[] encode(String str) {
+		return WriteCommand.encode(str);
+	}
+
+	private List<WriteCommand> commands() {
+		List<WriteCommand> commands = new ArrayList<WriteCommand>();
+		commands.add(new WriteCommand(WriteType.SET, encode("k"), encode("v")));
+		commands.add(new WriteCommand(WriteType.SET_PARAMS, encode("k"), encode("v"), encode("NX"), encode("EX"), encode("60")));
+		commands.add(new WriteCommand(WriteType.SETNX, encode("k"), encode("v")));
+		commands.add(new WriteCommand(WriteType.INCR, encode("n")));
+		commands.add(new WriteCommand(WriteType.DECR, encode("n")));
+		commands.add(new WriteCommand(WriteType.INCRBY, encode("n"), encode("5")));
+		commands.add(new WriteCommand(WriteType.DECRBY, encode("n"), encode("-3")));
+		commands.add(new WriteCommand(WriteType.APPEND, encode("k"), encode("w")));
+		commands.add(new WriteCommand(WriteType.DEL, encode("k")));
+		commands.add(new WriteCommand(WriteType.HSET, encode("h"), encode("f"), encode("v")));
+		commands.add(new WriteCommand(WriteType.HMSET, encode("h"), WriteCommand.encode(new String[] {"f1", "v1", "f2", "v2"})));
+		commands.add(new WriteCommand(WriteType.HDEL, encode("h"), WriteCommand.encode(new String[] {"f1", "f2"})));
+		commands.add(new WriteCommand(WriteType.RENAME, encode("k"), encode("k2")));
+		commands.add(new WriteCommand(WriteType.ZADD, encode("z"), encode("1.5"), encode("m")));
+		commands.add(new WriteCommand(WriteType.ZREM, encode("z"), WriteCommand.encode(new String[] {"m1", "m2"})));
+		commands.add(new WriteCommand(WriteType.SADD, encode("s"), WriteCommand.encode(new String[] {"m1", "m2"})));
+		commands.add(new WriteCommand(WriteType.EXPIRE, encode("k"), encode("30")));
+		commands.add(new WriteCommand(WriteType.FLUSHDB, null));
+		commands.add(new WriteCommand(WriteType.GETSET, encode("k"), encode("v")));
+		return commands;
+	}
+
+	private static List<String> apply(List<WriteCommand> commands) {
+		RecordingClient client = new RecordingClient();
+		Pipeline pipeline = new Pipeline();
+		pipeline.setClient(client);
+		for (int i = 0; i < commands.size(); i++) {
+			assertNotNull(commands.get(i).apply(pipeline));
+		}
+		return client.commands;
+	}
+
+	public void testEncode() throws Exception {
+		assertNull(WriteCommand.encode((String) null));
+		assertTrue(Arrays.equals("中文".getBytes("UTF-8"), WriteCommand.encode("中文")));
+		byte[][] encoded = WriteCommand.encode(new String[] {"a", null, "b"});
+		assertEquals(3, encoded.length);
+		assertEquals("a", new String(encoded[0], "UTF-8"));
+		assertNull(encoded[1]);
+		assertEquals("b", new String(encoded[2], "UTF-8"));
+		assertEquals(0, new WriteCommand(WriteType.INCR, encode("k"), (byte[][]) null).getArgs().length);
+	}
+
+	/**
+	 * 序列化后读出的命令与原命令一致 序列化字节数与getSerializedSize一致
+	 */
+	public void testSerialize() {
+		List<WriteCommand> commands = commands();
+		commands.add(new WriteCommand(WriteType.SET, encode("k"), new byte[0]));
+		commands.add(new WriteCommand(WriteType.HDEL, encode("h"), new byte[][] {null}));
+		int size = 0;
+		for (int i = 0; i < commands.size(); i++) {
+			size += commands.get(i).getSerializedSize();
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		for (int i = 0; i < commands.size(); i++) {
+			int position = buffer.position();
+			commands.get(i).writeTo(buffer);
+			assertEquals(commands.get(i).getSerializedSize(), buffer.position() - position);
+		}
+		assertEquals(0, buffer.remaining());
+
+		buffer.flip();
+		for (int i = 0; i < commands.size(); i++) {
+			WriteCommand expected = commands.get(i);
+			WriteCommand actual = WriteCommand.readFrom(buffer);
+			assertEquals(expected.getType(), actual.getType());
+			assertTrue(Arrays.equals(expected.getKey(), actual.getKey()));
+			assertEquals(expected.getArgs().length, actual.getArgs().length);
+			for (int j = 0; j < expected.getArgs().length; j++) {
+				assertTrue(Arrays.equals(expected.getArgs()[j], actual.getArgs()[j]));
+			}
+		}
+		assertEquals(0, buffer.remaining());
+	}
+
+	/**
+	 * 每种类型重放为对应的redis命令
+	 */
+	public void testApply() {
+		List<String> expected = Arrays.asList(
+				"SET k v",
+				"SET k v NX EX 60",
+				"SETNX k v",
+				"INCR n",
+				"DECR n",
+				"INCRBY n 5",
+				"DECRBY n -3",
+				"APPEND k w",
+				"DEL k",
+				"HSET h f v",
+				"HMSET h f1 v1 f2 v2",
+				"HDEL h f1 f2",
+				"RENAME k k2",
+				"ZADD z 1.5 m",
+				"ZREM z m1 m2",
+				"SADD s m1 m2",
+				"EXPIRE k 30",
+				"FLUSHDB",
+				"GETSET k v");
+		assertEquals(expected, apply(commands()));
+	}
+
+	/**
+	 * 从hint中读出后重放的命令与直接重放一致
+	 */
+	public void testReplayAfterSerialize() {
+		List<WriteCommand> commands = commands();
+		HintLog hintLog = new MemoryHintLog(commands.size());
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		for (int i = 0; i < commands.size(); i++) {
+			commands.get(i).writeTo(buffer);
+		}
+		buffer.flip();
+		for (int i = 0; i < commands.size(); i++) {
+			assertTrue(hintLog.append(WriteCommand.readFrom(buffer)));
+		}
+		assertEquals(apply(commands), apply(hintLog.peek(commands.size())));
+	}
+
+}